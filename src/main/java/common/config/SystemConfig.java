@@ -3,6 +3,8 @@ package common.config;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -73,6 +75,56 @@ public class SystemConfig {
         properties.setProperty("heartbeat.interval.ms", "5000");
         properties.setProperty("heartbeat.timeout.ms", "3000");
         properties.setProperty("heartbeat.max.missed", "3");
+        
+        // Configuração de Líder-Seguidores
+        properties.setProperty("leader.state.replication.interval.ms", "1000");
+        properties.setProperty("leader.log.max.entries", "10000");
+        properties.setProperty("leader.log.max.bytes", "67108864");
+        properties.setProperty("leader.replication.batch.max.entries", "500");
+        properties.setProperty("leader.replication.max.inflight", "8");
+        properties.setProperty("leader.snapshot.chunk.bytes", "65536");
+        properties.setProperty("leader.replication.reply.timeout.ms", "2000");
+        properties.setProperty("leader.election.timeout.ms", "3000");
+        properties.setProperty("leader.consensus.enabled", "false");
+        properties.setProperty("leader.commit.timeout.ms", "5000");
+        properties.setProperty("leader.lease.clock.drift.ms", "200");
+        properties.setProperty("leader.group.commit.window.ms", "2");
+        properties.setProperty("leader.group.commit.max.batch", "256");
+        properties.setProperty("leader.write.max.pending", "1024");
+        properties.setProperty("leader.compression.enabled", "true");
+        properties.setProperty("leader.compression.min.bytes", "512");
+        properties.setProperty("leader.compression.dictionary.bytes", "16384");
+        properties.setProperty("leader.inbound.max.threads", "64");
+        properties.setProperty("leader.inbound.apply.queue.capacity", "256");
+        properties.setProperty("componentA.storage.engine", "memory");
+        properties.setProperty("componentA.storage.slab.bytes", "4194304");
+        properties.setProperty("componentA.storage.compaction.live.percent", "50");
+        properties.setProperty("componentA.storage.dir", "data");
+        properties.setProperty("componentA.storage.segment.bytes", "67108864");
+        properties.setProperty("componentA.storage.merge.interval.ms", "60000");
+        properties.setProperty("componentA.storage.fsync", "false");
+        properties.setProperty("componentA.storage.memtable.bytes", "8388608");
+        properties.setProperty("componentA.storage.level0.max.tables", "4");
+        properties.setProperty("componentA.storage.level.multiplier", "10");
+        properties.setProperty("componentA.storage.bloom.bits.per.key", "10");
+        properties.setProperty("gateway.batch.split.keys", "64");
+        properties.setProperty("componentA.scan.max.limit", "1000");
+        properties.setProperty("componentA.expiry.tick.ms", "100");
+        properties.setProperty("componentA.maxmemory.bytes", "0");
+        properties.setProperty("componentA.blob.chunk.bytes", "65536");
+        properties.setProperty("componentA.watch.history.events", "10000");
+        properties.setProperty("componentA.watch.max.waiting", "256");
+        properties.setProperty("componentB.storage.engine", "disk");
+        properties.setProperty("componentB.storage.segment.bytes", "16777216");
+        properties.setProperty("componentB.storage.index.interval.bytes", "4096");
+        properties.setProperty("componentB.storage.fsync", "false");
+        properties.setProperty("componentB.read.max.events", "1000");
+        properties.setProperty("componentB.read.max.bytes", "1048576");
+        properties.setProperty("componentB.read.max.waiting", "256");
+        properties.setProperty("componentA.eviction.policy", "tinylfu");
+        properties.setProperty("componentA.eviction.samples", "5");
+        properties.setProperty("componentA.cluster.peers", "localhost:9182,localhost:9192");
+        properties.setProperty("componentB.cluster.peers", "localhost:9282,localhost:9292");
     }
     
     /**
@@ -132,6 +184,40 @@ public class SystemConfig {
         return defaultValue;
     }
     
+    /**
+     * Obtém uma propriedade do tipo inteiro longo.
+     * 
+     * @param key Chave da propriedade
+     * @param defaultValue Valor padrão se a propriedade não for encontrada ou não for um inteiro válido
+     * @return Valor da propriedade como long
+     */
+    public long getLongProperty(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                // Mantém o valor padrão
+            }
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Obtém uma propriedade do tipo booleano.
+     * 
+     * @param key Chave da propriedade
+     * @param defaultValue Valor padrão se a propriedade não for encontrada
+     * @return Valor da propriedade como booleano
+     */
+    public boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value != null) {
+            return Boolean.parseBoolean(value.trim());
+        }
+        return defaultValue;
+    }
+    
     /**
      * Obtém o host do Gateway de API.
      * 
@@ -257,4 +343,466 @@ public class SystemConfig {
     public int getMaxMissedHeartbeats() {
         return getIntProperty("heartbeat.max.missed", 3);
     }
+    
+    /**
+     * Obtém o intervalo de replicação do log entre líder e seguidores em milissegundos.
+     * 
+     * @return Intervalo de replicação em milissegundos
+     */
+    public int getStateReplicationIntervalMs() {
+        return getIntProperty("leader.state.replication.interval.ms", 1000);
+    }
+    
+    /**
+     * Obtém o número máximo de entradas retidas no log de operações do líder.
+     * Seguidores mais atrasados que essa janela recebem um snapshot completo.
+     * 
+     * @return Número máximo de entradas retidas
+     */
+    public int getReplicationLogMaxEntries() {
+        return getIntProperty("leader.log.max.entries", 10000);
+    }
+    
+    /**
+     * Obtém o tamanho máximo das operações retidas no log de operações do líder, que limita
+     * a janela junto com o número de entradas (por exemplo, com os blocos de valores grandes).
+     * 
+     * @return Tamanho máximo em bytes, contado pelos caracteres das operações
+     */
+    public long getReplicationLogMaxBytes() {
+        return getLongProperty("leader.log.max.bytes", 67108864L);
+    }
+    
+    /**
+     * Obtém o número máximo de entradas do log enviadas em uma única mensagem de replicação.
+     * 
+     * @return Número máximo de entradas por mensagem
+     */
+    public int getReplicationBatchMaxEntries() {
+        return getIntProperty("leader.replication.batch.max.entries", 500);
+    }
+    
+    /**
+     * Obtém o número máximo de lotes de replicação enviados a um seguidor sem confirmação
+     * (janela de controle de fluxo do canal persistente).
+     * 
+     * @return Número máximo de lotes em trânsito por seguidor
+     */
+    public int getReplicationMaxInFlight() {
+        return getIntProperty("leader.replication.max.inflight", 8);
+    }
+    
+    /**
+     * Obtém o tamanho dos blocos em que os snapshots de estado são transferidos aos seguidores.
+     * 
+     * @return Tamanho do bloco em bytes
+     */
+    public int getSnapshotChunkBytes() {
+        return getIntProperty("leader.snapshot.chunk.bytes", 65536);
+    }
+    
+    /**
+     * Obtém o prazo para a resposta de um seguidor a uma mensagem de replicação, também usado
+     * como timeout de leitura dos canais. O seguidor confirma o último bloco de um snapshot
+     * antes de instalá-lo, de modo que o prazo não depende do tamanho do estado.
+     * 
+     * @return Prazo em milissegundos
+     */
+    public int getReplicationReplyTimeoutMs() {
+        return getIntProperty("leader.replication.reply.timeout.ms", 2000);
+    }
+    
+    /**
+     * Obtém o timeout de eleição de líder em milissegundos.
+     * No modo de consenso, cada seguidor sorteia um prazo entre esse valor e o dobro dele.
+     * 
+     * @return Timeout de eleição em milissegundos
+     */
+    public int getLeaderElectionTimeoutMs() {
+        return getIntProperty("leader.election.timeout.ms", 3000);
+    }
+    
+    /**
+     * Verifica se o modo de consenso (confirmação por maioria) está habilitado.
+     * 
+     * @return true se as escritas devem ser confirmadas pela maioria do cluster
+     */
+    public boolean isConsensusEnabled() {
+        return getBooleanProperty("leader.consensus.enabled", false);
+    }
+    
+    /**
+     * Obtém o tempo máximo de espera pela confirmação de uma escrita no modo de consenso.
+     * 
+     * @return Timeout de confirmação em milissegundos
+     */
+    public int getCommitTimeoutMs() {
+        return getIntProperty("leader.commit.timeout.ms", 5000);
+    }
+    
+    /**
+     * Obtém o limite de desvio de relógio entre os membros do cluster em milissegundos.
+     * O lease do líder dura o timeout de eleição menos esse limite.
+     * 
+     * @return Limite de desvio de relógio em milissegundos
+     */
+    public int getLeaseClockDriftMs() {
+        return getIntProperty("leader.lease.clock.drift.ms", 200);
+    }
+    
+    /**
+     * Obtém os endereços líder-seguidor ("host:porta") dos membros do cluster de um tipo de componente.
+     * 
+     * @param componentType Tipo do componente (ex.: "componentA")
+     * @return Lista de endereços (vazia se não configurada)
+     */
+    public List<String> getClusterPeers(String componentType) {
+        List<String> peers = new ArrayList<>();
+        String value = getProperty(componentType + ".cluster.peers");
+        if (value != null) {
+            for (String peer : value.split(",")) {
+                if (!peer.trim().isEmpty()) {
+                    peers.add(peer.trim());
+                }
+            }
+        }
+        return peers;
+    }
+    
+    /**
+     * Obtém a janela de group commit em milissegundos: tempo máximo que uma escrita
+     * aguarda por outras antes da rodada de replicação do seu lote.
+     * 
+     * @return Janela de group commit em milissegundos
+     */
+    public int getGroupCommitWindowMs() {
+        return getIntProperty("leader.group.commit.window.ms", 2);
+    }
+    
+    /**
+     * Obtém o número de escritas que dispara a rodada de replicação antes do fim da janela.
+     * 
+     * @return Tamanho máximo do lote de group commit
+     */
+    public int getGroupCommitMaxBatch() {
+        return getIntProperty("leader.group.commit.max.batch", 256);
+    }
+    
+    /**
+     * Obtém o número máximo de escritas aguardando a replicação ao mesmo tempo; cada uma ocupa
+     * uma thread enquanto aguarda. Nunca é menor que o lote de group commit, para que um lote
+     * cheio possa se formar antes do fim da janela.
+     * 
+     * @return Número máximo de escritas pendentes
+     */
+    public int getWriteMaxPending() {
+        return Math.max(Math.max(1, getGroupCommitMaxBatch()), getIntProperty("leader.write.max.pending", 1024));
+    }
+    
+    /**
+     * Verifica se a compressão das mensagens de replicação e dos snapshots está habilitada.
+     * A compressão só é usada quando o líder e o seguidor a negociam ao abrir o canal.
+     * 
+     * @return true se a compressão está habilitada
+     */
+    public boolean isCompressionEnabled() {
+        return getBooleanProperty("leader.compression.enabled", true);
+    }
+    
+    /**
+     * Obtém o tamanho mínimo (em bytes) de uma mensagem para que seja comprimida.
+     * 
+     * @return Tamanho mínimo em bytes
+     */
+    public int getCompressionMinBytes() {
+        return getIntProperty("leader.compression.min.bytes", 512);
+    }
+    
+    /**
+     * Obtém o tamanho máximo (em bytes) do dicionário de compressão treinado com o tráfego recente.
+     * 
+     * @return Tamanho do dicionário em bytes
+     */
+    public int getCompressionDictionaryBytes() {
+        return getIntProperty("leader.compression.dictionary.bytes", 16384);
+    }
+    
+    /**
+     * Obtém o número máximo de threads do pool que atende as conexões recebidas por um nó
+     * (cada conexão ocupa uma thread de leitura e uma de aplicação enquanto estiver aberta).
+     * 
+     * @return Número máximo de threads
+     */
+    public int getInboundMaxThreads() {
+        return getIntProperty("leader.inbound.max.threads", 64);
+    }
+    
+    /**
+     * Obtém o número máximo de mensagens lidas de uma conexão e ainda não aplicadas.
+     * Com a fila cheia, o nó para de ler a conexão até aplicar as mensagens pendentes.
+     * 
+     * @return Capacidade da fila de aplicação por conexão
+     */
+    public int getInboundApplyQueueCapacity() {
+        return getIntProperty("leader.inbound.apply.queue.capacity", 256);
+    }
+    
+    /**
+     * Obtém o mecanismo de armazenamento do Componente A ("memory", "offheap", "bitcask" ou "lsm").
+     * 
+     * @return Nome do mecanismo de armazenamento
+     */
+    public String getStorageEngine() {
+        String value = getProperty("componentA.storage.engine");
+        return value != null ? value.trim().toLowerCase() : "memory";
+    }
+    
+    /**
+     * Obtém o tamanho (em bytes) de cada slab do armazenamento fora do heap.
+     * 
+     * @return Tamanho do slab em bytes
+     */
+    public int getStorageSlabBytes() {
+        return getIntProperty("componentA.storage.slab.bytes", 4194304);
+    }
+    
+    /**
+     * Obtém o percentual mínimo de bytes vivos de um slab (offheap) ou dos segmentos imutáveis
+     * (bitcask); abaixo dele, os registros vivos são movidos e o espaço recuperado.
+     * 
+     * @return Percentual mínimo de bytes vivos
+     */
+    public int getStorageCompactionLivePercent() {
+        return getIntProperty("componentA.storage.compaction.live.percent", 50);
+    }
+    
+    /**
+     * Obtém o diretório base dos armazenamentos em disco.
+     * 
+     * @return Caminho do diretório
+     */
+    public String getStorageDirectory() {
+        String value = getProperty("componentA.storage.dir");
+        return value != null ? value.trim() : "data";
+    }
+    
+    /**
+     * Obtém o tamanho máximo (em bytes) de um segmento do armazenamento em disco.
+     * 
+     * @return Tamanho do segmento em bytes
+     */
+    public long getStorageSegmentBytes() {
+        return getIntProperty("componentA.storage.segment.bytes", 67108864);
+    }
+    
+    /**
+     * Obtém o intervalo entre as verificações de mesclagem dos segmentos em disco.
+     * 
+     * @return Intervalo em milissegundos
+     */
+    public int getStorageMergeIntervalMs() {
+        return getIntProperty("componentA.storage.merge.interval.ms", 60000);
+    }
+    
+    /**
+     * Verifica se cada escrita no armazenamento em disco deve ser forçada para o disco.
+     * Vale para os segmentos do bitcask e para o log de escrita antecipada do lsm.
+     * Sem isso, uma queda da máquina pode perder as últimas escritas, que são recuperadas do líder.
+     * 
+     * @return true se cada escrita é sincronizada
+     */
+    public boolean isStorageFsyncEnabled() {
+        return getBooleanProperty("componentA.storage.fsync", false);
+    }
+    
+    /**
+     * Obtém o tamanho (em bytes) da memtable do armazenamento LSM, que também é o tamanho
+     * aproximado das tabelas geradas.
+     * 
+     * @return Tamanho da memtable em bytes
+     */
+    public long getStorageMemtableBytes() {
+        return getIntProperty("componentA.storage.memtable.bytes", 8388608);
+    }
+    
+    /**
+     * Obtém o número de tabelas no nível 0 do armazenamento LSM que dispara a compactação
+     * para o nível 1.
+     * 
+     * @return Número máximo de tabelas no nível 0
+     */
+    public int getStorageLevel0MaxTables() {
+        return getIntProperty("componentA.storage.level0.max.tables", 4);
+    }
+    
+    /**
+     * Obtém a razão entre os tamanhos de níveis consecutivos do armazenamento LSM.
+     * 
+     * @return Multiplicador de tamanho entre níveis
+     */
+    public int getStorageLevelMultiplier() {
+        return getIntProperty("componentA.storage.level.multiplier", 10);
+    }
+    
+    /**
+     * Obtém o número de bits por chave dos filtros de Bloom das tabelas do armazenamento LSM.
+     * 
+     * @return Bits por chave
+     */
+    public int getStorageBloomBitsPerKey() {
+        return getIntProperty("componentA.storage.bloom.bits.per.key", 10);
+    }
+    
+    /**
+     * Obtém o número de chaves acima do qual o gateway divide uma leitura em lote (MGET)
+     * entre as réplicas disponíveis.
+     * 
+     * @return Número máximo de chaves por parte (0 desativa a divisão)
+     */
+    public int getGatewayBatchSplitKeys() {
+        return getIntProperty("gateway.batch.split.keys", 64);
+    }
+    
+    /**
+     * Obtém o número máximo de chaves por página das varreduras SCAN e RANGE.
+     * 
+     * @return Tamanho máximo da página
+     */
+    public int getScanMaxLimit() {
+        return getIntProperty("componentA.scan.max.limit", 1000);
+    }
+    
+    /**
+     * Obtém a resolução da roda de temporização que varre as chaves expiradas (SETEX/EXPIRE).
+     * 
+     * @return Duração de um tick em milissegundos
+     */
+    public int getExpiryTickMs() {
+        return getIntProperty("componentA.expiry.tick.ms", 100);
+    }
+    
+    /**
+     * Obtém o limite de memória (em bytes) dos dados do Componente A; acima dele, o líder
+     * remove chaves segundo a política de remoção.
+     * 
+     * @return Limite em bytes (0 desativa o limite)
+     */
+    public long getMaxMemoryBytes() {
+        return getLongProperty("componentA.maxmemory.bytes", 0);
+    }
+    
+    /**
+     * Obtém a política de remoção usada com o limite de memória ("lru", "lfu" ou "tinylfu").
+     * 
+     * @return Nome da política
+     */
+    public String getEvictionPolicy() {
+        String value = getProperty("componentA.eviction.policy");
+        return value != null ? value.trim().toLowerCase() : "tinylfu";
+    }
+    
+    /**
+     * Obtém o número de chaves sorteadas a cada escolha nas políticas lru e lfu.
+     * 
+     * @return Tamanho da amostra
+     */
+    public int getEvictionSamples() {
+        return getIntProperty("componentA.eviction.samples", 5);
+    }
+    
+    /**
+     * Obtém o tamanho (em bytes) dos blocos em que valores grandes ou binários enviados por
+     * HTTP são guardados e replicados.
+     * 
+     * @return Tamanho do bloco em bytes
+     */
+    public int getBlobChunkBytes() {
+        return Math.max(1024, getIntProperty("componentA.blob.chunk.bytes", 65536));
+    }
+    
+    /**
+     * Obtém o número de mudanças de chaves mantidas para que inscrições WATCH sejam retomadas
+     * a partir de uma revisão.
+     * 
+     * @return Tamanho do histórico
+     */
+    public int getWatchHistoryEvents() {
+        return Math.max(1, getIntProperty("componentA.watch.history.events", 10000));
+    }
+    
+    /**
+     * Obtém o número máximo de inscrições WATCH (TCP e HTTP) atendidas ao mesmo tempo pelo
+     * Componente A; cada uma ocupa uma thread enquanto a conexão está aberta.
+     * 
+     * @return Número máximo de inscrições abertas
+     */
+    public int getWatchMaxWaiting() {
+        return Math.max(1, getIntProperty("componentA.watch.max.waiting", 256));
+    }
+    
+    /**
+     * Obtém o mecanismo de armazenamento dos eventos do Componente B: "disk" (log segmentado
+     * em disco, recuperado ao reiniciar) ou "memory".
+     * 
+     * @return Nome do mecanismo
+     */
+    public String getEventStorageEngine() {
+        String value = getProperty("componentB.storage.engine");
+        return value != null ? value.trim().toLowerCase() : "disk";
+    }
+    
+    /**
+     * Obtém o tamanho (em bytes) de cada segmento do log de eventos em disco.
+     * 
+     * @return Tamanho do segmento em bytes
+     */
+    public long getEventSegmentBytes() {
+        return getIntProperty("componentB.storage.segment.bytes", 16777216);
+    }
+    
+    /**
+     * Obtém a distância (em bytes) entre entradas do índice esparso dos segmentos de eventos.
+     * 
+     * @return Intervalo do índice em bytes
+     */
+    public int getEventIndexIntervalBytes() {
+        return getIntProperty("componentB.storage.index.interval.bytes", 4096);
+    }
+    
+    /**
+     * Verifica se cada evento gravado em disco deve ser forçado para o disco.
+     * 
+     * @return true se cada acréscimo é sincronizado
+     */
+    public boolean isEventStorageFsyncEnabled() {
+        return getBooleanProperty("componentB.storage.fsync", false);
+    }
+    
+    /**
+     * Obtém o número máximo de eventos por página das leituras READ do Componente B.
+     * 
+     * @return Tamanho máximo da página em eventos
+     */
+    public int getEventReadMaxEvents() {
+        return Math.max(1, getIntProperty("componentB.read.max.events", 1000));
+    }
+    
+    /**
+     * Obtém o número máximo de bytes de eventos por página das leituras READ do Componente B.
+     * 
+     * @return Tamanho máximo da página em bytes
+     */
+    public int getEventReadMaxBytes() {
+        return Math.max(1, getIntProperty("componentB.read.max.bytes", 1048576));
+    }
+    
+    /**
+     * Obtém o número máximo de leituras com espera e fluxos SSE atendidos ao mesmo tempo pelo
+     * Componente B; cada um ocupa uma thread enquanto a conexão está aberta.
+     * 
+     * @return Número máximo de leituras em espera
+     */
+    public int getEventReadMaxWaiting() {
+        return Math.max(1, getIntProperty("componentB.read.max.waiting", 256));
+    }
 }
@@ -0,0 +1,100 @@
+package common.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Classe que representa uma entrada do log de operações replicado.
+ * Cada entrada carrega um número de sequência, o termo do líder que a criou
+ * e a operação a ser aplicada (ex.: "SET|chave|valor", "ADD_EVENT|evento").
+ */
+public class LogEntry {
+    private final long index;
+    private final int term;
+    private final String operation;
+    
+    /**
+     * Construtor para LogEntry.
+     * 
+     * @param index Número de sequência da entrada no log
+     * @param term Termo do líder que criou a entrada
+     * @param operation Operação a ser aplicada pelos seguidores
+     */
+    public LogEntry(long index, int term, String operation) {
+        this.index = index;
+        this.term = term;
+        this.operation = operation;
+    }
+    
+    /**
+     * Obtém o número de sequência da entrada.
+     * 
+     * @return Número de sequência
+     */
+    public long getIndex() {
+        return index;
+    }
+    
+    /**
+     * Obtém o termo em que a entrada foi criada.
+     * 
+     * @return Termo da entrada
+     */
+    public int getTerm() {
+        return term;
+    }
+    
+    /**
+     * Obtém a operação da entrada.
+     * 
+     * @return Operação
+     */
+    public String getOperation() {
+        return operation;
+    }
+    
+    /**
+     * Converte a entrada para um formato de string para transmissão na rede.
+     * Formato: ENTRY|INDEX|TERM|OPERAÇÃO_BASE64
+     * A operação é codificada em Base64 para preservar separadores e quebras de linha.
+     * 
+     * @return Representação em string da entrada
+     */
+    public String toNetworkString() {
+        String encoded = Base64.getEncoder().encodeToString(operation.getBytes(StandardCharsets.UTF_8));
+        return "ENTRY|" + index + "|" + term + "|" + encoded;
+    }
+    
+    /**
+     * Analisa uma entrada a partir de uma string de rede.
+     * 
+     * @param message Representação em string da entrada na rede
+     * @return Objeto LogEntry
+     * @throws IllegalArgumentException Se o formato da mensagem for inválido
+     */
+    public static LogEntry fromNetworkString(String message) {
+        if (message == null || !message.startsWith("ENTRY|")) {
+            throw new IllegalArgumentException("Formato inválido de entrada de log");
+        }
+        
+        String[] parts = message.split("\\|", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Número inválido de partes na entrada de log");
+        }
+        
+        long index = Long.parseLong(parts[1]);
+        int term = Integer.parseInt(parts[2]);
+        String operation = new String(Base64.getDecoder().decode(parts[3]), StandardCharsets.UTF_8);
+        
+        return new LogEntry(index, term, operation);
+    }
+    
+    @Override
+    public String toString() {
+        return "LogEntry{" +
+               "index=" + index +
+               ", term=" + term +
+               ", operation='" + operation + '\'' +
+               '}';
+    }
+}
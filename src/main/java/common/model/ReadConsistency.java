@@ -0,0 +1,90 @@
+package common.model;
+
+/**
+ * Nível de consistência solicitado para uma leitura.
+ * Leituras com nível explícito podem ser atendidas por qualquer réplica:
+ * - STALE_OK: o estado local da réplica, sem garantias de atualização;
+ * - BOUNDED(ms): o estado local, desde que a réplica esteja no máximo ms milissegundos
+ *   atrás do líder;
+ * - READ_INDEX: a réplica obtém o índice de confirmação do líder e aguarda até tê-lo
+ *   aplicado, o que torna a leitura linearizável.
+ */
+public class ReadConsistency {
+    public enum Level {
+        STALE_OK,
+        BOUNDED,
+        READ_INDEX
+    }
+    
+    private final Level level;
+    private final long maxStalenessMs;
+    
+    /**
+     * Construtor para ReadConsistency.
+     * 
+     * @param level Nível de consistência
+     * @param maxStalenessMs Defasagem máxima aceita em milissegundos (apenas para BOUNDED)
+     */
+    public ReadConsistency(Level level, long maxStalenessMs) {
+        this.level = level;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+    
+    /**
+     * Interpreta um nível de consistência no formato textual usado pelos verbos.
+     * Formatos aceitos: STALE_OK, BOUNDED(ms) e READ_INDEX (sem distinção de maiúsculas).
+     * 
+     * @param text Texto do nível
+     * @return Nível de consistência
+     * @throws IllegalArgumentException Se o texto não for um nível válido
+     */
+    public static ReadConsistency parse(String text) {
+        String value = text.trim().toUpperCase();
+        
+        if (value.equals("STALE_OK")) {
+            return new ReadConsistency(Level.STALE_OK, Long.MAX_VALUE);
+        }
+        if (value.equals("READ_INDEX")) {
+            return new ReadConsistency(Level.READ_INDEX, 0);
+        }
+        if (value.startsWith("BOUNDED(") && value.endsWith(")")) {
+            try {
+                long bound = Long.parseLong(value.substring(8, value.length() - 1).trim());
+                if (bound >= 0) {
+                    return new ReadConsistency(Level.BOUNDED, bound);
+                }
+            } catch (NumberFormatException e) {
+                // Tratado abaixo
+            }
+        }
+        throw new IllegalArgumentException("Nível de consistência inválido: " + text);
+    }
+    
+    /**
+     * Verifica se um texto é um nível de consistência válido.
+     * 
+     * @param text Texto a verificar
+     * @return true se o texto pode ser interpretado por parse
+     */
+    public static boolean isLevel(String text) {
+        try {
+            parse(text);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    public Level getLevel() {
+        return level;
+    }
+    
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+    
+    @Override
+    public String toString() {
+        return level == Level.BOUNDED ? "BOUNDED(" + maxStalenessMs + ")" : level.name();
+    }
+}
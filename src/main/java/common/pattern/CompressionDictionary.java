@@ -0,0 +1,126 @@
+package common.pattern;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dicionário de compressão treinado com o tráfego recente do líder.
+ * Guarda as operações mais recentes do log, nos bytes originais em que seguem nos lotes
+ * comprimidos, e, periodicamente, monta um novo dicionário pré-definido para o Deflater com
+ * as amostras distintas, as mais recentes no final (onde o Deflater as encontra a menor
+ * distância). Em ComponentA, as amostras capturam os prefixos de chave repetidos; em
+ * ComponentB, os eventos quase idênticos. Amostras maiores que um quarto do dicionário são
+ * ignoradas: uma operação volumosa expulsaria todas as outras sem se repetir.
+ */
+public class CompressionDictionary {
+    // Número de novas amostras que dispara o retreinamento do dicionário
+    private static final int RETRAIN_INTERVAL = 4096;
+    
+    // Número mínimo de amostras para montar o primeiro dicionário
+    private static final int MIN_INITIAL_SAMPLES = 64;
+    
+    // Fração do dicionário acima da qual uma amostra é ignorada
+    private static final int MAX_SAMPLE_FRACTION = 4;
+    
+    private final int maxBytes;
+    private final Deque<String> samples = new ArrayDeque<>();
+    private int sampleChars = 0;
+    private int samplesSinceBuild = 0;
+    private int nextId = 1;
+    private volatile Dictionary current;
+    
+    /**
+     * Dicionário montado, identificado por um número crescente.
+     */
+    public static class Dictionary {
+        private final int id;
+        private final byte[] data;
+        
+        Dictionary(int id, byte[] data) {
+            this.id = id;
+            this.data = data;
+        }
+        
+        public int getId() {
+            return id;
+        }
+        
+        public byte[] getData() {
+            return data;
+        }
+    }
+    
+    /**
+     * Construtor para CompressionDictionary.
+     * 
+     * @param maxBytes Tamanho máximo do dicionário em bytes
+     */
+    public CompressionDictionary(int maxBytes) {
+        this.maxBytes = Math.max(256, maxBytes);
+    }
+    
+    /**
+     * Registra uma amostra do tráfego (uma operação do log).
+     * 
+     * @param sample Amostra
+     */
+    public synchronized void record(String sample) {
+        if (sample.length() > maxBytes / MAX_SAMPLE_FRACTION) {
+            return;
+        }
+        samples.addLast(sample);
+        sampleChars += sample.length();
+        while (sampleChars > maxBytes && samples.size() > 1) {
+            sampleChars -= samples.removeFirst().length();
+        }
+        
+        samplesSinceBuild++;
+        if (samplesSinceBuild >= RETRAIN_INTERVAL || (current == null && samplesSinceBuild >= MIN_INITIAL_SAMPLES)) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Obtém o dicionário atual.
+     * 
+     * @return Dicionário, ou null se ainda não há amostras suficientes
+     */
+    public Dictionary current() {
+        return current;
+    }
+    
+    private void rebuild() {
+        // Amostras distintas, da mais recente para a mais antiga, até o limite de tamanho
+        Set<String> distinct = new LinkedHashSet<>();
+        int size = 0;
+        Iterator<String> newestFirst = samples.descendingIterator();
+        while (newestFirst.hasNext() && size < maxBytes) {
+            String sample = newestFirst.next();
+            if (distinct.add(sample)) {
+                size += sample.length();
+            }
+        }
+        
+        List<String> ordered = new ArrayList<>(distinct);
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            builder.append(ordered.get(i)).append('\n');
+        }
+        
+        byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+        if (data.length > maxBytes) {
+            byte[] trimmed = new byte[maxBytes];
+            System.arraycopy(data, data.length - maxBytes, trimmed, 0, maxBytes);
+            data = trimmed;
+        }
+        
+        current = new Dictionary(nextId++, data);
+        samplesSinceBuild = 0;
+    }
+}
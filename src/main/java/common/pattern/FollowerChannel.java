@@ -0,0 +1,610 @@
+package common.pattern;
+
+import common.model.LogEntry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Canal persistente de replicação do líder para um seguidor.
+ * Cada seguidor tem a sua própria conexão de longa duração, uma thread de envio e uma
+ * thread de leitura das confirmações. O envio é pipelined: até maxInFlight lotes podem
+ * aguardar confirmação ao mesmo tempo (janela de controle de fluxo), de modo que um
+ * seguidor lento atrasa apenas o próprio canal.
+ * 
+ * O progresso (próximo índice a enviar e último índice confirmado) é mantido por canal.
+ * Quando as entradas de que o seguidor precisa já foram descartadas do log, o líder
+ * transfere um snapshot em blocos (SNAPSHOT_BEGIN seguido de SNAPSHOT_CHUNK), intercalando
+ * os blocos com as entradas novas do log, que o seguidor guarda até concluir a instalação.
+ * O seguidor informa o deslocamento já recebido, o que permite retomar uma transferência
+ * interrompida. O último bloco é confirmado assim que gravado; a instalação do estado corre no
+ * seguidor fora do caminho das respostas, e a sua conclusão chega depois, como um aviso
+ * (INSTALLED ou INSTALL_FAILED) que não ocupa a janela de mensagens em trânsito.
+ * 
+ * Após uma falha, o canal reconecta com espera crescente (até MAX_RECONNECT_DELAY_MS) e
+ * retoma a partir da última entrada confirmada; se ela já saiu do log, o seguidor recebe um
+ * snapshot. Um seguidor só deixa de ser atendido quando entra novamente no cluster.
+ * 
+ * Ao abrir a conexão, o canal negocia a compressão com o seguidor; se ambos a suportam,
+ * lotes e blocos de snapshot acima do tamanho mínimo seguem comprimidos (ver PayloadCodec).
+ */
+public class FollowerChannel {
+    private static final Logger LOGGER = Logger.getLogger(FollowerChannel.class.getName());
+    
+    // Seguidor
+    private final LeaderFollower owner;
+    private final String host;
+    private final int port;
+    
+    // Marcador, na fila de lotes em trânsito, das mensagens de snapshot
+    private static final long SNAPSHOT_MESSAGE = -1;
+    
+    // Espera máxima entre tentativas de reconexão
+    private static final long MAX_RECONNECT_DELAY_MS = 10000;
+    
+    // Configuração
+    private final int maxInFlight;
+    private final int chunkSize;
+    private final long heartbeatIntervalMs;
+    private final int replyTimeoutMs;
+    
+    // Progresso da replicação (protegido por lock)
+    private final Object lock = new Object();
+    private final Deque<Long> inFlightStarts = new ArrayDeque<>();
+    private final Deque<Long> inFlightSentAt = new ArrayDeque<>();
+    private long lastAckedSentAt = 0;
+    private long nextIndex;
+    private long matchIndex = 0;
+    private long resyncIndex = Long.MAX_VALUE;
+    private boolean signaled = false;
+    private boolean heartbeatRequested = false;
+    private boolean snapshotRequested = false;
+    private long lastSendAt = 0;
+    private long pausedUntil = 0;
+    private long reconnectDelayMs;
+    
+    // Transferência de snapshot em andamento (protegida por lock)
+    private Snapshot transfer;
+    private boolean transferAwaitingOffset = false;
+    private long transferOffset = 0;
+    private long transferResendFrom = -1;
+    private boolean lastSentChunk = false;
+    
+    // Conexão
+    private volatile boolean running = false;
+    private volatile Socket socket;
+    private PayloadCodec codec;
+    private Thread senderThread;
+    
+    /**
+     * Lote pronto para envio a um seguidor.
+     */
+    static final class Batch {
+        // Indica que as entradas pedidas já foram descartadas e o seguidor precisa de um snapshot
+        static final Batch SNAPSHOT_REQUIRED = new Batch(null, null, null, 0, 0);
+        
+        final String header;
+        final List<LogEntry> entries;
+        final String payload;
+        final long startIndex;
+        final long endIndex;
+        
+        /**
+         * @param header Linha APPEND do lote, sem a quebra de linha
+         * @param entries Entradas do lote, usadas pela compressão (ver PayloadCodec)
+         * @param payload Mensagem completa (cabeçalho e entradas, uma por linha)
+         * @param startIndex Primeiro índice enviado (para retroceder em caso de NACK)
+         * @param endIndex Último índice que o seguidor terá após processar o lote
+         */
+        Batch(String header, List<LogEntry> entries, String payload, long startIndex, long endIndex) {
+            this.header = header;
+            this.entries = entries;
+            this.payload = payload;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+    }
+    
+    /**
+     * Construtor para FollowerChannel.
+     * 
+     * @param owner Líder dono do canal
+     * @param host Host do seguidor
+     * @param port Porta líder-seguidor do seguidor
+     * @param nextIndex Primeiro índice do log a enviar
+     * @param maxInFlight Número máximo de lotes aguardando confirmação
+     * @param chunkSize Tamanho dos blocos de snapshot em bytes
+     * @param heartbeatIntervalMs Intervalo de heartbeats (0 para não enviar mensagens vazias)
+     * @param replyTimeoutMs Tempo máximo de espera por uma confirmação
+     */
+    FollowerChannel(LeaderFollower owner, String host, int port, long nextIndex, int maxInFlight, int chunkSize,
+                    long heartbeatIntervalMs, int replyTimeoutMs) {
+        this.owner = owner;
+        this.host = host;
+        this.port = port;
+        this.nextIndex = Math.max(1, nextIndex);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.replyTimeoutMs = replyTimeoutMs;
+        this.reconnectDelayMs = minReconnectDelay();
+    }
+    
+    public void start() {
+        if (running) {
+            return;
+        }
+        
+        running = true;
+        senderThread = new Thread(this::senderLoop, "replication-" + getKey());
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+    
+    public void close() {
+        running = false;
+        closeSocket();
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+    
+    /**
+     * Avisa o canal de que há novas entradas no log.
+     */
+    public void signal() {
+        synchronized (lock) {
+            signaled = true;
+            lock.notifyAll();
+        }
+    }
+    
+    /**
+     * Força o envio de uma mensagem (vazia, se não houver entradas novas) na próxima
+     * oportunidade, usada para confirmar a liderança antes de uma leitura.
+     */
+    public void heartbeat() {
+        synchronized (lock) {
+            heartbeatRequested = true;
+            lock.notifyAll();
+        }
+    }
+    
+    /**
+     * Força o envio de um snapshot completo na próxima oportunidade.
+     */
+    public void requestSnapshot() {
+        synchronized (lock) {
+            snapshotRequested = true;
+            lock.notifyAll();
+        }
+    }
+    
+    public String getKey() {
+        return host + ":" + port;
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    public long getMatchIndex() {
+        synchronized (lock) {
+            return matchIndex;
+        }
+    }
+    
+    /**
+     * Obtém o instante de envio da mensagem mais recente já respondida pelo seguidor.
+     * Como o seguidor só responde depois de receber a mensagem, ele reconheceu o líder
+     * pelo menos a partir desse instante (usado no cálculo do lease do líder).
+     * 
+     * @return Instante em milissegundos (0 se nenhuma resposta foi recebida)
+     */
+    public long getLastAckedSentAt() {
+        synchronized (lock) {
+            return lastAckedSentAt;
+        }
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    private void senderLoop() {
+        while (running) {
+            try {
+                connect();
+                pump();
+            } catch (IOException | RuntimeException e) {
+                // LOGGER.log(Level.WARNING, "Falha no canal de replicação para " + getKey(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            
+            closeSocket();
+            if (!running) {
+                break;
+            }
+            
+            // Aguarda antes de reconectar e retoma a partir da última entrada confirmada; se ela
+            // já saiu do log, prepareBatch pede um snapshot
+            synchronized (lock) {
+                inFlightStarts.clear();
+                inFlightSentAt.clear();
+                resyncIndex = Long.MAX_VALUE;
+                nextIndex = matchIndex + 1;
+                
+                // Um snapshot interrompido é reanunciado; o seguidor informa onde parou
+                if (transfer != null) {
+                    transfer = null;
+                    snapshotRequested = true;
+                }
+                long delay = reconnectDelayMs;
+                reconnectDelayMs = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelayMs * 2);
+                try {
+                    lock.wait(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+        
+        if (codec != null) {
+            codec.close();
+            codec = null;
+        }
+    }
+    
+    private void connect() throws IOException {
+        Socket newSocket = new Socket();
+        try {
+            newSocket.connect(new InetSocketAddress(host, port), replyTimeoutMs);
+            newSocket.setSoTimeout(replyTimeoutMs);
+            newSocket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            newSocket.close();
+            throw e;
+        }
+        socket = newSocket;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(newSocket.getInputStream()));
+        negotiateCompression(newSocket, reader);
+        
+        Thread receiverThread = new Thread(() -> receiverLoop(newSocket, reader), "replication-ack-" + getKey());
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+    
+    /**
+     * Propõe a compressão ao seguidor antes de qualquer outra mensagem da conexão.
+     * Um seguidor sem suporte (ou com a compressão desabilitada) recusa, e o canal segue sem compressão.
+     */
+    private void negotiateCompression(Socket current, BufferedReader reader) throws IOException {
+        if (codec != null) {
+            codec.close();
+            codec = null;
+        }
+        
+        PayloadCodec candidate = owner.createPayloadCodec();
+        if (candidate == null) {
+            return;
+        }
+        
+        PrintWriter writer = new PrintWriter(current.getOutputStream(), true);
+        writer.println(PayloadCodec.HANDSHAKE);
+        String reply = reader.readLine();
+        if (reply == null) {
+            candidate.close();
+            throw new IOException("Conexão encerrada durante a negociação de compressão com " + getKey());
+        }
+        
+        if (PayloadCodec.HANDSHAKE.equals(reply)) {
+            codec = candidate;
+        } else {
+            candidate.close();
+        }
+    }
+    
+    /**
+     * Envia lotes enquanto houver entradas novas, blocos de snapshot pendentes e espaço na janela.
+     */
+    private void pump() throws IOException, InterruptedException {
+        Socket current = socket;
+        PrintWriter writer = new PrintWriter(current.getOutputStream(), false);
+        
+        while (running && !current.isClosed()) {
+            long fromIndex;
+            boolean snapshot;
+            boolean heartbeat;
+            boolean tryEntries;
+            Snapshot chunkSource = null;
+            long chunkOffset = 0;
+            
+            synchronized (lock) {
+                // Janela cheia ou retrocesso pendente: aguarda confirmações
+                if (inFlightStarts.size() >= maxInFlight ||
+                    (resyncIndex != Long.MAX_VALUE && !inFlightStarts.isEmpty()) ||
+                    (transfer != null && (transferAwaitingOffset ||
+                                          (transferResendFrom >= 0 && !inFlightStarts.isEmpty())))) {
+                    lock.wait(replyTimeoutMs);
+                    continue;
+                }
+                
+                if (resyncIndex != Long.MAX_VALUE) {
+                    nextIndex = resyncIndex;
+                    resyncIndex = Long.MAX_VALUE;
+                }
+                
+                if (transferResendFrom >= 0) {
+                    transferOffset = transferResendFrom;
+                    transferResendFrom = -1;
+                }
+                
+                long now = System.currentTimeMillis();
+                if (now < pausedUntil) {
+                    lock.wait(pausedUntil - now);
+                    continue;
+                }
+                
+                fromIndex = nextIndex;
+                snapshot = snapshotRequested && transfer == null;
+                heartbeat = heartbeatRequested || (heartbeatIntervalMs > 0 && now - lastSendAt >= heartbeatIntervalMs);
+                heartbeatRequested = false;
+                snapshotRequested = false;
+                signaled = false;
+                
+                // Blocos e entradas novas se alternam para o seguidor não ficar para trás durante a instalação
+                boolean chunksPending = transfer != null && transferOffset < transfer.getSize();
+                tryEntries = !chunksPending || lastSentChunk;
+                if (chunksPending) {
+                    chunkSource = transfer;
+                    chunkOffset = transferOffset;
+                }
+            }
+            
+            String payload = null;
+            if (!snapshot && tryEntries) {
+                Batch batch = owner.prepareBatch(fromIndex, heartbeat && chunkSource == null);
+                
+                if (batch == Batch.SNAPSHOT_REQUIRED) {
+                    // Com uma transferência ainda sem confirmação final, o novo anúncio aguarda o fim dela
+                    synchronized (lock) {
+                        snapshot = transfer == null;
+                    }
+                } else if (batch != null) {
+                    payload = codec != null ? codec.encodeBatch(batch) : batch.payload;
+                    synchronized (lock) {
+                        enqueueInFlight(batch.startIndex);
+                        nextIndex = batch.endIndex + 1;
+                        lastSentChunk = false;
+                    }
+                }
+            }
+            
+            if (snapshot) {
+                Snapshot newTransfer = owner.prepareSnapshot();
+                payload = newTransfer.beginMessage(owner.getTerm(), owner.getLeaderId()) + "\n";
+                synchronized (lock) {
+                    transfer = newTransfer;
+                    transferAwaitingOffset = true;
+                    transferOffset = 0;
+                    transferResendFrom = -1;
+                    nextIndex = newTransfer.getVersion() + 1;
+                    enqueueInFlight(SNAPSHOT_MESSAGE);
+                    lastSentChunk = true;
+                }
+            } else if (payload == null && chunkSource != null) {
+                payload = codec != null ? codec.encodeChunk(chunkSource, owner.getTerm(), chunkOffset, chunkSize) :
+                          chunkSource.chunkMessage(owner.getTerm(), chunkOffset, chunkSize) + "\n";
+                synchronized (lock) {
+                    transferOffset = Math.min(chunkSource.getSize(), chunkOffset + chunkSize);
+                    enqueueInFlight(SNAPSHOT_MESSAGE);
+                    lastSentChunk = true;
+                }
+            }
+            
+            if (payload == null) {
+                synchronized (lock) {
+                    if (!signaled && !heartbeatRequested && !snapshotRequested && resyncIndex == Long.MAX_VALUE) {
+                        lock.wait(heartbeatIntervalMs > 0 ? heartbeatIntervalMs : replyTimeoutMs);
+                    }
+                }
+                continue;
+            }
+            
+            synchronized (lock) {
+                lastSendAt = System.currentTimeMillis();
+            }
+            
+            writer.print(payload);
+            writer.flush();
+            if (writer.checkError()) {
+                throw new IOException("Falha ao enviar lote para " + getKey());
+            }
+        }
+    }
+    
+    /**
+     * Lê as confirmações do seguidor, na mesma ordem das mensagens enviadas.
+     */
+    private void receiverLoop(Socket current, BufferedReader reader) {
+        try {
+            while (running && !current.isClosed()) {
+                String reply;
+                try {
+                    reply = reader.readLine();
+                } catch (SocketTimeoutException e) {
+                    synchronized (lock) {
+                        // Sem lotes pendentes, o silêncio do seguidor é esperado
+                        if (inFlightStarts.isEmpty()) {
+                            continue;
+                        }
+                    }
+                    throw e;
+                }
+                
+                if (reply == null) {
+                    break;
+                }
+                
+                String[] parts = reply.split("\\|");
+                if (parts.length < 3) {
+                    break;
+                }
+                
+                String command = parts[0];
+                int replyTerm = Integer.parseInt(parts[1]);
+                long replyIndex = Long.parseLong(parts[2]);
+                boolean ack;
+                // Avisos de conclusão da instalação de um snapshot não respondem a nenhuma mensagem
+                boolean report = command.equals("INSTALLED") || command.equals("INSTALL_FAILED");
+                
+                synchronized (lock) {
+                    // Respostas já lidas de uma conexão encerrada não correspondem à fila atual
+                    if (current.isClosed()) {
+                        break;
+                    }
+                    // O seguidor voltou a responder: a próxima falha recomeça a espera pelo mínimo
+                    reconnectDelayMs = minReconnectDelay();
+                    
+                    Long startIndex = report ? null : inFlightStarts.pollFirst();
+                    Long sentAt = report ? null : inFlightSentAt.pollFirst();
+                    if (sentAt != null && replyTerm <= owner.getTerm()) {
+                        lastAckedSentAt = Math.max(lastAckedSentAt, sentAt);
+                    }
+                    
+                    switch (command) {
+                        case "CHUNK_ACK":
+                            // Resposta ao início da transferência: deslocamento a partir do qual retomar
+                            if (transfer != null && transferAwaitingOffset) {
+                                transferOffset = replyIndex;
+                                transferAwaitingOffset = false;
+                            }
+                            ack = true;
+                            break;
+                        case "CHUNK_NACK":
+                            if (transfer != null) {
+                                transferAwaitingOffset = false;
+                                if (replyIndex < 0) {
+                                    // O seguidor descartou a instalação: recomeça com um novo anúncio
+                                    transfer = null;
+                                    snapshotRequested = true;
+                                } else {
+                                    transferResendFrom = transferResendFrom < 0 ?
+                                        replyIndex : Math.min(transferResendFrom, replyIndex);
+                                }
+                            }
+                            ack = true;
+                            break;
+                        case "ACK":
+                            matchIndex = Math.max(matchIndex, replyIndex);
+                            if (startIndex != null && startIndex == SNAPSHOT_MESSAGE) {
+                                // O seguidor já tinha instalado o snapshot anunciado
+                                transfer = null;
+                                transferAwaitingOffset = false;
+                            }
+                            ack = true;
+                            break;
+                        case "INSTALLED":
+                            matchIndex = Math.max(matchIndex, replyIndex);
+                            if (transfer != null && replyIndex >= transfer.getVersion()) {
+                                transfer = null;
+                                transferAwaitingOffset = false;
+                            }
+                            ack = true;
+                            break;
+                        case "INSTALL_FAILED":
+                            // O seguidor descartou o estado recebido: um novo snapshot é anunciado após um intervalo
+                            transfer = null;
+                            transferAwaitingOffset = false;
+                            snapshotRequested = true;
+                            pausedUntil = System.currentTimeMillis() + Math.max(100, heartbeatIntervalMs);
+                            ack = false;
+                            break;
+                        case "NACK":
+                            if (startIndex != null && startIndex == SNAPSHOT_MESSAGE) {
+                                // Mensagem de snapshot rejeitada: anuncia novamente após um intervalo
+                                transfer = null;
+                                transferAwaitingOffset = false;
+                                snapshotRequested = true;
+                                pausedUntil = System.currentTimeMillis() + Math.max(100, heartbeatIntervalMs);
+                            } else if (startIndex != null) {
+                                // Retrocede até a última entrada em comum com o seguidor
+                                long retryIndex = Math.max(1, Math.min(startIndex - 1, replyIndex + 1));
+                                if (!owner.isConsensusEnabled()) {
+                                    retryIndex = Math.max(1, replyIndex + 1);
+                                }
+                                if (retryIndex >= startIndex) {
+                                    // Sem progresso: tenta novamente após um intervalo
+                                    retryIndex = startIndex;
+                                    pausedUntil = System.currentTimeMillis() + Math.max(100, heartbeatIntervalMs);
+                                }
+                                resyncIndex = Math.min(resyncIndex, retryIndex);
+                            }
+                            ack = false;
+                            break;
+                        default:
+                            lock.notifyAll();
+                            throw new IOException("Resposta de replicação inválida: " + reply);
+                    }
+                    lock.notifyAll();
+                }
+                
+                if (!owner.onReplicationReply(this, ack, replyTerm)) {
+                    close();
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // LOGGER.log(Level.WARNING, "Falha ao ler confirmações de " + getKey(), e);
+        }
+        
+        // Força a thread de envio a reconectar (ou encerrar o canal)
+        try {
+            current.close();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao fechar o canal de replicação", e);
+        }
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+    
+    private long minReconnectDelay() {
+        return Math.max(100, heartbeatIntervalMs);
+    }
+    
+    /**
+     * Registra uma mensagem em trânsito. Deve ser chamado com o lock adquirido, antes do envio.
+     */
+    private void enqueueInFlight(long startIndex) {
+        inFlightStarts.addLast(startIndex);
+        inFlightSentAt.addLast(System.currentTimeMillis());
+    }
+    
+    private void closeSocket() {
+        Socket current = socket;
+        if (current != null && !current.isClosed()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // LOGGER.log(Level.WARNING, "Erro ao fechar o canal de replicação", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package common.pattern;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estágio de group commit usado pelo líder.
+ * Agrupa as escritas que chegam dentro de uma pequena janela de tempo (ou até um limite
+ * de tamanho) e executa uma única rodada de replicação para todo o lote, em vez de uma
+ * rodada por escrita. Escritas que chegam enquanto uma rodada está em andamento entram
+ * automaticamente no lote seguinte.
+ */
+public class GroupCommit {
+    private static final Logger LOGGER = Logger.getLogger(GroupCommit.class.getName());
+    
+    // Configuração
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final Runnable flushAction;
+    
+    // Escritas aguardando a próxima rodada
+    private final Object lock = new Object();
+    private int pendingWrites = 0;
+    private long firstPendingAt;
+    
+    private Thread flushThread;
+    private volatile boolean running = false;
+    
+    /**
+     * Construtor para GroupCommit.
+     * 
+     * @param windowMs Tempo máximo que a primeira escrita de um lote espera por outras
+     * @param maxBatchSize Número de escritas que dispara a rodada antes do fim da janela
+     * @param flushAction Ação que replica o lote (executada fora do monitor interno)
+     */
+    public GroupCommit(long windowMs, int maxBatchSize, Runnable flushAction) {
+        this.windowMs = Math.max(0, windowMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushAction = flushAction;
+    }
+    
+    public void start() {
+        if (running) {
+            return;
+        }
+        
+        running = true;
+        flushThread = new Thread(this::flushLoop, "group-commit");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+    
+    public void stop() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+    
+    /**
+     * Registra uma escrita que deve entrar na próxima rodada de replicação.
+     */
+    public void submit() {
+        synchronized (lock) {
+            if (pendingWrites == 0) {
+                firstPendingAt = System.currentTimeMillis();
+            }
+            pendingWrites++;
+            
+            if (pendingWrites == 1 || pendingWrites >= maxBatchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    private void flushLoop() {
+        while (running) {
+            try {
+                synchronized (lock) {
+                    while (running && pendingWrites == 0) {
+                        lock.wait();
+                    }
+                    
+                    // Aguarda o fim da janela ou o lote completo
+                    long deadline = firstPendingAt + windowMs;
+                    long remaining = deadline - System.currentTimeMillis();
+                    while (running && pendingWrites < maxBatchSize && remaining > 0) {
+                        lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                    
+                    if (!running) {
+                        return;
+                    }
+                    pendingWrites = 0;
+                }
+                
+                flushAction.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // LOGGER.log(Level.WARNING, "Erro na rodada de group commit", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package common.pattern;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Conexão recebida de outro membro do cluster (canal de replicação do líder, eleições,
+ * pedidos de índice de leitura).
+ * A conexão é atendida por duas tarefas do pool de conexões do LeaderFollower: a de leitura
+ * separa as mensagens completas (uma mensagem APPEND inclui as suas linhas ENTRY) e as
+ * coloca numa fila limitada; a de aplicação as processa e responde na ordem de chegada.
+ * Quando a fila enche, a leitura para e o TCP segura o líder, sem acumular memória no
+ * seguidor. Nenhuma thread é criada por conexão ou por mensagem.
+ */
+class InboundConnection {
+    private static final Logger LOGGER = Logger.getLogger(InboundConnection.class.getName());
+    
+    // Marcador de fim da leitura na fila de aplicação
+    private static final String[] END_OF_STREAM = new String[0];
+    
+    private final LeaderFollower owner;
+    private final Socket socket;
+    private final BlockingQueue<String[]> applyQueue;
+    private final boolean compressionEnabled;
+    private volatile boolean running = true;
+    
+    /**
+     * Construtor para InboundConnection.
+     * 
+     * @param owner LeaderFollower que processa as mensagens
+     * @param socket Conexão aceita
+     * @param queueCapacity Número máximo de mensagens lidas e ainda não aplicadas
+     * @param compressionEnabled Se a compressão pode ser aceita na negociação
+     */
+    InboundConnection(LeaderFollower owner, Socket socket, int queueCapacity, boolean compressionEnabled) {
+        this.owner = owner;
+        this.socket = socket;
+        this.applyQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.compressionEnabled = compressionEnabled;
+    }
+    
+    /**
+     * Submete as tarefas de leitura e de aplicação ao pool.
+     * 
+     * @param pool Pool de conexões do LeaderFollower
+     * @throws RejectedExecutionException Se o pool estiver esgotado ou encerrado
+     */
+    void start(ExecutorService pool) {
+        pool.execute(this::applyLoop);
+        try {
+            pool.execute(this::readLoop);
+        } catch (RejectedExecutionException e) {
+            applyQueue.offer(END_OF_STREAM);
+            throw e;
+        }
+    }
+    
+    void close() {
+        running = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
+        }
+    }
+    
+    /**
+     * Lê as mensagens completas da conexão e as entrega à fila de aplicação.
+     */
+    private void readLoop() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                String[] message = frame(line, reader);
+                if (message == null) {
+                    break;
+                }
+                applyQueue.put(message);
+            }
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao ler da conexão", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Sem espera: com a fila cheia, a aplicação também termina ao ver a conexão fechada
+            if (!applyQueue.offer(END_OF_STREAM)) {
+                close();
+            }
+        }
+    }
+    
+    /**
+     * Monta uma mensagem completa a partir da sua primeira linha.
+     * 
+     * @return Linhas da mensagem, ou null se a conexão terminou no meio dela
+     */
+    private String[] frame(String line, BufferedReader reader) throws IOException {
+        if (!line.startsWith("APPEND|")) {
+            return new String[] {line};
+        }
+        
+        String[] parts = line.split("\\|");
+        int count = parts.length >= 4 ? Integer.parseInt(parts[3]) : 0;
+        String[] message = new String[count + 1];
+        message[0] = line;
+        for (int i = 1; i <= count; i++) {
+            message[i] = reader.readLine();
+            if (message[i] == null) {
+                return null;
+            }
+        }
+        return message;
+    }
+    
+    /**
+     * Processa as mensagens na ordem de chegada e envia as respostas.
+     */
+    private void applyLoop() {
+        PayloadCodec codec = null;
+        try (PrintWriter writer = new PrintWriter(socket.getOutputStream(), false)) {
+            while (running) {
+                String[] message = applyQueue.take();
+                if (message == END_OF_STREAM) {
+                    break;
+                }
+                
+                if (message[0].startsWith("COMPRESS|")) {
+                    // Negociação da compressão pelo canal do líder
+                    boolean accepted = compressionEnabled && message[0].equals(PayloadCodec.HANDSHAKE);
+                    if (accepted && codec == null) {
+                        codec = new PayloadCodec(null, 0);
+                    }
+                    writer.println(accepted ? PayloadCodec.HANDSHAKE : "COMPRESS|none");
+                } else {
+                    owner.handleMessage(message[0], new BufferedReader(new StringReader(body(message))), writer, codec);
+                }
+                
+                // Agrupa as respostas de mensagens que já chegaram em sequência
+                if (applyQueue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao manipular conexão", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (codec != null) {
+                codec.close();
+            }
+            close();
+            // Libera a leitura caso esteja bloqueada com a fila cheia
+            applyQueue.clear();
+            owner.onInboundClosed(this);
+        }
+    }
+    
+    private static String body(String[] message) {
+        if (message.length == 1) {
+            return "";
+        }
+        
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i < message.length; i++) {
+            body.append(message[i]).append('\n');
+        }
+        return body.toString();
+    }
+}
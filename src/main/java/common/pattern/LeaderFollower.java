@@ -1,31 +1,70 @@
 package common.pattern;
 
-import common.model.ComponentInfo;
+import common.config.SystemConfig;
+import common.model.LogEntry;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Implementação do padrão Líder-Seguidor para sistemas distribuídos.
  * Fornece mecanismos de eleição de líder e replicação de estado.
+ * O líder replica um log de operações numeradas; seguidores aplicam as entradas
+ * incrementalmente e só recebem um snapshot completo (transferido em blocos) ao entrar
+ * no cluster ou quando ficam para trás da janela de log retida pelo líder.
+ * 
+ * No modo de consenso (estilo Raft), o cluster é formado por um conjunto fixo de pares,
+ * o líder é eleito por maioria com timeouts aleatórios, as entradas passam por uma
+ * verificação de consistência (índice e termo da entrada anterior) e só são aplicadas
+ * depois de replicadas na maioria dos nós. Enquanto a maioria confirma as suas mensagens
+ * dentro do timeout de eleição, o líder mantém um lease e pode responder leituras
+ * linearizáveis localmente, sem uma rodada de comunicação.
+ * 
+ * Seguidores também atendem leituras: cada um acompanha há quanto tempo esteve em dia com
+ * o líder (para leituras com defasagem limitada) e pode obter do líder o índice de
+ * confirmação atual e aguardar até aplicá-lo (leituras por índice de leitura).
  */
 public class LeaderFollower {
     private static final Logger LOGGER = Logger.getLogger(LeaderFollower.class.getName());
     
+    // Operação sem efeito registrada pelo líder ao assumir, para confirmar entradas de termos anteriores
+    private static final String NOOP_OPERATION = "NOOP";
+    
     // Informações do componente
     private final String componentType;
     private final String componentId;
@@ -38,25 +77,83 @@ public class LeaderFollower {
     private String leaderId;
     private String leaderHost;
     private int leaderPort;
+    private volatile String votedFor;
+    private volatile long electionDeadline;
+    private final int electionTimeoutMs;
+    private final Random random = new Random();
+    private volatile long lastLeaderContactAt = 0;
+    
+    // Lease do líder: válido por (timeout de eleição - limite de desvio de relógio) após a
+    // confirmação da maioria; só conta a partir da confirmação da primeira entrada do termo
+    private final long leaseDurationMs;
+    private volatile long leaderStartIndex = Long.MAX_VALUE;
+    private final Object leaseMonitor = new Object();
+    
+    // Leituras em seguidores
+    private volatile long lastCaughtUpAt = 0;
+    private volatile String readIndexPeer;
+    private final Object appliedMonitor = new Object();
+    
+    // Gerenciamento de seguidores (para o líder): um canal persistente por seguidor
+    private final Map<String, FollowerChannel> followerChannels = new ConcurrentHashMap<>();
+    private final int maxInFlightBatches;
+    private final int snapshotChunkBytes;
     
-    // Gerenciamento de seguidores (para o líder)
-    private final List<ComponentInfo> followers = Collections.synchronizedList(new ArrayList<>());
+    // Modo de consenso: pares fixos, confirmação por maioria
+    private final boolean consensusEnabled;
+    private final List<String> peers = new ArrayList<>();
+    private final AtomicLong commitIndex = new AtomicLong(0);
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Long>> pendingCommits = new ConcurrentSkipListMap<>();
     
     // Callbacks
     private Consumer<Boolean> onLeadershipChanged;
-    private Consumer<String> onStateUpdate;
+    private BiConsumer<Long, InputStream> onStateUpdate;
+    private BiConsumer<Long, String> onOperation;
+    private Supplier<StateWriter> snapshotSource;
     
     // Comunicação
     private ServerSocket serverSocket;
+    private final Set<InboundConnection> connections = ConcurrentHashMap.newKeySet();
+    
+    // Pool que atende as conexões recebidas; threads ociosas são reaproveitadas entre conexões
+    private final ThreadPoolExecutor connectionPool;
+    private final int applyQueueCapacity;
     
     // Agendador
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private ScheduledFuture<?> leaderTask;
     private boolean running = false;
     
-    // Replicação de estado
-    private String currentState = "";
-    private final int stateReplicationIntervalMs = 1000;
-    private final AtomicInteger stateVersion = new AtomicInteger(0);
+    // Snapshots: último gerado pelo líder e instalação em andamento no seguidor
+    private Snapshot cachedSnapshot;
+    // Serializa a geração de snapshots, feita fora do monitor do log; updateState invalida as
+    // gerações em andamento avançando a época
+    private final Object snapshotMonitor = new Object();
+    private long snapshotEpoch = 0;
+    private SnapshotInstall snapshotInstall;
+    // Com todos os blocos recebidos, o estado é instalado numa thread própria, fora do caminho
+    // das respostas; a conclusão é avisada pela conexão que entregou (ou retomou) o último bloco
+    private final ExecutorService installExecutor;
+    private boolean snapshotApplying = false;
+    private PrintWriter installReplyTo;
+    private SnapshotInstall lastInstalled;
+    private final int stateReplicationIntervalMs;
+    private final AtomicLong stateVersion = new AtomicLong(0);
+    
+    // Compressão negociada dos canais de replicação
+    private final boolean compressionEnabled;
+    private final int compressionMinBytes;
+    private final CompressionDictionary compressionDictionary;
+    private Predicate<String> compressionSampleFilter;
+    
+    // Log de operações replicado
+    private final ReplicatedLog log;
+    private final int maxEntriesPerMessage;
+    // Prazo das respostas dos seguidores
+    private final int replicationReplyTimeoutMs;
+    
+    // Group commit: agrupa escritas próximas em uma única rodada de replicação
+    private final GroupCommit groupCommit;
     
     /**
      * Construtor para o padrão Líder-Seguidor.
@@ -67,10 +164,71 @@ public class LeaderFollower {
      * @param port Porta para comunicação líder-seguidor
      */
     public LeaderFollower(String componentType, String componentId, String host, int port) {
+        this(componentType, componentId, host, port, null);
+    }
+    
+    /**
+     * Construtor para o padrão Líder-Seguidor no modo de consenso.
+     * 
+     * @param componentType Tipo deste componente
+     * @param componentId ID único deste componente
+     * @param host Endereço do host deste componente
+     * @param port Porta para comunicação líder-seguidor
+     * @param peerAddresses Endereços ("host:porta") de todos os membros do cluster, ou null
+     *                      para o modo assíncrono com entrada por JOIN
+     */
+    public LeaderFollower(String componentType, String componentId, String host, int port,
+                          List<String> peerAddresses) {
         this.componentType = componentType;
         this.componentId = componentId;
         this.host = host;
         this.port = port;
+        this.consensusEnabled = peerAddresses != null;
+        
+        SystemConfig config = SystemConfig.getInstance();
+        this.stateReplicationIntervalMs = config.getStateReplicationIntervalMs();
+        this.maxEntriesPerMessage = config.getReplicationBatchMaxEntries();
+        this.maxInFlightBatches = config.getReplicationMaxInFlight();
+        this.snapshotChunkBytes = config.getSnapshotChunkBytes();
+        this.replicationReplyTimeoutMs = config.getReplicationReplyTimeoutMs();
+        this.electionTimeoutMs = config.getLeaderElectionTimeoutMs();
+        this.leaseDurationMs = Math.max(0, electionTimeoutMs - config.getLeaseClockDriftMs());
+        this.log = new ReplicatedLog(config.getReplicationLogMaxEntries(), config.getReplicationLogMaxBytes());
+        this.compressionEnabled = config.isCompressionEnabled();
+        this.compressionMinBytes = config.getCompressionMinBytes();
+        this.compressionDictionary = compressionEnabled ?
+            new CompressionDictionary(config.getCompressionDictionaryBytes()) : null;
+        this.applyQueueCapacity = config.getInboundApplyQueueCapacity();
+        this.connectionPool = new ThreadPoolExecutor(
+            0, Math.max(2, config.getInboundMaxThreads()), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            task -> {
+                Thread thread = new Thread(task, "leader-follower-inbound-" + port);
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.installExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-install-" + port);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.groupCommit = new GroupCommit(
+            config.getGroupCommitWindowMs(), config.getGroupCommitMaxBatch(), this::flushGroupCommit
+        );
+        
+        if (peerAddresses != null) {
+            for (String address : peerAddresses) {
+                String[] hostPort = address.trim().split(":");
+                String peerHost = hostPort[0];
+                int peerPort = Integer.parseInt(hostPort[1]);
+                
+                // O próprio nó pode constar na lista de membros
+                if (peerPort == port && (peerHost.equals(host) || peerHost.equals("localhost"))) {
+                    continue;
+                }
+                peers.add(peerHost + ":" + peerPort);
+            }
+        }
     }
     
     public LeaderFollower onLeadershipChanged(Consumer<Boolean> onLeadershipChanged) {
@@ -78,11 +236,62 @@ public class LeaderFollower {
         return this;
     }
     
-    public LeaderFollower onStateUpdate(Consumer<String> onStateUpdate) {
+    /**
+     * Define o callback que instala um estado completo recebido do líder. O estado é entregue
+     * como fluxo, lido do snapshot recebido, e deve ser consumido durante a chamada, feita numa
+     * thread própria enquanto as entradas seguintes continuam chegando. A versão do snapshot só
+     * passa a ser a versão do nó depois que o callback retorna; uma exceção lançada por ele
+     * mantém a versão anterior e faz o líder reenviar o snapshot.
+     * 
+     * @param onStateUpdate Callback recebendo a versão do snapshot e o estado serializado
+     * @return Esta instância para encadeamento de métodos
+     */
+    public LeaderFollower onStateUpdate(BiConsumer<Long, InputStream> onStateUpdate) {
         this.onStateUpdate = onStateUpdate;
         return this;
     }
     
+    /**
+     * Define o callback que aplica uma operação do log ao estado do componente.
+     * É chamado no líder ao registrar a operação (ou, no modo de consenso, ao confirmá-la)
+     * e nos seguidores ao recebê-la, sempre na ordem dos números de sequência.
+     * 
+     * @param onOperation Callback recebendo o número de sequência e a operação
+     * @return Esta instância para encadeamento de métodos
+     */
+    public LeaderFollower onOperation(BiConsumer<Long, String> onOperation) {
+        this.onOperation = onOperation;
+        return this;
+    }
+    
+    /**
+     * Define o fornecedor de snapshots completos do estado, usado quando um seguidor
+     * entra no cluster ou fica para trás da janela de log retida. O fornecedor é chamado com
+     * o monitor do log adquirido e deve apenas fixar uma visão do estado aplicado, sem
+     * percorrê-lo; o StateWriter retornado a grava depois, fora do monitor, e é fechado em
+     * seguida.
+     * 
+     * @param snapshotSource Fixa o estado atual e retorna quem o grava no snapshot
+     * @return Esta instância para encadeamento de métodos
+     */
+    public LeaderFollower onSnapshotRequest(Supplier<StateWriter> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+        return this;
+    }
+    
+    /**
+     * Define quais operações servem de amostra para o dicionário de compressão. Operações
+     * volumosas ou binárias (blocos de valores grandes, por exemplo) ocupariam o dicionário
+     * sem se repetir nos lotes seguintes.
+     * 
+     * @param compressionSampleFilter Retorna true para as operações que podem ser amostradas
+     * @return Esta instância para encadeamento de métodos
+     */
+    public LeaderFollower compressionSamples(Predicate<String> compressionSampleFilter) {
+        this.compressionSampleFilter = compressionSampleFilter;
+        return this;
+    }
+    
     public void start() {
         if (running) {
             return;
@@ -93,8 +302,11 @@ public class LeaderFollower {
         try {
             serverSocket = new ServerSocket(port);
             startMessageHandler();
+            groupCommit.start();
             
-            if (leaderHost != null && leaderPort > 0) {
+            if (consensusEnabled) {
+                startElectionTimer();
+            } else if (leaderHost != null && leaderPort > 0) {
                 joinCluster();
             } else {
                 becomeLeader();
@@ -114,6 +326,8 @@ public class LeaderFollower {
         
         running = false;
         
+        groupCommit.stop();
+        closeFollowerChannels();
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -132,6 +346,15 @@ public class LeaderFollower {
             }
         }
         
+        // Encerra as conexões persistentes recebidas de outros membros
+        for (InboundConnection connection : connections) {
+            connection.close();
+        }
+        connectionPool.shutdownNow();
+        installExecutor.shutdownNow();
+        
+        failPendingCommits();
+        
         // LOGGER.info(componentType + " parou o padrão Líder-Seguidor");
     }
     
@@ -146,6 +369,10 @@ public class LeaderFollower {
         return isLeader.get();
     }
     
+    public boolean isConsensusEnabled() {
+        return consensusEnabled;
+    }
+    
     public int getTerm() {
         return term.get();
     }
@@ -154,20 +381,369 @@ public class LeaderFollower {
         return leaderId;
     }
     
-    public String getCurrentState() {
-        return currentState;
+    /**
+     * Informa o estado já aplicado antes do início, recuperado de um armazenamento durável.
+     * A numeração do log continua a partir dele e o nó recebe do líder apenas as entradas
+     * seguintes (ou um snapshot, se o líder não as retiver mais). O termo dessa entrada é
+     * desconhecido, de modo que o nó só volta a vencer eleições depois de receber entradas novas.
+     * Deve ser chamado antes de start.
+     * 
+     * @param version Índice da última operação aplicada ao estado recuperado
+     * @return Esta instância
+     */
+    public LeaderFollower restoreStateVersion(long version) {
+        synchronized (log) {
+            if (!running && version > 0) {
+                stateVersion.set(version);
+                commitIndex.set(version);
+                log.resetTo(version, -1);
+            }
+        }
+        return this;
+    }
+    
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+    
+    public long getCommitIndex() {
+        return consensusEnabled ? commitIndex.get() : stateVersion.get();
+    }
+    
+    /**
+     * Obtém o atraso de cada seguidor: quantas entradas do log do líder ele ainda não confirmou.
+     * 
+     * @return Mapa de "host:porta" do seguidor para o número de entradas pendentes
+     */
+    public Map<String, Long> getFollowerLag() {
+        Map<String, Long> lag = new LinkedHashMap<>();
+        long lastIndex = log.getLastIndex();
+        for (FollowerChannel channel : followerChannels.values()) {
+            lag.put(channel.getKey(), Math.max(0, lastIndex - channel.getMatchIndex()));
+        }
+        return lag;
+    }
+    
+    /**
+     * Verifica se este nó é o líder e detém um lease válido.
+     * Com o lease, nenhum outro nó pode ter sido eleito, e o estado local reflete todas as
+     * escritas confirmadas; leituras locais são, portanto, linearizáveis.
+     * Fora do modo de consenso não há lease: retorna apenas se este nó se considera líder.
+     * 
+     * @return true se o líder pode servir leituras linearizáveis localmente
+     */
+    public boolean hasLease() {
+        if (!consensusEnabled) {
+            return isLeader.get();
+        }
+        
+        if (!isLeader.get() || commitIndex.get() < leaderStartIndex || stateVersion.get() < commitIndex.get()) {
+            return false;
+        }
+        return System.currentTimeMillis() < getLeaseExpiry();
+    }
+    
+    /**
+     * Aguarda até que este nó detenha um lease válido (por exemplo, logo após a eleição,
+     * até a primeira rodada de heartbeats ser confirmada pela maioria).
+     * 
+     * @param timeoutMs Tempo máximo de espera em milissegundos
+     * @return true se o lease está válido; false se o tempo esgotou ou o nó não é líder
+     */
+    public boolean awaitLease(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (leaseMonitor) {
+            while (!hasLease()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !isLeader.get()) {
+                    return false;
+                }
+                try {
+                    leaseMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Estima há quantos milissegundos o estado local está atrás do líder: zero no líder
+     * (no modo de consenso, apenas com lease válido) e, nos seguidores, o tempo desde a
+     * última mensagem do líder após a qual todas as entradas confirmadas estavam aplicadas.
+     * 
+     * @return Defasagem estimada em milissegundos (Long.MAX_VALUE se desconhecida)
+     */
+    public long getStalenessMs() {
+        if (isLeader.get()) {
+            return !consensusEnabled || hasLease() ? 0 : Long.MAX_VALUE;
+        }
+        
+        long caughtUpAt = lastCaughtUpAt;
+        return caughtUpAt == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - caughtUpAt;
+    }
+    
+    /**
+     * Obtém um índice de leitura: o índice de confirmação do líder num instante em que a
+     * sua liderança estava confirmada pela maioria. Uma leitura feita após aplicar esse
+     * índice é linearizável. No seguidor, o índice é obtido do líder.
+     * 
+     * @param timeoutMs Tempo máximo de espera em milissegundos
+     * @return Índice de leitura, ou -1 se não foi possível obtê-lo
+     */
+    public long readIndex(long timeoutMs) {
+        if (isLeader.get()) {
+            return confirmReadIndex(timeoutMs);
+        }
+        
+        List<String> candidates = new ArrayList<>();
+        if (readIndexPeer != null) {
+            candidates.add(readIndexPeer);
+        }
+        if (consensusEnabled) {
+            candidates.addAll(peers);
+        } else if (leaderHost != null && leaderPort > 0) {
+            candidates.add(leaderHost + ":" + leaderPort);
+        }
+        
+        for (String peer : candidates) {
+            String response = sendRequest(peer, "READ_INDEX|" + term.get() + "|" + timeoutMs);
+            if (response == null) {
+                continue;
+            }
+            
+            String[] parts = response.split("\\|");
+            if ("READ_INDEX".equals(parts[0]) && parts.length >= 3) {
+                readIndexPeer = peer;
+                return Long.parseLong(parts[2]);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Aguarda até que o estado local tenha aplicado a entrada de índice informado.
+     * 
+     * @param index Índice a aguardar
+     * @param timeoutMs Tempo máximo de espera em milissegundos
+     * @return true se o índice foi aplicado dentro do tempo
+     */
+    public boolean awaitApplied(long index, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (appliedMonitor) {
+            while (stateVersion.get() < index) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    appliedMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Confirma a liderança antes de devolver o índice de leitura. Com lease válido, a
+     * confirmação é imediata; caso contrário, força um heartbeat e aguarda que a maioria
+     * responda a mensagens enviadas depois do pedido.
+     */
+    private long confirmReadIndex(long timeoutMs) {
+        if (!consensusEnabled) {
+            return stateVersion.get();
+        }
+        if (hasLease()) {
+            return commitIndex.get();
+        }
+        
+        long requestedAt = System.currentTimeMillis();
+        long deadline = requestedAt + timeoutMs;
+        for (FollowerChannel channel : followerChannels.values()) {
+            channel.heartbeat();
+        }
+        
+        synchronized (leaseMonitor) {
+            while (commitIndex.get() < leaderStartIndex || getQuorumAckedAt() < requestedAt) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !isLeader.get()) {
+                    return -1;
+                }
+                try {
+                    leaseMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+        }
+        return isLeader.get() ? commitIndex.get() : -1;
+    }
+    
+    /**
+     * Calcula o fim do lease: a maioria (incluindo o líder) respondeu a mensagens enviadas
+     * até o instante base, e nenhum desses seguidores votará em outro candidato antes de
+     * um timeout de eleição a partir daí.
+     */
+    private long getLeaseExpiry() {
+        long quorumAckedAt = getQuorumAckedAt();
+        if (quorumAckedAt == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return quorumAckedAt == 0 ? 0 : quorumAckedAt + leaseDurationMs;
+    }
+    
+    /**
+     * Obtém o instante de envio mais recente até o qual a maioria (incluindo o líder)
+     * confirmou as mensagens do líder.
+     * 
+     * @return Instante em milissegundos (0 se a maioria ainda não respondeu,
+     *         Long.MAX_VALUE se o líder sozinho já é maioria)
+     */
+    private long getQuorumAckedAt() {
+        int peerAcksNeeded = majority() - 1;
+        if (peerAcksNeeded <= 0) {
+            return Long.MAX_VALUE;
+        }
+        
+        List<Long> ackTimes = new ArrayList<>();
+        for (String peer : peers) {
+            FollowerChannel channel = followerChannels.get(peer);
+            ackTimes.add(channel != null ? channel.getLastAckedSentAt() : 0L);
+        }
+        ackTimes.sort(Collections.reverseOrder());
+        return ackTimes.get(peerAcksNeeded - 1);
     }
     
-    public void updateState(String newState) {
+    /**
+     * Descarta o último snapshot gerado e envia aos seguidores um novo, escrito a partir do
+     * estado atual do componente.
+     */
+    public void updateState() {
         if (!isLeader.get()) {
             throw new IllegalStateException("Somente o líder pode atualizar o estado");
         }
         
-        currentState = newState;
-        stateVersion.incrementAndGet();
+        synchronized (log) {
+            cachedSnapshot = null;
+            snapshotEpoch++;
+        }
         replicateState();
     }
     
+    /**
+     * Registra uma operação no log replicado e a aplica localmente, sem aguardar a replicação.
+     * Os seguidores recebem apenas as entradas novas, não o estado completo, na próxima
+     * rodada de group commit.
+     * 
+     * @param operation Operação a ser registrada (ex.: "SET|chave|valor")
+     * @return Número de sequência atribuído à operação
+     */
+    public long appendOperation(String operation) {
+        if (!isLeader.get()) {
+            throw new IllegalStateException("Somente o líder pode registrar operações");
+        }
+        
+        LogEntry entry;
+        synchronized (log) {
+            entry = appendAndApply(operation);
+        }
+        
+        recordTraffic(entry);
+        groupCommit.submit();
+        return entry.getIndex();
+    }
+    
+    /**
+     * Propõe uma operação ao cluster.
+     * A operação entra no próximo lote de group commit, e o futuro é concluído quando a
+     * rodada de replicação desse lote termina, junto com o das demais escritas do lote.
+     * No modo de consenso, a operação só é aplicada (e o futuro só é concluído) depois de
+     * replicada na maioria dos nós; se este nó perder a liderança antes disso, o futuro
+     * falha e a operação pode ou não ter sido confirmada pelo novo líder.
+     * No modo assíncrono, a operação é aplicada imediatamente e o futuro indica apenas
+     * que o lote foi entregue aos canais de replicação dos seguidores.
+     * 
+     * @param operation Operação a ser registrada
+     * @return Futuro concluído com o número de sequência da operação
+     */
+    public CompletableFuture<Long> propose(String operation) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        LogEntry entry;
+        synchronized (log) {
+            if (!isLeader.get()) {
+                return CompletableFuture.failedFuture(
+                    new IllegalStateException("Somente o líder pode registrar operações"));
+            }
+            
+            entry = consensusEnabled ? log.append(term.get(), operation) : appendAndApply(operation);
+            pendingCommits.put(entry.getIndex(), future);
+        }
+        
+        recordTraffic(entry);
+        groupCommit.submit();
+        return future;
+    }
+    
+    /**
+     * Registra e aplica uma operação no modo assíncrono.
+     * Deve ser chamado com o monitor do log adquirido.
+     */
+    private LogEntry appendAndApply(String operation) {
+        LogEntry entry = log.append(term.get(), operation);
+        stateVersion.set(entry.getIndex());
+        
+        if (onOperation != null) {
+            onOperation.accept(entry.getIndex(), operation);
+        }
+        log.compact(entry.getIndex());
+        return entry;
+    }
+    
+    /**
+     * Registra a operação de uma entrada como amostra para o dicionário de compressão, nos
+     * bytes originais em que ela segue nos lotes comprimidos. Operações recusadas pelo filtro
+     * do componente (conteúdo volumoso ou binário) não entram no dicionário.
+     */
+    private void recordTraffic(LogEntry entry) {
+        if (compressionDictionary != null && (compressionSampleFilter == null ||
+                                              compressionSampleFilter.test(entry.getOperation()))) {
+            compressionDictionary.record(entry.getOperation());
+        }
+    }
+    
+    /**
+     * Cria o compressor de um canal de replicação que negociou a compressão.
+     * 
+     * @return Compressor, ou null se a compressão está desabilitada neste nó
+     */
+    PayloadCodec createPayloadCodec() {
+        return compressionEnabled ? new PayloadCodec(compressionDictionary, compressionMinBytes) : null;
+    }
+    
+    /**
+     * Executa uma rodada de replicação para o lote acumulado pelo group commit.
+     * No modo assíncrono, conclui as escritas do lote assim que ele é entregue aos canais;
+     * no modo de consenso, elas são concluídas quando confirmadas pela maioria.
+     */
+    private void flushGroupCommit() {
+        long batchEnd = log.getLastIndex();
+        replicateLog();
+        
+        if (!consensusEnabled) {
+            NavigableMap<Long, CompletableFuture<Long>> replicated = pendingCommits.headMap(batchEnd, true);
+            for (Map.Entry<Long, CompletableFuture<Long>> pending : replicated.entrySet()) {
+                pending.getValue().complete(pending.getKey());
+            }
+            replicated.clear();
+        }
+    }
+    
     private void startMessageHandler() {
         Thread handlerThread = new Thread(() -> {
             while (running) {
@@ -187,145 +763,579 @@ public class LeaderFollower {
     }
     
     private void handleConnection(Socket socket) {
-        new Thread(() -> {
-            try (
-                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)
-            ) {
-                String message = reader.readLine();
-                
-                if (message != null) {
-                    String[] parts = message.split("\\|");
-                    String command = parts[0];
-                    
-                    switch (command) {
-                        case "JOIN":
-                            handleJoinRequest(parts, writer);
-                            break;
-                        case "STATE":
-                            handleStateUpdate(parts);
-                            break;
-                        case "ELECTION":
-                            handleElectionMessage(parts, writer);
-                            break;
-                        default:
-                            writer.println("ERROR|Comando desconhecido: " + command);
-                    }
+        InboundConnection connection = new InboundConnection(this, socket, applyQueueCapacity, compressionEnabled);
+        connections.add(connection);
+        try {
+            connection.start(connectionPool);
+        } catch (RejectedExecutionException e) {
+            // Pool esgotado: o membro remoto tenta novamente pela sua própria lógica de reconexão
+            // LOGGER.log(Level.WARNING, "Conexão recusada: pool de conexões esgotado", e);
+            connection.close();
+            connections.remove(connection);
+        }
+    }
+    
+    void onInboundClosed(InboundConnection connection) {
+        connections.remove(connection);
+    }
+    
+    /**
+     * Processa uma mensagem recebida por uma conexão. Mensagens comprimidas são
+     * descomprimidas e processadas como se tivessem chegado diretamente.
+     * 
+     * @param codec Compressão negociada pela conexão, ou null
+     * @throws IOException Se a conexão falhar ou uma mensagem comprimida estiver corrompida
+     */
+    void handleMessage(String message, BufferedReader reader, PrintWriter writer,
+                       PayloadCodec codec) throws IOException {
+        String[] parts = message.split("\\|");
+        String command = parts[0];
+        
+        switch (command) {
+            case "JOIN":
+                handleJoinRequest(parts, writer);
+                break;
+            case "SNAPSHOT_BEGIN":
+                handleSnapshotBegin(parts, writer);
+                break;
+            case "SNAPSHOT_CHUNK":
+                handleSnapshotChunk(parts, writer, codec);
+                break;
+            case "APPEND":
+                handleAppendEntries(parts, reader, writer);
+                break;
+            case "ELECTION":
+                handleElectionMessage(parts, writer);
+                break;
+            case "READ_INDEX":
+                handleReadIndexRequest(parts, writer);
+                break;
+            case "DICTIONARY":
+                // Sem resposta: o dicionário vale para as mensagens seguintes da conexão
+                if (codec == null) {
+                    throw new IOException("Dicionário recebido sem compressão negociada");
                 }
-            } catch (IOException e) {
-                // LOGGER.log(Level.WARNING, "Erro ao manipular conexão", e);
-            } finally {
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
+                codec.acceptDictionary(parts);
+                break;
+            case "COMPRESSED_APPEND":
+                if (codec == null) {
+                    throw new IOException("Mensagem comprimida recebida sem compressão negociada");
                 }
-            }
-        }).start();
+                BufferedReader inner = new BufferedReader(new StringReader(codec.decodeBatch(parts)));
+                String innerMessage = inner.readLine();
+                if (innerMessage != null) {
+                    handleMessage(innerMessage, inner, writer, codec);
+                }
+                break;
+            default:
+                writer.println("ERROR|Comando desconhecido: " + command);
+        }
+    }
+    
+    /**
+     * Responde ao pedido de índice de leitura de um seguidor.
+     * Formato: READ_INDEX|TERM|TIMEOUT_MS. Resposta: READ_INDEX|TERM|ÍNDICE, ou
+     * NOT_LEADER|TERM|ID_DO_LÍDER se este nó não é o líder ou não confirmou a liderança.
+     */
+    private void handleReadIndexRequest(String[] parts, PrintWriter writer) {
+        long timeoutMs = parts.length >= 3 ? Long.parseLong(parts[2]) : replicationReplyTimeoutMs;
+        long index = isLeader.get() ? confirmReadIndex(Math.min(timeoutMs, replicationReplyTimeoutMs / 2)) : -1;
+        
+        if (index < 0) {
+            writer.println("NOT_LEADER|" + term.get() + "|" + leaderId);
+        } else {
+            writer.println("READ_INDEX|" + term.get() + "|" + index);
+        }
     }
     
     private void handleJoinRequest(String[] parts, PrintWriter writer) {
+        if (consensusEnabled) {
+            writer.println("ERROR|Cluster em modo de consenso não aceita JOIN; configure os membros");
+            return;
+        }
+        
         if (!isLeader.get()) {
             writer.println("REDIRECT|" + leaderId + "|" + leaderHost + "|" + leaderPort);
             return;
         }
         
         if (parts.length >= 4) {
-            String followerId = parts[1];
             String followerHost = parts[2];
             int followerPort = Integer.parseInt(parts[3]);
             
-            ComponentInfo follower = new ComponentInfo(
-                componentType, followerHost, Integer.parseInt(followerId), 0, followerPort
-            );
+            // Um seguidor com estado recuperado recebe só as entradas seguintes, se ainda estiverem
+            // no log; os demais recebem o estado pelo canal, como um snapshot em blocos
+            long followerVersion = parts.length >= 5 ? Long.parseLong(parts[4]) : 0;
+            boolean resume = followerVersion > 0 && followerVersion <= stateVersion.get() &&
+                             log.canServeFrom(followerVersion + 1);
+            
+            writer.println("WELCOME|" + term.get() + "|" + componentId);
+            FollowerChannel channel = createChannel(followerHost, followerPort,
+                                                    resume ? followerVersion + 1 : stateVersion.get() + 1);
+            if (!resume) {
+                channel.requestSnapshot();
+            }
             
-            followers.add(follower);
-            writer.println("WELCOME|" + term.get() + "|" + stateVersion.get() + "|" + currentState);
+            FollowerChannel previous = followerChannels.put(channel.getKey(), channel);
+            if (previous != null) {
+                previous.close();
+            }
+            channel.start();
             
             // LOGGER.info("Seguidor entrou: " + followerId + " em " + followerHost + ":" + followerPort);
         } else {
             writer.println("ERROR|Formato inválido de mensagem JOIN");
         }
     }
-
-    private void handleStateUpdate(String[] parts) {
-        if (isLeader.get()) {
+    
+    /**
+     * Inicia (ou retoma) a instalação de um snapshot enviado pelo líder.
+     * Formato: SNAPSHOT_BEGIN|TERM|VERSÃO|ÚLTIMO_TERMO|TAMANHO|CRC32|ID_DO_LÍDER.
+     * Responde CHUNK_ACK|TERM|DESLOCAMENTO com o deslocamento a partir do qual o líder deve
+     * enviar os blocos (maior que zero quando uma transferência do mesmo snapshot foi interrompida,
+     * e igual ao tamanho quando ela já está sendo instalada), ACK|TERM|ÍNDICE se o mesmo snapshot
+     * já foi instalado, ou NACK|TERM|ÍNDICE se outro snapshot ainda está sendo instalado.
+     */
+    private void handleSnapshotBegin(String[] parts, PrintWriter writer) {
+        if (parts.length < 7) {
+            writer.println("ERROR|Formato inválido de mensagem SNAPSHOT_BEGIN");
             return;
         }
         
-        if (parts.length >= 4) {
-            int messageTerm = Integer.parseInt(parts[1]);
-            int messageStateVersion = Integer.parseInt(parts[2]);
-            String state = parts[3];
+        int messageTerm = Integer.parseInt(parts[1]);
+        long version = Long.parseLong(parts[2]);
+        int lastTerm = Integer.parseInt(parts[3]);
+        long size = Long.parseLong(parts[4]);
+        long checksum = Long.parseLong(parts[5]);
+        
+        synchronized (log) {
+            if (!acceptLeaderMessage(messageTerm, parts[6])) {
+                writer.println("NACK|" + term.get() + "|" + log.getLastIndex());
+                return;
+            }
             
-            if (messageTerm >= term.get()) {
-                term.set(messageTerm);
-                
-                if (messageStateVersion > stateVersion.get()) {
-                    stateVersion.set(messageStateVersion);
-                    currentState = state;
-                    
-                    if (onStateUpdate != null) {
-                        onStateUpdate.accept(currentState);
-                    }
+            // O aviso de conclusão se perdeu com a conexão anterior: o snapshot já foi instalado
+            if (snapshotInstall == null && lastInstalled != null &&
+                lastInstalled.isSameSnapshot(version, size, checksum) && stateVersion.get() >= version) {
+                writer.println("ACK|" + term.get() + "|" + stateVersion.get());
+                return;
+            }
+            
+            if (snapshotApplying) {
+                if (snapshotInstall.isSameSnapshot(version, size, checksum)) {
+                    // Retomada durante a instalação: a conclusão passa a ser avisada por esta conexão
+                    installReplyTo = writer;
+                    writer.println("CHUNK_ACK|" + term.get() + "|" + snapshotInstall.getReceived());
+                } else {
+                    writer.println("NACK|" + term.get() + "|" + log.getLastIndex());
                 }
+                return;
             }
-        }
-    }
-    
-    private void handleElectionMessage(String[] parts, PrintWriter writer) {
-        if (parts.length >= 3) {
-            int electionTerm = Integer.parseInt(parts[1]);
-            String candidateId = parts[2];
-            
-            if (electionTerm > term.get()) {
-                term.set(electionTerm);
-                leaderId = candidateId;
-                isLeader.set(false);
-                
-                if (onLeadershipChanged != null) {
-                    onLeadershipChanged.accept(false);
+            
+            if (snapshotInstall == null || !snapshotInstall.isSameSnapshot(version, size, checksum)) {
+                if (snapshotInstall != null) {
+                    snapshotInstall.discard();
                 }
+                snapshotInstall = new SnapshotInstall(version, lastTerm, size, checksum);
                 
-                writer.println("VOTE|" + electionTerm + "|" + componentId + "|YES");
-                // LOGGER.info("Votou em " + candidateId + " no termo " + electionTerm);
+                // Entradas posteriores ao snapshot, recebidas durante a transferência, ficam no log
+                // até o fim da instalação; na retomada do mesmo snapshot, elas são mantidas
+                log.resetTo(version, lastTerm);
+            }
+            
+            if (snapshotInstall.isComplete()) {
+                completeSnapshotTransfer(writer);
             } else {
-                writer.println("VOTE|" + term.get() + "|" + componentId + "|NO");
+                writer.println("CHUNK_ACK|" + term.get() + "|" + snapshotInstall.getReceived());
             }
         }
     }
     
-    private void joinCluster() {
-        try (
-            Socket socket = new Socket(leaderHost, leaderPort);
-            PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))
-        ) {
-            writer.println("JOIN|" + componentId + "|" + host + "|" + port);
-            String response = reader.readLine();
-            
-            if (response != null) {
-                String[] parts = response.split("\\|");
-                String command = parts[0];
+    /**
+     * Recebe um bloco do snapshot em instalação.
+     * Formato: SNAPSHOT_CHUNK|TERM|VERSÃO|DESLOCAMENTO|CRC32|DADOS_BASE64.
+     * Responde CHUNK_ACK|TERM|RECEBIDO (também no último bloco, assim que ele é gravado) ou
+     * CHUNK_NACK|TERM|RECEBIDO (bloco fora de ordem ou corrompido; -1 para recomeçar a transferência).
+     */
+    private void handleSnapshotChunk(String[] parts, PrintWriter writer, PayloadCodec codec) {
+        if (parts.length < 5) {
+            writer.println("ERROR|Formato inválido de mensagem SNAPSHOT_CHUNK");
+            return;
+        }
+        
+        int messageTerm = Integer.parseInt(parts[1]);
+        long version = Long.parseLong(parts[2]);
+        long offset = Long.parseLong(parts[3]);
+        long checksum = Long.parseLong(parts[4]);
+        byte[] data = decodeChunk(parts, codec);
+        
+        synchronized (log) {
+            if (!acceptLeaderMessage(messageTerm, leaderId)) {
+                writer.println("NACK|" + term.get() + "|" + log.getLastIndex());
+                return;
+            }
+            
+            if (snapshotInstall == null || snapshotInstall.getVersion() != version) {
+                writer.println("CHUNK_NACK|" + term.get() + "|-1");
+                return;
+            }
+            
+            if (snapshotApplying) {
+                // Bloco repetido de um snapshot já recebido por completo
+                writer.println("CHUNK_ACK|" + term.get() + "|" + snapshotInstall.getReceived());
+                return;
+            }
+            
+            boolean accepted;
+            try {
+                accepted = data != null && snapshotInstall.accept(offset, checksum, data);
+            } catch (IOException e) {
+                // Falha ao gravar o bloco: o que foi recebido é descartado e a transferência recomeça
+                snapshotInstall.discard();
+                snapshotInstall = null;
+                writer.println("CHUNK_NACK|" + term.get() + "|-1");
+                return;
+            }
+            if (!accepted) {
+                writer.println("CHUNK_NACK|" + term.get() + "|" + snapshotInstall.getReceived());
+                return;
+            }
+            
+            if (snapshotInstall.isComplete()) {
+                completeSnapshotTransfer(writer);
+            } else {
+                writer.println("CHUNK_ACK|" + term.get() + "|" + snapshotInstall.getReceived());
+            }
+        }
+    }
+    
+    /**
+     * Decodifica os dados de um bloco de snapshot, descomprimindo-os se o bloco chegou
+     * com os campos DEFLATE|ID_DICIONÁRIO.
+     * 
+     * @return Bloco original, ou null se os dados estiverem corrompidos
+     */
+    private byte[] decodeChunk(String[] parts, PayloadCodec codec) {
+        try {
+            byte[] data = Base64.getDecoder().decode(parts.length >= 6 ? parts[5] : "");
+            if (parts.length >= 8 && "DEFLATE".equals(parts[6])) {
+                return codec != null ? codec.inflate(Integer.parseInt(parts[7]), data) : null;
+            }
+            return data;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Confirma o último bloco de um snapshot recebido por completo e agenda a sua instalação.
+     * O conteúdo é verificado e forçado para o disco antes da confirmação; a instalação segue
+     * numa thread própria, e o líder é avisado ao fim dela por INSTALLED|TERM|ÍNDICE ou
+     * INSTALL_FAILED|TERM|-1, fora da ordem das respostas.
+     * Deve ser chamado com o monitor do log adquirido.
+     */
+    private void completeSnapshotTransfer(PrintWriter writer) {
+        SnapshotInstall install = snapshotInstall;
+        try {
+            if (!install.isValid()) {
+                throw new IOException("Checksum do snapshot da versão " + install.getVersion() + " não confere");
+            }
+            install.sync();
+            installExecutor.execute(() -> installSnapshot(install));
+        } catch (IOException | RejectedExecutionException e) {
+            // LOGGER.log(Level.WARNING, "Snapshot recebido descartado", e);
+            install.discard();
+            snapshotInstall = null;
+            writer.println("CHUNK_NACK|" + term.get() + "|-1");
+            return;
+        }
+        
+        snapshotApplying = true;
+        installReplyTo = writer;
+        writer.println("CHUNK_ACK|" + term.get() + "|" + install.getReceived());
+    }
+    
+    /**
+     * Instala um snapshot recebido por completo e aplica as entradas guardadas desde o início
+     * da transferência. O estado é instalado fora do monitor do log, para que as entradas
+     * seguintes continuem sendo recebidas e confirmadas enquanto isso.
+     */
+    private void installSnapshot(SnapshotInstall install) {
+        // A versão só é publicada depois que o componente instalou o estado; se a instalação
+        // falhar, o nó continua na versão anterior e o líder recomeça a transferência
+        boolean installed;
+        try (InputStream state = install.openState()) {
+            if (onStateUpdate != null) {
+                onStateUpdate.accept(install.getVersion(), state);
+            }
+            installed = true;
+        } catch (IOException | RuntimeException e) {
+            // LOGGER.log(Level.WARNING, "Falha ao instalar o snapshot da versão " + install.getVersion(), e);
+            installed = false;
+        }
+        
+        PrintWriter replyTo;
+        String report;
+        synchronized (log) {
+            install.discard();
+            snapshotApplying = false;
+            if (snapshotInstall == install) {
+                snapshotInstall = null;
+            }
+            replyTo = installReplyTo;
+            installReplyTo = null;
+            
+            if (installed) {
+                lastInstalled = install;
+                stateVersion.set(install.getVersion());
+                notifyApplied();
+                if (install.getVersion() > commitIndex.get()) {
+                    commitIndex.set(install.getVersion());
+                }
                 
-                if ("WELCOME".equals(command) && parts.length >= 4) {
-                    int newTerm = Integer.parseInt(parts[1]);
-                    int newStateVersion = Integer.parseInt(parts[2]);
-                    String newState = parts[3];
+                if (consensusEnabled) {
+                    applyCommitted();
+                } else {
+                    LogEntry entry;
+                    while ((entry = log.entryAt(stateVersion.get() + 1)) != null) {
+                        applyEntry(entry);
+                    }
+                }
+                report = "INSTALLED|" + term.get() + "|" + stateVersion.get();
+            } else {
+                // As entradas guardadas seguiam um estado que não foi instalado
+                log.resetTo(stateVersion.get(), -1);
+                report = "INSTALL_FAILED|" + term.get() + "|-1";
+            }
+        }
+        
+        if (replyTo != null) {
+            replyTo.println(report);
+            replyTo.flush();
+        }
+    }
+    
+    /**
+     * Verifica se uma mensagem do líder deve ser aceita e atualiza o termo e o líder conhecidos.
+     * Deve ser chamado com o monitor do log adquirido.
+     */
+    private boolean acceptLeaderMessage(int messageTerm, String messageLeaderId) {
+        if (messageTerm < term.get() || (!consensusEnabled && isLeader.get())) {
+            return false;
+        }
+        
+        if (consensusEnabled) {
+            stepDown(messageTerm);
+            resetElectionDeadline();
+            lastLeaderContactAt = System.currentTimeMillis();
+        } else {
+            term.set(messageTerm);
+        }
+        leaderId = messageLeaderId;
+        return true;
+    }
+    
+    /**
+     * Recebe entradas do log enviadas pelo líder.
+     * Formato: APPEND|TERM|PREV_INDEX|COUNT|PREV_TERM|LEADER_COMMIT|LEADER_ID seguido de COUNT linhas ENTRY.
+     * Responde ACK|TERM|ÍNDICE ou NACK|TERM|ÍNDICE, onde ÍNDICE é a última entrada consistente
+     * com o líder (no modo assíncrono, a última entrada aplicada).
+     */
+    private void handleAppendEntries(String[] parts, BufferedReader reader, PrintWriter writer) throws IOException {
+        if (parts.length < 4) {
+            writer.println("ERROR|Formato inválido de mensagem APPEND");
+            return;
+        }
+        
+        int messageTerm = Integer.parseInt(parts[1]);
+        long prevIndex = Long.parseLong(parts[2]);
+        int count = Integer.parseInt(parts[3]);
+        int prevTerm = parts.length >= 7 ? Integer.parseInt(parts[4]) : 0;
+        long leaderCommit = parts.length >= 7 ? Long.parseLong(parts[5]) : 0;
+        String messageLeaderId = parts.length >= 7 ? parts[6] : leaderId;
+        
+        List<LogEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            entries.add(LogEntry.fromNetworkString(line));
+        }
+        
+        if (consensusEnabled) {
+            handleConsensusAppend(messageTerm, prevIndex, prevTerm, leaderCommit, messageLeaderId, entries, writer);
+            return;
+        }
+        
+        if (isLeader.get() || messageTerm < term.get()) {
+            writer.println("NACK|" + term.get() + "|" + stateVersion.get());
+            return;
+        }
+        
+        term.set(messageTerm);
+        long receivedAt = System.currentTimeMillis();
+        
+        synchronized (log) {
+            // Durante a instalação de um snapshot, as entradas são guardadas no log e aplicadas ao final
+            if (snapshotInstall != null) {
+                if (prevIndex > log.getLastIndex()) {
+                    writer.println("NACK|" + term.get() + "|" + log.getLastIndex());
+                } else {
+                    log.appendEntries(entries);
+                    writer.println("ACK|" + term.get() + "|" + log.getLastIndex());
+                }
+                return;
+            }
+            
+            // Lacuna: o seguidor perdeu entradas anteriores e precisa que o líder retroceda
+            if (prevIndex > stateVersion.get()) {
+                writer.println("NACK|" + term.get() + "|" + stateVersion.get());
+                return;
+            }
+            
+            for (LogEntry entry : entries) {
+                // Entradas já aplicadas (reenvios) são ignoradas
+                if (entry.getIndex() != stateVersion.get() + 1) {
+                    continue;
+                }
+                
+                applyEntry(entry);
+            }
+        }
+        
+        if (stateVersion.get() >= leaderCommit) {
+            lastCaughtUpAt = receivedAt;
+        }
+        writer.println("ACK|" + term.get() + "|" + stateVersion.get());
+    }
+    
+    /**
+     * Aplica a regra de AppendEntries do modo de consenso: rejeita termos antigos, verifica
+     * a entrada anterior, substitui entradas conflitantes e avança o índice de confirmação.
+     */
+    private void handleConsensusAppend(int messageTerm, long prevIndex, int prevTerm, long leaderCommit,
+                                       String messageLeaderId, List<LogEntry> entries, PrintWriter writer) {
+        long matchIndex;
+        long receivedAt = System.currentTimeMillis();
+        
+        synchronized (log) {
+            if (messageTerm < term.get()) {
+                writer.println("NACK|" + term.get() + "|" + log.getLastIndex());
+                return;
+            }
+            
+            stepDown(messageTerm);
+            leaderId = messageLeaderId;
+            resetElectionDeadline();
+            lastLeaderContactAt = System.currentTimeMillis();
+            
+            if (!log.matches(prevIndex, prevTerm)) {
+                // Indica ao líder até onde retroceder
+                writer.println("NACK|" + term.get() + "|" + Math.min(log.getLastIndex(), prevIndex - 1));
+                return;
+            }
+            
+            log.appendEntries(entries);
+            matchIndex = Math.max(prevIndex + entries.size(), log.getFirstIndex() - 1);
+            
+            long newCommitIndex = Math.min(leaderCommit, matchIndex);
+            if (newCommitIndex > commitIndex.get()) {
+                commitIndex.set(newCommitIndex);
+            }
+        }
+        
+        applyCommitted();
+        if (stateVersion.get() >= leaderCommit) {
+            lastCaughtUpAt = receivedAt;
+        }
+        writer.println("ACK|" + term.get() + "|" + matchIndex);
+    }
+    
+    private void handleElectionMessage(String[] parts, PrintWriter writer) {
+        if (parts.length < 3) {
+            return;
+        }
+        
+        int electionTerm = Integer.parseInt(parts[1]);
+        String candidateId = parts[2];
+        
+        if (consensusEnabled) {
+            long candidateLastIndex = parts.length >= 5 ? Long.parseLong(parts[3]) : 0;
+            int candidateLastTerm = parts.length >= 5 ? Integer.parseInt(parts[4]) : 0;
+            boolean granted = false;
+            
+            synchronized (log) {
+                // Quem ouviu o líder há menos de um timeout de eleição não vota nem adota o termo
+                // do candidato: é isso que garante que nenhum novo líder surja durante o lease
+                boolean leaderAlive = isLeader.get() ? hasLease() :
+                    System.currentTimeMillis() - lastLeaderContactAt < electionTimeoutMs;
+                if (leaderAlive && !candidateId.equals(leaderId)) {
+                    writer.println("VOTE|" + term.get() + "|" + componentId + "|NO");
+                    return;
+                }
+                
+                stepDown(electionTerm);
+                
+                if (electionTerm == term.get() && (votedFor == null || votedFor.equals(candidateId))) {
+                    // Só vota em candidatos cujo log é pelo menos tão atualizado quanto o local
+                    boolean upToDate = candidateLastTerm > log.getLastTerm() ||
+                        (candidateLastTerm == log.getLastTerm() && candidateLastIndex >= log.getLastIndex());
                     
-                    term.set(newTerm);
-                    stateVersion.set(newStateVersion);
-                    currentState = newState;
-                    isLeader.set(false);
+                    if (upToDate) {
+                        votedFor = candidateId;
+                        granted = true;
+                        resetElectionDeadline();
+                    }
+                }
+            }
+            
+            writer.println("VOTE|" + term.get() + "|" + componentId + "|" + (granted ? "YES" : "NO"));
+            return;
+        }
+        
+        if (electionTerm > term.get()) {
+            term.set(electionTerm);
+            leaderId = candidateId;
+            isLeader.set(false);
+            
+            if (onLeadershipChanged != null) {
+                onLeadershipChanged.accept(false);
+            }
+            
+            writer.println("VOTE|" + electionTerm + "|" + componentId + "|YES");
+            // LOGGER.info("Votou em " + candidateId + " no termo " + electionTerm);
+        } else {
+            writer.println("VOTE|" + term.get() + "|" + componentId + "|NO");
+        }
+    }
+    
+    private void joinCluster() {
+        try (
+            Socket socket = new Socket(leaderHost, leaderPort);
+            PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))
+        ) {
+            // O último campo permite ao líder enviar só as entradas seguintes ao estado recuperado
+            writer.println("JOIN|" + componentId + "|" + host + "|" + port + "|" + stateVersion.get());
+            String response = reader.readLine();
+            
+            if (response != null) {
+                String[] parts = response.split("\\|");
+                String command = parts[0];
+                
+                if ("WELCOME".equals(command) && parts.length >= 3) {
+                    synchronized (log) {
+                        // O estado chega em seguida, como um snapshot em blocos pelo canal do líder
+                        term.set(Math.max(term.get(), Integer.parseInt(parts[1])));
+                        leaderId = parts[2];
+                        isLeader.set(false);
+                    }
                     
                     if (onLeadershipChanged != null) {
                         onLeadershipChanged.accept(false);
                     }
                     
-                    if (onStateUpdate != null) {
-                        onStateUpdate.accept(currentState);
-                    }
-                    
                     // LOGGER.info("Entrou no cluster como seguidor. Líder: " + leaderId);
                 } else if ("REDIRECT".equals(command) && parts.length >= 4) {
                     leaderId = parts[1];
@@ -343,19 +1353,111 @@ public class LeaderFollower {
         }
     }
     
+    /**
+     * Inicia o temporizador de eleição do modo de consenso.
+     * Um seguidor que não recebe mensagens do líder dentro do timeout se candidata.
+     */
+    private void startElectionTimer() {
+        resetElectionDeadline();
+        
+        long checkIntervalMs = Math.max(10, electionTimeoutMs / 10);
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (!isLeader.get() && System.currentTimeMillis() >= electionDeadline) {
+                startElection();
+            }
+        }, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Sorteia um novo prazo de eleição entre electionTimeoutMs e 2 * electionTimeoutMs,
+     * evitando que vários seguidores se candidatem ao mesmo tempo.
+     */
+    private void resetElectionDeadline() {
+        electionDeadline = System.currentTimeMillis() + electionTimeoutMs + random.nextInt(electionTimeoutMs + 1);
+    }
+    
     private void startElection() {
-        int newTerm = term.incrementAndGet();
-        // LOGGER.info("Iniciando eleição para o termo " + newTerm);
-        becomeLeader();
+        if (!consensusEnabled) {
+            int newTerm = term.incrementAndGet();
+            // LOGGER.info("Iniciando eleição para o termo " + newTerm);
+            becomeLeader();
+            return;
+        }
+        
+        int electionTerm;
+        String voteRequest;
+        synchronized (log) {
+            // Um nó com snapshot pela metade não tem o estado das entradas que possui no log
+            if (snapshotInstall != null) {
+                resetElectionDeadline();
+                return;
+            }
+            electionTerm = term.incrementAndGet();
+            votedFor = componentId;
+            leaderId = null;
+            voteRequest = "ELECTION|" + electionTerm + "|" + componentId + "|" +
+                          log.getLastIndex() + "|" + log.getLastTerm();
+        }
+        resetElectionDeadline();
+        // LOGGER.info("Iniciando eleição para o termo " + electionTerm);
+        
+        int votes = 1;
+        for (String peer : peers) {
+            String reply = sendRequest(peer, voteRequest);
+            if (reply == null) {
+                continue;
+            }
+            
+            String[] parts = reply.split("\\|");
+            if (parts.length >= 4 && "VOTE".equals(parts[0])) {
+                int replyTerm = Integer.parseInt(parts[1]);
+                if (replyTerm > electionTerm) {
+                    synchronized (log) {
+                        stepDown(replyTerm);
+                    }
+                    return;
+                }
+                if ("YES".equals(parts[3])) {
+                    votes++;
+                }
+            }
+        }
+        
+        synchronized (log) {
+            if (votes >= majority() && term.get() == electionTerm && !isLeader.get() &&
+                componentId.equals(votedFor)) {
+                becomeLeader();
+            }
+        }
     }
     
     private void becomeLeader() {
-        isLeader.set(true);
-        leaderId = componentId;
+        synchronized (log) {
+            if (consensusEnabled) {
+                // Uma entrada do termo atual permite confirmar as entradas de termos anteriores
+                leaderStartIndex = log.append(term.get(), NOOP_OPERATION).getIndex();
+                for (String peer : peers) {
+                    String[] hostPort = peer.split(":");
+                    FollowerChannel channel = createChannel(hostPort[0], Integer.parseInt(hostPort[1]),
+                                                            log.getLastIndex());
+                    followerChannels.put(channel.getKey(), channel);
+                }
+            } else {
+                // A numeração do log continua a partir da última operação aplicada
+                log.resetTo(stateVersion.get(), term.get());
+            }
+            
+            isLeader.set(true);
+            leaderId = componentId;
+        }
         
-        scheduler.scheduleAtFixedRate(
-            this::replicateState,
-            stateReplicationIntervalMs,
+        for (FollowerChannel channel : followerChannels.values()) {
+            channel.start();
+        }
+        
+        leaderTask = scheduler.scheduleAtFixedRate(
+            this::replicateLog,
+            consensusEnabled ? 0 : stateReplicationIntervalMs,
             stateReplicationIntervalMs,
             TimeUnit.MILLISECONDS
         );
@@ -367,42 +1469,307 @@ public class LeaderFollower {
         // LOGGER.info("Tornou-se líder para o termo " + term.get());
     }
     
+    /**
+     * Adota um termo maior (se for o caso) e deixa a liderança.
+     * Deve ser chamado com o monitor do log adquirido.
+     */
+    private void stepDown(int newTerm) {
+        if (newTerm > term.get()) {
+            term.set(newTerm);
+            votedFor = null;
+        } else if (newTerm < term.get()) {
+            return;
+        }
+        
+        if (isLeader.compareAndSet(true, false)) {
+            if (leaderTask != null) {
+                leaderTask.cancel(false);
+            }
+            closeFollowerChannels();
+            failPendingCommits();
+            
+            if (onLeadershipChanged != null) {
+                onLeadershipChanged.accept(false);
+            }
+        }
+    }
+    
+    /**
+     * Envia um snapshot completo do estado para todos os seguidores.
+     */
     private void replicateState() {
-        if (!isLeader.get() || followers.isEmpty()) {
+        if (!isLeader.get()) {
             return;
         }
         
-        String stateMessage = "STATE|" + term.get() + "|" + stateVersion.get() + "|" + currentState;
+        for (FollowerChannel channel : followerChannels.values()) {
+            channel.requestSnapshot();
+        }
+    }
+    
+    /**
+     * Avisa os canais dos seguidores de que há entradas novas no log.
+     * Cada canal envia as entradas que o seu seguidor ainda não recebeu, de forma independente.
+     */
+    private void replicateLog() {
+        if (!isLeader.get()) {
+            return;
+        }
+        
+        for (FollowerChannel channel : followerChannels.values()) {
+            channel.signal();
+        }
         
-        synchronized (followers) {
-            List<ComponentInfo> deadFollowers = new ArrayList<>();
+        if (consensusEnabled) {
+            advanceCommitIndex();
+        }
+    }
+    
+    /**
+     * Monta o próximo lote para um seguidor: até maxEntriesPerMessage entradas a partir de fromIndex.
+     * 
+     * @param fromIndex Primeiro índice que o seguidor ainda não recebeu
+     * @param heartbeat true para enviar uma mensagem mesmo sem entradas novas
+     * @return Lote a enviar, null se não há nada a enviar, ou SNAPSHOT_REQUIRED se as
+     *         entradas já foram descartadas do log
+     */
+    FollowerChannel.Batch prepareBatch(long fromIndex, boolean heartbeat) {
+        synchronized (log) {
+            if (!isLeader.get()) {
+                return null;
+            }
             
-            for (ComponentInfo follower : followers) {
-                try (
-                    Socket socket = new Socket(follower.getHost(), follower.getUdpPort());
-                    PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)
-                ) {
-                    writer.println(stateMessage);
-                } catch (IOException e) {
-                    // LOGGER.log(Level.WARNING, "Falha ao replicar estado para seguidor em " + 
-                    //           follower.getHost() + ":" + follower.getUdpPort(), e);
-                    deadFollowers.add(follower);
+            if (!log.canServeFrom(fromIndex)) {
+                // Seguidor ficou para trás da janela retida
+                return FollowerChannel.Batch.SNAPSHOT_REQUIRED;
+            }
+            
+            // No modo de consenso, mensagens vazias servem como heartbeat
+            if (fromIndex > log.getLastIndex() && !heartbeat) {
+                return null;
+            }
+            
+            List<LogEntry> entries = log.entriesFrom(fromIndex, maxEntriesPerMessage);
+            String header = "APPEND|" + term.get() + "|" + (fromIndex - 1) + "|" + entries.size() + "|" +
+                            log.termAt(fromIndex - 1) + "|" + getCommitIndex() + "|" + componentId;
+            StringBuilder payload = new StringBuilder(header).append('\n');
+            for (LogEntry entry : entries) {
+                payload.append(entry.toNetworkString()).append('\n');
+            }
+            return new FollowerChannel.Batch(header, entries, payload.toString(), fromIndex,
+                                             fromIndex - 1 + entries.size());
+        }
+    }
+    
+    /**
+     * Obtém um snapshot do estado aplicado para transferência a um seguidor.
+     * O último snapshot é reaproveitado enquanto o log ainda retém as entradas posteriores a
+     * ele, o que evita serializar o estado a cada seguidor e permite retomar transferências
+     * interrompidas (o seguidor reconhece o mesmo snapshot pela versão e checksum).
+     * Só a versão, o termo e a visão do estado são obtidos com o monitor do log; o estado é
+     * gravado fora dele, sem bloquear as escritas.
+     * 
+     * @return Snapshot a transferir
+     * @throws IOException Se o estado não puder ser gravado
+     */
+    Snapshot prepareSnapshot() throws IOException {
+        synchronized (snapshotMonitor) {
+            long version;
+            int lastTerm;
+            long epoch;
+            StateWriter state;
+            synchronized (log) {
+                if (cachedSnapshot != null && cachedSnapshot.getVersion() >= log.getFirstIndex() - 1) {
+                    return cachedSnapshot;
+                }
+                epoch = snapshotEpoch;
+                version = stateVersion.get();
+                lastTerm = log.termAt(version);
+                state = snapshotSource != null ? snapshotSource.get() : output -> { };
+            }
+            
+            Snapshot snapshot;
+            try (StateWriter captured = state) {
+                snapshot = new Snapshot(version, lastTerm, captured);
+            }
+            synchronized (log) {
+                if (epoch == snapshotEpoch) {
+                    cachedSnapshot = snapshot;
                 }
             }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Processa uma confirmação recebida por um canal de seguidor.
+     * 
+     * @return false se este nó deixou de ser líder e o canal deve ser encerrado
+     */
+    boolean onReplicationReply(FollowerChannel channel, boolean ack, int replyTerm) {
+        if (consensusEnabled && replyTerm > term.get()) {
+            synchronized (log) {
+                stepDown(replyTerm);
+            }
+            return false;
+        }
+        
+        if (ack && consensusEnabled) {
+            advanceCommitIndex();
+        }
+        
+        if (consensusEnabled) {
+            synchronized (leaseMonitor) {
+                leaseMonitor.notifyAll();
+            }
+        }
+        return isLeader.get();
+    }
+    
+    /**
+     * Cria o canal de replicação de um seguidor. O canal reconecta após falhas, tanto para os
+     * membros fixos do modo de consenso quanto para os seguidores que entraram por JOIN, que só
+     * são substituídos quando entram novamente.
+     * Heartbeats periódicos permitem que seguidores ociosos saibam que continuam em dia.
+     */
+    private FollowerChannel createChannel(String followerHost, int followerPort, long nextIndex) {
+        return new FollowerChannel(this, followerHost, followerPort, nextIndex, maxInFlightBatches, snapshotChunkBytes,
+                                   stateReplicationIntervalMs, replicationReplyTimeoutMs);
+    }
+    
+    private void closeFollowerChannels() {
+        for (FollowerChannel channel : followerChannels.values()) {
+            channel.close();
+        }
+        followerChannels.clear();
+    }
+    
+    /**
+     * Avança o índice de confirmação para o maior índice replicado na maioria dos nós.
+     * Apenas entradas do termo atual são confirmadas por contagem; as anteriores são
+     * confirmadas indiretamente.
+     */
+    private void advanceCommitIndex() {
+        synchronized (log) {
+            if (!isLeader.get()) {
+                return;
+            }
             
-            followers.removeAll(deadFollowers);
+            List<Long> matchIndexes = new ArrayList<>();
+            matchIndexes.add(log.getLastIndex());
+            for (String peer : peers) {
+                FollowerChannel channel = followerChannels.get(peer);
+                matchIndexes.add(channel != null ? channel.getMatchIndex() : 0L);
+            }
+            matchIndexes.sort(Collections.reverseOrder());
+            
+            long majorityIndex = matchIndexes.get(majority() - 1);
+            if (majorityIndex > commitIndex.get() && log.termAt(majorityIndex) == term.get()) {
+                commitIndex.set(majorityIndex);
+            }
         }
+        
+        applyCommitted();
     }
     
-    public static LeaderFollower createLeader(String componentType, String componentId, 
+    /**
+     * Aplica, em ordem, as entradas confirmadas que ainda não foram aplicadas e conclui
+     * as escritas que aguardavam essa confirmação.
+     */
+    private void applyCommitted() {
+        synchronized (log) {
+            while (stateVersion.get() < commitIndex.get()) {
+                LogEntry entry = log.entryAt(stateVersion.get() + 1);
+                if (entry == null) {
+                    break;
+                }
+                applyEntry(entry);
+            }
+            log.compact(stateVersion.get());
+        }
+        
+        NavigableMap<Long, CompletableFuture<Long>> committed = pendingCommits.headMap(stateVersion.get(), true);
+        for (Map.Entry<Long, CompletableFuture<Long>> pending : committed.entrySet()) {
+            pending.getValue().complete(pending.getKey());
+        }
+        committed.clear();
+    }
+    
+    /**
+     * Aplica uma entrada ao estado do componente. Deve ser chamado com o monitor do log adquirido.
+     */
+    private void applyEntry(LogEntry entry) {
+        if (onOperation != null && !NOOP_OPERATION.equals(entry.getOperation())) {
+            onOperation.accept(entry.getIndex(), entry.getOperation());
+        }
+        stateVersion.set(entry.getIndex());
+        notifyApplied();
+    }
+    
+    private void notifyApplied() {
+        synchronized (appliedMonitor) {
+            appliedMonitor.notifyAll();
+        }
+    }
+    
+    private void failPendingCommits() {
+        for (CompletableFuture<Long> pending : pendingCommits.values()) {
+            pending.completeExceptionally(new IllegalStateException("Liderança perdida antes da confirmação"));
+        }
+        pendingCommits.clear();
+    }
+    
+    private int majority() {
+        return (peers.size() + 1) / 2 + 1;
+    }
+    
+    /**
+     * Envia uma mensagem de uma linha a outro membro e retorna a primeira linha da resposta.
+     * 
+     * @return Resposta, ou null se o membro não estiver acessível
+     */
+    private String sendRequest(String peer, String message) {
+        try (
+            Socket socket = openConnection(peer);
+            PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))
+        ) {
+            writer.println(message);
+            return reader.readLine();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Falha ao contatar " + peer, e);
+            return null;
+        }
+    }
+    
+    private Socket openConnection(String peer) throws IOException {
+        String[] hostPort = peer.split(":");
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1])),
+                           replicationReplyTimeoutMs);
+            socket.setSoTimeout(replicationReplyTimeoutMs);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+    
+    public static LeaderFollower createLeader(String componentType, String componentId,
                                              String host, int port) {
         return new LeaderFollower(componentType, componentId, host, port);
     }
     
-    public static LeaderFollower createFollower(String componentType, String componentId, 
+    public static LeaderFollower createFollower(String componentType, String componentId,
                                               String host, int port, String leaderId,
                                               String leaderHost, int leaderPort) {
         return new LeaderFollower(componentType, componentId, host, port)
             .setLeader(leaderId, leaderHost, leaderPort);
     }
+    
+    public static LeaderFollower createConsensusMember(String componentType, String componentId,
+                                                       String host, int port, List<String> peerAddresses) {
+        return new LeaderFollower(componentType, componentId, host, port, peerAddresses);
+    }
 }
@@ -0,0 +1,267 @@
+package common.pattern;
+
+import common.model.LogEntry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão das mensagens trocadas por um canal de replicação.
+ * O líder e o seguidor negociam a compressão ao abrir a conexão (COMPRESS|deflate);
+ * a partir daí, mensagens acima de um tamanho mínimo seguem comprimidas com Deflater e
+ * um dicionário pré-definido treinado com o tráfego recente. O dicionário é enviado pela
+ * própria conexão antes da primeira mensagem que o usa, e a ordem do TCP garante que o
+ * seguidor o conheça ao descomprimir.
+ * 
+ * Os lotes são comprimidos com as operações em bytes originais, e não em Base64 como nas
+ * linhas ENTRY, para que o Deflater encontre nelas as mesmas sequências das amostras do
+ * dicionário; o seguidor remonta a mensagem APPEND ao descomprimir.
+ * 
+ * Formatos:
+ * - DICTIONARY|ID|DADOS_BASE64 (sem resposta)
+ * - COMPRESSED_APPEND|ID_DICIONÁRIO|TAMANHO_ORIGINAL|DADOS_BASE64, que envolve um lote;
+ *   descomprimido, traz a linha APPEND e, para cada entrada, a linha
+ *   ENTRY|INDEX|TERM|TAMANHO seguida da operação (TAMANHO bytes em UTF-8) e de uma quebra
+ *   de linha. ID 0 indica compressão sem dicionário
+ * - SNAPSHOT_CHUNK com os campos adicionais |DEFLATE|ID_DICIONÁRIO, em que o bloco é
+ *   comprimido antes da codificação em Base64
+ * 
+ * Cada instância pertence a uma única conexão e não é segura para uso concorrente.
+ */
+public class PayloadCodec {
+    public static final String HANDSHAKE = "COMPRESS|deflate";
+    
+    // Lado do líder
+    private final CompressionDictionary dictionaries;
+    private final int minBytes;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private int sentDictionaryId = 0;
+    
+    // Lado do seguidor
+    private final Inflater inflater = new Inflater();
+    private int receivedDictionaryId = 0;
+    private byte[] receivedDictionary;
+    
+    /**
+     * Construtor para PayloadCodec.
+     * 
+     * @param dictionaries Origem dos dicionários (null no lado do seguidor)
+     * @param minBytes Tamanho mínimo de uma mensagem para que seja comprimida
+     */
+    public PayloadCodec(CompressionDictionary dictionaries, int minBytes) {
+        this.dictionaries = dictionaries;
+        this.minBytes = minBytes;
+    }
+    
+    /**
+     * Comprime um lote de entradas, se ele for grande o bastante e a compressão compensar.
+     * 
+     * @param batch Lote preparado pelo líder
+     * @return Texto a enviar: a mensagem APPEND original ou a mensagem COMPRESSED_APPEND,
+     *         precedida do dicionário quando ele ainda não foi enviado por esta conexão
+     */
+    public String encodeBatch(FollowerChannel.Batch batch) {
+        if (batch.payload.length() < minBytes) {
+            return batch.payload;
+        }
+        
+        StringBuilder out = new StringBuilder();
+        CompressionDictionary.Dictionary dictionary = prepareDictionary(out);
+        byte[] raw = frameBatch(batch);
+        String compressed = Base64.getEncoder().encodeToString(deflate(raw, dictionary));
+        
+        if (compressed.length() + 32 >= batch.payload.length()) {
+            return out.append(batch.payload).toString();
+        }
+        
+        out.append("COMPRESSED_APPEND|").append(dictionary != null ? dictionary.getId() : 0).append('|')
+           .append(raw.length).append('|').append(compressed).append('\n');
+        return out.toString();
+    }
+    
+    /**
+     * Monta a mensagem de um bloco de snapshot, com o bloco comprimido quando compensar.
+     * 
+     * @param snapshot Snapshot em transferência
+     * @param term Termo atual do líder
+     * @param offset Deslocamento do bloco em bytes
+     * @param chunkSize Tamanho máximo do bloco em bytes
+     * @return Texto a enviar (terminado em quebra de linha)
+     * @throws IOException Se o bloco não puder ser lido do snapshot
+     */
+    public String encodeChunk(Snapshot snapshot, int term, long offset, int chunkSize) throws IOException {
+        byte[] chunk = snapshot.chunk(offset, chunkSize);
+        if (chunk.length < minBytes) {
+            return snapshot.chunkMessage(term, offset, chunk, Base64.getEncoder().encodeToString(chunk), null) + "\n";
+        }
+        
+        StringBuilder out = new StringBuilder();
+        CompressionDictionary.Dictionary dictionary = prepareDictionary(out);
+        byte[] compressed = deflate(chunk, dictionary);
+        
+        if (compressed.length >= chunk.length) {
+            out.append(snapshot.chunkMessage(term, offset, chunk, Base64.getEncoder().encodeToString(chunk), null));
+        } else {
+            out.append(snapshot.chunkMessage(term, offset, chunk, Base64.getEncoder().encodeToString(compressed),
+                                             "DEFLATE|" + (dictionary != null ? dictionary.getId() : 0)));
+        }
+        return out.append('\n').toString();
+    }
+    
+    /**
+     * Registra um dicionário recebido do líder.
+     * Formato: DICTIONARY|ID|DADOS_BASE64
+     */
+    public void acceptDictionary(String[] parts) throws IOException {
+        if (parts.length < 3) {
+            throw new IOException("Formato inválido de mensagem DICTIONARY");
+        }
+        receivedDictionaryId = Integer.parseInt(parts[1]);
+        receivedDictionary = Base64.getDecoder().decode(parts[2]);
+    }
+    
+    /**
+     * Descomprime uma mensagem COMPRESSED_APPEND e remonta a mensagem APPEND correspondente.
+     * 
+     * @param parts Campos da mensagem
+     * @return Mensagem APPEND, com uma linha ENTRY (operação em Base64) por entrada
+     * @throws IOException Se os dados estiverem corrompidos ou o dicionário for desconhecido
+     */
+    public String decodeBatch(String[] parts) throws IOException {
+        if (parts.length < 4) {
+            throw new IOException("Formato inválido de mensagem COMPRESSED_APPEND");
+        }
+        
+        byte[] raw = inflate(Integer.parseInt(parts[1]), Base64.getDecoder().decode(parts[3]));
+        if (raw.length != Integer.parseInt(parts[2])) {
+            throw new IOException("Tamanho da mensagem descomprimida não confere");
+        }
+        
+        int lineEnd = indexOf(raw, 0, '\n');
+        StringBuilder message = new StringBuilder(raw.length * 4 / 3 + 64);
+        message.append(new String(raw, 0, lineEnd, StandardCharsets.UTF_8)).append('\n');
+        int position = lineEnd + 1;
+        try {
+            while (position < raw.length) {
+                lineEnd = indexOf(raw, position, '\n');
+                String[] fields = new String(raw, position, lineEnd - position, StandardCharsets.UTF_8).split("\\|");
+                int length = fields.length == 4 && fields[0].equals("ENTRY") ? Integer.parseInt(fields[3]) : -1;
+                position = lineEnd + 1;
+                if (length < 0 || position + length >= raw.length || raw[position + length] != '\n') {
+                    throw new IOException("Entrada inválida em mensagem COMPRESSED_APPEND");
+                }
+                
+                message.append("ENTRY|").append(fields[1]).append('|').append(fields[2]).append('|')
+                       .append(Base64.getEncoder().encodeToString(Arrays.copyOfRange(raw, position, position + length)))
+                       .append('\n');
+                position += length + 1;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Entrada inválida em mensagem COMPRESSED_APPEND", e);
+        }
+        return message.toString();
+    }
+    
+    /**
+     * Descomprime dados comprimidos com o dicionário informado (0 para nenhum).
+     */
+    public byte[] inflate(int dictionaryId, byte[] compressed) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (dictionaryId == 0 || dictionaryId != receivedDictionaryId) {
+                            throw new IOException("Dicionário de compressão desconhecido: " + dictionaryId);
+                        }
+                        inflater.setDictionary(receivedDictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Dados comprimidos incompletos");
+                    }
+                }
+                out.write(buffer, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Dados comprimidos corrompidos", e);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Libera os recursos nativos do Deflater e do Inflater.
+     */
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+    
+    /**
+     * Obtém o dicionário atual e, se ele ainda não foi enviado por esta conexão, acrescenta
+     * a mensagem DICTIONARY à saída.
+     */
+    private CompressionDictionary.Dictionary prepareDictionary(StringBuilder out) {
+        CompressionDictionary.Dictionary dictionary = dictionaries != null ? dictionaries.current() : null;
+        if (dictionary != null && dictionary.getId() != sentDictionaryId) {
+            out.append("DICTIONARY|").append(dictionary.getId()).append('|')
+               .append(Base64.getEncoder().encodeToString(dictionary.getData())).append('\n');
+            sentDictionaryId = dictionary.getId();
+        }
+        return dictionary;
+    }
+    
+    /**
+     * Monta o conteúdo de COMPRESSED_APPEND: a linha APPEND e as operações do lote em bytes
+     * originais, cada uma precedida do seu tamanho.
+     */
+    private static byte[] frameBatch(FollowerChannel.Batch batch) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batch.payload.length());
+        byte[] header = batch.header.getBytes(StandardCharsets.UTF_8);
+        out.write(header, 0, header.length);
+        out.write('\n');
+        for (LogEntry entry : batch.entries) {
+            byte[] operation = entry.getOperation().getBytes(StandardCharsets.UTF_8);
+            byte[] line = ("ENTRY|" + entry.getIndex() + "|" + entry.getTerm() + "|" + operation.length + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+            out.write(line, 0, line.length);
+            out.write(operation, 0, operation.length);
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+    
+    private static int indexOf(byte[] data, int from, char value) throws IOException {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        throw new IOException("Linha incompleta em mensagem COMPRESSED_APPEND");
+    }
+    
+    private byte[] deflate(byte[] raw, CompressionDictionary.Dictionary dictionary) {
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary.getData());
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,242 @@
+package common.pattern;
+
+import common.model.LogEntry;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log de operações replicado usado pelo padrão Líder-Seguidor.
+ * Mantém em memória uma janela das operações mais recentes, limitada em número de entradas
+ * e no tamanho das operações (contado pelos seus caracteres), permitindo que
+ * seguidores recebam apenas as entradas que ainda não aplicaram. Seguidores que ficam
+ * para trás da janela retida precisam de um snapshot completo.
+ * 
+ * As entradas descartadas formam a base do log (baseIndex/baseTerm), que corresponde
+ * ao prefixo já aplicado e coberto por snapshots. O descarte apenas avança o início da
+ * janela na lista (e solta as entradas); a lista só é deslocada quando o prefixo descartado
+ * passa da metade dela, o que mantém o custo de cada acréscimo constante em média.
+ */
+public class ReplicatedLog {
+    private final List<LogEntry> entries = new ArrayList<>();
+    private final int maxEntries;
+    private final long maxBytes;
+    // Tamanho das operações retidas
+    private long retainedBytes = 0;
+    // Posição na lista da entrada mais antiga retida; as anteriores já foram descartadas
+    private int head = 0;
+    
+    // Índice e termo da última entrada descartada (0 quando nenhuma entrada foi descartada)
+    private long baseIndex = 0;
+    private int baseTerm = 0;
+    
+    /**
+     * Construtor para ReplicatedLog.
+     * 
+     * @param maxEntries Número máximo de entradas retidas em memória
+     * @param maxBytes Tamanho máximo das operações retidas em memória
+     */
+    public ReplicatedLog(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+    
+    /**
+     * Adiciona uma nova operação ao final do log.
+     * 
+     * @param term Termo do líder atual
+     * @param operation Operação a ser registrada
+     * @return Entrada criada, com o seu número de sequência
+     */
+    public synchronized LogEntry append(int term, String operation) {
+        LogEntry entry = new LogEntry(getLastIndex() + 1, term, operation);
+        entries.add(entry);
+        retainedBytes += operation.length();
+        return entry;
+    }
+    
+    /**
+     * Adiciona entradas recebidas do líder, descartando entradas locais conflitantes.
+     * Uma entrada conflita quando ocupa o mesmo índice com um termo diferente; nesse caso
+     * ela e todas as seguintes são removidas antes de adicionar as do líder.
+     * 
+     * @param newEntries Entradas recebidas, em ordem crescente de índice e sem lacunas
+     */
+    public synchronized void appendEntries(List<LogEntry> newEntries) {
+        for (LogEntry entry : newEntries) {
+            if (entry.getIndex() <= baseIndex) {
+                continue;
+            }
+            
+            int position = (int) (entry.getIndex() - baseIndex - 1);
+            if (position < retained()) {
+                if (entries.get(head + position).getTerm() == entry.getTerm()) {
+                    continue;
+                }
+                List<LogEntry> conflicting = entries.subList(head + position, entries.size());
+                for (LogEntry removed : conflicting) {
+                    retainedBytes -= removed.getOperation().length();
+                }
+                conflicting.clear();
+            }
+            
+            if (position != retained()) {
+                throw new IllegalArgumentException("Lacuna no log antes do índice " + entry.getIndex());
+            }
+            entries.add(entry);
+            retainedBytes += entry.getOperation().length();
+        }
+    }
+    
+    /**
+     * Verifica a consistência do log com a entrada anterior informada pelo líder.
+     * O prefixo já descartado é considerado consistente, pois só contém entradas aplicadas.
+     * 
+     * @param prevIndex Índice da entrada anterior às enviadas
+     * @param prevTerm Termo dessa entrada no log do líder
+     * @return true se o log contém a entrada com o mesmo termo
+     */
+    public synchronized boolean matches(long prevIndex, int prevTerm) {
+        if (prevIndex <= baseIndex) {
+            return true;
+        }
+        if (prevIndex > getLastIndex()) {
+            return false;
+        }
+        return termAt(prevIndex) == prevTerm;
+    }
+    
+    /**
+     * Descarta as entradas mais antigas que excedem a janela retida, em número de entradas
+     * ou em tamanho. Nunca descarta entradas com índice maior que o informado.
+     * 
+     * @param upToIndex Maior índice que pode ser descartado (ex.: último índice aplicado)
+     */
+    public synchronized void compact(long upToIndex) {
+        int allowed = (int) Math.max(0, Math.min(upToIndex - baseIndex, retained()));
+        int toDiscard = 0;
+        while (toDiscard < allowed && (retained() - toDiscard > maxEntries || retainedBytes > maxBytes)) {
+            LogEntry discarded = entries.get(head + toDiscard);
+            retainedBytes -= discarded.getOperation().length();
+            entries.set(head + toDiscard, null);
+            baseIndex = discarded.getIndex();
+            baseTerm = discarded.getTerm();
+            toDiscard++;
+        }
+        
+        if (toDiscard > 0) {
+            head += toDiscard;
+            if (head > entries.size() / 2) {
+                entries.subList(0, head).clear();
+                head = 0;
+            }
+        }
+    }
+    
+    /**
+     * Obtém as entradas a partir de um número de sequência.
+     * 
+     * @param fromIndex Primeiro número de sequência desejado
+     * @param maxCount Número máximo de entradas retornadas
+     * @return Lista de entradas (vazia se não houver entradas novas)
+     * @throws IllegalArgumentException Se as entradas solicitadas já foram descartadas
+     */
+    public synchronized List<LogEntry> entriesFrom(long fromIndex, int maxCount) {
+        if (fromIndex < getFirstIndex()) {
+            throw new IllegalArgumentException("Entradas a partir de " + fromIndex + " já foram descartadas");
+        }
+        
+        List<LogEntry> result = new ArrayList<>();
+        int start = head + (int) (fromIndex - getFirstIndex());
+        for (int i = start; i < entries.size() && result.size() < maxCount; i++) {
+            result.add(entries.get(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Obtém a entrada com um número de sequência específico.
+     * 
+     * @param index Número de sequência
+     * @return Entrada, ou null se ela foi descartada ou ainda não existe
+     */
+    public synchronized LogEntry entryAt(long index) {
+        if (index <= baseIndex || index > getLastIndex()) {
+            return null;
+        }
+        return entries.get(head + (int) (index - baseIndex - 1));
+    }
+    
+    /**
+     * Obtém o termo da entrada com um número de sequência específico.
+     * 
+     * @param index Número de sequência
+     * @return Termo da entrada, ou -1 se ele não é conhecido
+     */
+    public synchronized int termAt(long index) {
+        if (index == baseIndex) {
+            return baseTerm;
+        }
+        LogEntry entry = entryAt(index);
+        return entry != null ? entry.getTerm() : -1;
+    }
+    
+    /**
+     * Verifica se as entradas a partir de um número de sequência ainda estão retidas.
+     * 
+     * @param fromIndex Número de sequência
+     * @return true se o seguidor pode ser atualizado incrementalmente, false se precisa de snapshot
+     */
+    public synchronized boolean canServeFrom(long fromIndex) {
+        return fromIndex >= getFirstIndex();
+    }
+    
+    /**
+     * Descarta todas as entradas e reinicia a numeração a partir de um índice.
+     * Usado ao instalar um snapshot ou quando um nó assume a liderança e deve
+     * continuar a sequência já aplicada.
+     * 
+     * @param index Último número de sequência já aplicado
+     * @param term Termo dessa entrada (-1 se desconhecido)
+     */
+    public synchronized void resetTo(long index, int term) {
+        entries.clear();
+        head = 0;
+        retainedBytes = 0;
+        baseIndex = index;
+        baseTerm = term;
+    }
+    
+    /**
+     * Obtém o número de sequência da entrada mais antiga retida.
+     * 
+     * @return Primeiro índice retido (lastIndex + 1 se o log estiver vazio)
+     */
+    public synchronized long getFirstIndex() {
+        return baseIndex + 1;
+    }
+    
+    /**
+     * Obtém o número de sequência da entrada mais recente.
+     * 
+     * @return Último índice
+     */
+    public synchronized long getLastIndex() {
+        return baseIndex + retained();
+    }
+    
+    /**
+     * Obtém o termo da entrada mais recente.
+     * 
+     * @return Último termo
+     */
+    public synchronized int getLastTerm() {
+        return termAt(getLastIndex());
+    }
+    
+    /**
+     * Obtém o número de entradas retidas.
+     */
+    private int retained() {
+        return entries.size() - head;
+    }
+}
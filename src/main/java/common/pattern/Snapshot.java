@@ -0,0 +1,161 @@
+package common.pattern;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot completo do estado de um componente, usado para instalar o estado em seguidores
+ * que entram no cluster ou que ficaram para trás da janela de log retida pelo líder.
+ * O snapshot é transferido em blocos de tamanho fixo, cada um com o seu deslocamento e
+ * checksum, e o conteúdo completo tem um checksum próprio.
+ *
+ * O estado é gravado pelo componente diretamente num arquivo temporário e os blocos são lidos
+ * dele sob demanda, de modo que o heap usado por uma transferência é o de um bloco, e não o
+ * do estado inteiro. O arquivo é apagado logo após a gravação (o canal aberto continua a lê-lo)
+ * e o canal é fechado quando o snapshot deixa de ser referenciado.
+ */
+public class Snapshot {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int WRITE_BUFFER_BYTES = 65536;
+    
+    private final long version;
+    private final int lastTerm;
+    private final FileChannel data;
+    private final long size;
+    private final long checksum;
+    
+    /**
+     * Construtor para Snapshot.
+     *
+     * @param version Número de sequência da última operação coberta pelo snapshot
+     * @param lastTerm Termo dessa operação (-1 se desconhecido)
+     * @param state Escreve o estado serializado
+     * @throws IOException Se o estado não puder ser gravado
+     */
+    public Snapshot(long version, int lastTerm, StateWriter state) throws IOException {
+        this.version = version;
+        this.lastTerm = lastTerm;
+        
+        Path file = Files.createTempFile("snapshot-" + version + "-", ".state");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream output = new CheckedOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_BYTES), crc)) {
+                state.writeTo(output);
+            }
+            this.checksum = crc.getValue();
+            this.data = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = data.size();
+        } finally {
+            deleteQuietly(file);
+        }
+        FileChannel channel = data;
+        CLEANER.register(this, () -> closeQuietly(channel));
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getLastTerm() {
+        return lastTerm;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public long getChecksum() {
+        return checksum;
+    }
+    
+    /**
+     * Monta a mensagem de um bloco do snapshot.
+     * Formato: SNAPSHOT_CHUNK|TERM|VERSÃO|DESLOCAMENTO|CRC32|DADOS_BASE64
+     *
+     * @param term Termo atual do líder
+     * @param offset Deslocamento do bloco em bytes
+     * @param chunkSize Tamanho máximo do bloco em bytes
+     * @return Mensagem do bloco (uma linha)
+     * @throws IOException Se o bloco não puder ser lido
+     */
+    public String chunkMessage(int term, long offset, int chunkSize) throws IOException {
+        byte[] chunk = chunk(offset, chunkSize);
+        return chunkMessage(term, offset, chunk, Base64.getEncoder().encodeToString(chunk), null);
+    }
+    
+    /**
+     * Monta a mensagem de um bloco com os dados já codificados.
+     *
+     * @param chunk Bloco original (usado no checksum)
+     * @param encodedData Dados do bloco em Base64 (originais ou comprimidos)
+     * @param encoding Campos adicionais que descrevem a codificação, ou null
+     */
+    String chunkMessage(int term, long offset, byte[] chunk, String encodedData, String encoding) {
+        return "SNAPSHOT_CHUNK|" + term + "|" + version + "|" + offset + "|" +
+               checksum(chunk, 0, chunk.length) + "|" + encodedData + (encoding != null ? "|" + encoding : "");
+    }
+    
+    /**
+     * Lê um bloco do conteúdo.
+     */
+    byte[] chunk(long offset, int chunkSize) throws IOException {
+        int length = (int) Math.min(chunkSize, size - offset);
+        ByteBuffer chunk = ByteBuffer.allocate(length);
+        while (chunk.hasRemaining()) {
+            if (data.read(chunk, offset + chunk.position()) < 0) {
+                throw new IOException("Arquivo do snapshot " + version + " terminou antes do esperado");
+            }
+        }
+        return chunk.array();
+    }
+    
+    /**
+     * Monta a mensagem de início da transferência.
+     * Formato: SNAPSHOT_BEGIN|TERM|VERSÃO|ÚLTIMO_TERMO|TAMANHO|CRC32|ID_DO_LÍDER
+     *
+     * @param term Termo atual do líder
+     * @param leaderId ID do líder
+     * @return Mensagem de início (uma linha)
+     */
+    public String beginMessage(int term, String leaderId) {
+        return "SNAPSHOT_BEGIN|" + term + "|" + version + "|" + lastTerm + "|" + size + "|" +
+               checksum + "|" + leaderId;
+    }
+    
+    static long checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+    
+    /**
+     * Apaga um arquivo temporário; se o sistema não permitir apagar um arquivo aberto, ele é
+     * apagado ao encerrar a JVM.
+     */
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+    
+    static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Canal já fechado
+        }
+    }
+}
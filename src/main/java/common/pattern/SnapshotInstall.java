@@ -0,0 +1,176 @@
+package common.pattern;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Instalação de um snapshot em andamento no seguidor.
+ * Grava os blocos recebidos em ordem num arquivo temporário e guarda o deslocamento já
+ * recebido, de modo que uma transferência interrompida possa ser retomada do ponto em que
+ * parou, desde que o líder envie o mesmo snapshot (mesma versão e checksum). O checksum do
+ * conteúdo é calculado à medida que os blocos chegam e o estado é lido do arquivo como fluxo,
+ * sem ocupar no heap mais que um bloco.
+ */
+public class SnapshotInstall {
+    private static final int READ_BUFFER_BYTES = 65536;
+    
+    private final long version;
+    private final int lastTerm;
+    private final long size;
+    private final long checksum;
+    private final CRC32 crc = new CRC32();
+    private Path file;
+    private FileChannel data;
+    private long received = 0;
+    
+    /**
+     * Construtor para SnapshotInstall.
+     * 
+     * @param version Número de sequência coberto pelo snapshot
+     * @param lastTerm Termo da última operação coberta
+     * @param size Tamanho total em bytes
+     * @param checksum CRC32 do conteúdo completo
+     */
+    public SnapshotInstall(long version, int lastTerm, long size, long checksum) {
+        this.version = version;
+        this.lastTerm = lastTerm;
+        this.size = size;
+        this.checksum = checksum;
+    }
+    
+    /**
+     * Verifica se esta instalação corresponde ao snapshot anunciado pelo líder.
+     */
+    public boolean isSameSnapshot(long version, long size, long checksum) {
+        return this.version == version && this.size == size && this.checksum == checksum;
+    }
+    
+    /**
+     * Adiciona um bloco recebido, já decodificado (e descomprimido).
+     * 
+     * @param offset Deslocamento do bloco
+     * @param chunkChecksum CRC32 do bloco
+     * @param chunk Bloco
+     * @return true se o bloco foi aceito; false se está fora de ordem ou corrompido
+     * @throws IOException Se o bloco não puder ser gravado
+     */
+    public boolean accept(long offset, long chunkChecksum, byte[] chunk) throws IOException {
+        if (offset != received) {
+            return false;
+        }
+        
+        if (chunk.length > size - received || Snapshot.checksum(chunk, 0, chunk.length) != chunkChecksum) {
+            return false;
+        }
+        
+        if (data == null) {
+            file = Files.createTempFile("snapshot-install-" + version + "-", ".state");
+            data = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        while (buffer.hasRemaining()) {
+            data.write(buffer, received + buffer.position());
+        }
+        crc.update(chunk, 0, chunk.length);
+        received += chunk.length;
+        return true;
+    }
+    
+    public boolean isComplete() {
+        return received == size;
+    }
+    
+    /**
+     * Força para o disco os blocos recebidos, antes de confirmar o último deles ao líder.
+     * 
+     * @throws IOException Se o arquivo não puder ser sincronizado
+     */
+    public void sync() throws IOException {
+        if (data != null) {
+            data.force(true);
+        }
+    }
+    
+    /**
+     * Verifica o checksum do conteúdo completo.
+     */
+    public boolean isValid() {
+        return isComplete() && crc.getValue() == checksum;
+    }
+    
+    /**
+     * Abre o conteúdo recebido para leitura, do início. O fluxo não fecha o arquivo, que é
+     * descartado por discard.
+     * 
+     * @return Fluxo com o estado serializado
+     */
+    public InputStream openState() {
+        if (data == null) {
+            return InputStream.nullInputStream();
+        }
+        return new BufferedInputStream(Channels.newInputStream(new PositionalReader(data)), READ_BUFFER_BYTES);
+    }
+    
+    /**
+     * Fecha e apaga o arquivo temporário.
+     */
+    public void discard() {
+        if (data != null) {
+            Snapshot.closeQuietly(data);
+            Snapshot.deleteQuietly(file);
+            data = null;
+        }
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getLastTerm() {
+        return lastTerm;
+    }
+    
+    public long getReceived() {
+        return received;
+    }
+    
+    /**
+     * Leitura sequencial do arquivo por posição, sem alterar a posição do canal.
+     */
+    private static final class PositionalReader implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position = 0;
+        
+        PositionalReader(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            int read = channel.read(buffer, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+        
+        @Override
+        public void close() {
+            // O arquivo é fechado por discard
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package common.pattern;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Grava o estado de um componente num fluxo, em partes, sem montá-lo inteiro na memória.
+ * Usado para gerar os snapshots transferidos aos seguidores: o componente fixa uma visão do
+ * estado enquanto o log está travado e a grava depois, fora do lock, de modo que as escritas
+ * não aguardam a serialização.
+ */
+@FunctionalInterface
+public interface StateWriter extends AutoCloseable {
+    
+    /**
+     * Escreve o estado serializado.
+     * 
+     * @param output Fluxo de destino (não deve ser fechado pela implementação)
+     * @throws IOException Se ocorrer um erro de escrita
+     */
+    void writeTo(OutputStream output) throws IOException;
+    
+    /**
+     * Libera a visão do estado, gravada ou não.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,170 @@
+package common.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Roda de temporização hierárquica para prazos de expiração de chaves.
+ * Cada nível tem 64 posições; uma posição do nível 0 cobre um tick, e uma posição do nível
+ * N cobre 64^N ticks. Um prazo é colocado no nível mais baixo que o alcança e, quando a
+ * posição de um nível superior é atingida, suas entradas descem (cascata) para os níveis
+ * inferiores. Assim, o custo de avançar a roda depende apenas do número de prazos que
+ * vencem, e não do número total de chaves armazenadas.
+ * 
+ * Cada chave tem no máximo um prazo: agendar de novo substitui o anterior.
+ */
+public class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^6 ticks: mais de 60 anos com ticks de 100 ms
+    private static final int LEVELS = 6;
+    
+    private final long tickMs;
+    private final List<List<Set<Timer>>> levels = new ArrayList<>();
+    private final Map<String, Timer> timers = new HashMap<>();
+    
+    // Último tick já processado
+    private long currentTick;
+    
+    /**
+     * Prazo agendado na roda.
+     */
+    private static class Timer {
+        final String key;
+        final long tick;
+        Set<Timer> slot;
+        
+        Timer(String key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+    
+    /**
+     * Construtor para TimingWheel.
+     * 
+     * @param tickMs Duração de um tick (resolução dos prazos)
+     * @param startMs Instante inicial da roda
+     */
+    public TimingWheel(long tickMs, long startMs) {
+        this.tickMs = Math.max(1, tickMs);
+        this.currentTick = startMs / this.tickMs;
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<Timer>> slots = new ArrayList<>(SLOTS);
+            for (int i = 0; i < SLOTS; i++) {
+                slots.add(new HashSet<>());
+            }
+            levels.add(slots);
+        }
+    }
+    
+    /**
+     * Agenda (ou reagenda) o prazo de uma chave.
+     * 
+     * @param key Chave
+     * @param deadlineMs Instante em que a chave expira
+     */
+    public synchronized void schedule(String key, long deadlineMs) {
+        cancel(key);
+        // Prazos já vencidos disparam no próximo tick
+        long tick = Math.max(deadlineMs / tickMs, currentTick + 1);
+        Timer timer = new Timer(key, tick);
+        timers.put(key, timer);
+        place(timer);
+    }
+    
+    /**
+     * Remove o prazo de uma chave, se houver.
+     * 
+     * @param key Chave
+     */
+    public synchronized void cancel(String key) {
+        Timer timer = timers.remove(key);
+        if (timer != null) {
+            timer.slot.remove(timer);
+        }
+    }
+    
+    /**
+     * Avança a roda até o instante informado.
+     * 
+     * @param nowMs Instante atual
+     * @return Chaves cujos prazos venceram (deixam de estar agendadas)
+     */
+    public synchronized List<String> advance(long nowMs) {
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMs / tickMs;
+        
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            
+            Set<Timer> slot = levels.get(0).get((int) (currentTick & SLOT_MASK));
+            for (Timer timer : slot) {
+                timers.remove(timer.key);
+                expired.add(timer.key);
+            }
+            slot.clear();
+        }
+        return expired;
+    }
+    
+    /**
+     * Remove todos os prazos (por exemplo, antes de reconstruí-los a partir de um snapshot).
+     */
+    public synchronized void clear() {
+        for (List<Set<Timer>> slots : levels) {
+            for (Set<Timer> slot : slots) {
+                slot.clear();
+            }
+        }
+        timers.clear();
+    }
+    
+    /**
+     * Obtém o número de prazos agendados.
+     * 
+     * @return Número de chaves com prazo
+     */
+    public synchronized int size() {
+        return timers.size();
+    }
+    
+    /**
+     * Quando a posição de um nível dá a volta, redistribui a posição correspondente do nível
+     * seguinte, que passa a caber nos níveis inferiores.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            
+            Set<Timer> slot = levels.get(level).get((int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+            List<Timer> moved = new ArrayList<>(slot);
+            slot.clear();
+            for (Timer timer : moved) {
+                place(timer);
+            }
+        }
+    }
+    
+    private void place(Timer timer) {
+        long delta = timer.tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        
+        // Prazos além do alcance do último nível ficam na posição mais distante e são
+        // reavaliados quando ela for atingida
+        long tick = Math.min(timer.tick, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        timer.slot = levels.get(level).get((int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK));
+        timer.slot.add(timer);
+    }
+}
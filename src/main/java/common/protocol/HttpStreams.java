@@ -0,0 +1,295 @@
+package common.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura e escrita de mensagens HTTP/1.1 diretamente sobre os bytes do socket.
+ * Os cabeçalhos são lidos byte a byte, sem buffers de caracteres que consumam parte do corpo,
+ * e os corpos são expostos como fluxos (Content-Length ou Transfer-Encoding: chunked), de
+ * modo que valores grandes atravessam o gateway e os componentes em blocos, sem precisar
+ * de um buffer contíguo do tamanho do valor.
+ */
+public final class HttpStreams {
+    // Tamanho máximo de uma linha de cabeçalho
+    private static final int MAX_LINE_BYTES = 65536;
+    
+    private HttpStreams() {
+    }
+    
+    /**
+     * Lê a linha de requisição (ou de status) e os cabeçalhos, até a linha em branco.
+     * 
+     * @param input Fluxo do socket
+     * @return Linhas lidas, cada uma terminada por "\r\n" (sem a linha em branco final),
+     *         ou null se a conexão terminou antes da primeira linha
+     * @throws IOException Se ocorrer um erro de leitura
+     */
+    public static String readHead(InputStream input) throws IOException {
+        StringBuilder head = new StringBuilder();
+        String line;
+        while ((line = readLine(input)) != null && !line.isEmpty()) {
+            head.append(line).append("\r\n");
+        }
+        return head.length() > 0 ? head.toString() : null;
+    }
+    
+    /**
+     * Lê uma linha terminada por "\n" (com ou sem "\r"), decodificada como UTF-8.
+     * 
+     * @return Linha sem o terminador, ou null no fim do fluxo
+     */
+    public static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (line.size() >= MAX_LINE_BYTES) {
+                throw new IOException("Linha HTTP excede " + MAX_LINE_BYTES + " bytes");
+            }
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Obtém o valor de um cabeçalho, sem diferenciar maiúsculas de minúsculas no nome.
+     * 
+     * @param head Cabeçalhos lidos por readHead
+     * @param name Nome do cabeçalho
+     * @return Valor sem espaços nas pontas, ou null se o cabeçalho não está presente
+     */
+    public static String getHeader(String head, String name) {
+        String[] lines = head.split("\r\n");
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0 && lines[i].substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return lines[i].substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Verifica se a mensagem usa Transfer-Encoding: chunked.
+     */
+    public static boolean isChunked(String head) {
+        String encoding = getHeader(head, "Transfer-Encoding");
+        return encoding != null && encoding.toLowerCase().contains("chunked");
+    }
+    
+    /**
+     * Abre o corpo de uma mensagem conforme o seu enquadramento.
+     * O fluxo devolvido termina no fim do corpo, sem consumir bytes além dele, e não fecha o
+     * fluxo do socket.
+     * 
+     * @param head Cabeçalhos da mensagem
+     * @param input Fluxo do socket, posicionado logo após os cabeçalhos
+     * @return Corpo decodificado (vazio se a mensagem não tem corpo)
+     * @throws IOException Se o Content-Length for inválido
+     */
+    public static InputStream openBody(String head, InputStream input) throws IOException {
+        if (isChunked(head)) {
+            return new ChunkedInputStream(input);
+        }
+        String contentLength = getHeader(head, "Content-Length");
+        long length = 0;
+        if (contentLength != null) {
+            try {
+                length = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                throw new IOException("Content-Length inválido: " + contentLength);
+            }
+        }
+        return new LimitedInputStream(input, length);
+    }
+    
+    /**
+     * Lê até encher o buffer ou até o fim do fluxo.
+     * 
+     * @return Número de bytes lidos
+     */
+    public static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = input.read(buffer, total, buffer.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
+    /**
+     * Copia um fluxo para outro até o fim, em blocos do tamanho do buffer.
+     * 
+     * @return Número de bytes copiados
+     */
+    public static long copy(InputStream input, OutputStream output, byte[] buffer) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+    
+    /**
+     * Corpo com tamanho conhecido (Content-Length).
+     */
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream input;
+        private long remaining;
+        
+        LimitedInputStream(InputStream input, long length) {
+            this.input = input;
+            this.remaining = length;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = input.read();
+            if (b == -1) {
+                throw new EOFException("Conexão encerrada antes do fim do corpo");
+            }
+            remaining--;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("Conexão encerrada antes do fim do corpo");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+    
+    /**
+     * Corpo em Transfer-Encoding: chunked; extensões e trailers são descartados.
+     */
+    private static final class ChunkedInputStream extends InputStream {
+        private final InputStream input;
+        private long remaining = 0;
+        private boolean finished = false;
+        
+        ChunkedInputStream(InputStream input) {
+            this.input = input;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished || !nextChunk()) {
+                return -1;
+            }
+            int read = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("Conexão encerrada no meio de um bloco");
+            }
+            remaining -= read;
+            if (remaining == 0) {
+                readLine(input);
+            }
+            return read;
+        }
+        
+        /**
+         * Posiciona no próximo bloco com dados.
+         * 
+         * @return false ao chegar ao bloco final
+         */
+        private boolean nextChunk() throws IOException {
+            if (remaining > 0) {
+                return true;
+            }
+            String line = readLine(input);
+            if (line == null) {
+                throw new EOFException("Conexão encerrada antes do bloco final");
+            }
+            int extension = line.indexOf(';');
+            try {
+                remaining = Long.parseLong((extension >= 0 ? line.substring(0, extension) : line).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Tamanho de bloco inválido: " + line);
+            }
+            if (remaining == 0) {
+                // Trailers até a linha em branco
+                while ((line = readLine(input)) != null && !line.isEmpty()) {
+                    // Descartado
+                }
+                finished = true;
+                return false;
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Escreve o corpo em Transfer-Encoding: chunked: cada escrita vira um bloco.
+     * finish escreve o bloco final sem fechar o fluxo do socket.
+     */
+    public static final class ChunkedOutputStream extends FilterOutputStream {
+        private boolean finished = false;
+        
+        public ChunkedOutputStream(OutputStream output) {
+            super(output);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            out.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(buffer, offset, length);
+            out.write('\r');
+            out.write('\n');
+        }
+        
+        /**
+         * Escreve o bloco final.
+         */
+        public void finish() throws IOException {
+            if (!finished) {
+                finished = true;
+                out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+    }
+}
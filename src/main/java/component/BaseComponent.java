@@ -1,10 +1,14 @@
 package component;
 
+import common.config.SystemConfig;
 import common.model.ComponentInfo;
+import common.model.ReadConsistency;
 import common.pattern.HeartbeatPattern;
 import common.pattern.LeaderFollower;
+import common.pattern.StateWriter;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.DatagramPacket;
@@ -12,11 +16,18 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,6 +67,9 @@ public abstract class BaseComponent {
     // Pools de threads
     protected final ExecutorService threadPool;
     protected final ScheduledExecutorService scheduler;
+    // Escritas aguardam a rodada de replicação (ou de consenso) numa thread própria, fora do pool
+    // de atendimento; acima do limite configurado, são recusadas em vez de enfileiradas
+    protected final ThreadPoolExecutor writeExecutor;
     
     // Sockets do servidor
     protected ServerSocket httpServer;
@@ -91,6 +105,8 @@ public abstract class BaseComponent {
         // Inicializa os pools de threads
         this.threadPool = Executors.newFixedThreadPool(20);
         this.scheduler = Executors.newScheduledThreadPool(2);
+        this.writeExecutor = new ThreadPoolExecutor(
+            0, SystemConfig.getInstance().getWriteMaxPending(), 60, TimeUnit.SECONDS, new SynchronousQueue<>());
     }
     
     /**
@@ -162,6 +178,7 @@ public abstract class BaseComponent {
             
             // Para os pools de threads
             threadPool.shutdown();
+            writeExecutor.shutdown();
             scheduler.shutdown();
             
             try {
@@ -169,11 +186,16 @@ public abstract class BaseComponent {
                     threadPool.shutdownNow();
                 }
                 
+                if (!writeExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    writeExecutor.shutdownNow();
+                }
+                
                 if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
                     scheduler.shutdownNow();
                 }
             } catch (InterruptedException e) {
                 threadPool.shutdownNow();
+                writeExecutor.shutdownNow();
                 scheduler.shutdownNow();
                 Thread.currentThread().interrupt();
             }
@@ -290,6 +312,9 @@ public abstract class BaseComponent {
                     String message = new String(data);
                     if ("HEARTBEAT".equals(message)) {
                         sendHeartbeatResponse(clientAddress, clientPort);
+                    } else if (isWriteRequest(message)) {
+                        // Escritas aguardam a replicação fora do pool de atendimento
+                        dispatchUDPWrite(data, clientAddress, clientPort);
                     } else {
                         // Lida com a requisição regular
                         threadPool.submit(() -> handleUDPRequest(data, clientAddress, clientPort));
@@ -308,6 +333,75 @@ public abstract class BaseComponent {
         // LOGGER.info(componentType + " servidor UDP iniciado na porta " + udpPort);
     }
     
+    /**
+     * Atende uma escrita UDP em writeExecutor; se o limite de escritas foi atingido, responde
+     * com o motivo da recusa.
+     */
+    private void dispatchUDPWrite(byte[] data, InetAddress clientAddress, int clientPort) {
+        try {
+            writeExecutor.execute(() -> handleUDPRequest(data, clientAddress, clientPort));
+        } catch (RejectedExecutionException e) {
+            try {
+                byte[] responseData = ("ERROR|" + writeRejection()).getBytes();
+                udpServer.send(new DatagramPacket(responseData, responseData.length, clientAddress, clientPort));
+            } catch (IOException ex) {
+                // LOGGER.log(Level.WARNING, "Erro ao enviar resposta UDP", ex);
+            }
+        }
+    }
+    
+    /**
+     * Indica se uma requisição UDP é uma escrita, atendida em writeExecutor em vez do pool de
+     * atendimento. Por padrão, nenhuma é.
+     * 
+     * @param request Requisição recebida
+     * @return true se a requisição deve aguardar a replicação em writeExecutor
+     */
+    protected boolean isWriteRequest(String request) {
+        return false;
+    }
+    
+    /**
+     * Atende uma escrita TCP ou HTTP em writeExecutor, que assume a conexão do cliente: a
+     * tarefa envia a resposta e a conexão é fechada ao final.
+     * 
+     * @param clientSocket Conexão do cliente
+     * @param task Escrita, que envia a sua própria resposta
+     * @return true se a escrita foi aceita; false se foi recusada (ver writeRejection)
+     */
+    protected boolean dispatchWrite(Socket clientSocket, WriteTask task) {
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    // Cliente desconectado
+                } finally {
+                    closeQuietly(clientSocket);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Motivo da recusa de uma escrita pelo writeExecutor.
+     */
+    protected String writeRejection() {
+        return writeExecutor.isShutdown() ? "Componente em encerramento" :
+               "Limite de escritas aguardando replicação atingido, tente novamente mais tarde";
+    }
+    
+    protected static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Conexão já encerrada
+        }
+    }
+    
     /**
      * Inicia o respondedor de heartbeat.
      */
@@ -334,17 +428,53 @@ public abstract class BaseComponent {
      * Inicializa o padrão Leader-Follower.
      */
     protected void initLeaderFollower() {
-        // Por padrão, tenta se tornar líder
-        leaderFollower = LeaderFollower.createLeader(componentType, instanceId, host, leaderPort);
+        // Por padrão, tenta se tornar líder (a menos que um seguidor já tenha sido configurado)
+        if (leaderFollower == null) {
+            SystemConfig config = SystemConfig.getInstance();
+            if (config.isConsensusEnabled()) {
+                // No modo de consenso, o líder é eleito pela maioria dos membros configurados
+                leaderFollower = LeaderFollower.createConsensusMember(
+                    componentType, instanceId, host, leaderPort, config.getClusterPeers(componentType)
+                );
+            } else {
+                leaderFollower = LeaderFollower.createLeader(componentType, instanceId, host, leaderPort);
+            }
+        }
         
         // Configura callbacks
         leaderFollower.onLeadershipChanged(this::handleLeadershipChange)
                      .onStateUpdate(this::handleStateUpdate)
+                     .onOperation(this::applyOperation)
+                     .onSnapshotRequest(this::captureState)
+                     .compressionSamples(this::isCompressionSample)
+                     .restoreStateVersion(getRestoredStateVersion())
                      .start();
         
         // LOGGER.info("Leader-Follower inicializado para " + componentType + " " + instanceId);
     }
     
+    /**
+     * Indica se uma operação do log pode servir de amostra para o dicionário de compressão
+     * da replicação. Componentes com operações volumosas ou binárias o sobrescrevem para
+     * excluí-las.
+     * 
+     * @param operation Operação serializada
+     * @return true se a operação pode ser amostrada
+     */
+    protected boolean isCompressionSample(String operation) {
+        return true;
+    }
+    
+    /**
+     * Obtém o índice da última operação do log já aplicada ao estado recuperado do disco.
+     * Componentes com armazenamento durável o sobrescrevem para retomar a replicação a partir dele.
+     * 
+     * @return Índice da última operação aplicada (0 se o estado começa vazio)
+     */
+    protected long getRestoredStateVersion() {
+        return 0;
+    }
+    
     /**
      * Manipula mudanças de liderança.
      * 
@@ -364,12 +494,13 @@ public abstract class BaseComponent {
     /**
      * Manipula atualizações de estado do líder.
      * 
-     * @param stateData Dados de estado serializados
+     * @param version Índice da última operação do log contida no estado
+     * @param stateData Fluxo com o estado serializado
      */
-    protected void handleStateUpdate(String stateData) {
+    protected void handleStateUpdate(long version, InputStream stateData) {
         if (!isLeader) {
             // LOGGER.info(componentType + " " + instanceId + " recebeu atualização de estado");
-            processStateUpdate(stateData);
+            processStateUpdate(version, stateData);
         }
     }
     
@@ -387,27 +518,222 @@ public abstract class BaseComponent {
     
     /**
      * Processa uma atualização de estado recebida do líder.
+     * O estado deve ser lido do fluxo em partes, sem carregá-lo inteiro na memória. Uma
+     * exceção indica que o estado não foi instalado: a versão do nó não muda e o líder
+     * reenvia o snapshot.
      * Deve ser implementado pelas subclasses.
      * 
-     * @param stateData Dados de estado serializados
+     * @param version Índice da última operação do log contida no estado
+     * @param stateData Fluxo com o estado serializado
      */
-    protected abstract void processStateUpdate(String stateData);
+    protected abstract void processStateUpdate(long version, InputStream stateData);
     
     /**
-     * Gera uma representação de estado serializável.
+     * Fixa uma visão do estado aplicado para um snapshot.
+     * Chamado com o log de operações travado: deve apenas capturar a visão, sem percorrer o
+     * estado. O StateWriter retornado escreve essa visão depois, fora do lock, com as entradas
+     * escritas à medida que são percorridas, sem montar o estado inteiro na memória, e é
+     * fechado em seguida.
      * Deve ser implementado pelas subclasses.
      * 
-     * @return Estado serializado como string
+     * @return Escritor da visão capturada
      */
-    protected abstract String serializeState();
+    protected abstract StateWriter captureState();
+    
+    /**
+     * Aplica uma operação do log replicado ao estado local.
+     * Chamado no líder ao registrar a operação e nos seguidores ao recebê-la, na ordem do log.
+     * Deve ser implementado pelas subclasses.
+     * 
+     * @param index Número de sequência da operação no log
+     * @param operation Operação serializada (ex.: "SET|chave|valor")
+     */
+    protected abstract void applyOperation(long index, String operation);
+    
+    /**
+     * Submete uma operação de escrita. No líder, a operação é registrada no log replicado
+     * e aplicada localmente; os seguidores recebem apenas essa entrada.
+     * A resposta ao cliente aguarda a rodada de group commit do lote da operação; no modo
+     * de consenso, aguarda até que a operação seja confirmada pela maioria do cluster.
+     * Como bloqueia a thread, as requisições de escrita devem ser atendidas em writeExecutor
+     * (ver dispatchWrite e isWriteRequest), e não no pool de atendimento.
+     * 
+     * @param operation Operação serializada
+     * @return Número de sequência atribuído (0 se a operação não foi replicada,
+     *         -1 se não foi confirmada pela maioria ou se esta réplica não é o líder)
+     */
+    protected long submitOperation(String operation) {
+        boolean consensus = leaderFollower != null && leaderFollower.isConsensusEnabled();
+        try {
+            return proposeOperation(operation)
+                .get(SystemConfig.getInstance().getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return consensus ? -1 : 0;
+        } catch (ExecutionException | TimeoutException e) {
+            // No modo assíncrono a operação já foi aplicada; apenas a replicação não terminou a tempo
+            // LOGGER.log(Level.WARNING, "Operação não confirmada pela replicação", e);
+            return consensus ? -1 : 0;
+        }
+    }
+    
+    /**
+     * Versão sem bloqueio de submitOperation: o futuro é concluído quando a operação termina
+     * sua rodada de replicação (ou de consenso), sem prazo máximo.
+     * Um seguidor não aplica a operação localmente, o que desviaria o seu estado do log do
+     * líder: o futuro é concluído com -1, como uma escrita não confirmada.
+     * 
+     * @param operation Operação serializada
+     * @return Futuro com o número de sequência atribuído (0 se a operação não foi replicada,
+     *         -1 se não foi confirmada pela maioria ou se esta réplica não é o líder)
+     */
+    protected CompletableFuture<Long> proposeOperation(String operation) {
+        boolean consensus = leaderFollower != null && leaderFollower.isConsensusEnabled();
+        if (leaderFollower != null && !isLeader) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        
+        if (isLeader && leaderFollower != null) {
+            return leaderFollower.propose(operation).exceptionally(e -> consensus ? -1L : 0L);
+        }
+        
+        applyOperation(0, operation);
+        return CompletableFuture.completedFuture(0L);
+    }
+    
+    /**
+     * Verifica se uma leitura pode ser respondida a partir do estado local.
+     * No modo de consenso, o líder só responde com um lease válido, o que torna a leitura
+     * linearizável sem uma rodada de comunicação; se o lease ainda não foi obtido (por
+     * exemplo, logo após a eleição), aguarda até o timeout de commit.
+     * 
+     * @return true se a leitura local pode ser servida
+     */
+    protected boolean canServeLocalRead() {
+        if (!isLeader || leaderFollower == null || !leaderFollower.isConsensusEnabled()) {
+            return true;
+        }
+        return leaderFollower.awaitLease(SystemConfig.getInstance().getCommitTimeoutMs());
+    }
+    
+    /**
+     * Verifica se uma leitura com o nível de consistência informado pode ser servida por
+     * esta réplica. Sem nível explícito, vale a regra de canServeLocalRead.
+     * 
+     * @param consistency Nível textual (STALE_OK, BOUNDED(ms) ou READ_INDEX), ou null
+     * @return null se a leitura pode ser servida; caso contrário, a resposta a devolver
+     *         (STALE|DEFASAGEM_MS|... se a réplica está defasada demais, ou ERROR|...)
+     */
+    protected String checkReadConsistency(String consistency) {
+        if (consistency == null || consistency.isEmpty()) {
+            return canServeLocalRead() ? null : "ERROR|Líder sem lease válido, leitura não pode ser garantida";
+        }
+        
+        ReadConsistency level;
+        try {
+            level = ReadConsistency.parse(consistency);
+        } catch (IllegalArgumentException e) {
+            return "ERROR|" + e.getMessage();
+        }
+        
+        if (leaderFollower == null || level.getLevel() == ReadConsistency.Level.STALE_OK) {
+            return null;
+        }
+        
+        if (level.getLevel() == ReadConsistency.Level.BOUNDED) {
+            long staleness = leaderFollower.getStalenessMs();
+            if (staleness > level.getMaxStalenessMs()) {
+                return "STALE|" + (staleness == Long.MAX_VALUE ? -1 : staleness) + "|" +
+                       "Réplica mais defasada que o limite de " + level.getMaxStalenessMs() + " ms";
+            }
+            return null;
+        }
+        
+        // READ_INDEX: aguarda aplicar o índice de confirmação obtido do líder
+        int timeoutMs = SystemConfig.getInstance().getCommitTimeoutMs();
+        long readIndex = leaderFollower.readIndex(timeoutMs);
+        if (readIndex < 0) {
+            return "ERROR|Não foi possível obter o índice de leitura do líder";
+        }
+        if (!leaderFollower.awaitApplied(readIndex, timeoutMs)) {
+            return "ERROR|Réplica não aplicou o índice de leitura " + readIndex + " a tempo";
+        }
+        return null;
+    }
+    
+    /**
+     * Converte a recusa de uma leitura em resposta HTTP.
+     * 
+     * @param rejection Resposta de checkReadConsistency
+     * @return Status HTTP correspondente
+     */
+    protected static String readRejectionStatus(String rejection) {
+        return rejection.startsWith("ERROR|Nível") ? "400 Bad Request" : "503 Service Unavailable";
+    }
+    
+    /**
+     * Descreve o papel desta réplica para GET /info e, no líder, quantas entradas do log
+     * cada seguidor ainda não confirmou.
+     * 
+     * @return Linhas de texto sem quebra de linha final
+     */
+    protected String describeReplication() {
+        if (leaderFollower == null) {
+            return "Papel: " + (isLeader ? "líder" : "seguidor");
+        }
+        if (!isLeader) {
+            return "Papel: seguidor (versão " + leaderFollower.getStateVersion() + ")";
+        }
+        
+        StringBuilder description = new StringBuilder("Papel: líder (versão ")
+            .append(leaderFollower.getStateVersion()).append(")\nAtraso dos seguidores:");
+        Map<String, Long> lag = leaderFollower.getFollowerLag();
+        if (lag.isEmpty()) {
+            description.append(" nenhum seguidor");
+        }
+        for (Map.Entry<String, Long> follower : lag.entrySet()) {
+            description.append("\n  ").append(follower.getKey()).append(": ")
+                       .append(follower.getValue()).append(" entradas");
+        }
+        return description.toString();
+    }
+    
+    /**
+     * Obtém um parâmetro da query string de um caminho HTTP.
+     * 
+     * @param path Caminho com query string opcional (ex.: /get/chave?consistency=READ_INDEX)
+     * @param name Nome do parâmetro
+     * @return Valor do parâmetro, ou null se ausente
+     */
+    protected static String getQueryParameter(String path, String name) {
+        int queryStart = path.indexOf('?');
+        if (queryStart < 0) {
+            return null;
+        }
+        
+        for (String pair : path.substring(queryStart + 1).split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return pair.substring(separator + 1);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Remove a query string de um caminho HTTP.
+     */
+    protected static String stripQuery(String path) {
+        int queryStart = path.indexOf('?');
+        return queryStart < 0 ? path : path.substring(0, queryStart);
+    }
     
     /**
      * Replica o estado atual para os seguidores (quando for líder).
      */
     protected void replicateState() {
         if (isLeader && leaderFollower != null) {
-            String stateData = serializeState();
-            leaderFollower.updateState(stateData);
+            leaderFollower.updateState();
             // LOGGER.info(componentType + " " + instanceId + " replicou estado para seguidores");
         }
     }
@@ -449,4 +775,12 @@ public abstract class BaseComponent {
     protected ComponentInfo getComponentInfo() {
         return new ComponentInfo(componentType, host, httpPort, tcpPort, udpPort);
     }
+    
+    /**
+     * Escrita atendida em writeExecutor, responsável por enviar a resposta ao cliente.
+     */
+    @FunctionalInterface
+    protected interface WriteTask {
+        void run() throws IOException;
+    }
 }
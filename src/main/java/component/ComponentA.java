@@ -1,23 +1,70 @@
 package component;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import java.lang.reflect.Type;
+import common.config.SystemConfig;
+import common.model.ReadConsistency;
 import common.pattern.LeaderFollower;
+import common.pattern.StateWriter;
+import common.pattern.TimingWheel;
+import common.protocol.HttpStreams;
+import component.storage.BitcaskStore;
+import component.storage.BoundedStore;
+import component.storage.EvictionPolicy;
+import component.storage.InMemoryStore;
+import component.storage.KeyValueStore;
+import component.storage.LsmStore;
+import component.storage.OffHeapSlabStore;
+import component.storage.VersionedStore;
 
 /**
  * Implementação do Componente A - serviço de armazenamento chave-valor com alta disponibilidade.
@@ -25,15 +72,73 @@ import common.pattern.LeaderFollower;
 public class ComponentA extends BaseComponent {
     private static final Logger LOGGER = Logger.getLogger(ComponentA.class.getName());
     
-    // Armazenamento chave-valor em memória
-    private final Map<String, String> dataStore = new ConcurrentHashMap<>();
+    // Armazenamento chave-valor (mecanismo escolhido em componentA.storage.engine), com
+    // snapshots para as leituras que percorrem várias chaves
+    private final VersionedStore dataStore;
+    // Limite de memória (componentA.maxmemory.bytes); null quando desativado
+    private final BoundedStore memoryBudget;
     private final Gson gson = new Gson();
-    private LeaderFollower leaderFollower;
-    private boolean isLeader = false;
-    private final int leaderPort = 9000;
-
-    // Identificador da instância para fins de registro
-    private final String instanceId;
+    // Respostas de MGET em JSON: chaves ausentes aparecem com valor null
+    private final Gson batchGson = new GsonBuilder().serializeNulls().create();
+    
+    // Chaves com prazo (SETEX/EXPIRE) guardam o valor como MARCADOR + prazo + MARCADOR + valor,
+    // o que leva o prazo junto nos snapshots e nos mecanismos duráveis
+    private static final char EXPIRY_MARKER = '\u0000';
+    // Número máximo de chaves expiradas removidas por entrada do log
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+    // Intervalo para reavaliar, em um seguidor, chaves vencidas cuja remoção ainda não chegou do líder
+    private static final long EXPIRY_RECHECK_MS = 1000;
+    private final TimingWheel expirations;
+    
+    // Valores grandes ou binários enviados por HTTP ficam em blocos de componentA.blob.chunk.bytes,
+    // em Base64, sob chaves internas BLOB_KEY_PREFIX + ID + "/" + N; a chave do usuário guarda o
+    // manifesto com o cabeçalho de prazo terminado por BLOB_MARKER em vez de EXPIRY_MARKER
+    private static final char BLOB_MARKER = '\u0001';
+    private static final String BLOB_KEY_PREFIX = BLOB_MARKER + "blob/";
+    // Número de blocos de um envio em replicação ao mesmo tempo
+    private static final int BLOB_MAX_INFLIGHT = 8;
+    private final int blobChunkBytes = SystemConfig.getInstance().getBlobChunkBytes();
+    
+    /**
+     * Manifesto de um valor guardado em blocos.
+     */
+    private static final class BlobManifest {
+        String id;
+        long size;
+        int chunks;
+        int chunkBytes;
+        String type;
+    }
+    private final ScheduledExecutorService expiryScheduler = Executors.newSingleThreadScheduledExecutor();
+    
+    // Operações atômicas (CAS, INCRBY, GETSET) levam no log um token; o nó que as submeteu
+    // recebe aqui o resultado calculado na aplicação
+    private final Map<String, CompletableFuture<String>> pendingResults = new ConcurrentHashMap<>();
+    private final AtomicLong resultSequence = new AtomicLong();
+    private final CounterCombiner counters = new CounterCombiner(this::proposeOperation, this::rejectResults);
+    
+    // Chaves locais de cada nó, que nunca são removidas pelo limite de memória
+    private static final Set<String> LOCAL_KEYS = Set.of("instance", "role", "leader_since");
+    // Número máximo de chaves removidas por entrada EVICTED do log
+    private static final int EVICTION_BATCH_SIZE = 1000;
+    private final ExecutorService evictionExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean(false);
+    
+    // Inscrições WATCH; a revisão de cada mudança é o índice da operação no log replicado
+    private final WatchHub watches;
+    // Cada inscrição mantém a conexão aberta numa thread própria, fora do pool de atendimento;
+    // acima do limite configurado, as inscrições são recusadas em vez de enfileiradas
+    private final ThreadPoolExecutor watchExecutor = new ThreadPoolExecutor(
+        0, SystemConfig.getInstance().getWatchMaxWaiting(), 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    // Intervalo dos avisos de progresso numa inscrição sem mudanças
+    private static final long WATCH_PING_MS = 5000;
+    // Espera padrão e máxima do long-poll de GET /watch
+    private static final long WATCH_DEFAULT_TIMEOUT_MS = 30000;
+    private static final long WATCH_MAX_TIMEOUT_MS = 120000;
+    // Número de mudanças a partir do qual uma resposta de long-poll é enviada sem esperar mais revisões
+    private static final int WATCH_POLL_MAX_CHANGES = 1000;
+    // Número de pares gravados por lote ao instalar um snapshot recebido do líder
+    private static final int STATE_BATCH_SIZE = 1000;
     
     /**
      * Construtor para o Componente A.
@@ -42,134 +147,653 @@ public class ComponentA extends BaseComponent {
                       String gatewayHost, int gatewayRegistrationPort) {
         super("componentA", host, httpPort, tcpPort, udpPort, 
               gatewayHost, gatewayRegistrationPort);
-        
-        // Gera um ID único para a instância
-        this.instanceId = UUID.randomUUID().toString().substring(0, 8);
+        KeyValueStore engine = createDataStore(tcpPort);
+        SystemConfig config = SystemConfig.getInstance();
+        if (config.getMaxMemoryBytes() > 0) {
+            this.memoryBudget = new BoundedStore(engine, config.getMaxMemoryBytes(),
+                                                 EvictionPolicy.create(config.getEvictionPolicy(),
+                                                                       config.getMaxMemoryBytes(),
+                                                                       config.getEvictionSamples()),
+                                                 key -> LOCAL_KEYS.contains(key) || key.startsWith(BLOB_KEY_PREFIX));
+            this.dataStore = new VersionedStore(memoryBudget);
+        } else {
+            this.memoryBudget = null;
+            this.dataStore = new VersionedStore(engine);
+        }
+        this.watches = new WatchHub(config.getWatchHistoryEvents(), dataStore.getAppliedIndex());
         
         // Adiciona alguns dados iniciais
         dataStore.put("example", "Este é um valor de exemplo do Componente A");
         dataStore.put("instance", instanceId);
+        
+        // Mecanismos duráveis podem reabrir com chaves que têm prazo
+        this.expirations = new TimingWheel(config.getExpiryTickMs(), System.currentTimeMillis());
+        for (String key : dataStore.keys()) {
+            trackExpiration(key, dataStore.get(key));
+        }
+    }
+    
+    /**
+     * Cria o mecanismo de armazenamento configurado.
+     * "memory" (padrão) usa um mapa no heap; "offheap" guarda chaves e valores em slabs
+     * fora do heap, para conjuntos de dados grandes sem pausas longas do GC; "bitcask" grava
+     * os dados em disco, num diretório por porta TCP, e os recupera ao reiniciar.
+     */
+    private static KeyValueStore createDataStore(int tcpPort) {
+        SystemConfig config = SystemConfig.getInstance();
+        switch (config.getStorageEngine()) {
+            case "offheap":
+                return new OffHeapSlabStore(config.getStorageSlabBytes(), config.getStorageCompactionLivePercent());
+            case "bitcask":
+                String directory = config.getStorageDirectory() + "/componentA-" + tcpPort;
+                try {
+                    return BitcaskStore.open(directory, config.getStorageSegmentBytes(),
+                                             config.getStorageCompactionLivePercent(),
+                                             config.getStorageMergeIntervalMs(), config.isStorageFsyncEnabled());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Falha ao abrir o armazenamento em " + directory, e);
+                }
+            case "lsm":
+                String lsmDirectory = config.getStorageDirectory() + "/componentA-" + tcpPort;
+                try {
+                    return LsmStore.open(lsmDirectory, config.getStorageMemtableBytes(),
+                                         config.getStorageLevel0MaxTables(), config.getStorageLevelMultiplier(),
+                                         config.getStorageBloomBitsPerKey(), config.isStorageFsyncEnabled());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Falha ao abrir o armazenamento em " + lsmDirectory, e);
+                }
+            case "memory":
+                return new InMemoryStore();
+            default:
+                LOGGER.warning("Mecanismo de armazenamento desconhecido, usando memória: " + config.getStorageEngine());
+                return new InMemoryStore();
+        }
     }
     
     @Override
     public void start() {
         super.start();
+        long tickMs = SystemConfig.getInstance().getExpiryTickMs();
+        expiryScheduler.scheduleAtFixedRate(this::sweepExpired, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void stop() {
+        expiryScheduler.shutdownNow();
+        evictionExecutor.shutdownNow();
+        watchExecutor.shutdownNow();
+        super.stop();
+        dataStore.close();
+    }
+    
+    @Override
+    protected long getRestoredStateVersion() {
+        return dataStore.getAppliedIndex();
+    }
+    
+    @Override
+    protected boolean isCompressionSample(String operation) {
+        // Blocos de valores grandes ou binários, em Base64, não se repetem entre os lotes
+        return !operation.startsWith("BLOB_CHUNK|");
     }
     
     @Override
     protected void onBecomeLeader() {
-        isLeader = true;
         dataStore.put("role", "leader");
         dataStore.put("leader_since", String.valueOf(System.currentTimeMillis()));
-        
-        // Agenda replicação periódica de estado
-        scheduler.scheduleAtFixedRate(
-            this::replicateState,
-            1000, 5000, TimeUnit.MILLISECONDS
-        );
+        scheduleEviction();
     }
     
     @Override
     protected void onBecomeFollower() {
-        isLeader = false;
         dataStore.put("role", "follower");
     }
     
     @Override
-    protected String serializeState() {
-        return gson.toJson(dataStore);
+    protected void applyOperation(long index, String operation) {
+        String[] parts = operation.split("\\|", 3);
+        
+        if (index > 0) {
+            dataStore.setAppliedIndex(index);
+        }
+        watches.beginRevision(index);
+        
+        if (("CAS".equals(parts[0]) || "GETSET".equals(parts[0])) && parts.length == 3) {
+            applyAtomic(operation);
+        } else if ("INCRBY".equals(parts[0]) && parts.length == 3) {
+            applyIncrements(parts[1], parts[2]);
+        } else if ("SET".equals(parts[0]) && parts.length == 3) {
+            // SET remove o prazo que a chave tivesse
+            replaceValue(parts[1], encodeValue(parts[2], 0));
+            expirations.cancel(parts[1]);
+        } else if ("SETEX".equals(parts[0]) && parts.length == 3 && parts[2].contains("|")) {
+            // SETEX|KEY|PRAZO|VALUE: o prazo absoluto é calculado pelo líder, e não por cada réplica
+            String[] expiry = parts[2].split("\\|", 2);
+            long deadline = Long.parseLong(expiry[0]);
+            replaceValue(parts[1], encodeValue(expiry[1], deadline));
+            expirations.schedule(parts[1], deadline);
+        } else if ("EXPIRE".equals(parts[0]) && parts.length == 3) {
+            // EXPIRE|KEY|PRAZO
+            String stored = dataStore.get(parts[1]);
+            if (stored != null) {
+                long deadline = Long.parseLong(parts[2]);
+                dataStore.put(parts[1], withDeadline(stored, deadline));
+                expirations.schedule(parts[1], deadline);
+            }
+        } else if ("EXPIRED".equals(parts[0]) && parts.length >= 2) {
+            // EXPIRED|{JSON chave -> prazo}: remoções decididas pelo líder; uma chave regravada
+            // depois disso tem outro prazo (ou nenhum) e é mantida
+            Map<String, Long> expired = gson.fromJson(operation.substring(8),
+                                                      new TypeToken<Map<String, Long>>(){}.getType());
+            for (Map.Entry<String, Long> entry : expired.entrySet()) {
+                String stored = dataStore.get(entry.getKey());
+                if (stored != null && deadlineOf(stored) == entry.getValue()) {
+                    deleteValue(entry.getKey());
+                    expirations.cancel(entry.getKey());
+                }
+            }
+        } else if ("MSET".equals(parts[0]) && parts.length >= 2) {
+            // MSET|{JSON}: todos os pares de um lote em uma única entrada do log
+            Map<String, String> entries = parseBatch(operation.substring(5));
+            entries.replaceAll((key, value) -> encodeValue(value, 0));
+            List<String> replaced = new ArrayList<>();
+            for (String key : entries.keySet()) {
+                replaced.add(dataStore.get(key));
+            }
+            dataStore.putAll(entries);
+            replaced.forEach(this::releaseBlob);
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                expirations.cancel(entry.getKey());
+                notifyChange(entry.getKey(), entry.getValue());
+            }
+        } else if ("EVICTED".equals(parts[0]) && parts.length >= 2) {
+            // EVICTED|[JSON chaves]: remoções decididas pelo líder para respeitar o limite de memória
+            List<String> evicted = gson.fromJson(operation.substring(8), new TypeToken<List<String>>(){}.getType());
+            for (String key : evicted) {
+                deleteValue(key);
+                expirations.cancel(key);
+            }
+        } else if ("BLOB_CHUNK".equals(parts[0]) && parts.length == 3) {
+            // BLOB_CHUNK|ID|N|BASE64: um bloco de um envio em andamento
+            String[] chunk = parts[2].split("\\|", 2);
+            dataStore.put(blobChunkKey(parts[1], Integer.parseInt(chunk[0])), chunk[1]);
+        } else if ("BLOB".equals(parts[0]) && parts.length == 3) {
+            // BLOB|KEY|{manifesto}: conclui um envio; como o SET, remove o prazo da chave
+            replaceValue(parts[1], encodeBlob(parts[2], 0));
+            expirations.cancel(parts[1]);
+        } else if ("BLOB_ABORT".equals(parts[0]) && parts.length == 3) {
+            // BLOB_ABORT|ID|BLOCOS: descarta os blocos de um envio interrompido
+            int chunks = Integer.parseInt(parts[2]);
+            for (int i = 0; i < chunks; i++) {
+                dataStore.remove(blobChunkKey(parts[1], i));
+            }
+        } else {
+            LOGGER.warning("Operação de log desconhecida ignorada: " + operation);
+        }
+        
+        watches.endRevision();
+        scheduleEviction();
+    }
+    
+    @Override
+    protected StateWriter captureState() {
+        // Visão num ponto fixo, aberta sem copiar dados; as escritas seguintes não a alteram
+        VersionedStore.Snapshot snapshot = dataStore.openSnapshot();
+        return new StateWriter() {
+            @Override
+            public void writeTo(OutputStream output) throws IOException {
+                // Os pares são escritos à medida que são percorridos, sem copiar o conteúdo
+                JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+                json.beginObject();
+                IOException[] failure = new IOException[1];
+                snapshot.forEach((key, value) -> {
+                    if (failure[0] == null) {
+                        try {
+                            json.name(key).value(value);
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                json.endObject();
+                // Esvazia os buffers sem fechar o fluxo, que pertence ao chamador
+                json.flush();
+            }
+            
+            @Override
+            public void close() {
+                snapshot.close();
+            }
+        };
     }
     
     @Override
-    protected void processStateUpdate(String stateData) {
+    protected void processStateUpdate(long version, InputStream stateData) {
         try {
-            Type type = new TypeToken<Map<String, String>>(){}.getType();
-            Map<String, String> leaderState = gson.fromJson(stateData, type);
+            // As gravações do snapshot ficam associadas à versão dele
+            dataStore.setAppliedIndex(version);
             
-            // Preserva informações locais
-            String localInstance = dataStore.get("instance");
-            String localRole = dataStore.get("role");
+            // Os pares do líder são gravados em lotes à medida que são lidos; só as chaves ficam
+            // guardadas, para remover depois as que não existem mais no líder
+            Set<String> received = new HashSet<>();
+            Map<String, String> batch = new HashMap<>();
+            expirations.clear();
+            JsonReader json = new JsonReader(new InputStreamReader(stateData, StandardCharsets.UTF_8));
+            json.beginObject();
+            while (json.hasNext()) {
+                String key = json.nextName();
+                String value = json.nextString();
+                // Preserva informações locais
+                if (key.equals("instance") || key.equals("role")) {
+                    continue;
+                }
+                received.add(key);
+                batch.put(key, value);
+                trackExpiration(key, value);
+                if (batch.size() >= STATE_BATCH_SIZE) {
+                    dataStore.putAll(batch);
+                    batch.clear();
+                }
+            }
+            json.endObject();
+            dataStore.putAll(batch);
             
-            // Atualiza o estado com os dados do líder
-            dataStore.clear();
-            dataStore.putAll(leaderState);
+            for (String key : new ArrayList<>(dataStore.keys())) {
+                if (!received.contains(key) && !key.equals("instance") && !key.equals("role")) {
+                    dataStore.remove(key);
+                }
+            }
             
-            // Restaura informações locais
-            dataStore.put("instance", localInstance);
-            dataStore.put("role", localRole);
+            // As chaves mudaram sem passar pelo log: as inscrições precisam reler o estado
+            watches.reset(dataStore.getAppliedIndex());
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erro ao processar atualização de estado", e);
+            throw new IllegalStateException("Falha ao instalar o estado recebido do líder", e);
         }
     }
     
     @Override
     protected void handleHTTPRequest(Socket clientSocket) {
-        try (
-            BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            OutputStream output = clientSocket.getOutputStream()
-        ) {
-            StringBuilder requestBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                requestBuilder.append(line).append("\r\n");
+        // Uma inscrição em GET /watch ou uma escrita assume a conexão, que então não é fechada aqui
+        boolean handedOff = false;
+        try {
+            InputStream input = new BufferedInputStream(clientSocket.getInputStream());
+            OutputStream output = clientSocket.getOutputStream();
+            String request = HttpStreams.readHead(input);
+            if (request == null) {
+                return;
             }
-            
-            String request = requestBuilder.toString();
             String firstLine = request.substring(0, request.indexOf("\r\n"));
             String[] parts = firstLine.split(" ");
             String method = parts[0];
-            String path = parts[1];
+            String consistency = getQueryParameter(parts[1], "consistency");
+            String path = stripQuery(parts[1]);
             
             String response;
-            if (path.startsWith("/get/")) {
-                String key = path.substring(5);
-                String value = dataStore.getOrDefault(key, "Chave não encontrada");
-                response = buildHTTPResponse("200 OK", "text/plain", value);
-            } else if (method.equals("POST") && path.startsWith("/set/")) {
-                String key = path.substring(5);
-                
-                int contentLength = 0;
-                if (request.contains("Content-Length:")) {
-                    String contentLengthStr = request.substring(
-                        request.indexOf("Content-Length:") + 16,
-                        request.indexOf("\r\n", request.indexOf("Content-Length:"))
-                    );
-                    contentLength = Integer.parseInt(contentLengthStr.trim());
+            boolean isRead = path.startsWith("/get/") || (method.equals("POST") && path.equals("/mget")) ||
+                             path.equals("/scan") || path.equals("/range");
+            String rejection = isRead ? checkReadConsistency(consistency) : null;
+            if (rejection != null) {
+                response = buildHTTPResponse(readRejectionStatus(rejection), "text/plain", rejection);
+            } else if (path.startsWith("/get/")) {
+                // Enviado diretamente, em blocos se o valor foi guardado em blocos
+                writeValue(path.substring(5), request, output);
+                response = null;
+            } else if (method.equals("POST") && path.equals("/mget")) {
+                // Corpo: array JSON de chaves; resposta: objeto JSON chave -> valor (null se ausente)
+                try {
+                    List<String> keys = gson.fromJson(readBody(request, input),
+                                                      new TypeToken<List<String>>(){}.getType());
+                    if (keys == null || keys.isEmpty()) {
+                        response = buildHTTPResponse("400 Bad Request", "text/plain",
+                                                     "Corpo inválido, esperado: array JSON de chaves");
+                    } else {
+                        Map<String, String> values = new LinkedHashMap<>();
+                        for (String key : keys) {
+                            values.put(key, readValue(key));
+                        }
+                        response = buildHTTPResponse("200 OK", "application/json", batchGson.toJson(values));
+                    }
+                } catch (JsonParseException e) {
+                    response = buildHTTPResponse("400 Bad Request", "text/plain",
+                                                 "Corpo inválido, esperado: array JSON de chaves");
                 }
+            } else if (path.equals("/scan") || path.equals("/range")) {
+                // Parâmetros: prefix, cursor e limit (/scan) ou from, to, limit e cursor (/range)
+                boolean scan = path.equals("/scan");
+                String bound = decodeQueryParameter(parts[1], scan ? "prefix" : "from");
+                String to = scan ? null : decodeQueryParameter(parts[1], "to");
+                String cursor = decodeQueryParameter(parts[1], "cursor");
+                String limit = decodeQueryParameter(parts[1], "limit");
                 
-                StringBuilder valueBuilder = new StringBuilder();
-                if (contentLength > 0) {
-                    char[] buffer = new char[contentLength];
-                    reader.read(buffer, 0, contentLength);
-                    valueBuilder.append(buffer);
+                KeyPage page = readPage(bound != null ? bound : "", to, cursor, limit, scan);
+                if (page.error != null) {
+                    response = buildHTTPResponse("400 Bad Request", "text/plain", page.error);
+                } else {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("cursor", page.cursor);
+                    body.put("keys", page.keys);
+                    response = buildHTTPResponse("200 OK", "application/json", gson.toJson(body));
                 }
-                
-                String value = valueBuilder.toString();
-                dataStore.put(key, value);
-                response = buildHTTPResponse("200 OK", "text/plain", "Valor armazenado para a chave: " + key);
+            } else if (isHTTPWrite(method, path)) {
+                // Escritas aguardam a replicação em writeExecutor, que assume a conexão
+                handedOff = dispatchWrite(clientSocket, () -> output.write(
+                    handleHTTPWrite(method, path, parts[1], request, input).getBytes(StandardCharsets.UTF_8)));
+                response = handedOff ? null : buildHTTPResponse("503 Service Unavailable", "text/plain", writeRejection());
             } else if (path.equals("/info")) {
                 String info = "Instância do Componente A " + instanceId + "\n" +
                               "Tamanho do armazenamento: " + dataStore.size() + " entradas\n" +
                               "Executando em: " + host + "\n" +
                               "Porta HTTP: " + httpPort;
+                if (memoryBudget != null) {
+                    info += "\nMemória estimada: " + memoryBudget.getUsedBytes() + " de " +
+                            memoryBudget.getMaxBytes() + " bytes (" +
+                            SystemConfig.getInstance().getEvictionPolicy() + ")";
+                }
+                info += "\nSnapshots abertos: " + dataStore.getOpenSnapshots() + " (" +
+                        dataStore.getRetainedVersions() + " versões antigas mantidas)";
+                info += "\n" + describeReplication();
                 response = buildHTTPResponse("200 OK", "text/plain", info);
+            } else if (method.equals("GET") && path.equals("/watch")) {
+                // Parâmetros: key ou prefix, revision (última revisão recebida) e timeout (em ms)
+                response = startHTTPWatch(request, parts[1], clientSocket, output);
+                handedOff = response == null;
             } else {
                 response = buildHTTPResponse("404 Not Found", "text/plain", "Endpoint desconhecido");
             }
             
-            output.write(response.getBytes());
+            if (response != null) {
+                output.write(response.getBytes(StandardCharsets.UTF_8));
+            }
             output.flush();
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Erro ao processar requisição HTTP no Componente A", e);
+        } finally {
+            if (!handedOff) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+    
+    /**
+     * Indica se a requisição HTTP é uma escrita, atendida por handleHTTPWrite.
+     */
+    private static boolean isHTTPWrite(String method, String path) {
+        return (method.equals("POST") && path.equals("/mset")) ||
+               ((method.equals("POST") || method.equals("PUT")) && path.startsWith("/set/")) ||
+               (method.equals("POST") && (path.startsWith("/setex/") || path.startsWith("/expire/") ||
+                                          path.startsWith("/incrby/") || path.startsWith("/getset/") ||
+                                          path.startsWith("/cas/")));
+    }
+    
+    /**
+     * Atende uma escrita HTTP, lendo o corpo e aguardando a sua replicação. Executado em
+     * writeExecutor.
+     * 
+     * @param target Caminho requisitado, com os parâmetros
+     * @return Resposta HTTP completa
+     */
+    private String handleHTTPWrite(String method, String path, String target, String request, InputStream input)
+            throws IOException {
+        String redirect = rejectFollowerWrite();
+        if (redirect != null) {
+            // Seguidores não aceitam escritas; o cliente deve repeti-la no líder. O corpo é
+            // descartado antes, para que a resposta não se perca no fechamento da conexão
+            HttpStreams.copy(HttpStreams.openBody(request, input), OutputStream.nullOutputStream(), new byte[8192]);
+            return buildHTTPResponse("503 Service Unavailable", "text/plain", redirect);
+        }
+        
+        String response;
+        if (method.equals("POST") && path.equals("/mset")) {
+            // Corpo: objeto JSON chave -> valor, gravado como uma única entrada do log
+            Map<String, String> entries;
+            try {
+                entries = parseBatch(readBody(request, input));
+            } catch (JsonParseException e) {
+                entries = null;
+            }
+            
+            if (entries == null || entries.isEmpty()) {
+                response = buildHTTPResponse("400 Bad Request", "text/plain",
+                                             "Corpo inválido, esperado: objeto JSON de chaves e valores");
+            } else if (submitBatch(entries) < 0) {
+                response = buildHTTPResponse("503 Service Unavailable", "text/plain",
+                                             "Escrita não confirmada pela maioria do cluster");
+            } else {
+                response = buildHTTPResponse("200 OK", "text/plain",
+                                             "Valores armazenados para " + entries.size() + " chaves");
+            }
+        } else if ((method.equals("POST") || method.equals("PUT")) && path.startsWith("/set/")) {
+            // Corpo com Content-Length ou Transfer-Encoding: chunked, lido em blocos
+            String key = path.substring(5);
+            String result = storeValue(key, request, input);
+            if (result.startsWith("ERROR|")) {
+                response = buildHTTPResponse("503 Service Unavailable", "text/plain", result.substring(6));
+            } else {
+                response = buildHTTPResponse("200 OK", "text/plain", result.substring(8));
+            }
+        } else if (method.equals("POST") && (path.startsWith("/setex/") || path.startsWith("/expire/"))) {
+            // Parâmetro ttl: tempo de vida em segundos; /setex recebe o valor no corpo
+            boolean setex = path.startsWith("/setex/");
+            String key = path.substring(setex ? 7 : 8);
+            String value = setex ? readBody(request, input) : null;
+            String result = submitExpiring(key, getQueryParameter(target, "ttl"), value);
+            if (result.startsWith("SUCCESS|")) {
+                response = buildHTTPResponse("200 OK", "text/plain", result.substring(8));
+            } else if (result.startsWith("ERROR|Escrita")) {
+                response = buildHTTPResponse("503 Service Unavailable", "text/plain", result.substring(6));
+            } else if (result.startsWith("ERROR|Chave")) {
+                response = buildHTTPResponse("404 Not Found", "text/plain", result.substring(6));
+            } else {
+                response = buildHTTPResponse("400 Bad Request", "text/plain", result.substring(6));
+            }
+        } else if (method.equals("POST") &&
+                   (path.startsWith("/incrby/") || path.startsWith("/getset/") || path.startsWith("/cas/"))) {
+            // /incrby/{key}?delta=N; /getset/{key} com o novo valor no corpo;
+            // /cas/{key} com o corpo {"expected": ..., "value": ...}
+            String action = path.substring(1, path.indexOf('/', 1)).toUpperCase();
+            String key = path.substring(action.length() + 2);
+            String result;
+            if (action.equals("INCRBY")) {
+                result = submitIncrement(key, getQueryParameter(target, "delta"));
+            } else if (action.equals("GETSET")) {
+                result = submitAtomic("GETSET", key, readBody(request, input));
+            } else {
+                Map<String, String> body;
+                try {
+                    body = gson.fromJson(readBody(request, input), new TypeToken<Map<String, String>>(){}.getType());
+                } catch (JsonParseException e) {
+                    body = null;
+                }
+                result = body == null || body.get("expected") == null || body.get("value") == null ?
+                         "ERROR|Corpo inválido, esperado: {\"expected\": ..., \"value\": ...}" :
+                         submitAtomic("CAS", key, gson.toJson(new String[]{body.get("expected"), body.get("value")}));
+            }
+            
+            if (result.startsWith("VALUE|")) {
+                response = buildHTTPResponse("200 OK", "text/plain", result.substring(7 + key.length()));
+            } else if (result.startsWith("SUCCESS|")) {
+                response = buildHTTPResponse("200 OK", "text/plain", result.substring(8));
+            } else if (result.startsWith("CONFLICT|")) {
+                response = buildHTTPResponse("409 Conflict", "text/plain", result.substring(10 + key.length()));
+            } else if (result.startsWith("ERROR|Escrita")) {
+                response = buildHTTPResponse("503 Service Unavailable", "text/plain", result.substring(6));
+            } else {
+                response = buildHTTPResponse("400 Bad Request", "text/plain", result.substring(6));
+            }
+        } else {
+            response = buildHTTPResponse("404 Not Found", "text/plain", "Endpoint desconhecido");
         }
+        return response;
+    }
+    
+    /**
+     * Inicia uma inscrição em GET /watch, atendida numa thread própria.
+     * Por padrão é um long-poll: a resposta JSON {"revision": R, "changes": [...]} sai assim
+     * que houver mudanças posteriores à revisão informada, ou vazia ao fim do timeout; o
+     * cliente repete a requisição com revision=R. Com Accept: text/event-stream, a resposta é
+     * um fluxo SSE, com um evento por chave alterada e o id na última chave de cada revisão,
+     * de modo que o Last-Event-ID de uma reconexão retoma de uma revisão completa.
+     * 
+     * @return Resposta de erro, ou null se a conexão passou para a inscrição
+     */
+    private String startHTTPWatch(String request, String target, Socket clientSocket, OutputStream output) {
+        String key = decodeQueryParameter(target, "key");
+        String prefix = decodeQueryParameter(target, "prefix");
+        String accept = HttpStreams.getHeader(request, "Accept");
+        boolean eventStream = accept != null && accept.contains("text/event-stream");
+        String lastEventId = eventStream ? HttpStreams.getHeader(request, "Last-Event-ID") : null;
+        String revisionText = lastEventId != null ? lastEventId : getQueryParameter(target, "revision");
+        String timeoutText = getQueryParameter(target, "timeout");
+        if (key == null && prefix == null) {
+            return buildHTTPResponse("400 Bad Request", "text/plain", "Parâmetro key ou prefix obrigatório");
+        }
+        
+        long after;
+        long timeoutMs;
+        try {
+            after = revisionText != null ? Long.parseLong(revisionText) : -1;
+            timeoutMs = timeoutText != null ? Long.parseLong(timeoutText) : WATCH_DEFAULT_TIMEOUT_MS;
+        } catch (NumberFormatException e) {
+            return buildHTTPResponse("400 Bad Request", "text/plain", "Parâmetros revision e timeout devem ser inteiros");
+        }
+        timeoutMs = Math.max(0, Math.min(timeoutMs, WATCH_MAX_TIMEOUT_MS));
+        
+        WatchHub.Subscription subscription = watches.subscribe(key, key == null ? prefix : null, after);
+        if (subscription == null) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("compacted", watches.getCompactedRevision());
+            return buildHTTPResponse("410 Gone", "application/json", gson.toJson(body));
+        }
+        long pollTimeoutMs = timeoutMs;
+        try {
+            watchExecutor.execute(() -> {
+                try {
+                    if (eventStream) {
+                        streamEvents(subscription, output);
+                    } else {
+                        pollEvents(subscription, pollTimeoutMs, output);
+                    }
+                } catch (IOException e) {
+                    // Cliente desconectado
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    watches.unsubscribe(subscription);
+                    closeQuietly(clientSocket);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            watches.unsubscribe(subscription);
+            return buildHTTPResponse("503 Service Unavailable", "text/plain", watchRejection());
+        }
+        return null;
+    }
+    
+    /**
+     * Motivo da recusa de uma inscrição WATCH pelo watchExecutor.
+     */
+    private String watchRejection() {
+        return watchExecutor.isShutdown() ? "Componente em encerramento" :
+               "Limite de inscrições WATCH atingido, tente novamente mais tarde";
+    }
+    
+    /**
+     * Responde o long-poll de GET /watch com as revisões disponíveis, esperando pela primeira.
+     */
+    private void pollEvents(WatchHub.Subscription subscription, long timeoutMs, OutputStream output)
+            throws IOException, InterruptedException {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        long revision = subscription.startRevision;
+        boolean resync = false;
+        WatchHub.Revision next = subscription.poll(timeoutMs);
+        while (next != null) {
+            if (next.isResync()) {
+                resync = true;
+                break;
+            }
+            next.changes.forEach(change -> changes.add(toJson(change)));
+            revision = next.revision;
+            next = changes.size() < WATCH_POLL_MAX_CHANGES ? subscription.pollNow() : null;
+        }
+        if (changes.isEmpty() && !resync) {
+            revision = Math.max(revision, watches.progressOf(subscription));
+        }
+        
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("revision", revision);
+        body.put("changes", changes);
+        if (resync) {
+            body.put("resync", true);
+        }
+        output.write(buildHTTPResponse("200 OK", "application/json", gson.toJson(body)).getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+    
+    /**
+     * Envia as mudanças como um fluxo SSE (text/event-stream), com comentários periódicos
+     * para manter a conexão e detectar clientes desconectados.
+     */
+    private void streamEvents(WatchHub.Subscription subscription, OutputStream output)
+            throws IOException, InterruptedException {
+        output.write(("HTTP/1.1 200 OK\r\n" +
+                      "Content-Type: text/event-stream; charset=utf-8\r\n" +
+                      "Cache-Control: no-cache\r\n" +
+                      "Connection: close\r\n" +
+                      "\r\n" +
+                      "retry: 1000\n" +
+                      ": revision " + subscription.startRevision + "\n\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        
+        while (true) {
+            WatchHub.Revision revision = subscription.poll(WATCH_PING_MS);
+            StringBuilder events = new StringBuilder();
+            if (revision == null) {
+                long progress = watches.progressOf(subscription);
+                events.append(progress >= 0 ? "event: progress\nid: " + progress + "\ndata: {\"revision\":" + progress + "}\n\n" :
+                              ": ping\n\n");
+            } else if (revision.isResync()) {
+                // Sem id: a reconexão retoma da última revisão recebida
+                events.append("event: resync\ndata: {\"revision\":").append(revision.revision).append("}\n\n");
+            } else {
+                for (int i = 0; i < revision.changes.size(); i++) {
+                    WatchHub.Change change = revision.changes.get(i);
+                    events.append("event: ").append(change.deleted ? "delete" : "put").append('\n');
+                    if (i == revision.changes.size() - 1) {
+                        events.append("id: ").append(change.revision).append('\n');
+                    }
+                    events.append("data: ").append(gson.toJson(toJson(change))).append("\n\n");
+                }
+            }
+            output.write(events.toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            if (revision != null && revision.isResync()) {
+                return;
+            }
+        }
+    }
+    
+    private static Map<String, Object> toJson(WatchHub.Change change) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("revision", change.revision);
+        json.put("type", change.deleted ? "DELETE" : "PUT");
+        json.put("key", change.key);
+        if (change.value != null) {
+            json.put("value", change.value);
+        }
+        return json;
     }
     
     @Override
     protected void handleTCPRequest(Socket clientSocket) {
-        try (
+        // Uma inscrição WATCH ou uma escrita assume a conexão, que então não é fechada aqui
+        boolean handedOff = false;
+        try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true)
-        ) {
+            PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true);
             String request = reader.readLine();
             
             if (request != null && !request.isEmpty()) {
@@ -179,33 +803,37 @@ public class ComponentA extends BaseComponent {
                 String response;
                 switch (action) {
                     case "GET":
-                        if (parts.length >= 2) {
+                        // Formato: GET|KEY[|CONSISTÊNCIA]
+                        String rejection = parts.length >= 2 ? checkReadConsistency(parts.length >= 3 ? parts[2] : null) : null;
+                        if (rejection != null) {
+                            response = rejection;
+                        } else if (parts.length >= 2) {
                             String key = parts[1];
-                            String value = dataStore.getOrDefault(key, "Chave não encontrada");
+                            String value = getValue(key);
                             response = "VALUE|" + key + "|" + value;
                         } else {
-                            response = "ERROR|Formato GET inválido, esperado: GET|KEY";
+                            response = "ERROR|Formato GET inválido, esperado: GET|KEY[|CONSISTÊNCIA]";
                         }
                         break;
                     case "SET":
-                        if (parts.length >= 3) {
-                            String key = parts[1];
-                            String value = parts[2];
-                            
-                            if (!isLeader && leaderFollower != null && leaderFollower.getLeaderId() != null) {
-                                response = "REDIRECT|" + leaderFollower.getLeaderId() + "|" +
-                                           "Operação de escrita deve ser enviada ao líder";
-                            } else {
-                                dataStore.put(key, value);
-                                response = "SUCCESS|Valor armazenado para a chave: " + key;
-                                
-                                if (isLeader) {
-                                    replicateState();
-                                }
-                            }
-                        } else {
-                            response = "ERROR|Formato SET inválido, esperado: SET|KEY|VALUE";
-                        }
+                    case "SETEX":
+                    case "EXPIRE":
+                    case "CAS":
+                    case "INCRBY":
+                    case "GETSET":
+                    case "MSET":
+                        // Escritas aguardam a replicação em writeExecutor, que assume a conexão
+                        handedOff = dispatchWrite(clientSocket, () -> writer.println(handleWrite(action, parts, request)));
+                        response = handedOff ? null : "ERROR|" + writeRejection();
+                        break;
+                    case "MGET":
+                        response = handleMultiGet(parts);
+                        break;
+                    case "SCAN":
+                        response = handleScan(parts);
+                        break;
+                    case "RANGE":
+                        response = handleRange(parts);
                         break;
                     case "INFO":
                         response = "INFO|Componente A|" + instanceId + "|" + dataStore.size() + "|" +
@@ -221,22 +849,178 @@ public class ComponentA extends BaseComponent {
                         }
                         break;
                     case "LIST":
+                        String listRejection = checkReadConsistency(parts.length >= 2 ? parts[1] : null);
+                        if (listRejection != null) {
+                            response = listRejection;
+                            break;
+                        }
+                        
                         StringBuilder keyList = new StringBuilder();
-                        for (String key : dataStore.keySet()) {
-                            keyList.append(key).append(",");
+                        Collection<String> listed;
+                        try (VersionedStore.Snapshot snapshot = dataStore.openSnapshot()) {
+                            listed = snapshot.keys();
+                        }
+                        for (String key : listed) {
+                            if (!key.startsWith(BLOB_KEY_PREFIX)) {
+                                keyList.append(key).append(",");
+                            }
                         }
                         response = "KEYS|" + (keyList.length() > 0 ? 
                                   keyList.substring(0, keyList.length() - 1) : "");
                         break;
+                    case "WATCH":
+                    case "WATCH_PREFIX":
+                        // Formato: WATCH|KEY[|REVISÃO] ou WATCH_PREFIX|PREFIXO[|REVISÃO]
+                        response = startWatch(action, parts, clientSocket, writer);
+                        handedOff = response == null;
+                        break;
                     default:
                         response = "ERROR|Ação desconhecida: " + action;
                 }
                 
-                writer.println(response);
+                if (response != null) {
+                    writer.println(response);
+                }
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Erro ao processar requisição TCP no Componente A", e);
+        } finally {
+            if (!handedOff) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+    
+    /**
+     * Atende uma escrita TCP ou UDP (SET, SETEX, EXPIRE, CAS, INCRBY, GETSET ou MSET),
+     * aguardando a sua replicação. Executado em writeExecutor.
+     * 
+     * @return Resposta ao cliente
+     */
+    private String handleWrite(String action, String[] parts, String request) {
+        String redirect = rejectFollowerWrite();
+        if (redirect != null) {
+            return redirect;
+        }
+        
+        switch (action) {
+            case "SET":
+                if (parts.length < 3) {
+                    return "ERROR|Formato SET inválido, esperado: SET|KEY|VALUE";
+                }
+                if (submitOperation("SET|" + parts[1] + "|" + parts[2]) < 0) {
+                    return "ERROR|Escrita não confirmada pela maioria do cluster";
+                }
+                return "SUCCESS|Valor armazenado para a chave: " + parts[1];
+            case "SETEX":
+            case "EXPIRE":
+                return handleExpiring(action, request);
+            case "MSET":
+                return handleMultiSet(parts);
+            default:
+                return handleAtomic(action, request);
+        }
+    }
+    
+    /**
+     * Inicia uma inscrição WATCH numa conexão TCP, que segue aberta numa thread própria.
+     * A conexão recebe WATCHING|REVISÃO e, depois, uma linha por chave alterada:
+     * EVENT|REVISÃO|PUT|KEY|VALUE ou EVENT|REVISÃO|DELETE|KEY (valores em blocos vêm sem o
+     * VALUE). Sem mudanças, PING|REVISÃO avisa até onde a inscrição está em dia. Se ela não
+     * acompanhar as mudanças, ou se o estado for substituído por um snapshot, a conexão recebe
+     * RESYNC|REVISÃO e é fechada; o cliente retoma com WATCH|KEY|REVISÃO, informando a última
+     * revisão recebida, e COMPACTED|REVISÃO indica que o histórico não cobre mais a retomada e
+     * que o valor deve ser relido.
+     * 
+     * @return Resposta de erro, ou null se a conexão passou para a inscrição
+     */
+    private String startWatch(String action, String[] parts, Socket clientSocket, PrintWriter writer) {
+        boolean prefix = action.equals("WATCH_PREFIX");
+        if (!prefix && parts.length < 2) {
+            return "ERROR|Formato WATCH inválido, esperado: WATCH|KEY[|REVISÃO]";
+        }
+        long after;
+        try {
+            after = parts.length >= 3 ? Long.parseLong(parts[2]) : -1;
+        } catch (NumberFormatException e) {
+            return "ERROR|Revisão inválida: " + parts[2];
+        }
+        
+        String target = parts.length >= 2 ? parts[1] : "";
+        WatchHub.Subscription subscription = prefix ? watches.subscribe(null, target, after) :
+                                                      watches.subscribe(target, null, after);
+        if (subscription == null) {
+            return "COMPACTED|" + watches.getCompactedRevision();
+        }
+        try {
+            watchExecutor.execute(() -> streamWatch(subscription, clientSocket, writer));
+        } catch (RejectedExecutionException e) {
+            watches.unsubscribe(subscription);
+            return "ERROR|" + watchRejection();
+        }
+        return null;
+    }
+    
+    private void streamWatch(WatchHub.Subscription subscription, Socket clientSocket, PrintWriter writer) {
+        try {
+            writer.println("WATCHING|" + subscription.startRevision);
+            while (!writer.checkError()) {
+                WatchHub.Revision revision = subscription.poll(WATCH_PING_MS);
+                if (revision == null) {
+                    long progress = watches.progressOf(subscription);
+                    if (progress >= 0) {
+                        writer.println("PING|" + progress);
+                    }
+                } else if (revision.isResync()) {
+                    writer.println("RESYNC|" + revision.revision);
+                    break;
+                } else {
+                    for (WatchHub.Change change : revision.changes) {
+                        writer.println("EVENT|" + change.revision + "|" +
+                                       (change.deleted ? "DELETE|" + change.key :
+                                        "PUT|" + change.key + (change.value != null ? "|" + change.value : "")));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watches.unsubscribe(subscription);
+            closeQuietly(clientSocket);
+        }
+    }
+    
+    @Override
+    protected boolean isWriteRequest(String request) {
+        switch (request.split("\\|", 2)[0].toUpperCase()) {
+            case "SET":
+            case "SETEX":
+            case "EXPIRE":
+            case "CAS":
+            case "INCRBY":
+            case "GETSET":
+            case "MSET":
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Verifica se esta réplica aceita escritas. Um seguidor as recusa em vez de aplicá-las
+     * localmente, o que desviaria o seu estado do log do líder.
+     * 
+     * @return null se a escrita pode ser submetida; caso contrário, a resposta a devolver
+     */
+    private String rejectFollowerWrite() {
+        if (isLeader || leaderFollower == null) {
+            return null;
+        }
+        if (leaderFollower.getLeaderId() != null) {
+            return "REDIRECT|" + leaderFollower.getLeaderId() + "|" +
+                   "Operação de escrita deve ser enviada ao líder";
         }
+        return "ERROR|Líder desconhecido, operação de escrita não pode ser aceita";
     }
     
     @Override
@@ -250,23 +1034,35 @@ public class ComponentA extends BaseComponent {
             String response;
             switch (action) {
                 case "GET":
-                    if (parts.length >= 2) {
+                    String rejection = parts.length >= 2 ? checkReadConsistency(parts.length >= 3 ? parts[2] : null) : null;
+                    if (rejection != null) {
+                        response = rejection;
+                    } else if (parts.length >= 2) {
                         String key = parts[1];
-                        String value = dataStore.getOrDefault(key, "Chave não encontrada");
+                        String value = getValue(key);
                         response = "VALUE|" + key + "|" + value;
                     } else {
-                        response = "ERROR|Formato GET inválido, esperado: GET|KEY";
+                        response = "ERROR|Formato GET inválido, esperado: GET|KEY[|CONSISTÊNCIA]";
                     }
                     break;
                 case "SET":
-                    if (parts.length >= 3) {
-                        String key = parts[1];
-                        String value = parts[2];
-                        dataStore.put(key, value);
-                        response = "SUCCESS|Valor armazenado para a chave: " + key;
-                    } else {
-                        response = "ERROR|Formato SET inválido, esperado: SET|KEY|VALUE";
-                    }
+                case "SETEX":
+                case "EXPIRE":
+                case "CAS":
+                case "INCRBY":
+                case "GETSET":
+                case "MSET":
+                    // Atendida em writeExecutor (ver isWriteRequest)
+                    response = handleWrite(action, parts, request.trim());
+                    break;
+                case "MGET":
+                    response = handleMultiGet(parts);
+                    break;
+                case "SCAN":
+                    response = handleScan(parts);
+                    break;
+                case "RANGE":
+                    response = handleRange(parts);
                     break;
                 case "INFO":
                     response = "INFO|Componente A|" + instanceId + "|" + dataStore.size();
@@ -286,20 +1082,892 @@ public class ComponentA extends BaseComponent {
     }
     
     /**
-     * Replica o estado atual para os seguidores (quando for líder).
+     * Lê várias chaves de uma vez.
+     * Formato: MGET|K1|K2|...[|CONSISTÊNCIA]; um último campo que seja um nível de
+     * consistência válido é tratado como o nível, e não como uma chave.
+     * Resposta: VALUES|K1|V1|K2|V2|..., na ordem pedida.
      */
-    @Override
-    protected void replicateState() {
-        if (isLeader && leaderFollower != null) {
-            String stateData = serializeState();
-            leaderFollower.updateState(stateData);
+    private String handleMultiGet(String[] parts) {
+        int end = parts.length;
+        String consistency = null;
+        if (parts.length >= 3 && ReadConsistency.isLevel(parts[parts.length - 1])) {
+            consistency = parts[parts.length - 1];
+            end--;
+        }
+        if (end < 2) {
+            return "ERROR|Formato MGET inválido, esperado: MGET|K1|K2|...[|CONSISTÊNCIA]";
+        }
+        
+        String rejection = checkReadConsistency(consistency);
+        if (rejection != null) {
+            return rejection;
+        }
+        
+        StringBuilder response = new StringBuilder("VALUES");
+        for (int i = 1; i < end; i++) {
+            response.append('|').append(parts[i]).append('|').append(getValue(parts[i]));
+        }
+        return response.toString();
+    }
+    
+    /**
+     * Página de uma varredura ordenada de chaves.
+     */
+    private static final class KeyPage {
+        final List<String> keys;
+        // Cursor da página seguinte ("0" quando não há mais chaves)
+        final String cursor;
+        final String error;
+        
+        KeyPage(List<String> keys, String cursor, String error) {
+            this.keys = keys;
+            this.cursor = cursor;
+            this.error = error;
+        }
+    }
+    
+    /**
+     * Varredura por prefixo, em ordem de chave.
+     * Formato: SCAN|PREFIXO|CURSOR|LIMITE[|CONSISTÊNCIA], com cursor "0" na primeira página.
+     * Resposta: PAGE|PRÓXIMO_CURSOR|K1|K2|..., com cursor "0" na última página.
+     */
+    private String handleScan(String[] parts) {
+        if (parts.length < 4) {
+            return "ERROR|Formato SCAN inválido, esperado: SCAN|PREFIXO|CURSOR|LIMITE[|CONSISTÊNCIA]";
+        }
+        String rejection = checkReadConsistency(parts.length >= 5 ? parts[4] : null);
+        if (rejection != null) {
+            return rejection;
+        }
+        return formatPage(readPage(parts[1], null, parts[2], parts[3], true));
+    }
+    
+    /**
+     * Varredura do intervalo [DE, ATÉ), em ordem de chave; ATÉ vazio vai até a última chave.
+     * Formato: RANGE|DE|ATÉ|LIMITE[|CURSOR[|CONSISTÊNCIA]]; as páginas seguintes repetem o
+     * pedido com o cursor devolvido. Resposta: PAGE|PRÓXIMO_CURSOR|K1|K2|...
+     */
+    private String handleRange(String[] parts) {
+        if (parts.length < 4) {
+            return "ERROR|Formato RANGE inválido, esperado: RANGE|DE|ATÉ|LIMITE[|CURSOR[|CONSISTÊNCIA]]";
+        }
+        String rejection = checkReadConsistency(parts.length >= 6 ? parts[5] : null);
+        if (rejection != null) {
+            return rejection;
+        }
+        return formatPage(readPage(parts[1], parts[2], parts.length >= 5 ? parts[4] : null, parts[3], false));
+    }
+    
+    private static String formatPage(KeyPage page) {
+        if (page.error != null) {
+            return "ERROR|" + page.error;
+        }
+        StringBuilder response = new StringBuilder("PAGE|").append(page.cursor);
+        for (String key : page.keys) {
+            response.append('|').append(key);
+        }
+        return response.toString();
+    }
+    
+    /**
+     * Lê uma página de chaves do índice ordenado do armazenamento.
+     * O cursor é a próxima chave a devolver, em Base64 (URL); assim a varredura não guarda
+     * estado no servidor e continua correta se chaves forem criadas ou removidas entre as páginas.
+     * 
+     * @param bound Prefixo (prefix = true) ou início do intervalo
+     * @param to Fim exclusivo do intervalo, ou null/vazio para ir até a última chave
+     * @param cursor Cursor recebido, ou null/"0" na primeira página
+     * @param limitText Número máximo de chaves da página
+     * @param prefix Se bound é um prefixo
+     */
+    private KeyPage readPage(String bound, String to, String cursor, String limitText, boolean prefix) {
+        int limit;
+        try {
+            limit = Integer.parseInt(limitText == null ? "" : limitText.trim());
+        } catch (NumberFormatException e) {
+            limit = 0;
+        }
+        if (limit <= 0) {
+            return new KeyPage(null, null, "Limite inválido: " + limitText);
+        }
+        limit = Math.min(limit, SystemConfig.getInstance().getScanMaxLimit());
+        
+        String from = bound;
+        if (prefix) {
+            to = prefixEnd(bound);
+        } else if (to != null && to.isEmpty()) {
+            to = null;
+        }
+        if (cursor != null && !cursor.isEmpty() && !cursor.equals("0")) {
+            try {
+                String next = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                from = next.compareTo(from) > 0 ? next : from;
+            } catch (IllegalArgumentException e) {
+                return new KeyPage(null, null, "Cursor inválido: " + cursor);
+            }
+        }
+        
+        // As chaves internas dos blocos de valores grandes ficam fora das varreduras: o intervalo
+        // é lido em duas partes, antes e depois delas
+        String blobEnd = prefixEnd(BLOB_KEY_PREFIX);
+        if (from.startsWith(BLOB_KEY_PREFIX)) {
+            from = blobEnd;
+        }
+        boolean spansBlobs = from.compareTo(BLOB_KEY_PREFIX) < 0 && (to == null || to.compareTo(BLOB_KEY_PREFIX) > 0);
+        
+        if (to != null && from.compareTo(to) >= 0) {
+            return new KeyPage(new ArrayList<>(), "0", null);
+        }
+        
+        // Uma chave a mais indica se existe página seguinte e é o seu cursor; as duas partes
+        // do intervalo são lidas no mesmo snapshot
+        List<String> keys;
+        try (VersionedStore.Snapshot snapshot = dataStore.openSnapshot()) {
+            keys = snapshot.keysInRange(from, spansBlobs ? BLOB_KEY_PREFIX : to, limit + 1);
+            if (spansBlobs && keys.size() <= limit && (to == null || blobEnd.compareTo(to) < 0)) {
+                keys.addAll(snapshot.keysInRange(blobEnd, to, limit + 1 - keys.size()));
+            }
+        }
+        String nextCursor = "0";
+        if (keys.size() > limit) {
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                               .encodeToString(keys.get(limit).getBytes(StandardCharsets.UTF_8));
+            keys = keys.subList(0, limit);
+        }
+        return new KeyPage(keys, nextCursor, null);
+    }
+    
+    /**
+     * Obtém o menor texto maior que todas as chaves com o prefixo informado.
+     * 
+     * @return Fim exclusivo do intervalo do prefixo, ou null se o prefixo não limita o intervalo
+     */
+    private static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+    
+    private static String decodeQueryParameter(String path, String name) {
+        String value = getQueryParameter(path, name);
+        return value != null ? URLDecoder.decode(value, StandardCharsets.UTF_8) : null;
+    }
+    
+    /**
+     * Grava vários pares em uma única operação do log replicado.
+     * Formato: MSET|K1|V1|K2|V2|...
+     */
+    private String handleMultiSet(String[] parts) {
+        if (parts.length < 3 || parts.length % 2 == 0) {
+            return "ERROR|Formato MSET inválido, esperado: MSET|K1|V1|K2|V2|...";
+        }
+        
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 1; i < parts.length; i += 2) {
+            entries.put(parts[i], parts[i + 1]);
+        }
+        if (submitBatch(entries) < 0) {
+            return "ERROR|Escrita não confirmada pela maioria do cluster";
+        }
+        return "SUCCESS|Valores armazenados para " + entries.size() + " chaves";
+    }
+    
+    /**
+     * Submete um lote de escritas como uma única entrada do log replicado.
+     * Os pares vão em JSON, de modo que valores com '|' ou quebras de linha não quebram o log.
+     * 
+     * @return Resultado de submitOperation
+     */
+    private long submitBatch(Map<String, String> entries) {
+        return submitOperation("MSET|" + gson.toJson(entries));
+    }
+    
+    private Map<String, String> parseBatch(String json) {
+        Map<String, String> entries = gson.fromJson(json, new TypeToken<LinkedHashMap<String, String>>(){}.getType());
+        if (entries != null) {
+            entries.values().removeIf(value -> value == null);
+        }
+        return entries;
+    }
+    
+    /**
+     * Lê o corpo de uma requisição HTTP (Content-Length ou chunked) como texto UTF-8.
+     */
+    private static String readBody(String request, InputStream input) throws IOException {
+        return new String(HttpStreams.openBody(request, input).readAllBytes(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Grava o corpo de uma requisição como valor de uma chave, sem montá-lo inteiro na memória.
+     * Corpos menores que um bloco com texto UTF-8 válido viram um SET comum (e continuam
+     * legíveis por TCP e UDP). Os demais são replicados bloco a bloco em entradas BLOB_CHUNK,
+     * com até BLOB_MAX_INFLIGHT blocos em replicação ao mesmo tempo, e a entrada BLOB final
+     * publica o manifesto, de modo que nenhuma leitura vê um valor pela metade.
+     * 
+     * @return Resposta no formato SUCCESS|... ou ERROR|...
+     */
+    private String storeValue(String key, String request, InputStream input) throws IOException {
+        InputStream body = HttpStreams.openBody(request, input);
+        byte[] buffer = new byte[blobChunkBytes];
+        int read = HttpStreams.readFully(body, buffer);
+        
+        String text = read < buffer.length ? decodeText(buffer, read) : null;
+        if (text != null) {
+            if (submitOperation("SET|" + key + "|" + text) < 0) {
+                return "ERROR|Escrita não confirmada pela maioria do cluster";
+            }
+            return "SUCCESS|Valor armazenado para a chave: " + key;
+        }
+        
+        BlobManifest manifest = new BlobManifest();
+        manifest.id = instanceId + "-" + resultSequence.incrementAndGet();
+        manifest.chunkBytes = blobChunkBytes;
+        String type = HttpStreams.getHeader(request, "Content-Type");
+        manifest.type = type != null ? type : "application/octet-stream";
+        
+        Deque<CompletableFuture<Long>> inflight = new ArrayDeque<>();
+        boolean stored = false;
+        try {
+            while (read > 0) {
+                if (inflight.size() >= BLOB_MAX_INFLIGHT && !isConfirmed(inflight.poll())) {
+                    return "ERROR|Escrita não confirmada pela maioria do cluster";
+                }
+                byte[] chunk = read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+                inflight.add(proposeOperation("BLOB_CHUNK|" + manifest.id + "|" + manifest.chunks + "|" +
+                                              Base64.getEncoder().encodeToString(chunk)));
+                manifest.chunks++;
+                manifest.size += read;
+                read = HttpStreams.readFully(body, buffer);
+            }
+            while (!inflight.isEmpty()) {
+                if (!isConfirmed(inflight.poll())) {
+                    return "ERROR|Escrita não confirmada pela maioria do cluster";
+                }
+            }
+            
+            if (submitOperation("BLOB|" + key + "|" + gson.toJson(manifest)) < 0) {
+                return "ERROR|Escrita não confirmada pela maioria do cluster";
+            }
+            stored = true;
+            return "SUCCESS|Valor armazenado para a chave: " + key + " (" + manifest.size + " bytes)";
+        } finally {
+            // Envio interrompido (inclusive pelo cliente): os blocos já registrados são descartados
+            if (!stored && manifest.chunks > 0) {
+                proposeOperation("BLOB_ABORT|" + manifest.id + "|" + manifest.chunks);
+            }
+        }
+    }
+    
+    private static boolean isConfirmed(CompletableFuture<Long> proposal) {
+        try {
+            return proposal.get(SystemConfig.getInstance().getCommitTimeoutMs(), TimeUnit.MILLISECONDS) >= 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Não confirmado a tempo
+        }
+        return false;
+    }
+    
+    /**
+     * Decodifica bytes como UTF-8 estrito.
+     * 
+     * @return Texto, ou null se os bytes não são UTF-8 válido (valor binário)
+     */
+    private static String decodeText(byte[] bytes, int length) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                                         .onMalformedInput(CodingErrorAction.REPORT)
+                                         .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                         .decode(ByteBuffer.wrap(bytes, 0, length))
+                                         .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Envia o valor de uma chave em resposta a GET /get/{key}.
+     * Aceita um intervalo de bytes (Range: bytes=INÍCIO-FIM, INÍCIO- ou -SUFIXO), respondido
+     * com 206 e lendo apenas os blocos necessários. Um valor em blocos pedido por inteiro vai
+     * com Transfer-Encoding: chunked, um bloco HTTP por bloco armazenado; se ele for
+     * substituído no meio do envio, a conexão é encerrada sem o bloco final, e o cliente
+     * percebe que a resposta está incompleta.
+     */
+    private void writeValue(String key, String request, OutputStream output) throws IOException {
+        String stored = readStored(key);
+        if (stored == null) {
+            output.write(buildHTTPResponse("200 OK", "text/plain", "Chave não encontrada").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        
+        BlobManifest manifest = isBlob(stored) ? gson.fromJson(plainValue(stored), BlobManifest.class) : null;
+        byte[] text = manifest == null ? plainValue(stored).getBytes(StandardCharsets.UTF_8) : null;
+        long size = manifest != null ? manifest.size : text.length;
+        String type = manifest != null ? manifest.type : "text/plain; charset=UTF-8";
+        
+        String range = HttpStreams.getHeader(request, "Range");
+        long[] bounds = range != null ? parseRange(range, size) : null;
+        if (bounds != null && bounds[0] > bounds[1]) {
+            output.write(("HTTP/1.1 416 Range Not Satisfiable\r\n" +
+                          "Content-Range: bytes */" + size + "\r\n" +
+                          "Content-Length: 0\r\n" +
+                          "Connection: close\r\n" +
+                          "\r\n").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        
+        boolean partial = bounds != null;
+        long start = partial ? bounds[0] : 0;
+        long end = partial ? bounds[1] : size - 1;
+        boolean chunked = !partial && manifest != null;
+        StringBuilder head = new StringBuilder();
+        head.append(partial ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+        head.append("Content-Type: ").append(type).append("\r\n");
+        head.append("Accept-Ranges: bytes\r\n");
+        if (partial) {
+            head.append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(size).append("\r\n");
+        }
+        head.append(chunked ? "Transfer-Encoding: chunked\r\n" : "Content-Length: " + (end - start + 1) + "\r\n");
+        head.append("Connection: close\r\n\r\n");
+        output.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        
+        if (manifest == null) {
+            output.write(text, (int) start, (int) (end - start + 1));
+            return;
+        }
+        
+        HttpStreams.ChunkedOutputStream chunkedOutput = chunked ? new HttpStreams.ChunkedOutputStream(output) : null;
+        for (long i = start / manifest.chunkBytes; size > 0 && i <= end / manifest.chunkBytes; i++) {
+            String chunk = dataStore.get(blobChunkKey(manifest.id, (int) i));
+            if (chunk == null) {
+                throw new IOException("Valor da chave " + key + " substituído durante o envio");
+            }
+            byte[] bytes = Base64.getDecoder().decode(chunk);
+            long chunkStart = i * manifest.chunkBytes;
+            int from = (int) Math.max(0, start - chunkStart);
+            int to = (int) Math.min(bytes.length, end - chunkStart + 1);
+            (chunked ? chunkedOutput : output).write(bytes, from, to - from);
+        }
+        if (chunked) {
+            chunkedOutput.finish();
+        }
+    }
+    
+    /**
+     * Interpreta um cabeçalho Range com um único intervalo de bytes.
+     * 
+     * @param size Tamanho do valor
+     * @return {início, fim} inclusivos; {1, 0} se o intervalo não pode ser atendido; null se o
+     *         cabeçalho deve ser ignorado (vários intervalos ou formato desconhecido)
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+        String[] bounds = range.substring(6).trim().split("-", -1);
+        if (bounds.length != 2) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (bounds[0].isEmpty()) {
+                // Sufixo: os últimos N bytes
+                long suffix = Long.parseLong(bounds[1].trim());
+                start = Math.max(0, size - suffix);
+                end = suffix > 0 ? size - 1 : -1;
+            } else {
+                start = Long.parseLong(bounds[0].trim());
+                end = bounds[1].isEmpty() ? size - 1 : Math.min(size - 1, Long.parseLong(bounds[1].trim()));
+            }
+            return start < size && start <= end ? new long[]{start, end} : new long[]{1, 0};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Trata SETEX|KEY|TTL|VALUE e EXPIRE|KEY|TTL, com o tempo de vida em segundos.
+     */
+    private String handleExpiring(String action, String request) {
+        if (action.equals("SETEX")) {
+            String[] parts = request.split("\\|", 4);
+            if (parts.length < 4) {
+                return "ERROR|Formato SETEX inválido, esperado: SETEX|KEY|TTL|VALUE";
+            }
+            return submitExpiring(parts[1], parts[2], parts[3]);
+        }
+        
+        String[] parts = request.split("\\|");
+        if (parts.length < 3) {
+            return "ERROR|Formato EXPIRE inválido, esperado: EXPIRE|KEY|TTL";
+        }
+        return submitExpiring(parts[1], parts[2], null);
+    }
+    
+    /**
+     * Grava um valor com prazo (SETEX) ou define o prazo de uma chave existente (EXPIRE).
+     * O prazo vai no log como instante absoluto, calculado aqui, para que todas as réplicas
+     * expirem a chave no mesmo momento.
+     * 
+     * @param key Chave
+     * @param ttlText Tempo de vida em segundos
+     * @param value Valor a gravar, ou null para EXPIRE
+     * @return Resposta no formato SUCCESS|... ou ERROR|...
+     */
+    private String submitExpiring(String key, String ttlText, String value) {
+        long ttl;
+        try {
+            ttl = Long.parseLong(ttlText != null ? ttlText.trim() : "");
+        } catch (NumberFormatException e) {
+            ttl = 0;
+        }
+        if (ttl <= 0) {
+            return "ERROR|TTL inválido, esperado: número positivo de segundos";
+        }
+        
+        long deadline = System.currentTimeMillis() + ttl * 1000;
+        if (value == null) {
+            if (readStored(key) == null) {
+                return "ERROR|Chave não encontrada: " + key;
+            }
+            if (submitOperation("EXPIRE|" + key + "|" + deadline) < 0) {
+                return "ERROR|Escrita não confirmada pela maioria do cluster";
+            }
+            return "SUCCESS|Prazo definido para a chave: " + key;
+        }
+        
+        if (submitOperation("SETEX|" + key + "|" + deadline + "|" + value) < 0) {
+            return "ERROR|Escrita não confirmada pela maioria do cluster";
+        }
+        return "SUCCESS|Valor armazenado para a chave: " + key;
+    }
+    
+    /**
+     * Trata as operações atômicas de leitura e escrita:
+     * CAS|KEY|ESPERADO|NOVO (responde SUCCESS|... ou CONFLICT|KEY|VALOR_ATUAL),
+     * INCRBY|KEY|DELTA (responde VALUE|KEY|NOVO_VALOR) e GETSET|KEY|VALUE (responde
+     * VALUE|KEY|VALOR_ANTERIOR).
+     */
+    private String handleAtomic(String action, String request) {
+        switch (action) {
+            case "CAS":
+                String[] casParts = request.split("\\|", 4);
+                if (casParts.length < 4) {
+                    return "ERROR|Formato CAS inválido, esperado: CAS|KEY|ESPERADO|NOVO";
+                }
+                return submitAtomic("CAS", casParts[1], gson.toJson(new String[]{casParts[2], casParts[3]}));
+            case "INCRBY":
+                String[] incrParts = request.split("\\|");
+                if (incrParts.length < 3) {
+                    return "ERROR|Formato INCRBY inválido, esperado: INCRBY|KEY|DELTA";
+                }
+                return submitIncrement(incrParts[1], incrParts[2]);
+            default:
+                String[] getSetParts = request.split("\\|", 3);
+                if (getSetParts.length < 3) {
+                    return "ERROR|Formato GETSET inválido, esperado: GETSET|KEY|VALUE";
+                }
+                return submitAtomic("GETSET", getSetParts[1], getSetParts[2]);
+        }
+    }
+    
+    /**
+     * Submete CAS ou GETSET como uma entrada do log e aguarda o resultado da aplicação.
+     * Formato no log: CAS|TOKEN|KEY|["ESPERADO","NOVO"] ou GETSET|TOKEN|KEY|VALUE.
+     */
+    private String submitAtomic(String action, String key, String argument) {
+        String token = instanceId + "-" + resultSequence.incrementAndGet();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pendingResults.put(token, result);
+        
+        if (submitOperation(action + "|" + token + "|" + key + "|" + argument) < 0) {
+            pendingResults.remove(token);
+            return "ERROR|Escrita não confirmada pela maioria do cluster";
+        }
+        return awaitResult(token, result);
+    }
+    
+    /**
+     * Submete um incremento, combinado com os demais incrementos concorrentes da mesma chave.
+     */
+    private String submitIncrement(String key, String deltaText) {
+        long delta;
+        try {
+            delta = Long.parseLong(deltaText != null ? deltaText.trim() : "");
+        } catch (NumberFormatException e) {
+            return "ERROR|Incremento inválido, esperado: número inteiro";
+        }
+        
+        String token = instanceId + "-" + resultSequence.incrementAndGet();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pendingResults.put(token, result);
+        counters.add(key, token, delta);
+        return awaitResult(token, result);
+    }
+    
+    private String awaitResult(String token, CompletableFuture<String> result) {
+        try {
+            return result.get(SystemConfig.getInstance().getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // O resultado não chegou a tempo (por exemplo, o nó deixou de ser líder)
+        } finally {
+            pendingResults.remove(token);
+        }
+        return "ERROR|Escrita não confirmada pela maioria do cluster";
+    }
+    
+    private void completeResult(String token, String result) {
+        CompletableFuture<String> pending = pendingResults.remove(token);
+        if (pending != null) {
+            pending.complete(result);
         }
     }
     
+    private void rejectResults(Collection<String> tokens) {
+        for (String token : tokens) {
+            completeResult(token, "ERROR|Escrita não confirmada pela maioria do cluster");
+        }
+    }
+    
+    /**
+     * Aplica CAS|TOKEN|KEY|["ESPERADO","NOVO"] ou GETSET|TOKEN|KEY|VALUE.
+     * O CAS mantém o prazo de expiração da chave; o GETSET, como o SET, o remove.
+     */
+    private void applyAtomic(String operation) {
+        String[] parts = operation.split("\\|", 4);
+        if (parts.length < 4) {
+            LOGGER.warning("Operação de log inválida ignorada: " + operation);
+            return;
+        }
+        
+        String key = parts[2];
+        String stored = dataStore.get(key);
+        String current = stored != null ? valueOf(stored) : null;
+        
+        if (parts[0].equals("GETSET")) {
+            replaceValue(key, encodeValue(parts[3], 0));
+            expirations.cancel(key);
+            completeResult(parts[1], "VALUE|" + key + "|" + (current != null ? current : "Chave não encontrada"));
+            return;
+        }
+        
+        String[] values = gson.fromJson(parts[3], String[].class);
+        if (current != null && current.equals(values[0])) {
+            replaceValue(key, encodeValue(values[1], deadlineOf(stored)));
+            completeResult(parts[1], "SUCCESS|Valor substituído para a chave: " + key);
+        } else {
+            completeResult(parts[1], "CONFLICT|" + key + "|" + (current != null ? current : "Chave não encontrada"));
+        }
+    }
+    
+    /**
+     * Aplica INCRBY|KEY|{"TOKEN": DELTA, ...}, somando os incrementos na ordem do lote.
+     * Uma chave ausente vale 0; o prazo de expiração da chave é mantido.
+     */
+    private void applyIncrements(String key, String json) {
+        Map<String, Long> deltas = gson.fromJson(json, new TypeToken<LinkedHashMap<String, Long>>(){}.getType());
+        String stored = dataStore.get(key);
+        
+        Long value;
+        try {
+            value = stored == null ? Long.valueOf(0) : isBlob(stored) ? null : Long.valueOf(plainValue(stored).trim());
+        } catch (NumberFormatException e) {
+            value = null;
+        }
+        
+        // Os resultados são entregues depois da gravação, para que uma leitura feita pelo
+        // cliente logo após a resposta já veja o novo valor
+        Map<String, String> results = new LinkedHashMap<>();
+        boolean changed = false;
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (value == null) {
+                results.put(delta.getKey(), "ERROR|Valor da chave não é um número inteiro: " + key);
+                continue;
+            }
+            try {
+                value = Math.addExact(value, delta.getValue());
+                changed = true;
+                results.put(delta.getKey(), "VALUE|" + key + "|" + value);
+            } catch (ArithmeticException e) {
+                results.put(delta.getKey(), "ERROR|Incremento excede o limite de um inteiro de 64 bits");
+            }
+        }
+        
+        if (changed) {
+            String updated = encodeValue(String.valueOf(value), stored != null ? deadlineOf(stored) : 0);
+            dataStore.put(key, updated);
+            notifyChange(key, updated);
+        }
+        results.forEach(this::completeResult);
+    }
+    
+    /**
+     * Remove as chaves cujos prazos venceram, avançando a roda de temporização.
+     * Só o líder (ou um nó sem replicação) remove, por meio de uma entrada EXPIRED do log,
+     * para que todas as réplicas removam as mesmas chaves. Nos seguidores as chaves vencidas
+     * apenas deixam de aparecer nas leituras até a remoção chegar do líder.
+     */
+    private void sweepExpired() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> due = expirations.advance(now);
+            if (due.isEmpty()) {
+                return;
+            }
+            
+            boolean sweeping = leaderFollower == null || isLeader;
+            Map<String, Long> expired = new LinkedHashMap<>();
+            for (String key : due) {
+                String stored = dataStore.get(key);
+                long deadline = stored != null ? deadlineOf(stored) : 0;
+                if (deadline <= 0) {
+                    continue;
+                }
+                if (deadline > now) {
+                    // Prazo alterado depois do agendamento
+                    expirations.schedule(key, deadline);
+                } else if (!sweeping) {
+                    // Mantém a chave na roda: se este nó for eleito, ele fará a remoção
+                    expirations.schedule(key, now + EXPIRY_RECHECK_MS);
+                } else {
+                    expired.put(key, deadline);
+                    if (expired.size() == EXPIRY_BATCH_SIZE) {
+                        submitExpired(expired, now);
+                        expired = new LinkedHashMap<>();
+                    }
+                }
+            }
+            if (!expired.isEmpty()) {
+                submitExpired(expired, now);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Erro ao remover chaves expiradas", e);
+        }
+    }
+    
+    /**
+     * Agenda a remoção de chaves se o armazenamento passou do limite de memória.
+     * Como as chaves expiradas, as remoções são decididas só pelo líder (ou por um nó sem
+     * replicação) e replicadas por entradas EVICTED do log, para que todas as réplicas
+     * guardem as mesmas chaves; os seguidores acompanham o limite porque recebem os mesmos dados.
+     */
+    private void scheduleEviction() {
+        if (memoryBudget != null && memoryBudget.isOverBudget() && (leaderFollower == null || isLeader) &&
+            evictionScheduled.compareAndSet(false, true)) {
+            evictionExecutor.execute(this::evict);
+        }
+    }
+    
+    /**
+     * Remove as chaves escolhidas pela política até voltar ao limite de memória.
+     * Só as leituras servidas por este nó entram nas estatísticas de acesso da política.
+     */
+    private void evict() {
+        try {
+            while (memoryBudget.isOverBudget() && (leaderFollower == null || isLeader)) {
+                List<String> victims = memoryBudget.selectVictims(
+                    memoryBudget.getUsedBytes() - memoryBudget.getMaxBytes(), EVICTION_BATCH_SIZE);
+                if (victims.isEmpty()) {
+                    break;
+                }
+                if (submitOperation("EVICTED|" + gson.toJson(victims)) < 0) {
+                    // Tenta de novo na próxima escrita (por exemplo, após uma nova eleição)
+                    memoryBudget.retain(victims);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Erro ao remover chaves pelo limite de memória", e);
+        } finally {
+            evictionScheduled.set(false);
+        }
+    }
+    
+    private void submitExpired(Map<String, Long> expired, long now) {
+        if (submitOperation("EXPIRED|" + gson.toJson(expired)) < 0) {
+            // Tenta de novo mais tarde (por exemplo, após perder a liderança)
+            for (String key : expired.keySet()) {
+                expirations.schedule(key, now + EXPIRY_RECHECK_MS);
+            }
+        }
+    }
+    
+    private void trackExpiration(String key, String stored) {
+        long deadline = stored != null ? deadlineOf(stored) : 0;
+        if (deadline > 0) {
+            expirations.schedule(key, deadline);
+        }
+    }
+    
+    /**
+     * Monta o valor armazenado. Valores sem prazo ficam como estão, exceto os que começam
+     * com o marcador, que recebem um cabeçalho com prazo 0 para não serem confundidos.
+     */
+    private static String encodeValue(String value, long deadline) {
+        if (deadline <= 0 && (value.isEmpty() || value.charAt(0) != EXPIRY_MARKER)) {
+            return value;
+        }
+        return EXPIRY_MARKER + Long.toString(Math.max(0, deadline)) + EXPIRY_MARKER + value;
+    }
+    
+    /**
+     * Monta o manifesto armazenado de um valor em blocos; ele sempre leva o cabeçalho de prazo.
+     */
+    private static String encodeBlob(String manifest, long deadline) {
+        return EXPIRY_MARKER + Long.toString(Math.max(0, deadline)) + BLOB_MARKER + manifest;
+    }
+    
+    /**
+     * Troca o prazo de um valor armazenado, preservando o valor (texto ou manifesto).
+     */
+    private static String withDeadline(String stored, long deadline) {
+        return isBlob(stored) ? encodeBlob(plainValue(stored), deadline) : encodeValue(plainValue(stored), deadline);
+    }
+    
+    /**
+     * Obtém a posição do terminador do cabeçalho de prazo.
+     * 
+     * @return Posição do terminador, ou -1 se o valor não tem cabeçalho
+     */
+    private static int headerEnd(String stored) {
+        if (stored.isEmpty() || stored.charAt(0) != EXPIRY_MARKER) {
+            return -1;
+        }
+        int end = 1;
+        while (Character.isDigit(stored.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+    
+    /**
+     * Obtém o prazo de um valor armazenado.
+     * 
+     * @return Instante em que a chave expira, ou 0 se ela não tem prazo
+     */
+    private static long deadlineOf(String stored) {
+        int end = headerEnd(stored);
+        return end < 0 ? 0 : Long.parseLong(stored.substring(1, end));
+    }
+    
+    private static String plainValue(String stored) {
+        int end = headerEnd(stored);
+        return end < 0 ? stored : stored.substring(end + 1);
+    }
+    
+    private static boolean isBlob(String stored) {
+        int end = headerEnd(stored);
+        return end >= 0 && stored.charAt(end) == BLOB_MARKER;
+    }
+    
+    private static String blobChunkKey(String id, int index) {
+        return BLOB_KEY_PREFIX + id + "/" + index;
+    }
+    
+    /**
+     * Grava o valor de uma chave e descarta os blocos do valor anterior, se havia um.
+     */
+    private void replaceValue(String key, String stored) {
+        String previous = dataStore.get(key);
+        dataStore.put(key, stored);
+        releaseBlob(previous);
+        notifyChange(key, stored);
+    }
+    
+    /**
+     * Remove uma chave e os blocos do seu valor.
+     */
+    private void deleteValue(String key) {
+        String previous = dataStore.get(key);
+        dataStore.remove(key);
+        releaseBlob(previous);
+        if (previous != null) {
+            notifyChange(key, null);
+        }
+    }
+    
+    /**
+     * Registra a mudança de uma chave na revisão em andamento, para as inscrições WATCH.
+     * Valores em blocos são notificados sem o valor, que é lido por GET /get/{key}.
+     * 
+     * @param stored Novo registro armazenado, ou null se a chave foi removida
+     */
+    private void notifyChange(String key, String stored) {
+        if (stored == null) {
+            watches.publish(key, null, true);
+        } else {
+            watches.publish(key, isBlob(stored) ? null : plainValue(stored), false);
+        }
+    }
+    
+    private void releaseBlob(String stored) {
+        if (stored != null && isBlob(stored)) {
+            BlobManifest manifest = gson.fromJson(plainValue(stored), BlobManifest.class);
+            for (int i = 0; i < manifest.chunks; i++) {
+                dataStore.remove(blobChunkKey(manifest.id, i));
+            }
+        }
+    }
+    
+    /**
+     * Obtém o valor de um registro armazenado como texto; é o que recebem os protocolos de
+     * linha (GET por TCP/UDP, MGET, CAS e GETSET). Valores em blocos não são montados, o que
+     * traria o valor inteiro para a memória a cada leitura: no lugar deles vai uma descrição
+     * do valor, que é lido por GET /get/{key}, com os blocos enviados sem montá-los.
+     */
+    private String valueOf(String stored) {
+        if (!isBlob(stored)) {
+            return plainValue(stored);
+        }
+        BlobManifest manifest = gson.fromJson(plainValue(stored), BlobManifest.class);
+        return "[valor em blocos: " + manifest.size + " bytes, " + manifest.type + "; leia por HTTP em GET /get/{chave}]";
+    }
+    
+    /**
+     * Lê o registro armazenado de uma chave, tratando como ausente uma chave cujo prazo já
+     * venceu (expiração preguiçosa: a remoção em si vem da varredura do líder).
+     * 
+     * @return Registro armazenado, ou null se a chave não existe ou expirou
+     */
+    private String readStored(String key) {
+        String stored = dataStore.get(key);
+        if (stored == null) {
+            return null;
+        }
+        long deadline = deadlineOf(stored);
+        if (deadline > 0 && deadline <= System.currentTimeMillis()) {
+            return null;
+        }
+        return stored;
+    }
+    
+    /**
+     * Lê o valor de uma chave como texto.
+     * 
+     * @return Valor, ou null se a chave não existe ou expirou
+     */
+    private String readValue(String key) {
+        String stored = readStored(key);
+        return stored != null ? valueOf(stored) : null;
+    }
+    
+    private String getValue(String key) {
+        String value = readValue(key);
+        return value != null ? value : "Chave não encontrada";
+    }
+    
     private String buildHTTPResponse(String status, String contentType, String body) {
         return "HTTP/1.1 " + status + "\r\n" +
                "Content-Type: " + contentType + "\r\n" +
-               "Content-Length: " + body.length() + "\r\n" +
+               "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
                "Connection: close\r\n" +
                "\r\n" +
                body;
@@ -330,19 +1998,15 @@ public class ComponentA extends BaseComponent {
                 host, httpPort, tcpPort, udpPort, gatewayHost, gatewayRegistrationPort
             );
             
-            component.start();
-            
+            // Configura o componente como seguidor antes de iniciar
             component.leaderFollower = LeaderFollower.createFollower(
                 component.componentType, component.instanceId, 
                 host, component.leaderPort,
                 "leader-" + component.componentType, leaderHost, leaderPort
             );
             
-            component.leaderFollower
-                .onLeadershipChanged(component::handleLeadershipChange)
-                .onStateUpdate(component::handleStateUpdate)
-                .start();
-            
+            component.start();
+        
         } else {
             ComponentA component = new ComponentA(
                 host, httpPort, tcpPort, udpPort, gatewayHost, gatewayRegistrationPort
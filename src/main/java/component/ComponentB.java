@@ -1,34 +1,75 @@
 package component;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.Socket;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import common.config.SystemConfig;
 import common.pattern.LeaderFollower;
-import java.util.concurrent.TimeUnit;
+import common.pattern.StateWriter;
+import common.protocol.HttpStreams;
+import component.storage.EventStore;
+import component.storage.InMemoryEventStore;
+import component.storage.SegmentedEventStore;
 
 /**
  * Implementação do Componente B - serviço de processamento de eventos com alta disponibilidade.
+ *
+ * Além da leitura do log inteiro (GET_EVENTS), os consumidores leem páginas a partir de um
+ * deslocamento (READ) e podem guardar a sua posição no servidor com um nome (COMMIT_CURSOR),
+ * retomando dela com READ_CURSOR. As posições são replicadas pelo log como os eventos, de
+ * modo que qualquer réplica atende a leitura seguinte. Uma leitura pode aguardar eventos
+ * novos em vez de voltar vazia (READ com espera, long-poll de GET /events), e GET /events
+ * com Accept: text/event-stream envia cada evento assim que ele é acrescentado.
  */
 public class ComponentB extends BaseComponent {
     private static final Logger LOGGER = Logger.getLogger(ComponentB.class.getName());
     
-    // Armazenamento de eventos em memória
-    private final List<String> events = new CopyOnWriteArrayList<>();
-    private final Gson gson = new Gson();
+    // Espaço reservado, numa resposta UDP, para o cabeçalho da página
+    private static final int PAGE_HEADER_BYTES = 64;
+    // Espera máxima de uma leitura, abaixo do prazo das inscrições TCP no gateway
+    private static final long READ_MAX_WAIT_MS = 25000;
+    // Intervalo dos comentários que mantêm um fluxo SSE sem eventos novos
+    private static final long TAIL_PING_MS = 5000;
+    
+    // Log de eventos somente de acréscimo
+    private final EventStore events;
+    // Leitores aguardando eventos novos
+    private final EventTail tail;
+    // Leituras com espera e fluxos SSE mantêm a conexão numa thread própria, fora do pool de
+    // atendimento; acima do limite configurado, são recusadas em vez de enfileiradas
+    private final ThreadPoolExecutor tailExecutor = new ThreadPoolExecutor(
+        0, SystemConfig.getInstance().getEventReadMaxWaiting(), 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    // Deslocamentos aguardados pelas escritas deste nó, entregues na aplicação da entrada do log
+    private final Map<String, CompletableFuture<Long>> pendingOffsets = new ConcurrentHashMap<>();
+    private final AtomicLong offsetSequence = new AtomicLong();
     
     /**
      * Construtor para o Componente B.
@@ -37,106 +78,301 @@ public class ComponentB extends BaseComponent {
                       String gatewayHost, int gatewayRegistrationPort) {
         super("componentB", host, httpPort, tcpPort, udpPort, 
               gatewayHost, gatewayRegistrationPort);
+        this.events = createEventStore(tcpPort);
+        this.tail = new EventTail(events);
+    }
+    
+    /**
+     * Cria o log de eventos configurado.
+     * "disk" (padrão) grava os eventos em segmentos num diretório por porta TCP e os recupera
+     * ao reiniciar; "memory" os mantém apenas no heap.
+     */
+    private static EventStore createEventStore(int tcpPort) {
+        SystemConfig config = SystemConfig.getInstance();
+        switch (config.getEventStorageEngine()) {
+            case "disk":
+                String directory = config.getStorageDirectory() + "/componentB-" + tcpPort;
+                try {
+                    return SegmentedEventStore.open(directory, config.getEventSegmentBytes(),
+                                                    config.getEventIndexIntervalBytes(),
+                                                    config.isEventStorageFsyncEnabled());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Falha ao abrir o log de eventos em " + directory, e);
+                }
+            case "memory":
+                return new InMemoryEventStore();
+            default:
+                LOGGER.warning("Armazenamento de eventos desconhecido, usando memória: " +
+                               config.getEventStorageEngine());
+                return new InMemoryEventStore();
+        }
+    }
+    
+    @Override
+    public void stop() {
+        super.stop();
+        tailExecutor.shutdownNow();
+        events.close();
+    }
+    
+    @Override
+    protected long getRestoredStateVersion() {
+        return events.getAppliedIndex();
     }
     
     @Override
     protected void onBecomeLeader() {
         // LOGGER.info("ComponentB[" + instanceId + "] tornou-se líder");
         
-        // Adiciona evento registrando a nova liderança
+        // Registra a nova liderança pelo log replicado, para que o evento tenha o mesmo
+        // deslocamento em todas as réplicas; sem aguardar, pois a chamada vem da troca de papel
         String leaderEvent = System.currentTimeMillis() + ": LEADERSHIP_CHANGE - " + instanceId + " tornou-se líder";
-        events.add(leaderEvent);
-        
-        // Agenda replicação periódica de estado
-        scheduler.scheduleAtFixedRate(
-            this::replicateState,
-            1000, 5000, TimeUnit.MILLISECONDS
-        );
+        proposeOperation("ADD_EVENT|" + leaderEvent);
     }
     
     @Override
     protected void onBecomeFollower() {
         // LOGGER.info("ComponentB[" + instanceId + "] tornou-se seguidor");
         
-        // Adiciona evento registrando a mudança para seguidor
-        String followerEvent = System.currentTimeMillis() + ": LEADERSHIP_CHANGE - " + instanceId + " tornou-se seguidor";
-        events.add(followerEvent);
+        // Um seguidor não acrescenta eventos por conta própria: o seu log é o do líder
     }
     
     @Override
-    protected String serializeState() {
-        return gson.toJson(events);
+    protected void applyOperation(long index, String operation) {
+        String[] parts = operation.split("\\|", 2);
+        
+        if ("ADD_EVENT".equals(parts[0]) && parts.length == 2) {
+            events.setAppliedIndex(index);
+            appendEvent(parts[1]);
+        } else if ("APPEND_EVENT".equals(parts[0]) && parts.length == 2) {
+            // Formato: APPEND_EVENT|TOKEN|EVENTO; o token identifica a escrita que aguarda o deslocamento
+            int separator = parts[1].indexOf('|');
+            if (separator > 0) {
+                events.setAppliedIndex(index);
+                long offset = appendEvent(parts[1].substring(separator + 1));
+                CompletableFuture<Long> pending = pendingOffsets.remove(parts[1].substring(0, separator));
+                if (pending != null) {
+                    pending.complete(offset);
+                }
+            }
+        } else if ("COMMIT_CURSOR".equals(parts[0]) && parts.length == 2) {
+            // Formato: COMMIT_CURSOR|NOME|DESLOCAMENTO
+            int separator = parts[1].lastIndexOf('|');
+            if (separator > 0) {
+                events.getCursors().commit(parts[1].substring(0, separator),
+                                           Long.parseLong(parts[1].substring(separator + 1)));
+            }
+        } else {
+            // LOGGER.warning("Operação de log desconhecida ignorada: " + operation);
+        }
+    }
+    
+    /**
+     * Acrescenta um evento ao log e acorda as leituras que aguardam eventos novos.
+     * 
+     * @return Deslocamento do evento
+     */
+    private long appendEvent(String event) {
+        long offset = events.append(event);
+        tail.signal();
+        return offset;
+    }
+    
+    /**
+     * Submete um evento como uma entrada do log e aguarda o deslocamento que ele recebe ao ser
+     * aplicado, que não depende de outras escritas concorrentes.
+     * Formato no log: APPEND_EVENT|TOKEN|EVENTO.
+     * 
+     * @param event Evento com timestamp
+     * @return Deslocamento do evento, ou -1 se a escrita não foi confirmada
+     */
+    private long submitEvent(String event) {
+        String token = instanceId + "-" + offsetSequence.incrementAndGet();
+        CompletableFuture<Long> offset = new CompletableFuture<>();
+        pendingOffsets.put(token, offset);
+        try {
+            if (submitOperation("APPEND_EVENT|" + token + "|" + event) < 0) {
+                return -1;
+            }
+            return offset.get(SystemConfig.getInstance().getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // O deslocamento não chegou a tempo (por exemplo, o nó deixou de ser líder)
+        } finally {
+            pendingOffsets.remove(token);
+        }
+        return -1;
+    }
+    
+    /**
+     * Verifica se esta réplica aceita escritas. Um seguidor as recusa em vez de aplicá-las
+     * localmente, o que deslocaria os seus eventos em relação aos do líder.
+     * 
+     * @return null se a escrita pode ser submetida; caso contrário, a resposta a devolver
+     */
+    private String rejectFollowerWrite() {
+        if (isLeader || leaderFollower == null) {
+            return null;
+        }
+        if (leaderFollower.getLeaderId() != null) {
+            return "REDIRECT|" + leaderFollower.getLeaderId() + "|" +
+                   "Operação de escrita deve ser enviada ao líder";
+        }
+        return "ERROR|Líder desconhecido, operação de escrita não pode ser aceita";
     }
     
     @Override
-    protected void processStateUpdate(String stateData) {
+    protected StateWriter captureState() {
+        // O log só cresce: a visão é o tamanho atual, com uma cópia das posições dos consumidores
+        long end = events.size();
+        Map<String, Long> cursors = events.getCursors().toMap();
+        return output -> {
+            // Eventos escritos um a um no fluxo, sem montar o JSON inteiro, seguidos das posições
+            JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+            json.beginObject();
+            json.name("events").beginArray();
+            for (long offset = 0; offset < end; offset++) {
+                json.value(events.get(offset));
+            }
+            json.endArray();
+            json.name("cursors").beginObject();
+            for (Map.Entry<String, Long> cursor : cursors.entrySet()) {
+                json.name(cursor.getKey()).value(cursor.getValue());
+            }
+            json.endObject();
+            json.endObject();
+            json.flush();
+        };
+    }
+    
+    @Override
+    protected void processStateUpdate(long version, InputStream stateData) {
         try {
-            Type listType = new TypeToken<List<String>>(){}.getType();
-            List<String> leaderEvents = gson.fromJson(stateData, listType);
-            
-            // Atualiza os eventos locais com os do líder
+            // Substitui os eventos locais pelos do líder, gravados à medida que são lidos;
+            // leituras em andamento terminam sobre o conteúdo anterior. Os eventos recebidos
+            // não pertencem a nenhuma operação do log: a versão do snapshot só é registrada
+            // depois que o último deles estiver gravado
             events.clear();
-            events.addAll(leaderEvents);
+            events.setAppliedIndex(0);
+            JsonReader json = new JsonReader(new InputStreamReader(stateData, StandardCharsets.UTF_8));
+            if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                // Estado de uma versão anterior: apenas os eventos
+                readEvents(json);
+            } else {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (name.equals("events")) {
+                        readEvents(json);
+                    } else if (name.equals("cursors")) {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            events.getCursors().commit(json.nextName(), json.nextLong());
+                        }
+                        json.endObject();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            events.completeInstall(version);
             
             // LOGGER.info("ComponentB[" + instanceId + "] atualizou eventos do líder. Total: " + events.size());
         } catch (Exception e) {
-            // LOGGER.log(Level.SEVERE, "Erro ao processar atualização de estado", e);
+            // Um estado instalado pela metade é descartado, e o nó volta a pedir um snapshot
+            LOGGER.log(Level.SEVERE, "Erro ao processar atualização de estado", e);
+            try {
+                events.clear();
+            } catch (RuntimeException clearFailure) {
+                e.addSuppressed(clearFailure);
+            }
+            throw new IllegalStateException("Falha ao instalar o estado recebido do líder", e);
+        } finally {
+            tail.signal();
+        }
+    }
+    
+    private void readEvents(JsonReader json) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            events.append(json.nextString());
         }
+        json.endArray();
     }
     
     @Override
     protected void handleHTTPRequest(Socket clientSocket) {
-        try (
-            BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            OutputStream output = clientSocket.getOutputStream()
-        ) {
-            // Lê a requisição HTTP
-            StringBuilder requestBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                requestBuilder.append(line).append("\r\n");
+        // Uma leitura com espera ou em fluxo, ou uma escrita, assume a conexão, que então não é fechada aqui
+        boolean handedOff = false;
+        try {
+            InputStream input = new BufferedInputStream(clientSocket.getInputStream());
+            OutputStream output = clientSocket.getOutputStream();
+            // Lê o cabeçalho da requisição HTTP; o corpo fica no fluxo
+            String request = HttpStreams.readHead(input);
+            if (request == null) {
+                return;
             }
             
             // Analisa a requisição
-            String request = requestBuilder.toString();
             String firstLine = request.substring(0, request.indexOf("\r\n"));
             String[] parts = firstLine.split(" ");
             String method = parts[0];
-            String path = parts[1];
+            String consistency = getQueryParameter(parts[1], "consistency");
+            String path = stripQuery(parts[1]);
             
             // Processa a requisição
             String response;
-            if (path.equals("/events") && method.equals("GET")) {
+            boolean isRead = ((path.equals("/events") || path.startsWith("/cursors/")) && method.equals("GET")) ||
+                             path.equals("/count");
+            String rejection = isRead ? checkReadConsistency(consistency) : null;
+            if (rejection != null) {
+                response = buildHTTPResponse(readRejectionStatus(rejection), "text/plain", rejection);
+            } else if (path.equals("/events") && method.equals("GET") && isPagedRead(request, parts[1])) {
+                // Parâmetros: from ou cursor, max, maxBytes e wait (em ms)
+                response = startHTTPRead(request, parts[1], clientSocket, output);
+                handedOff = response == null;
+            } else if (path.equals("/events") && method.equals("GET")) {
                 // Retorna todos os eventos
-                StringBuilder eventsStr = new StringBuilder();
-                for (String event : events) {
-                    eventsStr.append(event).append("\n");
-                }
-                response = buildHTTPResponse("200 OK", "text/plain", eventsStr.toString());
+                ByteArrayOutputStream eventsBytes = new ByteArrayOutputStream();
+                events.writeTo(0, Long.MAX_VALUE, eventsBytes, (byte) '\n');
+                response = buildHTTPResponse("200 OK", "text/plain", eventsBytes.toString(StandardCharsets.UTF_8));
             } else if (path.equals("/events") && method.equals("POST")) {
                 // Adiciona um novo evento a partir do corpo da requisição
-                int contentLength = 0;
-                if (request.contains("Content-Length:")) {
-                    String contentLengthStr = request.substring(
-                        request.indexOf("Content-Length:") + 16,
-                        request.indexOf("\r\n", request.indexOf("Content-Length:"))
-                    );
-                    contentLength = Integer.parseInt(contentLengthStr.trim());
-                }
-                
-                StringBuilder eventBuilder = new StringBuilder();
-                if (contentLength > 0) {
-                    char[] buffer = new char[contentLength];
-                    reader.read(buffer, 0, contentLength);
-                    eventBuilder.append(buffer);
-                }
+                String body = readBody(request, input);
                 
                 // Armazena o evento com timestamp
                 String timestamp = String.valueOf(System.currentTimeMillis());
-                String event = timestamp + ": " + eventBuilder.toString();
-                events.add(event);
-                
-                response = buildHTTPResponse("201 Created", "text/plain", "Evento adicionado: " + event);
+                String event = timestamp + ": " + body;
+                String redirect = rejectFollowerWrite();
+                if (redirect != null) {
+                    // Seguidores não aceitam escritas; o cliente deve repeti-la no líder
+                    response = buildHTTPResponse("503 Service Unavailable", "text/plain", redirect);
+                } else {
+                    // A escrita aguarda a replicação em writeExecutor, que assume a conexão
+                    handedOff = dispatchWrite(clientSocket, () -> output.write(
+                        postEventResponse(event).getBytes(StandardCharsets.UTF_8)));
+                    response = handedOff ? null :
+                               buildHTTPResponse("503 Service Unavailable", "text/plain", writeRejection());
+                }
+            } else if (path.startsWith("/cursors/") && method.equals("GET")) {
+                // Retorna a posição gravada de um consumidor
+                String name = path.substring("/cursors/".length());
+                response = buildHTTPResponse("200 OK", "text/plain", String.valueOf(events.getCursors().get(name)));
+            } else if (path.startsWith("/cursors/") && (method.equals("POST") || method.equals("PUT"))) {
+                // Grava a posição de um consumidor; o corpo é o deslocamento do próximo evento a ler
+                String name = path.substring("/cursors/".length());
+                String body = readBody(request, input).trim();
+                String redirect = rejectFollowerWrite();
+                if (redirect != null) {
+                    response = buildHTTPResponse("503 Service Unavailable", "text/plain", redirect);
+                } else {
+                    handedOff = dispatchWrite(clientSocket, () -> output.write(
+                        putCursorResponse(name, body).getBytes(StandardCharsets.UTF_8)));
+                    response = handedOff ? null :
+                               buildHTTPResponse("503 Service Unavailable", "text/plain", writeRejection());
+                }
             } else if (path.equals("/count")) {
                 // Retorna a contagem de eventos
                 response = buildHTTPResponse("200 OK", "text/plain", "Quantidade de eventos: " + events.size());
@@ -145,7 +381,8 @@ public class ComponentB extends BaseComponent {
                 String info = "Instância do Componente B " + instanceId + "\n" +
                               "Quantidade de eventos: " + events.size() + "\n" +
                               "Executando em: " + host + "\n" +
-                              "Porta HTTP: " + httpPort;
+                              "Porta HTTP: " + httpPort + "\n" +
+                              describeReplication();
                 response = buildHTTPResponse("200 OK", "text/plain", info);
             } else {
                 // Endpoint desconhecido
@@ -153,21 +390,189 @@ public class ComponentB extends BaseComponent {
             }
             
             // Envia a resposta
-            output.write(response.getBytes());
+            if (response != null) {
+                output.write(response.getBytes(StandardCharsets.UTF_8));
+            }
             output.flush();
             
             // LOGGER.info("Componente B[" + instanceId + "] processou requisição HTTP: " + firstLine);
         } catch (IOException e) {
             // LOGGER.log(Level.WARNING, "Erro ao processar requisição HTTP no Componente B", e);
+        } finally {
+            if (!handedOff) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+    
+    /**
+     * Submete o evento de POST /events e monta a resposta. Executado em writeExecutor.
+     */
+    private String postEventResponse(String event) {
+        if (submitEvent(event) < 0) {
+            return buildHTTPResponse("503 Service Unavailable", "text/plain",
+                                     "Escrita não confirmada pela maioria do cluster");
+        }
+        return buildHTTPResponse("201 Created", "text/plain", "Evento adicionado: " + event);
+    }
+    
+    /**
+     * Grava a posição de POST ou PUT /cursors/{nome} e monta a resposta. Executado em writeExecutor.
+     */
+    private String putCursorResponse(String name, String offsetText) {
+        String result = commitCursor(name, offsetText);
+        if (result.startsWith("SUCCESS|")) {
+            return buildHTTPResponse("200 OK", "text/plain", result.substring(8));
+        } else if (result.startsWith("ERROR|Formato")) {
+            return buildHTTPResponse("400 Bad Request", "text/plain", result.substring(6));
+        }
+        return buildHTTPResponse("503 Service Unavailable", "text/plain", result.substring(6));
+    }
+    
+    /**
+     * Verifica se GET /events pede uma página (from, cursor ou wait, ou um fluxo SSE) em vez
+     * do log inteiro.
+     */
+    private static boolean isPagedRead(String request, String target) {
+        String accept = HttpStreams.getHeader(request, "Accept");
+        return getQueryParameter(target, "from") != null || getQueryParameter(target, "cursor") != null ||
+               getQueryParameter(target, "wait") != null ||
+               (accept != null && accept.contains("text/event-stream"));
+    }
+    
+    /**
+     * Atende uma leitura paginada de GET /events.
+     * A página parte do deslocamento from, da posição gravada do consumidor cursor ou, sem
+     * nenhum dos dois, do fim do log, e a resposta JSON {"next": N, "end": FIM, "events": [...]}
+     * traz o deslocamento em que a próxima começa. Com wait (em ms), uma página vazia aguarda
+     * o primeiro evento novo numa thread própria, e sai vazia ao fim do prazo; o cliente repete
+     * a requisição com from=N. Com Accept: text/event-stream, a resposta é um fluxo SSE que
+     * envia os eventos assim que são acrescentados, com o id do último evento de cada lote, de
+     * modo que o Last-Event-ID de uma reconexão retoma do evento seguinte.
+     * 
+     * @return Resposta, ou null se a conexão passou para a espera ou para o fluxo
+     */
+    private String startHTTPRead(String request, String target, Socket clientSocket, OutputStream output)
+            throws IOException {
+        String accept = HttpStreams.getHeader(request, "Accept");
+        boolean eventStream = accept != null && accept.contains("text/event-stream");
+        String lastEventId = eventStream ? HttpStreams.getHeader(request, "Last-Event-ID") : null;
+        String cursor = getQueryParameter(target, "cursor");
+        String fromText = getQueryParameter(target, "from");
+        String maxEvents = getQueryParameter(target, "max");
+        String maxBytes = getQueryParameter(target, "maxBytes");
+        String waitText = getQueryParameter(target, "wait");
+        
+        long from;
+        if (lastEventId != null) {
+            long lastId = parseOffset(lastEventId);
+            from = lastId >= 0 ? lastId + 1 : -1;
+        } else if (cursor != null) {
+            from = events.getCursors().get(cursor);
+        } else {
+            from = fromText != null ? parseOffset(fromText) : events.size();
+        }
+        long waitMs = waitText != null ? parseOffset(waitText) : 0;
+        
+        // A primeira página também valida os parâmetros
+        EventStore.Page page = readPage(from, maxEvents, maxBytes, false);
+        if (page == null || waitMs < 0) {
+            return buildHTTPResponse("400 Bad Request", "text/plain",
+                                     "Parâmetros inválidos, esperado: from, max, maxBytes e wait não negativos");
+        }
+        if (!eventStream && (waitMs == 0 || !page.getEvents().isEmpty())) {
+            return pageResponse(page);
+        }
+        
+        long start = from;
+        long timeoutMs = Math.min(waitMs, READ_MAX_WAIT_MS);
+        try {
+            tailExecutor.execute(() -> {
+                try {
+                    if (eventStream) {
+                        streamEvents(start, maxEvents, maxBytes, output);
+                    } else {
+                        EventStore.Page next = tail.await(start, timeoutMs) ?
+                                               readPage(start, maxEvents, maxBytes, false) : page;
+                        output.write(pageResponse(next).getBytes(StandardCharsets.UTF_8));
+                        output.flush();
+                    }
+                } catch (IOException e) {
+                    // Cliente desconectado
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    closeQuietly(clientSocket);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return buildHTTPResponse("503 Service Unavailable", "text/plain", tailRejection());
+        }
+        return null;
+    }
+    
+    private String pageResponse(EventStore.Page page) throws IOException {
+        StringWriter body = new StringWriter();
+        JsonWriter json = new JsonWriter(body);
+        json.beginObject();
+        json.name("next").value(page.getNextOffset());
+        json.name("end").value(events.size());
+        json.name("events").beginArray();
+        for (String event : page.getEvents()) {
+            json.value(event);
+        }
+        json.endArray();
+        json.endObject();
+        return buildHTTPResponse("200 OK", "application/json", body.toString());
+    }
+    
+    /**
+     * Envia os eventos a partir de um deslocamento como um fluxo SSE (text/event-stream), um
+     * lote a cada acréscimo, com comentários periódicos para manter a conexão e detectar
+     * clientes desconectados.
+     */
+    private void streamEvents(long from, String maxEvents, String maxBytes, OutputStream output)
+            throws IOException, InterruptedException {
+        output.write(("HTTP/1.1 200 OK\r\n" +
+                      "Content-Type: text/event-stream; charset=utf-8\r\n" +
+                      "Cache-Control: no-cache\r\n" +
+                      "Connection: close\r\n" +
+                      "\r\n" +
+                      "retry: 1000\n" +
+                      ": offset " + from + "\n\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        
+        long next = from;
+        while (true) {
+            if (!tail.await(next, TAIL_PING_MS)) {
+                output.write(": ping\n\n".getBytes(StandardCharsets.UTF_8));
+                output.flush();
+                continue;
+            }
+            EventStore.Page page = readPage(next, maxEvents, maxBytes, false);
+            StringBuilder batch = new StringBuilder();
+            for (int i = 0; i < page.getEvents().size(); i++) {
+                // Quebras de linha do evento viram linhas data: seguidas, que o cliente junta de volta
+                batch.append("data: ").append(String.join("\ndata: ", page.getEvents().get(i).split("\r?\n", -1)))
+                     .append('\n');
+                if (i == page.getEvents().size() - 1) {
+                    batch.append("id: ").append(page.getNextOffset() - 1).append('\n');
+                }
+                batch.append('\n');
+            }
+            output.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            next = page.getNextOffset();
         }
     }
     
     @Override
     protected void handleTCPRequest(Socket clientSocket) {
-        try (
+        // Uma leitura com espera ou uma escrita assume a conexão, que então não é fechada aqui
+        boolean handedOff = false;
+        try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true)
-        ) {
+            PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true);
             String request = reader.readLine();
             
             if (request != null && !request.isEmpty()) {
@@ -179,37 +584,56 @@ public class ComponentB extends BaseComponent {
                 switch (action) {
                     case "ADD_EVENT":
                         if (parts.length >= 2) {
-                            String eventData = parts[1];
-                            
                             // Se for seguidor, redireciona para o líder
-                            if (!isLeader && leaderFollower != null && leaderFollower.getLeaderId() != null) {
-                                response = "REDIRECT|" + leaderFollower.getLeaderId() + "|" +
-                                           "Operação de escrita deve ser enviada ao líder";
+                            String redirect = rejectFollowerWrite();
+                            if (redirect != null) {
+                                response = redirect;
                             } else {
-                                String timestamp = String.valueOf(System.currentTimeMillis());
-                                String event = timestamp + ": " + eventData;
-                                events.add(event);
-                                response = "SUCCESS|Evento adicionado com ID: " + (events.size() - 1);
-                                
-                                // Se for líder, replica o estado para os seguidores
-                                if (isLeader) {
-                                    replicateState();
-                                }
+                                // A escrita aguarda a replicação em writeExecutor, que assume a conexão
+                                handedOff = dispatchWrite(clientSocket, () -> writer.println(addEvent(parts[1])));
+                                response = handedOff ? null : "ERROR|" + writeRejection();
                             }
                         } else {
                             response = "ERROR|Formato ADD_EVENT inválido, esperado: ADD_EVENT|DATA";
                         }
                         break;
                     case "GET_EVENTS":
-                        StringBuilder eventsStr = new StringBuilder();
-                        for (String event : events) {
-                            eventsStr.append(event).append("|");
+                        // Formato: GET_EVENTS[|CONSISTÊNCIA]
+                        String rejection = checkReadConsistency(parts.length >= 2 ? parts[1] : null);
+                        if (rejection != null) {
+                            response = rejection;
+                            break;
+                        }
+                        
+                        ByteArrayOutputStream eventsBytes = new ByteArrayOutputStream();
+                        events.writeTo(0, Long.MAX_VALUE, eventsBytes, (byte) '|');
+                        String eventsStr = eventsBytes.toString(StandardCharsets.UTF_8);
+                        response = "EVENTS|" + (eventsStr.isEmpty() ? "" : eventsStr.substring(0, eventsStr.length() - 1));
+                        break;
+                    case "READ":
+                    case "READ_CURSOR":
+                        String[] readParts = request.split("\\|");
+                        if (readParts.length >= 5 && parseOffset(readParts[4]) > 0) {
+                            response = startBlockingRead(readParts, clientSocket, writer);
+                            handedOff = response == null;
+                        } else {
+                            response = handleRead(readParts, false);
+                        }
+                        break;
+                    case "COMMIT_CURSOR":
+                        // Se for seguidor, redireciona para o líder
+                        String cursorRedirect = rejectFollowerWrite();
+                        if (cursorRedirect != null) {
+                            response = cursorRedirect;
+                        } else {
+                            handedOff = dispatchWrite(clientSocket,
+                                                      () -> writer.println(handleCommitCursor(request.split("\\|"))));
+                            response = handedOff ? null : "ERROR|" + writeRejection();
                         }
-                        response = "EVENTS|" + (eventsStr.length() > 0 ? 
-                                    eventsStr.substring(0, eventsStr.length() - 1) : "");
                         break;
                     case "COUNT":
-                        response = "COUNT|" + events.size();
+                        String countRejection = checkReadConsistency(parts.length >= 2 ? parts[1] : null);
+                        response = countRejection != null ? countRejection : "COUNT|" + events.size();
                         break;
                     case "INFO":
                         response = "INFO|Componente B|" + instanceId + "|" + events.size() + "|" +
@@ -228,12 +652,57 @@ public class ComponentB extends BaseComponent {
                         response = "ERROR|Ação desconhecida: " + action;
                 }
                 
-                writer.println(response);
+                if (response != null) {
+                    writer.println(response);
+                }
                 // LOGGER.info("Componente B[" + instanceId + "] processou requisição TCP: " + action);
             }
         } catch (IOException e) {
             // LOGGER.log(Level.WARNING, "Erro ao processar requisição TCP no Componente B", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!handedOff) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+    
+    /**
+     * Atende numa thread própria uma leitura TCP com espera, que pode aguardar até
+     * READ_MAX_WAIT_MS por eventos novos.
+     * 
+     * @return Resposta de erro, ou null se a conexão passou para a leitura
+     */
+    private String startBlockingRead(String[] parts, Socket clientSocket, PrintWriter writer) {
+        try {
+            tailExecutor.execute(() -> {
+                try {
+                    writer.println(handleRead(parts, false));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    closeQuietly(clientSocket);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return "ERROR|" + tailRejection();
         }
+        return null;
+    }
+    
+    /**
+     * Motivo da recusa de uma leitura com espera pelo tailExecutor.
+     */
+    private String tailRejection() {
+        return tailExecutor.isShutdown() ? "Componente em encerramento" :
+               "Limite de leituras com espera atingido, tente novamente mais tarde";
+    }
+    
+    @Override
+    protected boolean isWriteRequest(String request) {
+        String action = request.split("\\|", 2)[0].toUpperCase();
+        return action.equals("ADD_EVENT") || action.equals("COMMIT_CURSOR");
     }
     
     @Override
@@ -249,17 +718,24 @@ public class ComponentB extends BaseComponent {
             switch (action) {
                 case "ADD_EVENT":
                     if (parts.length >= 2) {
-                        String eventData = parts[1];
-                        String timestamp = String.valueOf(System.currentTimeMillis());
-                        String event = timestamp + ": " + eventData;
-                        events.add(event);
-                        response = "SUCCESS|Evento adicionado com ID: " + (events.size() - 1);
+                        // Se for seguidor, redireciona para o líder
+                        String redirect = rejectFollowerWrite();
+                        response = redirect != null ? redirect : addEvent(parts[1]);
                     } else {
                         response = "ERROR|Formato ADD_EVENT inválido, esperado: ADD_EVENT|DATA";
                     }
                     break;
+                case "READ":
+                case "READ_CURSOR":
+                    response = handleRead(request.split("\\|"), true);
+                    break;
+                case "COMMIT_CURSOR":
+                    String cursorRedirect = rejectFollowerWrite();
+                    response = cursorRedirect != null ? cursorRedirect : handleCommitCursor(request.split("\\|"));
+                    break;
                 case "COUNT":
-                    response = "COUNT|" + events.size();
+                    String rejection = checkReadConsistency(parts.length >= 2 ? parts[1] : null);
+                    response = rejection != null ? rejection : "COUNT|" + events.size();
                     break;
                 case "INFO":
                     response = "INFO|Componente B|" + instanceId + "|" + events.size();
@@ -278,7 +754,149 @@ public class ComponentB extends BaseComponent {
             // LOGGER.info("Componente B[" + instanceId + "] processou requisição UDP: " + action);
         } catch (IOException e) {
             // LOGGER.log(Level.WARNING, "Erro ao processar requisição UDP no Componente B", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Adiciona um evento com timestamp pelo log replicado.
+     * Resposta: SUCCESS|Evento adicionado com ID: DESLOCAMENTO.
+     */
+    private String addEvent(String eventData) {
+        String event = System.currentTimeMillis() + ": " + eventData;
+        long offset = submitEvent(event);
+        if (offset < 0) {
+            return "ERROR|Escrita não confirmada pela maioria do cluster";
+        }
+        return "SUCCESS|Evento adicionado com ID: " + offset;
+    }
+    
+    /**
+     * Lê uma página de eventos.
+     * Formatos: READ|DESLOCAMENTO|MAX_EVENTOS|MAX_BYTES[|ESPERA_MS][|CONSISTÊNCIA] e
+     * READ_CURSOR|NOME|MAX_EVENTOS|MAX_BYTES[|ESPERA_MS][|CONSISTÊNCIA], que parte da posição
+     * gravada do consumidor (0 se ele ainda não gravou nenhuma); MAX_BYTES 0 usa o limite
+     * configurado. Com ESPERA_MS, uma leitura que não encontra eventos aguarda o primeiro
+     * evento novo, até READ_MAX_WAIT_MS, em vez de voltar vazia (em UDP a espera é ignorada).
+     * Resposta: PAGE|PRÓXIMO_DESLOCAMENTO|FIM_DO_LOG|E1|E2|...; a leitura seguinte parte do
+     * próximo deslocamento, e ele é igual ao fim do log quando o consumidor está em dia.
+     * 
+     * @param datagram Se a resposta vai num datagrama UDP, o que reduz o limite de bytes
+     */
+    private String handleRead(String[] parts, boolean datagram) throws InterruptedException {
+        boolean cursor = parts[0].equalsIgnoreCase("READ_CURSOR");
+        if (parts.length < 4) {
+            return cursor ? "ERROR|Formato READ_CURSOR inválido, esperado: " +
+                            "READ_CURSOR|NOME|MAX_EVENTOS|MAX_BYTES[|ESPERA_MS][|CONSISTÊNCIA]"
+                          : "ERROR|Formato READ inválido, esperado: " +
+                            "READ|DESLOCAMENTO|MAX_EVENTOS|MAX_BYTES[|ESPERA_MS][|CONSISTÊNCIA]";
+        }
+        // O quinto campo é a espera se for um número, e o nível de consistência caso contrário
+        long waitMs = parts.length >= 5 ? parseOffset(parts[4]) : -1;
+        String consistency = waitMs >= 0 ? (parts.length >= 6 ? parts[5] : null) :
+                             (parts.length >= 5 ? parts[4] : null);
+        String rejection = checkReadConsistency(consistency);
+        if (rejection != null) {
+            return rejection;
+        }
+        
+        long from = cursor ? events.getCursors().get(parts[1]) : parseOffset(parts[1]);
+        EventStore.Page page = readPage(from, parts[2], parts[3], datagram);
+        if (page == null) {
+            return "ERROR|Deslocamento, MAX_EVENTOS e MAX_BYTES devem ser números positivos";
         }
+        if (page.getEvents().isEmpty() && waitMs > 0 && !datagram &&
+            tail.await(from, Math.min(waitMs, READ_MAX_WAIT_MS))) {
+            page = readPage(from, parts[2], parts[3], false);
+        }
+        
+        StringBuilder response = new StringBuilder("PAGE|").append(page.getNextOffset())
+                                                         .append('|').append(events.size());
+        for (String event : page.getEvents()) {
+            response.append('|').append(event);
+        }
+        return response.toString();
+    }
+    
+    /**
+     * Lê uma página de eventos com os limites pedidos reduzidos aos configurados.
+     * 
+     * @param from Deslocamento do primeiro evento
+     * @param maxEventsText Número máximo de eventos (null usa o limite configurado)
+     * @param maxBytesText Número máximo de bytes (null ou 0 usa o limite configurado)
+     * @param datagram Se a página precisa caber num datagrama UDP
+     * @return Página lida, ou null se algum parâmetro é inválido
+     */
+    private EventStore.Page readPage(long from, String maxEventsText, String maxBytesText, boolean datagram) {
+        SystemConfig config = SystemConfig.getInstance();
+        int maxEvents;
+        long maxBytes;
+        try {
+            maxEvents = maxEventsText == null ? config.getEventReadMaxEvents() : Integer.parseInt(maxEventsText.trim());
+            maxBytes = maxBytesText == null ? 0 : Long.parseLong(maxBytesText.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (from < 0 || maxEvents <= 0 || maxBytes < 0) {
+            return null;
+        }
+        
+        maxEvents = Math.min(maxEvents, config.getEventReadMaxEvents());
+        long byteLimit = config.getEventReadMaxBytes();
+        if (datagram) {
+            // Cada evento ocupa também um separador na resposta
+            byteLimit = Math.min(byteLimit, MAX_UDP_PACKET_SIZE - PAGE_HEADER_BYTES - maxEvents);
+        }
+        return events.read(from, maxEvents, maxBytes == 0 ? byteLimit : Math.min(maxBytes, byteLimit));
+    }
+    
+    /**
+     * Converte um deslocamento ou prazo recebido numa requisição.
+     * 
+     * @return Valor lido, ou -1 se o texto não é um número não negativo
+     */
+    private static long parseOffset(String text) {
+        try {
+            return Math.max(-1, Long.parseLong(text.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Grava a posição de um consumidor pelo log replicado.
+     * Formato: COMMIT_CURSOR|NOME|DESLOCAMENTO, com o deslocamento do próximo evento a ler.
+     */
+    private String handleCommitCursor(String[] parts) {
+        if (parts.length < 3) {
+            return "ERROR|Formato COMMIT_CURSOR inválido, esperado: COMMIT_CURSOR|NOME|DESLOCAMENTO";
+        }
+        return commitCursor(parts[1], parts[2].trim());
+    }
+    
+    private String commitCursor(String name, String offsetText) {
+        long offset;
+        try {
+            offset = Long.parseLong(offsetText);
+        } catch (NumberFormatException e) {
+            offset = -1;
+        }
+        if (name.isEmpty() || name.contains("|") || offset < 0) {
+            return "ERROR|Formato inválido: o nome do consumidor não pode ser vazio nem conter '|', " +
+                   "e o deslocamento deve ser um número não negativo";
+        }
+        if (submitOperation("COMMIT_CURSOR|" + name + "|" + offset) < 0) {
+            return "ERROR|Escrita não confirmada pela maioria do cluster";
+        }
+        return "SUCCESS|Posição do consumidor " + name + ": " + offset;
+    }
+    
+    /**
+     * Lê o corpo de uma requisição HTTP (Content-Length ou chunked) como texto UTF-8.
+     */
+    private static String readBody(String request, InputStream input) throws IOException {
+        return new String(HttpStreams.openBody(request, input).readAllBytes(), StandardCharsets.UTF_8);
     }
     
     /**
@@ -287,7 +905,7 @@ public class ComponentB extends BaseComponent {
     private String buildHTTPResponse(String status, String contentType, String body) {
         return "HTTP/1.1 " + status + "\r\n" +
                "Content-Type: " + contentType + "\r\n" +
-               "Content-Length: " + body.length() + "\r\n" +
+               "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
                "Connection: close\r\n" +
                "\r\n" +
                body;
@@ -0,0 +1,109 @@
+package component;
+
+import com.google.gson.Gson;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Combinação de incrementos concorrentes (INCRBY) de uma mesma chave.
+ * Enquanto uma entrada INCRBY de uma chave está em replicação, os incrementos seguintes dessa
+ * chave se acumulam e são registrados juntos na próxima entrada do log, no formato
+ * INCRBY|KEY|{"token": delta, ...}; a aplicação calcula o resultado de cada token na ordem
+ * em que chegaram. Cada chave tem sua própria fila e seu próprio monitor, de modo que
+ * contadores diferentes não disputam o mesmo lock, e um contador muito disputado gera uma
+ * entrada por rodada de replicação, e não uma por incremento.
+ */
+class CounterCombiner {
+    private final Gson gson = new Gson();
+    private final Function<String, CompletableFuture<Long>> proposer;
+    private final Consumer<Collection<String>> onRejected;
+    private final Map<String, KeyQueue> queues = new ConcurrentHashMap<>();
+    
+    /**
+     * Incrementos pendentes de uma chave.
+     */
+    private static class KeyQueue {
+        Map<String, Long> pending = new LinkedHashMap<>();
+        boolean proposing;
+        // Fila já removida do mapa; novos incrementos devem criar outra
+        boolean retired;
+    }
+    
+    /**
+     * Construtor para CounterCombiner.
+     * 
+     * @param proposer Submete uma operação ao log e devolve o futuro do seu índice (-1 se rejeitada)
+     * @param onRejected Recebe os tokens de um lote que não foi confirmado
+     */
+    CounterCombiner(Function<String, CompletableFuture<Long>> proposer, Consumer<Collection<String>> onRejected) {
+        this.proposer = proposer;
+        this.onRejected = onRejected;
+    }
+    
+    /**
+     * Acrescenta um incremento. Se não há entrada dessa chave em replicação, o lote é
+     * submetido imediatamente; caso contrário, segue com o próximo lote.
+     * 
+     * @param key Chave do contador
+     * @param token Identificador do resultado aguardado pelo cliente
+     * @param delta Valor a somar
+     */
+    void add(String key, String token, long delta) {
+        while (true) {
+            KeyQueue queue = queues.computeIfAbsent(key, k -> new KeyQueue());
+            boolean drive;
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                queue.pending.put(token, delta);
+                drive = !queue.proposing;
+                queue.proposing = true;
+            }
+            
+            if (drive) {
+                drain(key, queue);
+            }
+            return;
+        }
+    }
+    
+    /**
+     * Submete os lotes pendentes de uma chave, um por vez. Quando a submissão não termina de
+     * imediato, o próximo lote é submetido por quem concluir o futuro.
+     */
+    private void drain(String key, KeyQueue queue) {
+        while (true) {
+            Map<String, Long> batch;
+            synchronized (queue) {
+                if (queue.pending.isEmpty()) {
+                    queue.proposing = false;
+                    queue.retired = true;
+                    queues.remove(key, queue);
+                    return;
+                }
+                batch = queue.pending;
+                queue.pending = new LinkedHashMap<>();
+            }
+            
+            CompletableFuture<Long> future = proposer.apply("INCRBY|" + key + "|" + gson.toJson(batch));
+            if (!future.isDone()) {
+                future.whenComplete((index, error) -> {
+                    if (error != null || index < 0) {
+                        onRejected.accept(batch.keySet());
+                    }
+                    drain(key, queue);
+                });
+                return;
+            }
+            if (future.join() < 0) {
+                onRejected.accept(batch.keySet());
+            }
+        }
+    }
+}
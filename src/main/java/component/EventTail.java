@@ -0,0 +1,60 @@
+package component;
+
+import component.storage.EventStore;
+
+/**
+ * Espera por eventos novos do Componente B (READ com espera, long-poll e fluxo SSE de /events).
+ * Quem lê registra-se como aguardando e confere o tamanho do log; quem acrescenta publica o
+ * evento e só acorda os que aguardam se houver algum, de modo que um acréscimo sem leitores
+ * à espera custa apenas a leitura de um campo volátil. Como o registro e a publicação são
+ * escritas voláteis seguidas da leitura do outro lado, um acréscimo nunca passa despercebido
+ * por quem acabou de começar a esperar.
+ */
+class EventTail {
+    private final EventStore events;
+    private final Object monitor = new Object();
+    // Número de leitores aguardando eventos
+    private volatile int waiting = 0;
+    
+    EventTail(EventStore events) {
+        this.events = events;
+    }
+    
+    /**
+     * Aguarda até que exista um evento no deslocamento informado.
+     *
+     * @param offset Deslocamento do próximo evento a ler
+     * @param timeoutMs Tempo máximo de espera
+     * @return true se há eventos a partir do deslocamento, false se o prazo acabou
+     */
+    boolean await(long offset, long timeoutMs) throws InterruptedException {
+        if (events.size() > offset) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (monitor) {
+            waiting++;
+            try {
+                long remaining = timeoutMs;
+                while (events.size() <= offset && remaining > 0) {
+                    monitor.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                return events.size() > offset;
+            } finally {
+                waiting--;
+            }
+        }
+    }
+    
+    /**
+     * Acorda os leitores à espera. Chamado depois de cada acréscimo já publicado no log.
+     */
+    void signal() {
+        if (waiting > 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notificações de mudança de chaves (WATCH) do Componente A.
+ * Cada operação aplicada recebe uma revisão, que é o índice da operação no log replicado, de
+ * modo que todas as réplicas numeram as mudanças da mesma forma. As chaves alteradas pela
+ * operação são acumuladas e entregues juntas ao fim dela, de modo que uma inscrição recebe
+ * sempre revisões completas (um MSET nunca chega pela metade).
+ *
+ * As últimas mudanças ficam num histórico circular, a partir do qual um cliente retoma a
+ * inscrição depois da última revisão que recebeu. Cada inscrição tem uma fila própria e
+ * limitada, preenchida sem bloqueio por quem aplica o log: uma inscrição que não acompanha o
+ * ritmo das mudanças é encerrada com uma marca de ressincronização, em vez de atrasar a
+ * aplicação, e o cliente retoma a partir da última revisão recebida.
+ */
+class WatchHub {
+    // Número de revisões enfileiradas por inscrição antes de ela ser encerrada
+    private static final int SUBSCRIPTION_CAPACITY = 1024;
+    
+    private final Change[] history;
+    private int historyStart = 0;
+    private int historyCount = 0;
+    // Última revisão atribuída
+    private long revision;
+    // Revisões até esta (inclusive) não podem mais ser repetidas a partir do histórico
+    private long compactedRevision;
+    // Mudanças da revisão em andamento
+    private final List<Change> current = new ArrayList<>();
+    private final Map<String, Set<Subscription>> keySubscriptions = new HashMap<>();
+    private final List<Subscription> prefixSubscriptions = new ArrayList<>();
+    
+    /**
+     * Mudança de uma chave.
+     */
+    static final class Change {
+        final long revision;
+        final String key;
+        // Novo valor; null em remoções e em valores guardados em blocos
+        final String value;
+        final boolean deleted;
+        
+        Change(long revision, String key, String value, boolean deleted) {
+            this.revision = revision;
+            this.key = key;
+            this.value = value;
+            this.deleted = deleted;
+        }
+    }
+    
+    /**
+     * Mudanças de uma revisão que interessam a uma inscrição.
+     */
+    static final class Revision {
+        final long revision;
+        // null na marca de ressincronização
+        final List<Change> changes;
+        
+        Revision(long revision, List<Change> changes) {
+            this.revision = revision;
+            this.changes = changes;
+        }
+        
+        /**
+         * Verifica se é a marca de ressincronização que encerra uma inscrição.
+         */
+        boolean isResync() {
+            return changes == null;
+        }
+    }
+    
+    /**
+     * Inscrição numa chave ou num prefixo.
+     */
+    static final class Subscription {
+        final String key;
+        final String prefix;
+        // Revisão a partir da qual as mudanças são entregues (exclusive)
+        long startRevision;
+        private final BlockingQueue<Revision> queue = new LinkedBlockingQueue<>();
+        private boolean closed = false;
+        
+        private Subscription(String key, String prefix) {
+            this.key = key;
+            this.prefix = prefix;
+        }
+        
+        boolean matches(String changedKey) {
+            return key != null ? key.equals(changedKey) : changedKey.startsWith(prefix);
+        }
+        
+        /**
+         * Aguarda a próxima revisão.
+         *
+         * @param timeoutMs Tempo máximo de espera
+         * @return Revisão (ou a marca de ressincronização), ou null se o prazo acabou
+         */
+        Revision poll(long timeoutMs) throws InterruptedException {
+            return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        
+        /**
+         * Obtém uma revisão já enfileirada, sem esperar.
+         */
+        Revision pollNow() {
+            return queue.poll();
+        }
+        
+        /**
+         * Enfileira as mudanças de uma revisão que interessam a esta inscrição.
+         *
+         * @return false se a fila estava cheia; a inscrição foi encerrada com a marca de ressincronização
+         */
+        private synchronized boolean offer(long revision, List<Change> changes) {
+            if (closed) {
+                return true;
+            }
+            List<Change> matching = null;
+            for (Change change : changes) {
+                if (matches(change.key)) {
+                    if (matching == null) {
+                        matching = new ArrayList<>();
+                    }
+                    matching.add(change);
+                }
+            }
+            if (matching == null) {
+                return true;
+            }
+            if (queue.size() >= SUBSCRIPTION_CAPACITY) {
+                close(revision);
+                return false;
+            }
+            queue.add(new Revision(revision, matching));
+            return true;
+        }
+        
+        private synchronized void close(long revision) {
+            if (!closed) {
+                closed = true;
+                queue.add(new Revision(revision, null));
+            }
+        }
+    }
+    
+    /**
+     * Construtor para WatchHub.
+     *
+     * @param historySize Número de mudanças mantidas para retomada
+     * @param initialRevision Revisão do estado inicial (por exemplo, recuperado do disco)
+     */
+    WatchHub(int historySize, long initialRevision) {
+        this.history = new Change[Math.max(1, historySize)];
+        this.revision = initialRevision;
+        this.compactedRevision = initialRevision;
+    }
+    
+    /**
+     * Inicia a revisão de uma operação aplicada.
+     *
+     * @param index Índice da operação no log replicado, ou 0 se ela não foi replicada
+     */
+    synchronized void beginRevision(long index) {
+        // Mudanças de uma aplicação interrompida por erro ainda são entregues
+        endRevision();
+        revision = index > 0 ? index : revision + 1;
+    }
+    
+    /**
+     * Registra a mudança de uma chave na revisão em andamento.
+     *
+     * @param key Chave
+     * @param value Novo valor (null em valores guardados em blocos)
+     * @param deleted Se a chave foi removida
+     */
+    synchronized void publish(String key, String value, boolean deleted) {
+        current.add(new Change(revision, key, value, deleted));
+    }
+    
+    /**
+     * Conclui a revisão em andamento, guardando as suas mudanças no histórico e entregando-as
+     * às inscrições.
+     */
+    synchronized void endRevision() {
+        if (current.isEmpty()) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(current);
+        current.clear();
+        
+        for (Change change : changes) {
+            if (historyCount == history.length) {
+                compactedRevision = history[historyStart].revision;
+                historyStart = (historyStart + 1) % history.length;
+                historyCount--;
+            }
+            history[(historyStart + historyCount) % history.length] = change;
+            historyCount++;
+        }
+        
+        Set<String> notified = new HashSet<>();
+        for (Change change : changes) {
+            Set<Subscription> exact = notified.add(change.key) ? keySubscriptions.get(change.key) : null;
+            if (exact != null) {
+                exact.removeIf(subscription -> !subscription.offer(revision, changes));
+                if (exact.isEmpty()) {
+                    keySubscriptions.remove(change.key);
+                }
+            }
+        }
+        prefixSubscriptions.removeIf(subscription -> !subscription.offer(revision, changes));
+    }
+    
+    /**
+     * Descarta o histórico e encerra todas as inscrições, cujas chaves podem ter mudado sem
+     * notificação (instalação de um snapshot).
+     *
+     * @param newRevision Revisão do novo estado
+     */
+    synchronized void reset(long newRevision) {
+        revision = newRevision;
+        compactedRevision = newRevision;
+        current.clear();
+        historyStart = 0;
+        historyCount = 0;
+        for (Set<Subscription> subscriptions : keySubscriptions.values()) {
+            subscriptions.forEach(subscription -> subscription.close(newRevision));
+        }
+        prefixSubscriptions.forEach(subscription -> subscription.close(newRevision));
+        keySubscriptions.clear();
+        prefixSubscriptions.clear();
+    }
+    
+    /**
+     * Inscreve-se nas mudanças de uma chave ou de um prefixo, posteriores a uma revisão.
+     * As mudanças do histórico depois dessa revisão são enfileiradas antes das novas.
+     *
+     * @param key Chave, ou null para inscrição por prefixo
+     * @param prefix Prefixo (usado quando key é null)
+     * @param afterRevision Última revisão já recebida pelo cliente, ou -1 para começar na atual
+     * @return Inscrição, ou null se as mudanças posteriores à revisão já saíram do histórico
+     */
+    synchronized Subscription subscribe(String key, String prefix, long afterRevision) {
+        if (afterRevision >= 0 && afterRevision < compactedRevision) {
+            return null;
+        }
+        
+        Subscription subscription = new Subscription(key, prefix);
+        subscription.startRevision = afterRevision >= 0 ? afterRevision : revision;
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i <= historyCount; i++) {
+            Change change = i < historyCount ? history[(historyStart + i) % history.length] : null;
+            if (!changes.isEmpty() && (change == null || change.revision != changes.get(0).revision)) {
+                if (!subscription.offer(changes.get(0).revision, changes)) {
+                    return subscription;
+                }
+                changes.clear();
+            }
+            if (change != null && change.revision > subscription.startRevision) {
+                changes.add(change);
+            }
+        }
+        
+        if (key != null) {
+            keySubscriptions.computeIfAbsent(key, k -> new HashSet<>()).add(subscription);
+        } else {
+            prefixSubscriptions.add(subscription);
+        }
+        return subscription;
+    }
+    
+    /**
+     * Cancela uma inscrição.
+     */
+    synchronized void unsubscribe(Subscription subscription) {
+        if (subscription.key != null) {
+            Set<Subscription> subscriptions = keySubscriptions.get(subscription.key);
+            if (subscriptions != null) {
+                subscriptions.remove(subscription);
+                if (subscriptions.isEmpty()) {
+                    keySubscriptions.remove(subscription.key);
+                }
+            }
+        } else {
+            prefixSubscriptions.remove(subscription);
+        }
+    }
+    
+    /**
+     * Obtém a revisão até a qual uma inscrição já recebeu todas as mudanças, para avisos de
+     * progresso a partir dos quais o cliente pode retomar.
+     *
+     * @return Última revisão concluída, ou -1 se ainda há revisões na fila da inscrição
+     */
+    synchronized long progressOf(Subscription subscription) {
+        return subscription.queue.isEmpty() ? Math.max(subscription.startRevision, revision - (current.isEmpty() ? 0 : 1)) : -1;
+    }
+    
+    /**
+     * Obtém a revisão mais recente que não pode mais ser retomada a partir do histórico.
+     */
+    synchronized long getCompactedRevision() {
+        return compactedRevision;
+    }
+}
@@ -0,0 +1,670 @@
+package component.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Armazenamento chave-valor durável no estilo Bitcask.
+ * Toda escrita é acrescentada ao segmento ativo (data-N.log) no formato
+ * [CRC32][SEQUÊNCIA][ÍNDICE_DO_LOG][TAMANHO_CHAVE][TAMANHO_VALOR][CHAVE][VALOR], em que um
+ * tamanho de valor -1 marca uma remoção. O keydir, em memória, guarda para cada chave o
+ * segmento e a posição do valor, de modo que uma leitura custa um único acesso: por um
+ * MappedByteBuffer nos segmentos imutáveis, ou por leitura posicional no segmento ativo.
+ * 
+ * Quando o segmento ativo atinge o tamanho configurado, ele é fechado para escrita, mapeado
+ * em memória e ganha um arquivo de dicas (data-N.hint) com as chaves e posições dos seus
+ * registros. Uma tarefa em segundo plano mescla os segmentos imutáveis quando a fração de
+ * bytes vivos cai abaixo do limite: os registros vivos são copiados para novos segmentos
+ * (com as respectivas dicas) e os antigos são apagados.
+ * 
+ * Na inicialização, o keydir é reconstruído pelas dicas (ou pela leitura dos segmentos sem
+ * dica), sem ler os valores. Como a mesclagem gera segmentos com registros antigos, a ordem
+ * entre registros de uma chave é dada pela sequência gravada, e não pelo número do segmento.
+ * O maior índice do log gravado indica até onde o estado foi aplicado, o que permite ao nó
+ * retomar a replicação a partir dele.
+ * 
+ * O keydir é um mapa ordenado (skip list), o que atende também às varreduras por intervalo.
+ */
+public class BitcaskStore implements KeyValueStore {
+    private static final Logger LOGGER = Logger.getLogger(BitcaskStore.class.getName());
+    
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 4 + 4;
+    private static final int HINT_HEADER_BYTES = 8 + 8 + 4 + 4 + 8;
+    private static final int TOMBSTONE = -1;
+    
+    private final Path directory;
+    private final long segmentBytes;
+    private final int minLivePercent;
+    private final boolean fsync;
+    
+    // Keydir e segmentos
+    private final ConcurrentNavigableMap<String, Location> keydir = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment active;
+    private int nextSegmentId = 1;
+    private long nextSequence = 1;
+    private volatile long appliedIndex = 0;
+    
+    // Escritas e mesclagem são serializadas entre si por estes monitores
+    private final Object writeLock = new Object();
+    private final Object mergeLock = new Object();
+    private final ScheduledExecutorService merger;
+    
+    /**
+     * Posição do valor mais recente de uma chave.
+     */
+    private static final class Location {
+        final int segmentId;
+        final long valuePosition;
+        final int valueLength;
+        final int recordBytes;
+        final long sequence;
+        
+        Location(int segmentId, long valuePosition, int valueLength, int recordBytes, long sequence) {
+            this.segmentId = segmentId;
+            this.valuePosition = valuePosition;
+            this.valueLength = valueLength;
+            this.recordBytes = recordBytes;
+            this.sequence = sequence;
+        }
+    }
+    
+    /**
+     * Arquivo de dados; mapeado em memória depois de fechado para escrita.
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        volatile MappedByteBuffer mapped;
+        long size;
+        final AtomicLong liveBytes = new AtomicLong();
+        
+        Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+    
+    /**
+     * Construtor para BitcaskStore. Abre (ou cria) o diretório e reconstrói o keydir.
+     * 
+     * @param directory Diretório dos segmentos
+     * @param segmentBytes Tamanho máximo de um segmento em bytes
+     * @param minLivePercent Percentual mínimo de bytes vivos abaixo do qual os segmentos são mesclados
+     * @param mergeIntervalMs Intervalo entre verificações de mesclagem
+     * @param fsync Se cada escrita deve ser forçada para o disco
+     * @throws IOException Se o diretório não puder ser lido ou criado
+     */
+    public BitcaskStore(Path directory, long segmentBytes, int minLivePercent, long mergeIntervalMs,
+                        boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, Math.min(Integer.MAX_VALUE, segmentBytes));
+        this.minLivePercent = Math.max(0, Math.min(100, minLivePercent));
+        this.fsync = fsync;
+        
+        Files.createDirectories(directory);
+        load();
+        
+        this.merger = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bitcask-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        merger.scheduleWithFixedDelay(this::mergeIfNeeded, mergeIntervalMs, mergeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public String get(String key) {
+        while (true) {
+            Location location = keydir.get(key);
+            if (location == null) {
+                return null;
+            }
+            
+            // Segmento apagado por uma mesclagem: o keydir já aponta para a nova posição
+            Segment segment = segments.get(location.segmentId);
+            if (segment != null) {
+                try {
+                    return new String(readValue(segment, location), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    if (segments.containsKey(location.segmentId)) {
+                        throw new IllegalStateException("Falha ao ler o valor da chave " + key, e);
+                    }
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void put(String key, String value) {
+        write(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public boolean remove(String key) {
+        if (!keydir.containsKey(key)) {
+            return false;
+        }
+        return write(key, null) != null;
+    }
+    
+    @Override
+    public int size() {
+        return keydir.size();
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        return new ArrayList<>(keydir.keySet());
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        ConcurrentNavigableMap<String, Location> range = to != null ? keydir.subMap(from, true, to, false)
+                                                                     : keydir.tailMap(from, true);
+        List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+        for (String key : range.keySet()) {
+            if (keys.size() >= limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        Map<String, String> map = new HashMap<>(keydir.size() * 2);
+        for (String key : keydir.keySet()) {
+            String value = get(key);
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+    
+    @Override
+    public void replaceAll(Map<String, String> entries) {
+        Set<String> obsolete = new HashSet<>(keydir.keySet());
+        obsolete.removeAll(entries.keySet());
+        for (String key : obsolete) {
+            remove(key);
+        }
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Override
+    public long getAppliedIndex() {
+        return appliedIndex;
+    }
+    
+    @Override
+    public void setAppliedIndex(long index) {
+        // Gravado nos registros seguintes; sem escrita própria
+        appliedIndex = index;
+    }
+    
+    @Override
+    public void close() {
+        // Sem interrupção: um canal interrompido durante a mesclagem seria fechado
+        merger.shutdown();
+        synchronized (mergeLock) {
+            synchronized (writeLock) {
+                for (Segment segment : segments.values()) {
+                    try {
+                        if (segment == active) {
+                            segment.channel.force(false);
+                        }
+                        segment.channel.close();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Erro ao fechar o segmento " + segment.path, e);
+                    }
+                }
+                segments.clear();
+                keydir.clear();
+            }
+        }
+    }
+    
+    /**
+     * Acrescenta um registro ao segmento ativo e atualiza o keydir.
+     * 
+     * @param value Valor, ou null para uma remoção
+     * @return Posição anterior da chave, ou null se ela não existia
+     */
+    private Location write(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value != null ? value.length : TOMBSTONE;
+        int recordBytes = HEADER_BYTES + keyBytes.length + Math.max(0, valueLength);
+        
+        synchronized (writeLock) {
+            try {
+                if (active.size + recordBytes > segmentBytes && active.size > 0) {
+                    rollActiveSegment();
+                }
+                
+                long sequence = nextSequence++;
+                ByteBuffer record = encodeRecord(sequence, appliedIndex, keyBytes, value);
+                long position = active.size;
+                while (record.hasRemaining()) {
+                    active.channel.write(record, position + record.position());
+                }
+                active.size += recordBytes;
+                if (fsync) {
+                    active.channel.force(false);
+                }
+                
+                Location previous;
+                if (value != null) {
+                    Location location = new Location(active.id, position + HEADER_BYTES + keyBytes.length,
+                                                     valueLength, recordBytes, sequence);
+                    active.liveBytes.addAndGet(recordBytes);
+                    previous = keydir.put(key, location);
+                } else {
+                    previous = keydir.remove(key);
+                }
+                
+                if (previous != null) {
+                    Segment previousSegment = segments.get(previous.segmentId);
+                    if (previousSegment != null) {
+                        previousSegment.liveBytes.addAndGet(-previous.recordBytes);
+                    }
+                }
+                return previous;
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao gravar no segmento " + active.path, e);
+            }
+        }
+    }
+    
+    private static ByteBuffer encodeRecord(long sequence, long index, byte[] key, byte[] value) {
+        int valueLength = value != null ? value.length : TOMBSTONE;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + key.length + Math.max(0, valueLength));
+        record.putInt(0).putLong(sequence).putLong(index).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+    
+    /**
+     * Fecha o segmento ativo para escrita, mapeia-o e grava a sua dica. Chamado com writeLock.
+     */
+    private void rollActiveSegment() throws IOException {
+        seal(active);
+        active = createSegment();
+    }
+    
+    /**
+     * Torna um segmento imutável: grava a sua dica e passa a lê-lo pelo mapeamento em memória.
+     * Só depois disso o segmento pode ser escolhido para uma mesclagem.
+     */
+    private void seal(Segment segment) throws IOException {
+        segment.channel.force(false);
+        MappedByteBuffer mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        if (!Files.exists(hintPath(segment.path))) {
+            writeHint(segment, mapped);
+        }
+        segment.mapped = mapped;
+    }
+    
+    private Segment createSegment() throws IOException {
+        int id = nextSegmentId++;
+        Path path = directory.resolve(String.format("data-%08d.log", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, 0);
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    private static byte[] readValue(Segment segment, Location location) throws IOException {
+        byte[] value = new byte[location.valueLength];
+        MappedByteBuffer mapped = segment.mapped;
+        if (mapped != null) {
+            ByteBuffer in = mapped.duplicate();
+            in.position((int) location.valuePosition);
+            in.get(value);
+            return value;
+        }
+        
+        // Segmento ativo: leitura posicional, segura entre threads
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        while (buffer.hasRemaining()) {
+            if (segment.channel.read(buffer, location.valuePosition + buffer.position()) < 0) {
+                throw new IOException("Fim inesperado do segmento " + segment.path);
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Reconstrói o keydir a partir das dicas e dos segmentos existentes.
+     * Os segmentos encontrados tornam-se imutáveis e as escritas seguem para um segmento novo.
+     */
+    private void load() throws IOException {
+        List<Path> dataFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "data-*.log")) {
+            for (Path path : stream) {
+                dataFiles.add(path);
+            }
+        }
+        dataFiles.sort(null);
+        
+        // Remoções e versões antigas só podem ser descartadas depois de todos os segmentos lidos
+        Map<String, Location> latest = new HashMap<>();
+        for (Path path : dataFiles) {
+            String name = path.getFileName().toString();
+            int id = Integer.parseInt(name.substring(5, name.length() - 4));
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+            
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(id, path, channel, channel.size());
+            Path hint = hintPath(path);
+            if (Files.exists(hint)) {
+                loadHint(segment, hint, latest);
+            } else {
+                scanSegment(segment, latest);
+            }
+            
+            if (segment.size == 0) {
+                channel.close();
+                Files.deleteIfExists(hint);
+                Files.delete(path);
+                continue;
+            }
+            seal(segment);
+            segments.put(id, segment);
+        }
+        
+        for (Map.Entry<String, Location> entry : latest.entrySet()) {
+            Location location = entry.getValue();
+            if (location.valueLength != TOMBSTONE) {
+                keydir.put(entry.getKey(), location);
+                segments.get(location.segmentId).liveBytes.addAndGet(location.recordBytes);
+            }
+        }
+        
+        active = createSegment();
+    }
+    
+    /**
+     * Lê os registros de um segmento sem dica (o segmento ativo antes da parada, ou a saída de
+     * uma mesclagem interrompida). Um registro incompleto ou corrompido no final, deixado por
+     * uma escrita interrompida, é descartado e o arquivo é truncado.
+     */
+    private void scanSegment(Segment segment, Map<String, Location> latest) throws IOException {
+        ByteBuffer data = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        long position = 0;
+        CRC32 crc = new CRC32();
+        
+        while (position + HEADER_BYTES <= segment.size) {
+            data.position((int) position);
+            int storedCrc = data.getInt();
+            long sequence = data.getLong();
+            long index = data.getLong();
+            int keyLength = data.getInt();
+            int valueLength = data.getInt();
+            int recordBytes = HEADER_BYTES + keyLength + Math.max(0, valueLength);
+            if (keyLength < 0 || valueLength < TOMBSTONE || position + recordBytes > segment.size) {
+                break;
+            }
+            
+            ByteBuffer body = data.duplicate();
+            body.position((int) position + 4).limit((int) position + recordBytes);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            
+            byte[] key = new byte[keyLength];
+            data.get(key);
+            track(latest, new String(key, StandardCharsets.UTF_8),
+                  new Location(segment.id, position + HEADER_BYTES + keyLength, valueLength, recordBytes, sequence),
+                  index);
+            position += recordBytes;
+        }
+        
+        if (position < segment.size) {
+            LOGGER.warning("Descartando " + (segment.size - position) + " bytes inválidos do final de " + segment.path);
+            segment.channel.truncate(position);
+            segment.size = position;
+        }
+    }
+    
+    private void loadHint(Segment segment, Path hint, Map<String, Location> latest) throws IOException {
+        try (FileChannel channel = FileChannel.open(hint, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (data.remaining() >= HINT_HEADER_BYTES) {
+                long sequence = data.getLong();
+                long index = data.getLong();
+                int keyLength = data.getInt();
+                int valueLength = data.getInt();
+                long valuePosition = data.getLong();
+                byte[] key = new byte[keyLength];
+                data.get(key);
+                
+                int recordBytes = HEADER_BYTES + keyLength + Math.max(0, valueLength);
+                track(latest, new String(key, StandardCharsets.UTF_8),
+                      new Location(segment.id, valuePosition, valueLength, recordBytes, sequence), index);
+            }
+        }
+    }
+    
+    private void track(Map<String, Location> latest, String key, Location location, long index) {
+        Location current = latest.get(key);
+        if (current == null || current.sequence < location.sequence) {
+            latest.put(key, location);
+        }
+        nextSequence = Math.max(nextSequence, location.sequence + 1);
+        appliedIndex = Math.max(appliedIndex, index);
+    }
+    
+    /**
+     * Grava a dica de um segmento imutável: as chaves e posições dos seus registros.
+     */
+    private void writeHint(Segment segment, MappedByteBuffer mapped) throws IOException {
+        ByteBuffer data = mapped.duplicate();
+        Path temporary = hintPath(segment.path).resolveSibling(hintPath(segment.path).getFileName() + ".tmp");
+        
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long position = 0;
+            while (position + HEADER_BYTES <= segment.size) {
+                data.position((int) position + 4);
+                long sequence = data.getLong();
+                long index = data.getLong();
+                int keyLength = data.getInt();
+                int valueLength = data.getInt();
+                byte[] key = new byte[keyLength];
+                data.get(key);
+                
+                if (buffer.remaining() < HINT_HEADER_BYTES + keyLength) {
+                    flush(out, buffer);
+                    if (buffer.capacity() < HINT_HEADER_BYTES + keyLength) {
+                        buffer = ByteBuffer.allocate(HINT_HEADER_BYTES + keyLength);
+                    }
+                }
+                buffer.putLong(sequence).putLong(index).putInt(keyLength).putInt(valueLength)
+                      .putLong(position + HEADER_BYTES + keyLength).put(key);
+                position += HEADER_BYTES + keyLength + Math.max(0, valueLength);
+            }
+            flush(out, buffer);
+            out.force(false);
+        }
+        Files.move(temporary, hintPath(segment.path), StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private static Path hintPath(Path dataPath) {
+        String name = dataPath.getFileName().toString();
+        return dataPath.resolveSibling(name.substring(0, name.length() - 4) + ".hint");
+    }
+    
+    /**
+     * Mescla os segmentos imutáveis se a fração de bytes vivos estiver abaixo do limite.
+     */
+    private void mergeIfNeeded() {
+        try {
+            synchronized (mergeLock) {
+                List<Segment> inputs = new ArrayList<>();
+                long total = 0;
+                long live = 0;
+                for (Segment segment : segments.values()) {
+                    if (segment != active && segment.mapped != null) {
+                        inputs.add(segment);
+                        total += segment.size;
+                        live += segment.liveBytes.get();
+                    }
+                }
+                
+                if (inputs.isEmpty() || live * 100 >= total * minLivePercent) {
+                    return;
+                }
+                merge(inputs);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Falha na mesclagem dos segmentos em " + directory, e);
+        }
+    }
+    
+    /**
+     * Copia os registros vivos dos segmentos informados para novos segmentos e apaga os antigos.
+     * Remoções não são copiadas: todos os segmentos mais antigos participam da mesma mesclagem.
+     */
+    private void merge(List<Segment> inputs) throws IOException {
+        Set<Integer> inputIds = new HashSet<>();
+        for (Segment segment : inputs) {
+            inputIds.add(segment.id);
+        }
+        
+        // Posições vivas nos segmentos mesclados, agrupadas por segmento
+        Map<Integer, List<Map.Entry<String, Location>>> liveBySegment = new HashMap<>();
+        for (Map.Entry<String, Location> entry : keydir.entrySet()) {
+            if (inputIds.contains(entry.getValue().segmentId)) {
+                liveBySegment.computeIfAbsent(entry.getValue().segmentId, id -> new ArrayList<>()).add(entry);
+            }
+        }
+        
+        Segment output = null;
+        List<Segment> outputs = new ArrayList<>();
+        for (Segment input : inputs) {
+            List<Map.Entry<String, Location>> entries = liveBySegment.get(input.id);
+            if (entries == null) {
+                continue;
+            }
+            
+            for (Map.Entry<String, Location> entry : entries) {
+                Location location = entry.getValue();
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer in = input.mapped.duplicate();
+                in.position((int) (location.valuePosition - HEADER_BYTES - key.length + 12));
+                long index = in.getLong();
+                byte[] value = readValue(input, location);
+                
+                if (output == null || output.size + location.recordBytes > segmentBytes) {
+                    if (output != null) {
+                        seal(output);
+                    }
+                    output = createMergeOutput();
+                    outputs.add(output);
+                }
+                
+                ByteBuffer record = encodeRecord(location.sequence, index, key, value);
+                long position = output.size;
+                while (record.hasRemaining()) {
+                    output.channel.write(record, position + record.position());
+                }
+                output.size += location.recordBytes;
+                
+                Location moved = new Location(output.id, position + HEADER_BYTES + key.length,
+                                              location.valueLength, location.recordBytes, location.sequence);
+                // Só substitui se a chave não foi alterada durante a mesclagem
+                if (keydir.replace(entry.getKey(), location, moved)) {
+                    output.liveBytes.addAndGet(location.recordBytes);
+                }
+            }
+        }
+        if (output != null) {
+            seal(output);
+        }
+        
+        for (Segment input : inputs) {
+            segments.remove(input.id);
+            input.channel.close();
+            Files.deleteIfExists(hintPath(input.path));
+            Files.deleteIfExists(input.path);
+        }
+        LOGGER.info("Mesclagem concluída em " + directory + ": " + inputs.size() + " segmentos em " + outputs.size());
+    }
+    
+    /**
+     * Cria um segmento de saída da mesclagem. Até ser selado, ele é lido pelo canal, como o ativo.
+     */
+    private Segment createMergeOutput() throws IOException {
+        synchronized (writeLock) {
+            return createSegment();
+        }
+    }
+    
+    /**
+     * Cria um armazenamento no diretório informado, relativo ao diretório de trabalho.
+     * 
+     * @param directory Caminho do diretório
+     * @param segmentBytes Tamanho máximo de um segmento em bytes
+     * @param minLivePercent Percentual mínimo de bytes vivos
+     * @param mergeIntervalMs Intervalo entre verificações de mesclagem
+     * @param fsync Se cada escrita deve ser forçada para o disco
+     * @return Armazenamento aberto
+     * @throws IOException Se o diretório não puder ser aberto
+     */
+    public static BitcaskStore open(String directory, long segmentBytes, int minLivePercent,
+                                    long mergeIntervalMs, boolean fsync) throws IOException {
+        return new BitcaskStore(Paths.get(directory), segmentBytes, minLivePercent, mergeIntervalMs, fsync);
+    }
+}
@@ -0,0 +1,288 @@
+package component.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Armazenamento com limite de memória: envolve outro mecanismo, contabiliza o tamanho
+ * estimado de cada entrada e mantém uma política de remoção (EvictionPolicy) atualizada.
+ * Não remove nada por conta própria: quem usa o armazenamento consulta isOverBudget e pede
+ * as vítimas a selectVictims, o que permite ao Componente A decidir as remoções no líder e
+ * replicá-las pelo log, como faz com as chaves expiradas.
+ * 
+ * O tamanho de cada entrada é acompanhado de forma incremental num mapa concorrente, de modo
+ * que o total usado é sempre exato sem percorrer os dados. A política, por sua vez, não é
+ * thread-safe e não fica no caminho das requisições: leituras e escritas apenas registram a
+ * chave em buffers (as leituras em buffers por thread que descartam eventos quando cheios,
+ * como no Caffeine), e quem obtiver o lock de manutenção com tryLock drena os buffers na
+ * política. Nenhuma leitura ou escrita espera por esse lock.
+ */
+public class BoundedStore implements KeyValueStore {
+    // Custo fixo estimado de uma entrada no heap: nó do mapa, cabeçalhos das Strings e índices
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int READ_BUFFER_CAPACITY = 128;
+    // Número de leituras num buffer que dispara a drenagem
+    private static final int READ_DRAIN_THRESHOLD = 32;
+    
+    private final KeyValueStore delegate;
+    private final long maxBytes;
+    private final EvictionPolicy policy;
+    // Chaves que contam no total mas nunca são escolhidas para remoção (ex.: dados locais do nó)
+    private final Predicate<String> pinned;
+    
+    private final Map<String, Integer> weights = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final List<ArrayBlockingQueue<String>> readBuffers = new ArrayList<>();
+    // Chaves gravadas ou removidas desde a última drenagem; o estado atual vem de weights
+    private final Queue<String> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    
+    /**
+     * Construtor para BoundedStore. As chaves já presentes no armazenamento (por exemplo,
+     * recuperadas do disco) entram na contabilidade.
+     * 
+     * @param delegate Mecanismo de armazenamento envolvido
+     * @param maxBytes Limite de memória em bytes
+     * @param policy Política de remoção
+     * @param pinned Identifica as chaves que nunca são removidas
+     */
+    public BoundedStore(KeyValueStore delegate, long maxBytes, EvictionPolicy policy, Predicate<String> pinned) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.pinned = pinned;
+        
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        for (int i = 0; i < stripes; i++) {
+            readBuffers.add(new ArrayBlockingQueue<>(READ_BUFFER_CAPACITY));
+        }
+        
+        for (String key : delegate.keys()) {
+            String value = delegate.get(key);
+            if (value != null) {
+                account(key, value);
+            }
+        }
+        tryDrain();
+    }
+    
+    @Override
+    public String get(String key) {
+        String value = delegate.get(key);
+        if (value != null && !pinned.test(key)) {
+            ArrayBlockingQueue<String> buffer = readBuffers.get(
+                (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (readBuffers.size() - 1));
+            // Buffer cheio: a leitura é descartada, o que só torna a ordem de acesso aproximada
+            if (buffer.offer(key) && buffer.size() >= READ_DRAIN_THRESHOLD) {
+                tryDrain();
+            }
+        }
+        return value;
+    }
+    
+    @Override
+    public void put(String key, String value) {
+        delegate.put(key, value);
+        account(key, value);
+        tryDrain();
+    }
+    
+    @Override
+    public void putAll(Map<String, String> entries) {
+        delegate.putAll(entries);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            account(entry.getKey(), entry.getValue());
+        }
+        tryDrain();
+    }
+    
+    @Override
+    public boolean remove(String key) {
+        boolean removed = delegate.remove(key);
+        Integer previous = weights.remove(key);
+        if (previous != null) {
+            usedBytes.addAndGet(-previous);
+            writeBuffer.add(key);
+            tryDrain();
+        }
+        return removed;
+    }
+    
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        return delegate.keys();
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        return delegate.keysInRange(from, to, limit);
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        return delegate.toMap();
+    }
+    
+    @Override
+    public void replaceAll(Map<String, String> entries) {
+        maintenanceLock.lock();
+        try {
+            delegate.replaceAll(entries);
+            weights.clear();
+            usedBytes.set(0);
+            writeBuffer.clear();
+            for (ArrayBlockingQueue<String> buffer : readBuffers) {
+                buffer.clear();
+            }
+            policy.clear();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                account(entry.getKey(), entry.getValue());
+            }
+            drain();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+    
+    @Override
+    public long getAppliedIndex() {
+        return delegate.getAppliedIndex();
+    }
+    
+    @Override
+    public void setAppliedIndex(long index) {
+        delegate.setAppliedIndex(index);
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+    
+    /**
+     * Obtém o total estimado de memória ocupada pelas entradas.
+     * 
+     * @return Bytes usados
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    /**
+     * Obtém o limite de memória.
+     * 
+     * @return Limite em bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    /**
+     * Verifica se o total estimado passou do limite.
+     * 
+     * @return true se é preciso remover chaves
+     */
+    public boolean isOverBudget() {
+        return usedBytes.get() > maxBytes;
+    }
+    
+    /**
+     * Escolhe chaves a remover até somar os bytes pedidos. As chaves escolhidas deixam de ser
+     * acompanhadas pela política, mas continuam no armazenamento até serem removidas; se a
+     * remoção não acontecer, devem ser devolvidas com retain.
+     * 
+     * @param bytesToFree Bytes a liberar
+     * @param maxKeys Número máximo de chaves
+     * @return Chaves escolhidas, na ordem da política
+     */
+    public List<String> selectVictims(long bytesToFree, int maxKeys) {
+        List<String> victims = new ArrayList<>();
+        maintenanceLock.lock();
+        try {
+            drain();
+            long freed = 0;
+            while (freed < bytesToFree && victims.size() < maxKeys) {
+                String key = policy.nextVictim();
+                if (key == null) {
+                    break;
+                }
+                Integer weight = weights.get(key);
+                if (weight != null) {
+                    victims.add(key);
+                    freed += weight;
+                }
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+        return victims;
+    }
+    
+    /**
+     * Devolve à política chaves escolhidas por selectVictims que não foram removidas.
+     * 
+     * @param keys Chaves
+     */
+    public void retain(Collection<String> keys) {
+        writeBuffer.addAll(keys);
+        tryDrain();
+    }
+    
+    /**
+     * Estima o tamanho de uma entrada no heap (dois bytes por caractere) e atualiza o total.
+     */
+    private void account(String key, String value) {
+        int weight = ENTRY_OVERHEAD + 2 * (key.length() + value.length());
+        Integer previous = weights.put(key, weight);
+        usedBytes.addAndGet(previous != null ? weight - previous : weight);
+        if (!pinned.test(key)) {
+            writeBuffer.add(key);
+        }
+    }
+    
+    private void tryDrain() {
+        if (maintenanceLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                maintenanceLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Aplica na política os eventos registrados. Deve ser chamado com o lock de manutenção.
+     * Uma chave do buffer de escritas é conferida com o mapa de tamanhos, de modo que a
+     * ordem entre gravações e remoções concorrentes da mesma chave não importa.
+     */
+    private void drain() {
+        String key;
+        while ((key = writeBuffer.poll()) != null) {
+            Integer weight = weights.get(key);
+            if (weight != null) {
+                policy.onWrite(key, weight);
+            } else {
+                policy.onRemove(key);
+            }
+        }
+        for (ArrayBlockingQueue<String> buffer : readBuffers) {
+            while ((key = buffer.poll()) != null) {
+                policy.onAccess(key);
+            }
+        }
+    }
+}
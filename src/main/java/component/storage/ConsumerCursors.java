@@ -0,0 +1,235 @@
+package component.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Posições dos consumidores nomeados do log de eventos: cada consumidor grava o deslocamento
+ * do próximo evento que vai ler e retoma a leitura dele, sem reler o histórico.
+ *
+ * Em disco, cada gravação é acrescentada a um arquivo no formato
+ * [CRC32][TAMANHO][DESLOCAMENTO][NOME], o que custa o mesmo qualquer que seja o número de
+ * consumidores. Ao reabrir, o arquivo é relido e a última posição de cada nome prevalece; um
+ * registro incompleto no final é descartado. Quando os registros acumulados passam de
+ * COMPACTION_FACTOR vezes o número de consumidores, o arquivo é regravado só com as posições
+ * atuais, por um arquivo temporário renomeado no final.
+ */
+public class ConsumerCursors {
+    private static final Logger LOGGER = Logger.getLogger(ConsumerCursors.class.getName());
+    
+    private static final int HEADER_BYTES = 4 + 4;
+    private static final int COMPACTION_FACTOR = 4;
+    private static final int COMPACTION_MIN_RECORDS = 1024;
+    
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+    // Arquivo das posições; null mantém as posições apenas em memória
+    private final Path file;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long position = 0;
+    private long records = 0;
+    
+    /**
+     * Construtor para posições mantidas apenas em memória.
+     */
+    public ConsumerCursors() {
+        this.file = null;
+        this.fsync = false;
+    }
+    
+    /**
+     * Construtor para ConsumerCursors em disco. Abre (ou cria) o arquivo e recupera as posições.
+     *
+     * @param file Arquivo das posições
+     * @param fsync Se cada gravação deve ser forçada para o disco
+     * @throws IOException Se o arquivo não puder ser lido ou criado
+     */
+    public ConsumerCursors(Path file, boolean fsync) throws IOException {
+        this.file = file;
+        this.fsync = fsync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        load();
+    }
+    
+    /**
+     * Obtém a posição de um consumidor.
+     *
+     * @param name Nome do consumidor
+     * @return Deslocamento do próximo evento a ler (0 para um consumidor novo)
+     */
+    public long get(String name) {
+        return offsets.getOrDefault(name, 0L);
+    }
+    
+    /**
+     * Grava a posição de um consumidor.
+     *
+     * @param name Nome do consumidor
+     * @param offset Deslocamento do próximo evento a ler
+     */
+    public synchronized void commit(String name, long offset) {
+        offsets.put(name, offset);
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteBuffer record = encodeRecord(name, offset);
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            position += length;
+            records++;
+            if (records > Math.max(COMPACTION_MIN_RECORDS, (long) COMPACTION_FACTOR * offsets.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar a posição do consumidor " + name + " em " + file, e);
+        }
+    }
+    
+    /**
+     * Obtém uma cópia das posições de todos os consumidores.
+     *
+     * @return Posições por nome
+     */
+    public Map<String, Long> toMap() {
+        return new HashMap<>(offsets);
+    }
+    
+    /**
+     * Descarta as posições de todos os consumidores.
+     */
+    public synchronized void clear() {
+        offsets.clear();
+        if (file == null) {
+            return;
+        }
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            position = 0;
+            records = 0;
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao limpar as posições dos consumidores em " + file, e);
+        }
+    }
+    
+    /**
+     * Força para o disco as posições já gravadas.
+     *
+     * @throws IOException Se a sincronização falhar
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+    
+    /**
+     * Libera o arquivo das posições.
+     */
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erro ao fechar as posições dos consumidores em " + file, e);
+        }
+    }
+    
+    /**
+     * Relê o arquivo, mantendo a última posição gravada de cada nome. Um registro incompleto
+     * ou corrompido no final é descartado com o que vem depois dele.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+            // Lê o arquivo inteiro
+        }
+        data.flip();
+        
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= HEADER_BYTES) {
+            int start = data.position();
+            int storedCrc = data.getInt();
+            int length = data.getInt();
+            if (length < 8 || length > data.remaining()) {
+                data.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != storedCrc) {
+                data.position(start);
+                break;
+            }
+            long offset = data.getLong();
+            byte[] name = new byte[length - 8];
+            data.get(name);
+            offsets.put(new String(name, StandardCharsets.UTF_8), offset);
+            records++;
+        }
+        position = data.position();
+        
+        if (position < size) {
+            LOGGER.warning("Descartando " + (size - position) + " bytes inválidos do final de " + file);
+            channel.truncate(position);
+            channel.force(false);
+        }
+    }
+    
+    /**
+     * Regrava o arquivo só com as posições atuais.
+     */
+    private void compact() throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long written = 0;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                ByteBuffer record = encodeRecord(entry.getKey(), entry.getValue());
+                while (record.hasRemaining()) {
+                    written += out.write(record);
+                }
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        position = written;
+        records = offsets.size();
+    }
+    
+    private static ByteBuffer encodeRecord(String name, long offset) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + 8 + nameBytes.length);
+        record.putInt(0).putInt(8 + nameBytes.length).putLong(offset).put(nameBytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, record.capacity() - HEADER_BYTES);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+}
@@ -0,0 +1,183 @@
+package component.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Log de eventos somente de acréscimo do Componente B.
+ * Cada evento recebe um deslocamento estável, a sua posição no log. Os acréscimos vêm de um
+ * escritor de cada vez (a aplicação do log replicado, inclusive a dos avisos de mudança de
+ * liderança), enquanto as leituras chegam por várias threads de atendimento sem bloquear os
+ * acréscimos; uma leitura enxerga sempre um prefixo consistente do log.
+ */
+public interface EventStore {
+    
+    /**
+     * Acrescenta um evento ao fim do log.
+     * 
+     * @param event Evento
+     * @return Deslocamento do evento
+     */
+    long append(String event);
+    
+    /**
+     * Obtém o número de eventos publicados.
+     * 
+     * @return Deslocamento do próximo evento
+     */
+    long size();
+    
+    /**
+     * Obtém um evento pelo deslocamento.
+     * 
+     * @return Evento, ou null se o deslocamento ainda não foi publicado
+     */
+    String get(long offset);
+    
+    /**
+     * Percorre os eventos do intervalo [from, to), limitado ao tamanho publicado no início
+     * da leitura; acréscimos posteriores não são vistos.
+     * 
+     * @param action Ação aplicada a cada evento, em ordem
+     */
+    void forEach(long from, long to, Consumer<String> action);
+    
+    /**
+     * Lê eventos consecutivos a partir de um deslocamento.
+     * 
+     * @param from Deslocamento do primeiro evento
+     * @param max Número máximo de eventos
+     * @return Eventos lidos (vazio se from está no fim do log)
+     */
+    default List<String> read(long from, int max) {
+        long end = Math.min(size(), from + max);
+        List<String> events = new ArrayList<>((int) Math.max(0, end - from));
+        forEach(from, end, events::add);
+        return events;
+    }
+    
+    /**
+     * Lê uma página de eventos consecutivos, limitada em número de eventos e em bytes (UTF-8).
+     * O primeiro evento da página é incluído mesmo que passe do limite de bytes, para que a
+     * leitura sempre avance.
+     * 
+     * @param from Deslocamento do primeiro evento
+     * @param maxEvents Número máximo de eventos
+     * @param maxBytes Número máximo de bytes dos eventos
+     * @return Página lida, com o deslocamento em que a próxima começa
+     */
+    default Page read(long from, int maxEvents, long maxBytes) {
+        long start = Math.max(0, from);
+        long end = Math.min(size(), start + Math.max(0, maxEvents));
+        List<String> events = new ArrayList<>();
+        long bytes = 0;
+        long offset = start;
+        for (; offset < end; offset++) {
+            String event = get(offset);
+            int length = event.getBytes(StandardCharsets.UTF_8).length;
+            if (!events.isEmpty() && bytes + length > maxBytes) {
+                break;
+            }
+            events.add(event);
+            bytes += length;
+        }
+        return new Page(events, offset);
+    }
+    
+    /**
+     * Escreve os eventos do intervalo [from, to) num fluxo, em UTF-8, cada um seguido do separador.
+     * 
+     * @param separator Byte escrito depois de cada evento
+     * @return Número de eventos escritos
+     * @throws IOException Se ocorrer um erro de escrita
+     */
+    default long writeTo(long from, long to, OutputStream output, byte separator) throws IOException {
+        long end = Math.min(to, size());
+        for (long offset = Math.max(0, from); offset < end; offset++) {
+            output.write(get(offset).getBytes(StandardCharsets.UTF_8));
+            output.write(separator);
+        }
+        return Math.max(0, end - Math.max(0, from));
+    }
+    
+    /**
+     * Descarta todos os eventos e o índice aplicado; os deslocamentos recomeçam do zero. Usado
+     * ao instalar o estado recebido do líder, instalação que termina em completeInstall.
+     * Leituras em andamento terminam sobre o conteúdo anterior ou são interrompidas, sem
+     * enxergar uma mistura dos dois.
+     */
+    void clear();
+    
+    /**
+     * Obtém as posições dos consumidores nomeados, guardadas junto com o log e descartadas
+     * com ele em clear.
+     * 
+     * @return Posições dos consumidores
+     */
+    ConsumerCursors getCursors();
+    
+    /**
+     * Obtém o índice da última operação do log replicado gravada no log de eventos.
+     * 
+     * @return Índice da última operação aplicada (0 em logs voláteis)
+     */
+    default long getAppliedIndex() {
+        return 0;
+    }
+    
+    /**
+     * Informa o índice da operação do log replicado que está sendo aplicada; os eventos
+     * seguintes ficam associados a ele.
+     * 
+     * @param index Índice da operação
+     */
+    default void setAppliedIndex(long index) {
+    }
+    
+    /**
+     * Conclui a instalação de um estado recebido do líder, iniciada por clear: grava de forma
+     * durável os eventos e posições acrescentados desde então e só depois o índice da versão
+     * instalada, que passa a ser o índice aplicado. Um log que parou antes disso é descartado
+     * ao reabrir, para que o nó receba o estado de novo.
+     * 
+     * @param index Índice da versão instalada
+     */
+    default void completeInstall(long index) {
+        setAppliedIndex(index);
+    }
+    
+    /**
+     * Libera os recursos do log.
+     */
+    default void close() {
+    }
+    
+    /**
+     * Página de eventos lida a partir de um deslocamento.
+     */
+    final class Page {
+        private final List<String> events;
+        private final long nextOffset;
+        
+        public Page(List<String> events, long nextOffset) {
+            this.events = events;
+            this.nextOffset = nextOffset;
+        }
+        
+        public List<String> getEvents() {
+            return events;
+        }
+        
+        /**
+         * Obtém o deslocamento em que começa a próxima página (o próprio início, se a
+         * leitura partiu do fim do log).
+         */
+        public long getNextOffset() {
+            return nextOffset;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package component.storage;
+
+/**
+ * Política que escolhe as chaves a remover quando o armazenamento passa do limite de memória.
+ * As implementações não precisam ser seguras para uso concorrente: o BoundedStore só as
+ * chama com o seu lock de manutenção adquirido, depois de drenar os eventos que as threads
+ * de atendimento registraram em buffers.
+ */
+public interface EvictionPolicy {
+    
+    /**
+     * Registra a gravação de uma chave (nova ou substituída), que também conta como acesso.
+     * 
+     * @param key Chave
+     * @param weight Tamanho estimado da entrada em bytes
+     */
+    void onWrite(String key, int weight);
+    
+    /**
+     * Registra uma leitura de uma chave existente.
+     * 
+     * @param key Chave
+     */
+    void onAccess(String key);
+    
+    /**
+     * Deixa de acompanhar uma chave removida.
+     * 
+     * @param key Chave
+     */
+    void onRemove(String key);
+    
+    /**
+     * Escolhe a próxima chave a remover e deixa de acompanhá-la.
+     * 
+     * @return Chave escolhida, ou null se nenhuma chave é acompanhada
+     */
+    String nextVictim();
+    
+    /**
+     * Esquece todas as chaves (instalação de um snapshot).
+     */
+    void clear();
+    
+    /**
+     * Cria a política de remoção pelo nome.
+     * "lru" e "lfu" aproximam LRU e LFU por amostragem, como o Redis; "tinylfu" (padrão) usa
+     * W-TinyLFU, com uma janela LRU e admissão por frequência estimada.
+     * 
+     * @param name Nome da política
+     * @param maxBytes Limite de memória do armazenamento
+     * @param samples Número de chaves sorteadas por escolha nas políticas por amostragem
+     * @return Política criada
+     */
+    static EvictionPolicy create(String name, long maxBytes, int samples) {
+        switch (name) {
+            case "lru":
+                return new SampledEvictionPolicy(false, samples);
+            case "lfu":
+                return new SampledEvictionPolicy(true, samples);
+            case "tinylfu":
+                return new TinyLfuPolicy(maxBytes);
+            default:
+                throw new IllegalArgumentException("Política de remoção desconhecida: " + name);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package component.storage;
+
+import java.util.function.Consumer;
+
+/**
+ * Log de eventos em memória.
+ * Os eventos ficam em segmentos de tamanho fixo, alocados à medida que o log cresce, de
+ * modo que um acréscimo nunca copia os eventos anteriores: custa uma escrita no segmento
+ * atual e, a cada SEGMENT_SIZE eventos, a alocação de um segmento novo (o diretório de
+ * segmentos, que só guarda referências, dobra de tamanho quando enche).
+ *
+ * O escritor grava o evento e só então publica o novo tamanho numa escrita volátil. Os
+ * leitores não usam lock: leem o tamanho publicado e enxergam todos os eventos antes dele,
+ * mesmo durante acréscimos concorrentes. clear troca o conteúdo inteiro de uma vez, e quem
+ * já estava lendo termina sobre o conteúdo anterior. As posições dos consumidores também
+ * ficam apenas em memória.
+ */
+public class InMemoryEventStore implements EventStore {
+    // Eventos por segmento (potência de 2)
+    private static final int SEGMENT_BITS = 13;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    
+    private volatile Content content = new Content();
+    private final ConsumerCursors cursors = new ConsumerCursors();
+    
+    /**
+     * Segmentos e número de eventos publicados.
+     */
+    private static final class Content {
+        // Diretório de segmentos; substituído por uma cópia maior antes de publicar o tamanho que a exige
+        volatile String[][] segments = new String[16][];
+        volatile long size = 0;
+        
+        String get(long offset) {
+            return segments[(int) (offset >>> SEGMENT_BITS)][(int) (offset & SEGMENT_MASK)];
+        }
+    }
+    
+    @Override
+    public synchronized long append(String event) {
+        Content current = content;
+        long offset = current.size;
+        int segment = (int) (offset >>> SEGMENT_BITS);
+        String[][] directory = current.segments;
+        if (segment == directory.length) {
+            String[][] larger = new String[directory.length * 2][];
+            System.arraycopy(directory, 0, larger, 0, directory.length);
+            directory = larger;
+            current.segments = larger;
+        }
+        if (directory[segment] == null) {
+            directory[segment] = new String[SEGMENT_SIZE];
+        }
+        directory[segment][(int) (offset & SEGMENT_MASK)] = event;
+        // Publica o evento: leitores que veem o novo tamanho veem também o evento e o diretório
+        current.size = offset + 1;
+        return offset;
+    }
+    
+    @Override
+    public long size() {
+        return content.size;
+    }
+    
+    @Override
+    public String get(long offset) {
+        Content current = content;
+        if (offset < 0 || offset >= current.size) {
+            return null;
+        }
+        return current.get(offset);
+    }
+    
+    @Override
+    public void forEach(long from, long to, Consumer<String> action) {
+        Content current = content;
+        long end = Math.min(to, current.size);
+        for (long offset = Math.max(0, from); offset < end; offset++) {
+            action.accept(current.get(offset));
+        }
+    }
+    
+    @Override
+    public synchronized void clear() {
+        content = new Content();
+        cursors.clear();
+    }
+    
+    @Override
+    public ConsumerCursors getCursors() {
+        return cursors;
+    }
+}
@@ -0,0 +1,85 @@
+package component.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Armazenamento chave-valor em memória, sobre um ConcurrentHashMap no heap.
+ * É o mecanismo padrão, adequado a conjuntos de dados pequenos e médios.
+ * As leituras por chave usam o mapa de hash; um índice secundário ordenado (skip list) com
+ * as chaves atende às varreduras por intervalo. As escritas são serializadas para manter
+ * os dois coerentes.
+ */
+public class InMemoryStore implements KeyValueStore {
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+    private final NavigableSet<String> orderedKeys = new ConcurrentSkipListSet<>();
+    
+    @Override
+    public String get(String key) {
+        return data.get(key);
+    }
+    
+    @Override
+    public synchronized void put(String key, String value) {
+        if (data.put(key, value) == null) {
+            orderedKeys.add(key);
+        }
+    }
+    
+    @Override
+    public synchronized boolean remove(String key) {
+        if (data.remove(key) == null) {
+            return false;
+        }
+        orderedKeys.remove(key);
+        return true;
+    }
+    
+    @Override
+    public int size() {
+        return data.size();
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        return new ArrayList<>(data.keySet());
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        NavigableSet<String> range = to != null ? orderedKeys.subSet(from, true, to, false) : orderedKeys.tailSet(from, true);
+        List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+        for (String key : range) {
+            if (keys.size() >= limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        return new HashMap<>(data);
+    }
+    
+    @Override
+    public synchronized void replaceAll(Map<String, String> entries) {
+        data.clear();
+        data.putAll(entries);
+        orderedKeys.clear();
+        orderedKeys.addAll(entries.keySet());
+    }
+    
+    @Override
+    public synchronized void close() {
+        data.clear();
+        orderedKeys.clear();
+    }
+}
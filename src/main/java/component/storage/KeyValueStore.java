@@ -0,0 +1,112 @@
+package component.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mecanismo de armazenamento chave-valor do Componente A.
+ * As implementações devem ser seguras para uso concorrente: as leituras chegam por várias
+ * threads de atendimento, enquanto as escritas vêm da aplicação do log replicado.
+ */
+public interface KeyValueStore {
+    
+    /**
+     * Obtém o valor de uma chave.
+     * 
+     * @param key Chave
+     * @return Valor, ou null se a chave não existir
+     */
+    String get(String key);
+    
+    /**
+     * Armazena (ou substitui) o valor de uma chave.
+     * 
+     * @param key Chave
+     * @param value Valor
+     */
+    void put(String key, String value);
+    
+    /**
+     * Armazena (ou substitui) vários pares chave-valor, na ordem do mapa.
+     * 
+     * @param entries Pares a armazenar
+     */
+    default void putAll(Map<String, String> entries) {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Remove uma chave.
+     * 
+     * @param key Chave
+     * @return true se a chave existia
+     */
+    boolean remove(String key);
+    
+    /**
+     * Obtém o número de chaves armazenadas.
+     * 
+     * @return Número de chaves
+     */
+    int size();
+    
+    /**
+     * Obtém uma cópia das chaves armazenadas.
+     * 
+     * @return Chaves, sem ordem definida
+     */
+    Collection<String> keys();
+    
+    /**
+     * Obtém, em ordem crescente, as chaves do intervalo [from, to).
+     * Usado pelas varreduras paginadas: a página seguinte começa na chave após a última devolvida.
+     * 
+     * @param from Primeira chave do intervalo (inclusive); "" para o início
+     * @param to Fim do intervalo (exclusivo, não menor que from), ou null para ir até a última chave
+     * @param limit Número máximo de chaves
+     * @return Chaves em ordem crescente
+     */
+    List<String> keysInRange(String from, String to, int limit);
+    
+    /**
+     * Obtém uma cópia de todo o conteúdo, usada para gerar snapshots.
+     * 
+     * @return Mapa com as chaves e os valores
+     */
+    Map<String, String> toMap();
+    
+    /**
+     * Substitui todo o conteúdo (instalação de um snapshot).
+     * 
+     * @param entries Novo conteúdo
+     */
+    void replaceAll(Map<String, String> entries);
+    
+    /**
+     * Obtém o índice da última operação do log replicado gravada no armazenamento.
+     * Armazenamentos duráveis o recuperam ao reabrir, o que permite retomar a replicação a
+     * partir dele em vez de receber um snapshot completo.
+     * 
+     * @return Índice da última operação aplicada (0 em armazenamentos voláteis)
+     */
+    default long getAppliedIndex() {
+        return 0;
+    }
+    
+    /**
+     * Informa o índice da operação do log replicado que está sendo aplicada; as escritas
+     * seguintes ficam associadas a ele.
+     * 
+     * @param index Índice da operação
+     */
+    default void setAppliedIndex(long index) {
+    }
+    
+    /**
+     * Libera os recursos do armazenamento.
+     */
+    void close();
+}
@@ -0,0 +1,950 @@
+package component.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Armazenamento chave-valor em árvore LSM, para conjuntos de dados maiores que a memória e
+ * cargas com muitas escritas.
+ * Cada escrita é acrescentada ao log de escrita antecipada (wal-N.log, no formato
+ * [CRC32][ÍNDICE_DO_LOG][TAMANHO_CHAVE][TAMANHO_VALOR][CHAVE][VALOR]) e inserida na
+ * memtable, um ConcurrentSkipListMap. Quando a memtable atinge o tamanho configurado, ela
+ * se torna imutável, as escritas seguem para uma nova memtable (com um novo log) e uma
+ * tarefa em segundo plano a grava como uma SSTable no nível 0.
+ * 
+ * A compactação é por níveis: quando o nível 0 acumula o número máximo de tabelas, elas são
+ * mescladas com as tabelas do nível 1 que se sobrepõem a elas; a partir do nível 1, as
+ * tabelas de um nível não se sobrepõem e cada nível comporta um múltiplo do tamanho do
+ * anterior. Um nível acima do limite envia uma tabela (em rodízio pelo espaço de chaves)
+ * para o seguinte. Remoções só são descartadas quando não há níveis mais profundos.
+ * 
+ * O arquivo MANIFEST registra as tabelas de cada nível e o primeiro log ainda não gravado
+ * em tabela; ele é substituído atomicamente a cada descarga ou compactação. As leituras
+ * consultam um retrato imutável do estado (memtables e níveis), sem bloqueio: memtable,
+ * memtable imutável, tabelas do nível 0 da mais nova para a mais antiga e, nos demais
+ * níveis, a única tabela cujo intervalo contém a chave.
+ * 
+ * Para manter size() exato, cada escrita verifica antes se a chave existe; com os filtros
+ * de Bloom, essa consulta é barata para chaves novas.
+ */
+public class LsmStore implements KeyValueStore {
+    private static final Logger LOGGER = Logger.getLogger(LsmStore.class.getName());
+    
+    private static final int MAX_LEVELS = 7;
+    private static final int WAL_HEADER_BYTES = 4 + 8 + 4 + 4;
+    private static final int MEMTABLE_ENTRY_OVERHEAD = 64;
+    
+    // Marcador de remoção na memtable (comparado por identidade)
+    private static final byte[] DELETED = new byte[0];
+    
+    private final Path directory;
+    private final long memtableBytes;
+    private final int level0MaxTables;
+    private final int levelMultiplier;
+    private final int bitsPerKey;
+    private final boolean fsync;
+    
+    // Estado lido sem bloqueio; substituído por inteiro com writeLock
+    private volatile Version version;
+    private volatile int keyCount;
+    private volatile long appliedIndex = 0;
+    private volatile boolean closed = false;
+    
+    // Protegidos por writeLock
+    private FileChannel wal;
+    private long nextFileNumber = 1;
+    private int tableKeyCount;
+    
+    // Usados apenas pela thread de compactação
+    private final String[] compactPointers = new String[MAX_LEVELS];
+    
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService compactor;
+    
+    /**
+     * Memtable: entradas ainda não gravadas em tabela e o log que as protege.
+     */
+    private static final class Memtable {
+        final ConcurrentSkipListMap<String, byte[]> entries = new ConcurrentSkipListMap<>();
+        final long walNumber;
+        long bytes = 0;
+        long maxIndex = 0;
+        // Número de chaves do armazenamento após a última escrita desta memtable
+        int keyCountAfter = 0;
+        
+        Memtable(long walNumber) {
+            this.walNumber = walNumber;
+        }
+    }
+    
+    /**
+     * Retrato imutável do estado consultado pelas leituras.
+     */
+    private static final class Version {
+        final Memtable memtable;
+        final Memtable immutable;
+        // Nível 0 da tabela mais nova para a mais antiga; demais níveis em ordem de chave
+        final List<List<SSTable>> levels;
+        
+        Version(Memtable memtable, Memtable immutable, List<List<SSTable>> levels) {
+            this.memtable = memtable;
+            this.immutable = immutable;
+            this.levels = levels;
+        }
+    }
+    
+    /**
+     * Construtor para LsmStore. Abre (ou cria) o diretório e recupera as escritas do log.
+     * 
+     * @param directory Diretório das tabelas e dos logs
+     * @param memtableBytes Tamanho da memtable (e das tabelas geradas) em bytes
+     * @param level0MaxTables Número de tabelas no nível 0 que dispara a compactação para o nível 1
+     * @param levelMultiplier Razão entre os tamanhos de níveis consecutivos
+     * @param bitsPerKey Bits do filtro de Bloom por chave
+     * @param fsync Se cada escrita deve ser forçada para o disco
+     * @throws IOException Se o diretório não puder ser lido ou criado
+     */
+    public LsmStore(Path directory, long memtableBytes, int level0MaxTables, int levelMultiplier, int bitsPerKey,
+                    boolean fsync) throws IOException {
+        this.directory = directory;
+        this.memtableBytes = Math.max(64 * 1024, Math.min(Integer.MAX_VALUE / 2, memtableBytes));
+        this.level0MaxTables = Math.max(2, level0MaxTables);
+        this.levelMultiplier = Math.max(2, levelMultiplier);
+        this.bitsPerKey = Math.max(1, bitsPerKey);
+        this.fsync = fsync;
+        
+        Files.createDirectories(directory);
+        load();
+        
+        this.compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "lsm-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.execute(this::compactSafely);
+    }
+    
+    @Override
+    public String get(String key) {
+        byte[] value = find(version, key, key.getBytes(StandardCharsets.UTF_8));
+        return value != null && value != DELETED ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+    
+    @Override
+    public void put(String key, String value) {
+        write(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public boolean remove(String key) {
+        return write(key, null);
+    }
+    
+    @Override
+    public int size() {
+        return keyCount;
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        List<String> keys = new ArrayList<>();
+        Iterator<SSTable.Entry> entries = new MergingIterator(sources(version, ""), true);
+        while (entries.hasNext()) {
+            keys.add(entries.next().key);
+        }
+        return keys;
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<SSTable.Entry> entries = new MergingIterator(sources(version, from), true);
+        while (keys.size() < limit && entries.hasNext()) {
+            String key = entries.next().key;
+            if (to != null && key.compareTo(to) >= 0) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        Map<String, String> map = new HashMap<>(Math.max(16, keyCount * 2));
+        Iterator<SSTable.Entry> entries = new MergingIterator(sources(version, ""), true);
+        while (entries.hasNext()) {
+            SSTable.Entry entry = entries.next();
+            map.put(entry.key, new String(entry.value, StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+    
+    @Override
+    public void replaceAll(Map<String, String> entries) {
+        Set<String> obsolete = new HashSet<>(keys());
+        obsolete.removeAll(entries.keySet());
+        for (String key : obsolete) {
+            remove(key);
+        }
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Override
+    public long getAppliedIndex() {
+        return appliedIndex;
+    }
+    
+    @Override
+    public void setAppliedIndex(long index) {
+        // Gravado nos registros seguintes do log; sem escrita própria
+        appliedIndex = index;
+    }
+    
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            closed = true;
+            // Libera escritas que aguardam uma descarga
+            writeLock.notifyAll();
+        }
+        // Sem interrupção: a descarga pendente termina e a compactação para entre duas etapas
+        compactor.shutdown();
+        try {
+            while (!compactor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.info("Aguardando a compactação em andamento em " + directory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        synchronized (writeLock) {
+            try {
+                wal.force(false);
+                wal.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Erro ao fechar o log de " + directory, e);
+            }
+        }
+    }
+    
+    /**
+     * Grava uma escrita no log e na memtable.
+     * 
+     * @param value Valor, ou null para uma remoção
+     * @return true se a chave existia
+     */
+    private boolean write(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        
+        synchronized (writeLock) {
+            Memtable memtable = version.memtable;
+            byte[] current = find(version, key, keyBytes);
+            boolean existed = current != null && current != DELETED;
+            if (value == null && !existed) {
+                return false;
+            }
+            
+            try {
+                appendToWal(wal, appliedIndex, keyBytes, value);
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao gravar no log de " + directory, e);
+            }
+            apply(memtable, key, keyBytes, value, appliedIndex, existed);
+            
+            if (memtable.bytes >= memtableBytes) {
+                rotateMemtable();
+            }
+            return existed;
+        }
+    }
+    
+    /**
+     * Aplica uma escrita à memtable e à contagem de chaves. Chamado com writeLock.
+     */
+    private void apply(Memtable memtable, String key, byte[] keyBytes, byte[] value, long index, boolean existed) {
+        memtable.entries.put(key, value != null ? value : DELETED);
+        memtable.bytes += keyBytes.length + (value != null ? value.length : 0) + MEMTABLE_ENTRY_OVERHEAD;
+        memtable.maxIndex = Math.max(memtable.maxIndex, index);
+        if (value == null) {
+            keyCount--;
+        } else if (!existed) {
+            keyCount++;
+        }
+        memtable.keyCountAfter = keyCount;
+    }
+    
+    /**
+     * Torna a memtable imutável e agenda a sua descarga. Se a descarga anterior ainda não
+     * terminou, a escrita espera por ela, limitando a memória ocupada pelas memtables.
+     * Chamado com writeLock.
+     */
+    private void rotateMemtable() {
+        try {
+            while (version.immutable != null && !closed) {
+                writeLock.wait();
+            }
+        } catch (InterruptedException e) {
+            // A memtable continua ativa e a troca é tentada de novo na próxima escrita
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        
+        try {
+            long walNumber = nextFileNumber++;
+            FileChannel next = openWal(walNumber);
+            wal.force(false);
+            wal.close();
+            wal = next;
+            version = new Version(new Memtable(walNumber), version.memtable, version.levels);
+            compactor.execute(this::compactSafely);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao criar um novo log em " + directory, e);
+        }
+    }
+    
+    /**
+     * Descarrega a memtable imutável e executa as compactações necessárias.
+     * Em caso de falha, tenta de novo mais tarde.
+     */
+    private void compactSafely() {
+        try {
+            flushImmutable();
+            while (!closed && compactOnce()) {
+                // Continua enquanto algum nível estiver acima do limite
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Falha na descarga ou compactação em " + directory, e);
+            if (!closed) {
+                compactor.schedule(this::compactSafely, 1, TimeUnit.SECONDS);
+            }
+        }
+    }
+    
+    private void flushImmutable() throws IOException {
+        Memtable immutable = version.immutable;
+        if (immutable == null) {
+            return;
+        }
+        
+        long number;
+        synchronized (writeLock) {
+            number = nextFileNumber++;
+        }
+        SSTable table = SSTable.write(number, tablePath(number), memtableIterator(immutable),
+                                      Long.MAX_VALUE, immutable.maxIndex, bitsPerKey);
+        
+        synchronized (writeLock) {
+            List<List<SSTable>> levels = copyLevels(version.levels);
+            if (table != null) {
+                levels.get(0).add(0, table);
+            }
+            tableKeyCount = immutable.keyCountAfter;
+            Version next = new Version(version.memtable, null, levels);
+            writeManifest(next);
+            version = next;
+            writeLock.notifyAll();
+        }
+        Files.deleteIfExists(walPath(immutable.walNumber));
+    }
+    
+    /**
+     * Executa uma etapa de compactação, se algum nível estiver acima do limite.
+     * 
+     * @return true se houve compactação
+     */
+    private boolean compactOnce() throws IOException {
+        List<List<SSTable>> levels = version.levels;
+        if (levels.get(0).size() >= level0MaxTables) {
+            compact(0, new ArrayList<>(levels.get(0)));
+            return true;
+        }
+        
+        for (int level = 1; level < MAX_LEVELS - 1; level++) {
+            if (levelBytes(levels.get(level)) > levelTargetBytes(level)) {
+                compact(level, Collections.singletonList(pickTable(level, levels.get(level))));
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Mescla as tabelas de entrada com as tabelas sobrepostas do nível seguinte.
+     */
+    private void compact(int level, List<SSTable> inputs) throws IOException {
+        List<List<SSTable>> levels = version.levels;
+        int target = level + 1;
+        String smallest = inputs.get(0).smallestKey;
+        String largest = inputs.get(0).largestKey;
+        long maxIndex = 0;
+        for (SSTable table : inputs) {
+            smallest = table.smallestKey.compareTo(smallest) < 0 ? table.smallestKey : smallest;
+            largest = table.largestKey.compareTo(largest) > 0 ? table.largestKey : largest;
+            maxIndex = Math.max(maxIndex, table.maxIndex);
+        }
+        
+        List<SSTable> overlapping = new ArrayList<>();
+        for (SSTable table : levels.get(target)) {
+            if (table.overlaps(smallest, largest)) {
+                overlapping.add(table);
+                maxIndex = Math.max(maxIndex, table.maxIndex);
+            }
+        }
+        
+        List<SSTable> outputs = new ArrayList<>();
+        if (level > 0 && overlapping.isEmpty()) {
+            // Sem sobreposição: a tabela apenas muda de nível
+            outputs.addAll(inputs);
+        } else {
+            boolean deepest = true;
+            for (int deeper = target + 1; deeper < MAX_LEVELS; deeper++) {
+                deepest &= levels.get(deeper).isEmpty();
+            }
+            
+            // Fontes em ordem de prioridade: entradas mais novas primeiro, o nível seguinte por último
+            List<Iterator<SSTable.Entry>> sources = new ArrayList<>();
+            for (SSTable table : inputs) {
+                sources.add(table.iterator());
+            }
+            sources.add(new LevelIterator(overlapping));
+            
+            MergingIterator merged = new MergingIterator(sources, deepest);
+            while (merged.hasNext()) {
+                long number;
+                synchronized (writeLock) {
+                    number = nextFileNumber++;
+                }
+                SSTable table = SSTable.write(number, tablePath(number), merged, memtableBytes, maxIndex, bitsPerKey);
+                if (table != null) {
+                    outputs.add(table);
+                }
+                if (closed) {
+                    // Tabelas parciais fora do MANIFEST são apagadas na próxima abertura
+                    return;
+                }
+            }
+        }
+        
+        synchronized (writeLock) {
+            List<List<SSTable>> next = copyLevels(version.levels);
+            next.get(level).removeAll(inputs);
+            next.get(target).removeAll(overlapping);
+            next.get(target).addAll(outputs);
+            next.get(target).sort(Comparator.comparing(table -> table.smallestKey));
+            Version updated = new Version(version.memtable, version.immutable, next);
+            writeManifest(updated);
+            version = updated;
+        }
+        
+        for (SSTable table : inputs) {
+            if (!outputs.contains(table)) {
+                Files.deleteIfExists(table.path);
+            }
+        }
+        for (SSTable table : overlapping) {
+            Files.deleteIfExists(table.path);
+        }
+    }
+    
+    /**
+     * Escolhe a próxima tabela de um nível em rodízio pelo espaço de chaves.
+     */
+    private SSTable pickTable(int level, List<SSTable> tables) {
+        SSTable chosen = tables.get(0);
+        String pointer = compactPointers[level];
+        if (pointer != null) {
+            for (SSTable table : tables) {
+                if (table.smallestKey.compareTo(pointer) > 0) {
+                    chosen = table;
+                    break;
+                }
+            }
+        }
+        compactPointers[level] = chosen.largestKey;
+        return chosen;
+    }
+    
+    private long levelTargetBytes(int level) {
+        long bytes = level0MaxTables * memtableBytes;
+        for (int i = 1; i < level; i++) {
+            bytes *= levelMultiplier;
+        }
+        return bytes;
+    }
+    
+    private static long levelBytes(List<SSTable> tables) {
+        long bytes = 0;
+        for (SSTable table : tables) {
+            bytes += table.fileBytes;
+        }
+        return bytes;
+    }
+    
+    private static List<List<SSTable>> copyLevels(List<List<SSTable>> levels) {
+        List<List<SSTable>> copy = new ArrayList<>(levels.size());
+        for (List<SSTable> level : levels) {
+            copy.add(new ArrayList<>(level));
+        }
+        return copy;
+    }
+    
+    /**
+     * Procura uma chave no retrato informado.
+     * 
+     * @return Valor, DELETED se a chave foi removida, ou null se ela não aparece em lugar algum
+     */
+    private static byte[] find(Version version, String key, byte[] keyBytes) {
+        byte[] value = version.memtable.entries.get(key);
+        if (value == null && version.immutable != null) {
+            value = version.immutable.entries.get(key);
+        }
+        if (value != null) {
+            return value;
+        }
+        
+        for (SSTable table : version.levels.get(0)) {
+            SSTable.Entry entry = table.find(key, keyBytes);
+            if (entry != null) {
+                return entry.value != null ? entry.value : DELETED;
+            }
+        }
+        
+        for (int level = 1; level < version.levels.size(); level++) {
+            SSTable table = tableFor(version.levels.get(level), key);
+            if (table != null) {
+                SSTable.Entry entry = table.find(key, keyBytes);
+                if (entry != null) {
+                    return entry.value != null ? entry.value : DELETED;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Encontra, num nível sem sobreposição, a tabela cujo intervalo pode conter a chave.
+     */
+    private static SSTable tableFor(List<SSTable> tables, String key) {
+        int low = 0;
+        int high = tables.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            SSTable table = tables.get(middle);
+            if (table.largestKey.compareTo(key) < 0) {
+                low = middle + 1;
+            } else if (table.smallestKey.compareTo(key) > 0) {
+                high = middle - 1;
+            } else {
+                return table;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Fontes de uma varredura a partir de uma chave, da mais nova para a mais antiga.
+     */
+    private static List<Iterator<SSTable.Entry>> sources(Version version, String from) {
+        List<Iterator<SSTable.Entry>> sources = new ArrayList<>();
+        sources.add(memtableIterator(version.memtable, from));
+        if (version.immutable != null) {
+            sources.add(memtableIterator(version.immutable, from));
+        }
+        for (SSTable table : version.levels.get(0)) {
+            sources.add(table.iterator(from));
+        }
+        for (int level = 1; level < version.levels.size(); level++) {
+            sources.add(new LevelIterator(version.levels.get(level), from));
+        }
+        return sources;
+    }
+    
+    private static Iterator<SSTable.Entry> memtableIterator(Memtable memtable) {
+        return memtableIterator(memtable, "");
+    }
+    
+    private static Iterator<SSTable.Entry> memtableIterator(Memtable memtable, String from) {
+        Iterator<Map.Entry<String, byte[]>> entries = memtable.entries.tailMap(from, true).entrySet().iterator();
+        return new Iterator<SSTable.Entry>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+            
+            @Override
+            public SSTable.Entry next() {
+                Map.Entry<String, byte[]> entry = entries.next();
+                return new SSTable.Entry(entry.getKey(), entry.getValue() != DELETED ? entry.getValue() : null);
+            }
+        };
+    }
+    
+    /**
+     * Percorre em sequência as tabelas de um nível sem sobreposição.
+     */
+    private static final class LevelIterator implements Iterator<SSTable.Entry> {
+        private final Iterator<SSTable> tables;
+        private final String from;
+        private Iterator<SSTable.Entry> current = Collections.emptyIterator();
+        
+        LevelIterator(List<SSTable> tables) {
+            this(tables, "");
+        }
+        
+        LevelIterator(List<SSTable> tables, String from) {
+            this.tables = tables.iterator();
+            this.from = from;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && tables.hasNext()) {
+                SSTable table = tables.next();
+                if (table.largestKey.compareTo(from) >= 0) {
+                    current = table.iterator(from);
+                }
+            }
+            return current.hasNext();
+        }
+        
+        @Override
+        public SSTable.Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+    
+    /**
+     * Mescla fontes ordenadas por chave. Quando uma chave aparece em várias fontes, vale a
+     * de maior prioridade (menor posição na lista); remoções podem ser omitidas.
+     */
+    private static final class MergingIterator implements Iterator<SSTable.Entry> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+        private final boolean dropTombstones;
+        private SSTable.Entry nextEntry;
+        
+        private static final class Head implements Comparable<Head> {
+            final Iterator<SSTable.Entry> source;
+            final int priority;
+            SSTable.Entry entry;
+            
+            Head(Iterator<SSTable.Entry> source, int priority) {
+                this.source = source;
+                this.priority = priority;
+                this.entry = source.next();
+            }
+            
+            @Override
+            public int compareTo(Head other) {
+                int order = entry.key.compareTo(other.entry.key);
+                return order != 0 ? order : Integer.compare(priority, other.priority);
+            }
+        }
+        
+        MergingIterator(List<Iterator<SSTable.Entry>> sources, boolean dropTombstones) {
+            this.dropTombstones = dropTombstones;
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).hasNext()) {
+                    heads.add(new Head(sources.get(i), i));
+                }
+            }
+            advance();
+        }
+        
+        private void advance() {
+            nextEntry = null;
+            while (nextEntry == null && !heads.isEmpty()) {
+                Head head = heads.poll();
+                SSTable.Entry entry = head.entry;
+                // Versões mais antigas da mesma chave são descartadas
+                while (!heads.isEmpty() && heads.peek().entry.key.equals(entry.key)) {
+                    skip(heads.poll());
+                }
+                skip(head);
+                if (entry.value != null || !dropTombstones) {
+                    nextEntry = entry;
+                }
+            }
+        }
+        
+        private void skip(Head head) {
+            if (head.source.hasNext()) {
+                head.entry = head.source.next();
+                heads.add(head);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return nextEntry != null;
+        }
+        
+        @Override
+        public SSTable.Entry next() {
+            if (nextEntry == null) {
+                throw new NoSuchElementException();
+            }
+            SSTable.Entry entry = nextEntry;
+            advance();
+            return entry;
+        }
+    }
+    
+    private static void appendToWal(FileChannel channel, long index, byte[] key, byte[] value) throws IOException {
+        int valueLength = value != null ? value.length : SSTable.TOMBSTONE;
+        ByteBuffer record = ByteBuffer.allocate(WAL_HEADER_BYTES + key.length + Math.max(0, valueLength));
+        record.putInt(0).putLong(index).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+    
+    private FileChannel openWal(long number) throws IOException {
+        Set<StandardOpenOption> options = new HashSet<>();
+        options.add(StandardOpenOption.CREATE);
+        options.add(StandardOpenOption.WRITE);
+        options.add(StandardOpenOption.APPEND);
+        if (fsync) {
+            options.add(StandardOpenOption.DSYNC);
+        }
+        return FileChannel.open(walPath(number), options);
+    }
+    
+    /**
+     * Grava o MANIFEST do retrato informado. Chamado com writeLock.
+     */
+    private void writeManifest(Version state) throws IOException {
+        Memtable oldest = state.immutable != null ? state.immutable : state.memtable;
+        Path manifest = directory.resolve("MANIFEST");
+        Path temporary = directory.resolve("MANIFEST.tmp");
+        
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("NEXT|" + nextFileNumber + "\n");
+            writer.write("LOG|" + oldest.walNumber + "\n");
+            writer.write("KEYS|" + tableKeyCount + "\n");
+            for (int level = 0; level < state.levels.size(); level++) {
+                for (SSTable table : state.levels.get(level)) {
+                    writer.write("TABLE|" + level + "|" + table.number + "\n");
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Abre as tabelas do MANIFEST, apaga arquivos que não pertencem a ele (saídas de uma
+     * compactação interrompida) e recupera as escritas dos logs ainda não gravados em tabela.
+     * As escritas recuperadas são gravadas numa tabela do nível 0 antes de abrir o novo log.
+     */
+    private void load() throws IOException {
+        List<List<SSTable>> levels = new ArrayList<>();
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            levels.add(new ArrayList<>());
+        }
+        
+        long firstWal = 0;
+        Set<Long> live = new HashSet<>();
+        Path manifest = directory.resolve("MANIFEST");
+        if (Files.exists(manifest)) {
+            try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\\|");
+                    switch (parts[0]) {
+                        case "NEXT":
+                            nextFileNumber = Math.max(nextFileNumber, Long.parseLong(parts[1]));
+                            break;
+                        case "LOG":
+                            firstWal = Long.parseLong(parts[1]);
+                            break;
+                        case "KEYS":
+                            keyCount = Integer.parseInt(parts[1]);
+                            break;
+                        case "TABLE":
+                            long number = Long.parseLong(parts[2]);
+                            SSTable table = SSTable.open(number, tablePath(number));
+                            levels.get(Integer.parseInt(parts[1])).add(table);
+                            live.add(number);
+                            appliedIndex = Math.max(appliedIndex, table.maxIndex);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+        levels.get(0).sort(Comparator.comparingLong((SSTable table) -> table.number).reversed());
+        for (int level = 1; level < MAX_LEVELS; level++) {
+            levels.get(level).sort(Comparator.comparing(table -> table.smallestKey));
+        }
+        
+        List<Long> wals = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(path);
+                } else if (name.endsWith(".sst") && !live.contains(fileNumber(name))) {
+                    Files.delete(path);
+                } else if (name.startsWith("wal-") && name.endsWith(".log")) {
+                    long number = fileNumber(name.substring(4));
+                    if (number < firstWal) {
+                        Files.delete(path);
+                    } else {
+                        wals.add(number);
+                    }
+                }
+                if (name.endsWith(".sst") || name.startsWith("wal-")) {
+                    nextFileNumber = Math.max(nextFileNumber, fileNumber(name.replace("wal-", "")) + 1);
+                }
+            }
+        }
+        wals.sort(null);
+        
+        Memtable recovered = new Memtable(0);
+        version = new Version(recovered, null, levels);
+        for (long number : wals) {
+            replayWal(walPath(number), recovered);
+        }
+        
+        if (!recovered.entries.isEmpty()) {
+            long number = nextFileNumber++;
+            SSTable table = SSTable.write(number, tablePath(number), memtableIterator(recovered),
+                                          Long.MAX_VALUE, recovered.maxIndex, bitsPerKey);
+            levels.get(0).add(0, table);
+        }
+        tableKeyCount = keyCount;
+        
+        long walNumber = nextFileNumber++;
+        wal = openWal(walNumber);
+        version = new Version(new Memtable(walNumber), null, levels);
+        writeManifest(version);
+        for (long number : wals) {
+            Files.deleteIfExists(walPath(number));
+        }
+    }
+    
+    /**
+     * Reaplica os registros de um log. Um registro incompleto ou corrompido no final, deixado
+     * por uma escrita interrompida, encerra a leitura.
+     */
+    private void replayWal(Path path, Memtable memtable) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        
+        while (data.remaining() >= WAL_HEADER_BYTES) {
+            int position = data.position();
+            int storedCrc = data.getInt();
+            long index = data.getLong();
+            int keyLength = data.getInt();
+            int valueLength = data.getInt();
+            int recordBytes = WAL_HEADER_BYTES + keyLength + Math.max(0, valueLength);
+            if (keyLength < 0 || valueLength < SSTable.TOMBSTONE || position + recordBytes > bytes.length) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, position + 4, recordBytes - 4);
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            
+            byte[] keyBytes = new byte[keyLength];
+            data.get(keyBytes);
+            byte[] value = null;
+            if (valueLength != SSTable.TOMBSTONE) {
+                value = new byte[valueLength];
+                data.get(value);
+            }
+            
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            byte[] current = find(version, key, keyBytes);
+            boolean existed = current != null && current != DELETED;
+            if (value != null || existed) {
+                apply(memtable, key, keyBytes, value, index, existed);
+            }
+            appliedIndex = Math.max(appliedIndex, index);
+        }
+        
+        if (data.position() < bytes.length) {
+            LOGGER.warning("Descartando " + (bytes.length - data.position()) + " bytes inválidos do final de " + path);
+        }
+    }
+    
+    private Path tablePath(long number) {
+        return directory.resolve(String.format("%08d.sst", number));
+    }
+    
+    private Path walPath(long number) {
+        return directory.resolve(String.format("wal-%08d.log", number));
+    }
+    
+    private static long fileNumber(String name) {
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+    
+    /**
+     * Cria um armazenamento no diretório informado, relativo ao diretório de trabalho.
+     * 
+     * @param directory Caminho do diretório
+     * @param memtableBytes Tamanho da memtable em bytes
+     * @param level0MaxTables Número de tabelas no nível 0 que dispara a compactação
+     * @param levelMultiplier Razão entre os tamanhos de níveis consecutivos
+     * @param bitsPerKey Bits do filtro de Bloom por chave
+     * @param fsync Se cada escrita deve ser forçada para o disco
+     * @return Armazenamento aberto
+     * @throws IOException Se o diretório não puder ser aberto
+     */
+    public static LsmStore open(String directory, long memtableBytes, int level0MaxTables, int levelMultiplier,
+                                int bitsPerKey, boolean fsync) throws IOException {
+        return new LsmStore(Paths.get(directory), memtableBytes, level0MaxTables, levelMultiplier, bitsPerKey, fsync);
+    }
+}
@@ -0,0 +1,447 @@
+package component.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Armazenamento chave-valor fora do heap.
+ * Chaves e valores ficam como bytes UTF-8 em slabs (ByteBuffers diretos de tamanho fixo),
+ * gravados em sequência no formato [TAMANHO_CHAVE][TAMANHO_VALOR][CHAVE][VALOR]. Um índice
+ * de endereçamento aberto (sondagem linear) guarda, para cada chave, apenas o seu hash e o
+ * endereço do registro (slab e deslocamento), de modo que o heap contém dois arrays
+ * primitivos em vez de milhões de objetos e as pausas do GC não crescem com os dados.
+ * 
+ * Substituições e remoções deixam o registro antigo morto no seu slab. Quando a fração de
+ * bytes vivos de um slab cai abaixo do limite configurado, os registros vivos são copiados
+ * para o slab atual e o slab volta à lista de slabs livres, para ser reaproveitado sem
+ * alocar nova memória. Registros maiores que um slab ocupam um slab dedicado, liberado
+ * assim que o registro morre.
+ * 
+ * As varreduras por intervalo usam um índice secundário ordenado (TreeSet) com as chaves;
+ * ele fica no heap, de modo que só compensa manter chaves curtas neste mecanismo.
+ */
+public class OffHeapSlabStore implements KeyValueStore {
+    private static final int HEADER_BYTES = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_LOAD_PERCENT = 70;
+    
+    // Marcadores de posição no índice
+    private static final long EMPTY = -1;
+    private static final long REMOVED = -2;
+    
+    private final int slabBytes;
+    private final int minLivePercent;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Slabs (protegidos por lock): a posição na lista é o identificador usado nos endereços
+    private final List<Slab> slabs = new ArrayList<>();
+    private final Deque<Slab> freeSlabs = new ArrayDeque<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private Slab current;
+    
+    // Índice (protegido por lock)
+    private long[] addresses;
+    private int[] hashes;
+    private int count = 0;
+    private int removed = 0;
+    private final TreeSet<String> orderedKeys = new TreeSet<>();
+    
+    /**
+     * Bloco de memória fora do heap com registros gravados em sequência.
+     */
+    private static final class Slab {
+        final int id;
+        final ByteBuffer buffer;
+        int used = 0;
+        int liveBytes = 0;
+        
+        Slab(int id, int capacity) {
+            this.id = id;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+    }
+    
+    /**
+     * Construtor para OffHeapSlabStore.
+     * 
+     * @param slabBytes Tamanho de cada slab em bytes
+     * @param minLivePercent Percentual mínimo de bytes vivos abaixo do qual um slab é compactado
+     */
+    public OffHeapSlabStore(int slabBytes, int minLivePercent) {
+        this.slabBytes = Math.max(4096, slabBytes);
+        this.minLivePercent = Math.max(0, Math.min(100, minLivePercent));
+        resetIndex(INITIAL_CAPACITY);
+    }
+    
+    @Override
+    public String get(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            int slot = probe(keyBytes, hash(keyBytes));
+            return slot >= 0 ? readValue(addresses[slot]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void put(String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(keyBytes);
+        
+        lock.writeLock().lock();
+        try {
+            int slot = probe(keyBytes, hash);
+            long address = append(keyBytes, valueBytes);
+            
+            if (slot >= 0) {
+                long previous = addresses[slot];
+                addresses[slot] = address;
+                release(previous);
+                return;
+            }
+            
+            int insertAt = ~slot;
+            if (addresses[insertAt] == REMOVED) {
+                removed--;
+            }
+            addresses[insertAt] = address;
+            hashes[insertAt] = hash;
+            count++;
+            orderedKeys.add(key);
+            
+            if ((count + removed) * 100L > addresses.length * (long) MAX_LOAD_PERCENT) {
+                // Muitas remoções: reconstrói no mesmo tamanho; caso contrário, dobra o índice
+                rehash(count * 200L > addresses.length * (long) MAX_LOAD_PERCENT ?
+                       addresses.length * 2 : addresses.length);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public boolean remove(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = probe(keyBytes, hash(keyBytes));
+            if (slot < 0) {
+                return false;
+            }
+            
+            long previous = addresses[slot];
+            addresses[slot] = REMOVED;
+            count--;
+            removed++;
+            release(previous);
+            orderedKeys.remove(key);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        lock.readLock().lock();
+        try {
+            List<String> keys = new ArrayList<>(count);
+            for (long address : addresses) {
+                if (address >= 0) {
+                    keys.add(new String(readKey(address), StandardCharsets.UTF_8));
+                }
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        lock.readLock().lock();
+        try {
+            List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+            for (String key : to != null ? orderedKeys.subSet(from, true, to, false) : orderedKeys.tailSet(from, true)) {
+                if (keys.size() >= limit) {
+                    break;
+                }
+                keys.add(key);
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        lock.readLock().lock();
+        try {
+            Map<String, String> map = new HashMap<>(count * 2);
+            for (long address : addresses) {
+                if (address >= 0) {
+                    map.put(new String(readKey(address), StandardCharsets.UTF_8), readValue(address));
+                }
+            }
+            return map;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void replaceAll(Map<String, String> entries) {
+        lock.writeLock().lock();
+        try {
+            // Os slabs de tamanho padrão voltam à lista de livres e são reaproveitados na carga
+            for (Slab slab : slabs) {
+                if (slab != null) {
+                    recycle(slab);
+                }
+            }
+            current = null;
+            resetIndex(INITIAL_CAPACITY);
+            orderedKeys.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            // A memória dos buffers diretos é devolvida quando eles são coletados
+            slabs.clear();
+            freeSlabs.clear();
+            freeIds.clear();
+            current = null;
+            resetIndex(INITIAL_CAPACITY);
+            orderedKeys.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Procura uma chave no índice.
+     * 
+     * @return Posição da chave, ou o complemento (~) da posição onde ela deve ser inserida
+     */
+    private int probe(byte[] key, int hash) {
+        int mask = addresses.length - 1;
+        int firstRemoved = -1;
+        
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long address = addresses[i];
+            if (address == EMPTY) {
+                return ~(firstRemoved >= 0 ? firstRemoved : i);
+            }
+            if (address == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = i;
+                }
+            } else if (hashes[i] == hash && keyEquals(address, key)) {
+                return i;
+            }
+        }
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldAddresses = addresses;
+        int[] oldHashes = hashes;
+        resetIndex(capacity);
+        
+        int mask = capacity - 1;
+        for (int i = 0; i < oldAddresses.length; i++) {
+            if (oldAddresses[i] >= 0) {
+                int slot = oldHashes[i] & mask;
+                while (addresses[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                addresses[slot] = oldAddresses[i];
+                hashes[slot] = oldHashes[i];
+                count++;
+            }
+        }
+    }
+    
+    private void resetIndex(int capacity) {
+        addresses = new long[capacity];
+        hashes = new int[capacity];
+        Arrays.fill(addresses, EMPTY);
+        count = 0;
+        removed = 0;
+    }
+    
+    /**
+     * Grava um registro no slab atual (ou num slab dedicado, se não couber num slab).
+     * 
+     * @return Endereço do registro
+     */
+    private long append(byte[] key, byte[] value) {
+        int size = HEADER_BYTES + key.length + value.length;
+        
+        Slab target;
+        if (size > slabBytes) {
+            target = newSlab(size);
+        } else {
+            if (current == null || current.used + size > current.buffer.capacity()) {
+                current = freeSlabs.isEmpty() ? newSlab(slabBytes) : freeSlabs.poll();
+            }
+            target = current;
+        }
+        
+        int offset = target.used;
+        ByteBuffer out = target.buffer.duplicate();
+        out.position(offset);
+        out.putInt(key.length).putInt(value.length).put(key).put(value);
+        target.used += size;
+        target.liveBytes += size;
+        
+        return ((long) target.id << 32) | offset;
+    }
+    
+    private Slab newSlab(int capacity) {
+        Integer id = freeIds.poll();
+        if (id == null) {
+            id = slabs.size();
+            slabs.add(null);
+        }
+        Slab slab = new Slab(id, capacity);
+        slabs.set(id, slab);
+        return slab;
+    }
+    
+    /**
+     * Marca um registro como morto e compacta o seu slab se ele ficou esparso.
+     */
+    private void release(long address) {
+        Slab slab = slabs.get(slabId(address));
+        slab.liveBytes -= recordSize(slab, offset(address));
+        
+        if (slab != current && slab.liveBytes * 100L < slab.used * (long) minLivePercent) {
+            compact(slab);
+        }
+    }
+    
+    /**
+     * Copia os registros vivos de um slab para o slab atual e devolve o slab à lista de livres.
+     */
+    private void compact(Slab slab) {
+        int offset = 0;
+        while (offset < slab.used) {
+            int size = recordSize(slab, offset);
+            long address = ((long) slab.id << 32) | offset;
+            
+            byte[] key = readKey(address);
+            int slot = probe(key, hash(key));
+            if (slot >= 0 && addresses[slot] == address) {
+                addresses[slot] = append(key, readValueBytes(address));
+            }
+            offset += size;
+        }
+        recycle(slab);
+    }
+    
+    private void recycle(Slab slab) {
+        slab.used = 0;
+        slab.liveBytes = 0;
+        if (slab.buffer.capacity() == slabBytes) {
+            if (!freeSlabs.contains(slab)) {
+                freeSlabs.add(slab);
+            }
+        } else {
+            // Slab dedicado a um registro grande: descartado
+            slabs.set(slab.id, null);
+            freeIds.add(slab.id);
+        }
+    }
+    
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer buffer = slabs.get(slabId(address)).buffer;
+        int offset = offset(address);
+        if (buffer.getInt(offset) != key.length) {
+            return false;
+        }
+        
+        int start = offset + HEADER_BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private byte[] readKey(long address) {
+        ByteBuffer buffer = slabs.get(slabId(address)).buffer;
+        int offset = offset(address);
+        return read(buffer, offset + HEADER_BYTES, buffer.getInt(offset));
+    }
+    
+    private byte[] readValueBytes(long address) {
+        ByteBuffer buffer = slabs.get(slabId(address)).buffer;
+        int offset = offset(address);
+        int keyLength = buffer.getInt(offset);
+        return read(buffer, offset + HEADER_BYTES + keyLength, buffer.getInt(offset + 4));
+    }
+    
+    private String readValue(long address) {
+        return new String(readValueBytes(address), StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] read(ByteBuffer buffer, int position, int length) {
+        // Leitura por uma cópia do buffer: a posição do original nunca muda, o que permite leituras concorrentes
+        byte[] bytes = new byte[length];
+        ByteBuffer in = buffer.duplicate();
+        in.position(position);
+        in.get(bytes);
+        return bytes;
+    }
+    
+    private static int recordSize(Slab slab, int offset) {
+        return HEADER_BYTES + slab.buffer.getInt(offset) + slab.buffer.getInt(offset + 4);
+    }
+    
+    private static int slabId(long address) {
+        return (int) (address >>> 32);
+    }
+    
+    private static int offset(long address) {
+        return (int) address;
+    }
+    
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,423 @@
+package component.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Tabela ordenada e imutável (SSTable) do armazenamento LSM.
+ * O arquivo contém blocos de dados de cerca de 4 KB com as entradas em ordem de chave, no
+ * formato [TAMANHO_CHAVE][TAMANHO_VALOR][CHAVE][VALOR] (tamanho de valor -1 marca uma
+ * remoção), seguidos do índice de blocos, do filtro de Bloom das chaves e de um rodapé
+ * [POSIÇÃO_ÍNDICE][POSIÇÃO_FILTRO][ENTRADAS][ÍNDICE_DO_LOG][MÁGICO].
+ * 
+ * A tabela aberta é lida por um MappedByteBuffer, com o índice e o filtro em memória: uma
+ * consulta por chave ausente normalmente é respondida pelo filtro, e as demais leem um único
+ * bloco. O mapeamento continua válido depois que o arquivo é apagado por uma compactação,
+ * o que permite às leituras em andamento terminar sem contagem de referências.
+ */
+class SSTable {
+    static final int BLOCK_BYTES = 4096;
+    static final int TOMBSTONE = -1;
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int FOOTER_BYTES = 8 * 5;
+    private static final long MAGIC = 0x4c534d5353543031L;
+    
+    final long number;
+    final Path path;
+    final long fileBytes;
+    final long entryCount;
+    final long maxIndex;
+    final String smallestKey;
+    final String largestKey;
+    
+    private final MappedByteBuffer data;
+    private final String[] blockKeys;
+    private final int[] blockOffsets;
+    private final int[] blockLengths;
+    private final long[] bloomBits;
+    private final int bloomHashes;
+    
+    /**
+     * Entrada de uma tabela ou da memtable; value null indica uma remoção.
+     */
+    static final class Entry {
+        final String key;
+        final byte[] value;
+        
+        Entry(String key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+    
+    private SSTable(long number, Path path, MappedByteBuffer data) throws IOException {
+        this.number = number;
+        this.path = path;
+        this.data = data;
+        this.fileBytes = data.capacity();
+        
+        if (fileBytes < FOOTER_BYTES) {
+            throw new IOException("Tabela truncada: " + path);
+        }
+        ByteBuffer footer = data.duplicate();
+        footer.position((int) fileBytes - FOOTER_BYTES);
+        int indexOffset = (int) footer.getLong();
+        int bloomOffset = (int) footer.getLong();
+        this.entryCount = footer.getLong();
+        this.maxIndex = footer.getLong();
+        if (footer.getLong() != MAGIC) {
+            throw new IOException("Tabela inválida: " + path);
+        }
+        
+        ByteBuffer index = data.duplicate();
+        index.position(indexOffset);
+        int blocks = index.getInt();
+        this.blockKeys = new String[blocks];
+        this.blockOffsets = new int[blocks];
+        this.blockLengths = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = index.getInt();
+            blockLengths[i] = index.getInt();
+            blockKeys[i] = readString(index);
+        }
+        this.smallestKey = blocks > 0 ? blockKeys[0] : "";
+        this.largestKey = readString(index);
+        
+        ByteBuffer bloom = data.duplicate();
+        bloom.position(bloomOffset);
+        this.bloomHashes = bloom.getInt();
+        this.bloomBits = new long[bloom.getInt()];
+        for (int i = 0; i < bloomBits.length; i++) {
+            bloomBits[i] = bloom.getLong();
+        }
+    }
+    
+    /**
+     * Abre uma tabela existente.
+     * 
+     * @param number Número do arquivo
+     * @param path Caminho do arquivo
+     * @return Tabela aberta
+     * @throws IOException Se o arquivo não puder ser lido ou estiver corrompido
+     */
+    static SSTable open(long number, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SSTable(number, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Procura uma chave na tabela.
+     * 
+     * @param key Chave
+     * @param keyBytes Chave em UTF-8
+     * @return Entrada encontrada (com value null se for uma remoção), ou null se a chave não estiver na tabela
+     */
+    Entry find(String key, byte[] keyBytes) {
+        if (blockKeys.length == 0 || key.compareTo(smallestKey) < 0 || key.compareTo(largestKey) > 0
+                || !mightContain(keyBytes)) {
+            return null;
+        }
+        
+        // Último bloco cuja primeira chave não é maior que a procurada
+        int block = Arrays.binarySearch(blockKeys, key);
+        if (block < 0) {
+            block = -block - 2;
+        }
+        
+        ByteBuffer in = data.duplicate();
+        int position = blockOffsets[block];
+        int end = position + blockLengths[block];
+        while (position < end) {
+            int keyLength = in.getInt(position);
+            int valueLength = in.getInt(position + 4);
+            int keyPosition = position + ENTRY_HEADER_BYTES;
+            if (keyLength == keyBytes.length && matches(in, keyPosition, keyBytes)) {
+                if (valueLength == TOMBSTONE) {
+                    return new Entry(key, null);
+                }
+                byte[] value = new byte[valueLength];
+                in.position(keyPosition + keyLength);
+                in.get(value);
+                return new Entry(key, value);
+            }
+            position = keyPosition + keyLength + Math.max(0, valueLength);
+        }
+        return null;
+    }
+    
+    /**
+     * Percorre todas as entradas da tabela em ordem de chave.
+     * 
+     * @return Iterador sobre as entradas
+     */
+    Iterator<Entry> iterator() {
+        return iterator("");
+    }
+    
+    /**
+     * Percorre, em ordem de chave, as entradas a partir de uma chave. O índice de blocos
+     * leva direto ao bloco que contém a chave inicial.
+     * 
+     * @param from Primeira chave (inclusive); "" para o início da tabela
+     * @return Iterador sobre as entradas
+     */
+    Iterator<Entry> iterator(String from) {
+        ByteBuffer in = data.duplicate();
+        int end = blockOffsets.length > 0
+                  ? blockOffsets[blockOffsets.length - 1] + blockLengths[blockLengths.length - 1] : 0;
+        int block = from.isEmpty() ? 0 : Arrays.binarySearch(blockKeys, from);
+        if (block < 0) {
+            block = Math.max(0, -block - 2);
+        }
+        int start = blockOffsets.length > 0 ? blockOffsets[block] : 0;
+        
+        Iterator<Entry> entries = new Iterator<Entry>() {
+            private int position = start;
+            
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+            
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                in.position(position);
+                int keyLength = in.getInt();
+                int valueLength = in.getInt();
+                byte[] key = new byte[keyLength];
+                in.get(key);
+                byte[] value = null;
+                if (valueLength != TOMBSTONE) {
+                    value = new byte[valueLength];
+                    in.get(value);
+                }
+                position = in.position();
+                return new Entry(new String(key, StandardCharsets.UTF_8), value);
+            }
+        };
+        if (from.isEmpty()) {
+            return entries;
+        }
+        
+        // Descarta as entradas do primeiro bloco anteriores à chave inicial
+        return new Iterator<Entry>() {
+            private Entry nextEntry = first();
+            
+            private Entry first() {
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (entry.key.compareTo(from) >= 0) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return nextEntry != null;
+            }
+            
+            @Override
+            public Entry next() {
+                if (nextEntry == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = nextEntry;
+                nextEntry = entries.hasNext() ? entries.next() : null;
+                return entry;
+            }
+        };
+    }
+    
+    /**
+     * Verifica se o intervalo de chaves da tabela se sobrepõe ao intervalo informado.
+     */
+    boolean overlaps(String smallest, String largest) {
+        return smallestKey.compareTo(largest) <= 0 && largestKey.compareTo(smallest) >= 0;
+    }
+    
+    private boolean mightContain(byte[] keyBytes) {
+        long hash = hash(keyBytes);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) bloomBits.length * 64;
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if ((bloomBits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean matches(ByteBuffer in, int position, byte[] keyBytes) {
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (in.get(position + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Hash de 64 bits (FNV-1a seguido da finalização do MurmurHash3) usado pelo filtro de Bloom.
+     */
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * Grava uma nova tabela com as entradas seguintes do iterador, até atingir o tamanho
+     * informado, e a abre. O arquivo é gravado com outro nome e renomeado depois de
+     * sincronizado, de modo que uma tabela no diretório está sempre completa.
+     * 
+     * @param number Número do arquivo
+     * @param path Caminho do arquivo
+     * @param entries Entradas em ordem crescente de chave; as que não couberem continuam no iterador
+     * @param targetBytes Tamanho aproximado da tabela
+     * @param maxIndex Maior índice do log replicado contido nas entradas
+     * @param bitsPerKey Bits do filtro de Bloom por chave
+     * @return Tabela gravada, ou null se o iterador não tinha entradas
+     * @throws IOException Se o arquivo não puder ser gravado
+     */
+    static SSTable write(long number, Path path, Iterator<Entry> entries, long targetBytes, long maxIndex,
+                         int bitsPerKey) throws IOException {
+        if (!entries.hasNext()) {
+            return null;
+        }
+        
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        List<String> blockKeys = new ArrayList<>();
+        List<long[]> blockPositions = new ArrayList<>();
+        long[] hashes = new long[1024];
+        int count = 0;
+        String lastKey = null;
+        
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES * 2);
+            long written = 0;
+            while (entries.hasNext() && written + block.position() < targetBytes) {
+                Entry entry = entries.next();
+                byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+                int valueLength = entry.value != null ? entry.value.length : TOMBSTONE;
+                int entryBytes = ENTRY_HEADER_BYTES + key.length + Math.max(0, valueLength);
+                
+                if (block.position() > 0 && block.position() + entryBytes > BLOCK_BYTES) {
+                    blockPositions.add(new long[] {written, block.position()});
+                    written += flush(out, block);
+                }
+                if (block.position() == 0) {
+                    blockKeys.add(entry.key);
+                    if (block.capacity() < entryBytes) {
+                        block = ByteBuffer.allocate(entryBytes);
+                    }
+                }
+                
+                block.putInt(key.length).putInt(valueLength).put(key);
+                if (entry.value != null) {
+                    block.put(entry.value);
+                }
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                hashes[count++] = hash(key);
+                lastKey = entry.key;
+            }
+            if (block.position() > 0) {
+                blockPositions.add(new long[] {written, block.position()});
+                written += flush(out, block);
+            }
+            
+            // Índice de blocos
+            long indexOffset = written;
+            ByteBuffer index = ByteBuffer.allocate(indexBytes(blockKeys, lastKey));
+            index.putInt(blockKeys.size());
+            for (int i = 0; i < blockKeys.size(); i++) {
+                byte[] key = blockKeys.get(i).getBytes(StandardCharsets.UTF_8);
+                index.putInt((int) blockPositions.get(i)[0]).putInt((int) blockPositions.get(i)[1]);
+                index.putInt(key.length).put(key);
+            }
+            byte[] last = lastKey.getBytes(StandardCharsets.UTF_8);
+            index.putInt(last.length).put(last);
+            written += flush(out, index);
+            
+            // Filtro de Bloom: k = bits por chave * ln 2
+            long bloomOffset = written;
+            int words = (int) Math.max(1, ((long) count * Math.max(1, bitsPerKey) + 63) / 64);
+            int hashCount = Math.max(1, Math.min(30, (int) Math.round(bitsPerKey * 0.69)));
+            long[] bits = new long[words];
+            long totalBits = (long) words * 64;
+            for (int i = 0; i < count; i++) {
+                int h1 = (int) hashes[i];
+                int h2 = (int) (hashes[i] >>> 32);
+                for (int j = 0; j < hashCount; j++) {
+                    long bit = Math.floorMod(h1 + (long) j * h2, totalBits);
+                    bits[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            ByteBuffer bloom = ByteBuffer.allocate(8 + words * 8 + FOOTER_BYTES);
+            bloom.putInt(hashCount).putInt(words);
+            for (long word : bits) {
+                bloom.putLong(word);
+            }
+            bloom.putLong(indexOffset).putLong(bloomOffset).putLong(count).putLong(maxIndex).putLong(MAGIC);
+            flush(out, bloom);
+            out.force(true);
+        }
+        
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(number, path);
+    }
+    
+    private static int indexBytes(List<String> blockKeys, String lastKey) {
+        int bytes = 4 + 4 + lastKey.getBytes(StandardCharsets.UTF_8).length;
+        for (String key : blockKeys) {
+            bytes += 12 + key.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+    
+    private static int flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        return bytes;
+    }
+}
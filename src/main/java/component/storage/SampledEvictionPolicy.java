@@ -0,0 +1,153 @@
+package component.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * LRU e LFU aproximados por amostragem, como no Redis.
+ * Em vez de manter todas as chaves ordenadas, cada escolha sorteia algumas chaves e remove a
+ * de acesso mais antigo (LRU) ou a de menor frequência (LFU). As chaves ficam num array com
+ * um índice por chave, o que torna o sorteio e a remoção O(1).
+ * 
+ * No LFU a frequência é um contador logarítmico de 8 bits: cada acesso o incrementa com
+ * probabilidade decrescente, e ele cai um ponto por minuto sem acesso, de modo que chaves
+ * que foram populadas no passado acabam saindo.
+ */
+class SampledEvictionPolicy implements EvictionPolicy {
+    // Valor inicial do contador, para que uma chave nova não seja a primeira a sair
+    private static final int LFU_INIT = 5;
+    private static final int LFU_LOG_FACTOR = 10;
+    private static final long LFU_DECAY_MS = 60_000;
+    
+    private final boolean lfu;
+    private final int samples;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> index = new HashMap<>();
+    // Relógio lógico dos acessos, que ordena as chaves no LRU
+    private long clock = 0;
+    
+    private static final class Entry {
+        final String key;
+        int position;
+        long lastAccess;
+        int counter = LFU_INIT;
+        long lastDecay;
+        
+        Entry(String key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+    }
+    
+    /**
+     * Construtor para SampledEvictionPolicy.
+     * 
+     * @param lfu true para LFU, false para LRU
+     * @param samples Número de chaves sorteadas por escolha
+     */
+    SampledEvictionPolicy(boolean lfu, int samples) {
+        this.lfu = lfu;
+        this.samples = Math.max(1, samples);
+    }
+    
+    @Override
+    public void onWrite(String key, int weight) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            entry = new Entry(key, entries.size());
+            entry.lastDecay = System.currentTimeMillis();
+            entries.add(entry);
+            index.put(key, entry);
+        }
+        touch(entry);
+    }
+    
+    @Override
+    public void onAccess(String key) {
+        Entry entry = index.get(key);
+        if (entry != null) {
+            touch(entry);
+        }
+    }
+    
+    @Override
+    public void onRemove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+    
+    @Override
+    public String nextVictim() {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        
+        long now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Entry victim = null;
+        for (int i = 0; i < samples; i++) {
+            Entry candidate = entries.get(random.nextInt(entries.size()));
+            if (victim == null || isColder(candidate, victim, now)) {
+                victim = candidate;
+            }
+        }
+        
+        index.remove(victim.key);
+        detach(victim);
+        return victim.key;
+    }
+    
+    @Override
+    public void clear() {
+        entries.clear();
+        index.clear();
+    }
+    
+    private void touch(Entry entry) {
+        entry.lastAccess = ++clock;
+        if (lfu) {
+            decay(entry, System.currentTimeMillis());
+            if (entry.counter < 255) {
+                double base = Math.max(0, entry.counter - LFU_INIT);
+                if (ThreadLocalRandom.current().nextDouble() < 1.0 / (base * LFU_LOG_FACTOR + 1)) {
+                    entry.counter++;
+                }
+            }
+        }
+    }
+    
+    private boolean isColder(Entry candidate, Entry current, long now) {
+        if (lfu) {
+            decay(candidate, now);
+            decay(current, now);
+            if (candidate.counter != current.counter) {
+                return candidate.counter < current.counter;
+            }
+        }
+        return candidate.lastAccess < current.lastAccess;
+    }
+    
+    private static void decay(Entry entry, long now) {
+        long periods = (now - entry.lastDecay) / LFU_DECAY_MS;
+        if (periods > 0) {
+            entry.counter = (int) Math.max(0, entry.counter - periods);
+            entry.lastDecay += periods * LFU_DECAY_MS;
+        }
+    }
+    
+    /**
+     * Retira a entrada do array, movendo a última para a sua posição.
+     */
+    private void detach(Entry entry) {
+        Entry last = entries.remove(entries.size() - 1);
+        if (last != entry) {
+            last.position = entry.position;
+            entries.set(entry.position, last);
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package component.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Log de eventos durável, em segmentos de tamanho fixo.
+ * Cada segmento é um arquivo (N.log, em que N é o deslocamento do seu primeiro evento)
+ * criado já com o tamanho configurado e mapeado em memória por inteiro. Os eventos são
+ * acrescentados por FileChannel no formato [CRC32][TAMANHO][ÍNDICE_DO_LOG][EVENTO] e lidos
+ * pelo mapeamento, sem chamadas de sistema nem cópias para buffers intermediários. Quando um
+ * evento não cabe no espaço restante, o segmento é fechado para escrita e os seguintes vão
+ * para um segmento novo.
+ *
+ * Cada segmento tem um índice esparso, com a posição de um evento a cada intervalo de bytes:
+ * a leitura de um deslocamento busca a entrada anterior mais próxima e avança registro a
+ * registro a partir dela. O índice de um segmento fechado é gravado em N.index, com o número
+ * de eventos e os bytes usados, o que dispensa reler o segmento ao reabrir.
+ *
+ * Na inicialização, o último segmento é percorrido validando o CRC de cada registro: um
+ * registro incompleto ou corrompido no final, deixado por uma escrita interrompida, é
+ * descartado com o que vem depois dele. O maior índice do log gravado indica até onde o
+ * estado foi aplicado, o que permite ao nó retomar a replicação a partir dele.
+ *
+ * As posições dos consumidores nomeados ficam em cursors.dat, no mesmo diretório.
+ *
+ * A instalação de um estado recebido do líder é registrada em install.dat: clear grava nele
+ * uma instalação em andamento antes de apagar os segmentos, e completeInstall, depois de
+ * sincronizar os eventos recebidos, grava a versão instalada. Um log reaberto com a
+ * instalação em andamento é descartado por inteiro, e o nó recebe o estado de novo.
+ *
+ * Os acréscimos são serializados pelo monitor do log; as leituras não usam lock e enxergam
+ * os eventos até o tamanho publicado depois de cada acréscimo.
+ */
+public class SegmentedEventStore implements EventStore {
+    private static final Logger LOGGER = Logger.getLogger(SegmentedEventStore.class.getName());
+    
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    // [EVENTOS][BYTES_USADOS][ÍNDICE_DO_LOG], seguido das entradas [DESLOCAMENTO_RELATIVO][POSIÇÃO]
+    private static final int INDEX_HEADER_BYTES = 4 + 4 + 8;
+    private static final int INDEX_ENTRY_BYTES = 4 + 4;
+    // Conteúdo de install.dat enquanto uma instalação de estado não termina
+    private static final long INSTALL_IN_PROGRESS = -1;
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexIntervalBytes;
+    private final boolean fsync;
+    
+    // Conteúdo atual; substituído por inteiro em clear
+    private volatile Content content = new Content();
+    // Segmento que recebe os acréscimos (protegido pelo monitor do log)
+    private Segment active;
+    private volatile long appliedIndex = 0;
+    private final ConsumerCursors cursors;
+    
+    /**
+     * Segmentos, por deslocamento inicial, e número de eventos publicados.
+     */
+    private static final class Content {
+        final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+        volatile long size = 0;
+    }
+    
+    /**
+     * Arquivo de um segmento, mapeado em memória por inteiro.
+     */
+    private static final class Segment {
+        final long baseOffset;
+        final Path path;
+        final FileChannel channel;
+        final int capacity;
+        MappedByteBuffer mapped;
+        // Eventos e bytes gravados; lidos depois do tamanho publicado do log
+        volatile int count = 0;
+        volatile int end = 0;
+        // Índice esparso: (deslocamento relativo << 32) | posição, em ordem crescente
+        volatile long[] index = new long[64];
+        volatile int indexSize = 0;
+        int lastIndexedPosition = 0;
+        long maxAppliedIndex = 0;
+        
+        Segment(long baseOffset, Path path, FileChannel channel, int capacity) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.channel = channel;
+            this.capacity = capacity;
+        }
+        
+        /**
+         * Registra a posição de um evento no índice esparso. Chamado apenas pelo escritor.
+         */
+        void addIndexEntry(int relativeOffset, int position) {
+            long[] entries = index;
+            int size = indexSize;
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+                index = entries;
+            }
+            entries[size] = ((long) relativeOffset << 32) | position;
+            indexSize = size + 1;
+            lastIndexedPosition = position;
+        }
+        
+        /**
+         * Obtém a posição do registro de um evento já publicado do segmento.
+         */
+        int locate(int relativeOffset) {
+            int size = indexSize;
+            long[] entries = index;
+            int low = 0;
+            int high = size - 1;
+            int found = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if ((int) (entries[middle] >>> 32) <= relativeOffset) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            int current = (int) (entries[found] >>> 32);
+            int position = (int) entries[found];
+            while (current < relativeOffset) {
+                position += HEADER_BYTES + mapped.getInt(position + 4);
+                current++;
+            }
+            return position;
+        }
+    }
+    
+    /**
+     * Recebe os registros percorridos por uma leitura.
+     */
+    private interface RecordVisitor {
+        /**
+         * @return false para encerrar a leitura antes deste registro
+         */
+        boolean visit(MappedByteBuffer mapped, int position, int length) throws IOException;
+    }
+    
+    /**
+     * Construtor para SegmentedEventStore. Abre (ou cria) o diretório e recupera os segmentos.
+     *
+     * @param directory Diretório dos segmentos
+     * @param segmentBytes Tamanho de cada segmento em bytes
+     * @param indexIntervalBytes Distância em bytes entre entradas do índice esparso
+     * @param fsync Se cada acréscimo deve ser forçado para o disco
+     * @throws IOException Se o diretório não puder ser lido ou criado
+     */
+    public SegmentedEventStore(Path directory, long segmentBytes, int indexIntervalBytes,
+                               boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = (int) Math.max(4096, Math.min(Integer.MAX_VALUE, segmentBytes));
+        this.indexIntervalBytes = Math.max(1, indexIntervalBytes);
+        this.fsync = fsync;
+        
+        Files.createDirectories(directory);
+        long installed = readInstallMarker();
+        load();
+        this.cursors = new ConsumerCursors(directory.resolve("cursors.dat"), fsync);
+        
+        if (installed == INSTALL_IN_PROGRESS) {
+            LOGGER.warning("Instalação de estado interrompida em " + directory + ", descartando o log de eventos");
+            clear();
+            Files.deleteIfExists(installMarkerPath());
+        } else {
+            appliedIndex = Math.max(appliedIndex, installed);
+        }
+    }
+    
+    @Override
+    public synchronized long append(String event) {
+        byte[] payload = event.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + payload.length;
+        Content current = content;
+        
+        try {
+            if (active.end + recordBytes > active.capacity) {
+                rollActiveSegment(current, recordBytes);
+            }
+            
+            ByteBuffer record = encodeRecord(appliedIndex, payload);
+            int position = active.end;
+            while (record.hasRemaining()) {
+                active.channel.write(record, position + record.position());
+            }
+            if (fsync) {
+                active.channel.force(false);
+            }
+            
+            if (active.count == 0 || position - active.lastIndexedPosition >= indexIntervalBytes) {
+                active.addIndexEntry(active.count, position);
+            }
+            active.maxAppliedIndex = Math.max(active.maxAppliedIndex, appliedIndex);
+            active.end = position + recordBytes;
+            active.count = active.count + 1;
+            
+            // Publica o evento para os leitores
+            long offset = current.size;
+            current.size = offset + 1;
+            return offset;
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no segmento " + active.path, e);
+        }
+    }
+    
+    @Override
+    public long size() {
+        return content.size;
+    }
+    
+    @Override
+    public String get(long offset) {
+        Content current = content;
+        if (offset < 0 || offset >= current.size) {
+            return null;
+        }
+        Map.Entry<Long, Segment> entry = current.segments.floorEntry(offset);
+        if (entry == null || offset - entry.getKey() >= entry.getValue().count) {
+            return null;
+        }
+        Segment segment = entry.getValue();
+        return decode(segment.mapped, segment.locate((int) (offset - segment.baseOffset)));
+    }
+    
+    @Override
+    public void forEach(long from, long to, Consumer<String> action) {
+        try {
+            visit(from, to, (mapped, position, length) -> {
+                action.accept(decode(mapped, position));
+                return true;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao ler eventos", e);
+        }
+    }
+    
+    /**
+     * Escreve os eventos diretamente do mapeamento dos segmentos, sem decodificá-los.
+     */
+    @Override
+    public long writeTo(long from, long to, OutputStream output, byte separator) throws IOException {
+        WritableByteChannel target = Channels.newChannel(output);
+        return visit(from, to, (mapped, position, length) -> {
+            ByteBuffer payload = mapped.duplicate();
+            payload.position(position + HEADER_BYTES).limit(position + HEADER_BYTES + length);
+            while (payload.hasRemaining()) {
+                target.write(payload);
+            }
+            output.write(separator);
+            return true;
+        }).visited;
+    }
+    
+    /**
+     * Lê a página percorrendo os registros em sequência a partir de uma única busca no índice;
+     * o limite de bytes usa o tamanho gravado em cada registro.
+     */
+    @Override
+    public Page read(long from, int maxEvents, long maxBytes) {
+        List<String> events = new ArrayList<>();
+        long[] bytes = {0};
+        try {
+            long start = Math.max(0, from);
+            Visit result = visit(start, start + Math.max(0, maxEvents), (mapped, position, length) -> {
+                if (!events.isEmpty() && bytes[0] + length > maxBytes) {
+                    return false;
+                }
+                events.add(decode(mapped, position));
+                bytes[0] += length;
+                return true;
+            });
+            return new Page(events, result.nextOffset);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao ler eventos", e);
+        }
+    }
+    
+    @Override
+    public synchronized void clear() {
+        // Leitores que já obtiveram o conteúdo anterior terminam sobre ele: os mapeamentos
+        // continuam válidos depois que os arquivos são apagados
+        Content previous = content;
+        Content replacement = new Content();
+        try {
+            writeInstallMarker(INSTALL_IN_PROGRESS);
+            appliedIndex = 0;
+            for (Segment segment : previous.segments.values()) {
+                closeQuietly(segment);
+                Files.deleteIfExists(indexPath(segment.path));
+                Files.deleteIfExists(segment.path);
+            }
+            active = createSegment(replacement, 0, segmentBytes);
+            cursors.clear();
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao limpar o log de eventos em " + directory, e);
+        }
+        content = replacement;
+    }
+    
+    @Override
+    public synchronized void completeInstall(long index) {
+        try {
+            active.channel.force(false);
+            cursors.sync();
+            writeInstallMarker(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao concluir a instalação do log de eventos em " + directory, e);
+        }
+        appliedIndex = index;
+    }
+    
+    @Override
+    public ConsumerCursors getCursors() {
+        return cursors;
+    }
+    
+    @Override
+    public long getAppliedIndex() {
+        return appliedIndex;
+    }
+    
+    @Override
+    public void setAppliedIndex(long index) {
+        // Gravado nos registros seguintes; sem escrita própria
+        appliedIndex = index;
+    }
+    
+    @Override
+    public synchronized void close() {
+        try {
+            active.channel.force(false);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erro ao sincronizar o segmento " + active.path, e);
+        }
+        for (Segment segment : content.segments.values()) {
+            closeQuietly(segment);
+        }
+        cursors.close();
+    }
+    
+    /**
+     * Resultado de uma leitura: eventos percorridos e deslocamento em que ela parou.
+     */
+    private static final class Visit {
+        final long visited;
+        final long nextOffset;
+        
+        Visit(long visited, long nextOffset) {
+            this.visited = visited;
+            this.nextOffset = nextOffset;
+        }
+    }
+    
+    /**
+     * Percorre os registros dos eventos do intervalo [from, to) publicados no início da leitura,
+     * até o fim do intervalo ou até o visitante recusar um registro.
+     */
+    private Visit visit(long from, long to, RecordVisitor visitor) throws IOException {
+        Content current = content;
+        long end = Math.min(to, current.size);
+        long offset = Math.max(0, from);
+        long visited = 0;
+        
+        while (offset < end) {
+            Map.Entry<Long, Segment> entry = current.segments.floorEntry(offset);
+            Segment segment = entry != null ? entry.getValue() : null;
+            if (segment == null || offset - segment.baseOffset >= segment.count) {
+                // Deslocamentos perdidos num segmento corrompido: segue para o próximo segmento
+                Long next = current.segments.higherKey(offset);
+                if (next == null) {
+                    break;
+                }
+                offset = next;
+                continue;
+            }
+            
+            long segmentEnd = Math.min(end, segment.baseOffset + segment.count);
+            int position = segment.locate((int) (offset - segment.baseOffset));
+            for (; offset < segmentEnd; offset++) {
+                int length = segment.mapped.getInt(position + 4);
+                if (!visitor.visit(segment.mapped, position, length)) {
+                    return new Visit(visited, offset);
+                }
+                position += HEADER_BYTES + length;
+                visited++;
+            }
+        }
+        return new Visit(visited, offset);
+    }
+    
+    private static String decode(MappedByteBuffer mapped, int position) {
+        byte[] payload = new byte[mapped.getInt(position + 4)];
+        ByteBuffer in = mapped.duplicate();
+        in.position(position + HEADER_BYTES);
+        in.get(payload);
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+    
+    private static ByteBuffer encodeRecord(long index, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(0).putInt(payload.length).putLong(index).put(payload);
+        
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+    
+    /**
+     * Fecha o segmento ativo para escrita e abre um novo a partir do próximo deslocamento.
+     * Um segmento ainda vazio é recriado maior se o evento não couber no tamanho configurado.
+     * Chamado com o monitor do log.
+     */
+    private void rollActiveSegment(Content current, int recordBytes) throws IOException {
+        int capacity = Math.max(segmentBytes, recordBytes);
+        if (active.count == 0) {
+            current.segments.remove(active.baseOffset);
+            closeQuietly(active);
+            Files.deleteIfExists(active.path);
+        } else {
+            seal(active);
+        }
+        active = createSegment(current, current.size, capacity);
+    }
+    
+    /**
+     * Torna um segmento imutável: sincroniza os dados e grava o seu índice.
+     */
+    private void seal(Segment segment) throws IOException {
+        segment.channel.force(false);
+        writeIndex(segment);
+    }
+    
+    private Segment createSegment(Content target, long baseOffset, int capacity) throws IOException {
+        Path path = directory.resolve(String.format("%020d.log", baseOffset));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        Segment segment = new Segment(baseOffset, path, channel, capacity);
+        // O mapeamento estende o arquivo até o tamanho do segmento, preenchido com zeros
+        segment.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+        target.segments.put(baseOffset, segment);
+        return segment;
+    }
+    
+    /**
+     * Recupera os segmentos existentes. Os que têm índice são abertos sem leitura; os demais
+     * são percorridos, e o último deles passa a receber os acréscimos.
+     */
+    private void load() throws IOException {
+        List<Path> dataFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.log")) {
+            for (Path path : stream) {
+                dataFiles.add(path);
+            }
+        }
+        dataFiles.sort(null);
+        
+        Content loaded = new Content();
+        Segment last = null;
+        for (Path path : dataFiles) {
+            String name = path.getFileName().toString();
+            long baseOffset = Long.parseLong(name.substring(0, name.length() - 4));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Um arquivo vazio vem de uma parada logo após a criação do segmento
+            int capacity = channel.size() > 0 ? (int) channel.size() : segmentBytes;
+            Segment segment = new Segment(baseOffset, path, channel, capacity);
+            segment.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+            
+            if (last != null && last.baseOffset + last.count != baseOffset) {
+                LOGGER.warning("Deslocamentos " + (last.baseOffset + last.count) + " a " + (baseOffset - 1) +
+                               " ausentes antes de " + path);
+            }
+            
+            Path index = indexPath(path);
+            if (Files.exists(index)) {
+                loadIndex(segment, index);
+            } else {
+                scanSegment(segment);
+            }
+            appliedIndex = Math.max(appliedIndex, segment.maxAppliedIndex);
+            loaded.segments.put(baseOffset, segment);
+            loaded.size = baseOffset + segment.count;
+            
+            // Segmentos sem índice antes do último vêm de uma parada durante a troca de segmento
+            if (last != null && !Files.exists(indexPath(last.path))) {
+                seal(last);
+            }
+            last = segment;
+        }
+        
+        if (last != null && !Files.exists(indexPath(last.path))) {
+            active = last;
+        } else {
+            active = createSegment(loaded, loaded.size, segmentBytes);
+        }
+        content = loaded;
+    }
+    
+    /**
+     * Percorre os registros de um segmento sem índice, validando o CRC de cada um e montando o
+     * índice esparso. Um registro incompleto ou corrompido no final, deixado por uma escrita
+     * interrompida, é descartado com tudo o que vem depois dele.
+     */
+    private void scanSegment(Segment segment) throws IOException {
+        MappedByteBuffer data = segment.mapped;
+        CRC32 crc = new CRC32();
+        int position = 0;
+        int count = 0;
+        
+        while (position + HEADER_BYTES <= segment.capacity) {
+            int storedCrc = data.getInt(position);
+            int length = data.getInt(position + 4);
+            if (length < 0 || length > segment.capacity - position - HEADER_BYTES) {
+                break;
+            }
+            
+            ByteBuffer body = data.duplicate();
+            body.position(position + 4).limit(position + HEADER_BYTES + length);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            
+            if (count == 0 || position - segment.lastIndexedPosition >= indexIntervalBytes) {
+                segment.addIndexEntry(count, position);
+            }
+            segment.maxAppliedIndex = Math.max(segment.maxAppliedIndex, data.getLong(position + 8));
+            position += HEADER_BYTES + length;
+            count++;
+        }
+        segment.count = count;
+        segment.end = position;
+        
+        // O espaço depois do último registro válido deve estar zerado para os próximos acréscimos
+        int dirty = position;
+        for (int i = position; i < segment.capacity; i++) {
+            if (data.get(i) != 0) {
+                dirty = i + 1;
+            }
+        }
+        if (dirty > position) {
+            LOGGER.warning("Descartando " + (dirty - position) + " bytes inválidos do final de " + segment.path);
+            segment.channel.write(ByteBuffer.allocate(dirty - position), position);
+            segment.channel.force(false);
+        }
+    }
+    
+    private void loadIndex(Segment segment, Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            segment.count = data.getInt();
+            segment.end = data.getInt();
+            segment.maxAppliedIndex = data.getLong();
+            while (data.remaining() >= INDEX_ENTRY_BYTES) {
+                segment.addIndexEntry(data.getInt(), data.getInt());
+            }
+        }
+    }
+    
+    /**
+     * Grava o índice de um segmento fechado, por um arquivo temporário renomeado no final.
+     */
+    private void writeIndex(Segment segment) throws IOException {
+        int entries = segment.indexSize;
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_BYTES + entries * INDEX_ENTRY_BYTES);
+        buffer.putInt(segment.count).putInt(segment.end).putLong(segment.maxAppliedIndex);
+        for (int i = 0; i < entries; i++) {
+            long entry = segment.index[i];
+            buffer.putInt((int) (entry >>> 32)).putInt((int) entry);
+        }
+        buffer.flip();
+        
+        Path index = indexPath(segment.path);
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Obtém a versão registrada em install.dat.
+     * 
+     * @return Versão instalada (0 sem registro), ou INSTALL_IN_PROGRESS
+     */
+    private long readInstallMarker() throws IOException {
+        Path marker = installMarkerPath();
+        if (!Files.exists(marker)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(marker));
+        return data.remaining() >= 8 ? data.getLong() : INSTALL_IN_PROGRESS;
+    }
+    
+    /**
+     * Grava install.dat de forma durável, por um arquivo temporário renomeado no final.
+     */
+    private void writeInstallMarker(long version) throws IOException {
+        Path marker = installMarkerPath();
+        Path temporary = marker.resolveSibling(marker.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(8).putLong(version);
+        buffer.flip();
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        Files.move(temporary, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private Path installMarkerPath() {
+        return directory.resolve("install.dat");
+    }
+    
+    private static Path indexPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - 4) + ".index");
+    }
+    
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erro ao fechar o segmento " + segment.path, e);
+        }
+    }
+    
+    /**
+     * Abre (ou cria) o log de eventos no diretório informado.
+     */
+    public static SegmentedEventStore open(String directory, long segmentBytes, int indexIntervalBytes,
+                                           boolean fsync) throws IOException {
+        return new SegmentedEventStore(Paths.get(directory), segmentBytes, indexIntervalBytes, fsync);
+    }
+}
@@ -0,0 +1,267 @@
+package component.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Política W-TinyLFU, a mesma do Caffeine.
+ * Chaves novas entram numa pequena janela LRU (1% do limite), que absorve rajadas de chaves
+ * acessadas uma única vez. Ao sair da janela, a chave vai para o período de prova da área
+ * principal, uma LRU segmentada: um segundo acesso a promove para a área protegida (80% do
+ * limite), e o excesso da área protegida volta para a prova.
+ * 
+ * Na hora de remover, a chave mais recente da prova (em geral a que acabou de sair da janela)
+ * disputa com a mais antiga; fica a de maior frequência estimada. As frequências vêm de um
+ * count-min sketch de contadores de 4 bits, que cabe em poucos bytes por chave e é reduzido
+ * à metade periodicamente, para que o histórico antigo perca peso.
+ */
+class TinyLfuPolicy implements EvictionPolicy {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    
+    private final long windowMax;
+    private final long protectedMax;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedSegment = new AccessOrder();
+    private final FrequencySketch sketch = new FrequencySketch();
+    
+    private static final class Node {
+        final String key;
+        int weight;
+        AccessOrder segment;
+        Node previous;
+        Node next;
+        
+        Node(String key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+    
+    /**
+     * Lista duplamente encadeada em ordem de acesso (a cabeça é a chave menos recente),
+     * com a soma dos pesos das suas chaves.
+     */
+    private static final class AccessOrder {
+        Node head;
+        Node tail;
+        long bytes;
+        
+        void addLast(Node node) {
+            node.segment = this;
+            node.previous = tail;
+            node.next = null;
+            if (tail != null) {
+                tail.next = node;
+            } else {
+                head = node;
+            }
+            tail = node;
+            bytes += node.weight;
+        }
+        
+        void remove(Node node) {
+            if (node.previous != null) {
+                node.previous.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.previous = node.previous;
+            } else {
+                tail = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            node.segment = null;
+            bytes -= node.weight;
+        }
+        
+        boolean isEmpty() {
+            return head == null;
+        }
+    }
+    
+    /**
+     * Construtor para TinyLfuPolicy.
+     * 
+     * @param maxBytes Limite de memória do armazenamento
+     */
+    TinyLfuPolicy(long maxBytes) {
+        this.windowMax = Math.max(1, maxBytes * WINDOW_PERCENT / 100);
+        this.protectedMax = Math.max(1, (maxBytes - windowMax) * PROTECTED_PERCENT / 100);
+    }
+    
+    @Override
+    public void onWrite(String key, int weight) {
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(key, weight);
+            nodes.put(key, node);
+            window.addLast(node);
+            sketch.ensureCapacity(nodes.size());
+        } else {
+            AccessOrder segment = node.segment;
+            segment.remove(node);
+            node.weight = weight;
+            segment.addLast(node);
+            onHit(node);
+        }
+        balance();
+    }
+    
+    @Override
+    public void onAccess(String key) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            sketch.increment(key);
+            onHit(node);
+            balance();
+        }
+    }
+    
+    @Override
+    public void onRemove(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            node.segment.remove(node);
+        }
+    }
+    
+    @Override
+    public String nextVictim() {
+        if (probation.isEmpty()) {
+            // Sem candidatos na prova: sai a chave mais antiga da área protegida ou, por último, da janela
+            AccessOrder source = !protectedSegment.isEmpty() ? protectedSegment : window;
+            return source.isEmpty() ? null : evict(source.head);
+        }
+        
+        Node victim = probation.head;
+        Node candidate = probation.tail;
+        if (victim == candidate) {
+            return evict(victim);
+        }
+        return evict(sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate);
+    }
+    
+    @Override
+    public void clear() {
+        nodes.clear();
+        window.head = window.tail = null;
+        probation.head = probation.tail = null;
+        protectedSegment.head = protectedSegment.tail = null;
+        window.bytes = probation.bytes = protectedSegment.bytes = 0;
+    }
+    
+    /**
+     * Move uma chave acessada para o fim do seu segmento; na prova, ela é promovida.
+     */
+    private void onHit(Node node) {
+        AccessOrder segment = node.segment;
+        segment.remove(node);
+        (segment == probation ? protectedSegment : segment).addLast(node);
+    }
+    
+    /**
+     * Leva o excesso da janela para a prova e o excesso da área protegida de volta para a prova.
+     */
+    private void balance() {
+        while (window.bytes > windowMax && window.head != window.tail) {
+            Node node = window.head;
+            window.remove(node);
+            probation.addLast(node);
+        }
+        while (protectedSegment.bytes > protectedMax && protectedSegment.head != protectedSegment.tail) {
+            Node node = protectedSegment.head;
+            protectedSegment.remove(node);
+            probation.addLast(node);
+        }
+    }
+    
+    private String evict(Node node) {
+        nodes.remove(node.key);
+        node.segment.remove(node);
+        return node.key;
+    }
+    
+    /**
+     * Count-min sketch com quatro contadores de 4 bits por chave, agrupados em longs.
+     * Cada long guarda 16 contadores: um grupo de quatro (um por função de hash) é escolhido
+     * pelo hash, o que mantém os contadores de uma chave na mesma linha de cache.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int MIN_TABLE_SIZE = 64;
+        private static final int MAX_TABLE_SIZE = 1 << 26;
+        
+        private long[] table = new long[MIN_TABLE_SIZE];
+        private int additions = 0;
+        // Número de incrementos após o qual os contadores são reduzidos à metade
+        private int sampleSize = 10 * MIN_TABLE_SIZE;
+        
+        /**
+         * Aumenta a tabela para acompanhar o número de chaves; os contadores recomeçam do zero.
+         */
+        void ensureCapacity(int keys) {
+            if (table.length >= keys || table.length >= MAX_TABLE_SIZE) {
+                return;
+            }
+            int size = Math.min(MAX_TABLE_SIZE, Integer.highestOneBit(keys - 1) << 1);
+            table = new long[size];
+            additions = 0;
+            sampleSize = 10 * size;
+        }
+        
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            int group = (hash >>> 30) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int shift = (group + i) << 2;
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+        
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int group = (hash >>> 30) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int shift = (group + i) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+        
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & (table.length - 1);
+        }
+        
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+        
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package component.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Armazenamento com leituras em snapshot (MVCC): envolve outro mecanismo e permite abrir
+ * visões do conteúdo num ponto fixo no tempo, usadas em varreduras, listagens e snapshots de
+ * replicação, sem impedir as escritas enquanto a visão é lida.
+ *
+ * Cada escrita recebe uma revisão. O mecanismo envolvido guarda apenas a versão atual; as
+ * versões anteriores só são guardadas enquanto há snapshots abertos, numa cadeia por chave
+ * (da mais recente para a mais antiga) com a revisão que as substituiu. Uma chave alterada
+ * várias vezes desde o snapshot mais recente guarda uma única versão antiga. Um snapshot na
+ * revisão S lê o valor atual e, se a chave foi alterada depois de S, o valor anterior à
+ * primeira dessas alterações. Quando um snapshot é fechado, as versões que nenhum snapshot
+ * aberto enxerga são descartadas.
+ *
+ * As escritas são serializadas entre si (elas já chegam em ordem, da aplicação do log); as
+ * leituras, atuais ou em snapshot, não usam lock. A escrita guarda a versão antiga antes de
+ * gravar a nova, e a leitura em snapshot lê o valor atual antes da cadeia, de modo que uma
+ * leitura concorrente com uma escrita sempre encontra a versão certa.
+ */
+public class VersionedStore implements KeyValueStore {
+    private final KeyValueStore delegate;
+    // Revisão da última escrita
+    private long revision = 0;
+    // Revisão -> número de snapshots abertos nela; protegido pelo lock das escritas
+    private final NavigableMap<Long, Integer> openSnapshots = new TreeMap<>();
+    // Versões antigas ainda visíveis a algum snapshot, em ordem de chave para as varreduras
+    private final ConcurrentSkipListMap<String, Version> versions = new ConcurrentSkipListMap<>();
+    private int retainedVersions = 0;
+    
+    /**
+     * Valor de uma chave antes da escrita da revisão informada.
+     */
+    private static final class Version {
+        final long replacedAt;
+        // null se a chave não existia
+        final String value;
+        volatile Version older;
+        
+        Version(long replacedAt, String value, Version older) {
+            this.replacedAt = replacedAt;
+            this.value = value;
+            this.older = older;
+        }
+    }
+    
+    /**
+     * Visão do conteúdo numa revisão. Deve ser fechada quando não for mais usada, para que as
+     * versões antigas que só ela enxerga sejam descartadas.
+     */
+    public final class Snapshot implements AutoCloseable {
+        private final long snapshotRevision;
+        private boolean closed = false;
+        
+        private Snapshot(long snapshotRevision) {
+            this.snapshotRevision = snapshotRevision;
+        }
+        
+        /**
+         * Obtém a revisão do snapshot.
+         */
+        public long getRevision() {
+            return snapshotRevision;
+        }
+        
+        /**
+         * Obtém o valor de uma chave na revisão do snapshot.
+         *
+         * @return Valor, ou null se a chave não existia
+         */
+        public String get(String key) {
+            String value = delegate.get(key);
+            for (Version version = versions.get(key); version != null && version.replacedAt > snapshotRevision;
+                 version = version.older) {
+                value = version.value;
+            }
+            return value;
+        }
+        
+        /**
+         * Obtém, em ordem crescente, as chaves do intervalo [from, to) que existiam na revisão
+         * do snapshot, com a mesma semântica de KeyValueStore.keysInRange.
+         */
+        public List<String> keysInRange(String from, String to, int limit) {
+            List<String> keys = new ArrayList<>();
+            String start = from;
+            while (keys.size() < limit) {
+                // Chaves atuais criadas depois do snapshot são descartadas; as removidas depois
+                // dele vêm das versões antigas
+                int batch = limit - keys.size() + 1;
+                List<String> current = delegate.keysInRange(start, to, batch);
+                boolean exhausted = current.size() < batch;
+                String end = exhausted ? to : current.get(current.size() - 1);
+                
+                TreeSet<String> candidates = new TreeSet<>(current);
+                candidates.addAll((end == null ? versions.tailMap(start, true) :
+                                   versions.subMap(start, true, end, !exhausted)).keySet());
+                for (String key : candidates) {
+                    if (keys.size() >= limit) {
+                        break;
+                    }
+                    if (get(key) != null) {
+                        keys.add(key);
+                    }
+                }
+                if (exhausted) {
+                    break;
+                }
+                start = end + '\u0000';
+            }
+            return keys;
+        }
+        
+        /**
+         * Obtém as chaves que existiam na revisão do snapshot.
+         *
+         * @return Chaves, sem ordem definida
+         */
+        public Collection<String> keys() {
+            List<String> keys = new ArrayList<>();
+            forEach((key, value) -> keys.add(key));
+            return keys;
+        }
+        
+        /**
+         * Percorre os pares chave-valor da revisão do snapshot, sem copiar todo o conteúdo.
+         *
+         * @param action Ação aplicada a cada par
+         */
+        public void forEach(BiConsumer<String, String> action) {
+            Set<String> visited = new HashSet<>(delegate.keys());
+            for (String key : visited) {
+                String value = get(key);
+                if (value != null) {
+                    action.accept(key, value);
+                }
+            }
+            // Chaves removidas depois do snapshot, que não estavam entre as atuais
+            for (String key : versions.keySet()) {
+                if (!visited.contains(key)) {
+                    String value = get(key);
+                    if (value != null) {
+                        action.accept(key, value);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Obtém uma cópia do conteúdo na revisão do snapshot.
+         */
+        public Map<String, String> toMap() {
+            Map<String, String> entries = new HashMap<>();
+            forEach(entries::put);
+            return entries;
+        }
+        
+        @Override
+        public void close() {
+            synchronized (VersionedStore.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                openSnapshots.computeIfPresent(snapshotRevision, (revision, count) -> count > 1 ? count - 1 : null);
+                collectVersions();
+            }
+        }
+    }
+    
+    /**
+     * Construtor para VersionedStore.
+     *
+     * @param delegate Mecanismo de armazenamento envolvido
+     */
+    public VersionedStore(KeyValueStore delegate) {
+        this.delegate = delegate;
+    }
+    
+    /**
+     * Abre um snapshot na revisão atual. A abertura não copia dados.
+     *
+     * @return Snapshot, a ser fechado depois do uso
+     */
+    public synchronized Snapshot openSnapshot() {
+        openSnapshots.merge(revision, 1, Integer::sum);
+        return new Snapshot(revision);
+    }
+    
+    /**
+     * Obtém a revisão da última escrita.
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+    
+    /**
+     * Obtém o número de versões antigas mantidas para snapshots abertos.
+     */
+    public synchronized int getRetainedVersions() {
+        return retainedVersions;
+    }
+    
+    /**
+     * Obtém o número de snapshots abertos.
+     */
+    public synchronized int getOpenSnapshots() {
+        int count = 0;
+        for (int snapshots : openSnapshots.values()) {
+            count += snapshots;
+        }
+        return count;
+    }
+    
+    @Override
+    public String get(String key) {
+        return delegate.get(key);
+    }
+    
+    @Override
+    public synchronized void put(String key, String value) {
+        revision++;
+        preserve(key);
+        delegate.put(key, value);
+    }
+    
+    @Override
+    public synchronized void putAll(Map<String, String> entries) {
+        // Um lote inteiro numa única revisão: um snapshot vê todos os pares ou nenhum
+        revision++;
+        for (String key : entries.keySet()) {
+            preserve(key);
+        }
+        delegate.putAll(entries);
+    }
+    
+    @Override
+    public synchronized boolean remove(String key) {
+        revision++;
+        preserve(key);
+        return delegate.remove(key);
+    }
+    
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+    
+    @Override
+    public Collection<String> keys() {
+        return delegate.keys();
+    }
+    
+    @Override
+    public List<String> keysInRange(String from, String to, int limit) {
+        return delegate.keysInRange(from, to, limit);
+    }
+    
+    @Override
+    public Map<String, String> toMap() {
+        return delegate.toMap();
+    }
+    
+    @Override
+    public synchronized void replaceAll(Map<String, String> entries) {
+        revision++;
+        if (!openSnapshots.isEmpty()) {
+            for (String key : delegate.keys()) {
+                preserve(key);
+            }
+            for (String key : entries.keySet()) {
+                preserve(key);
+            }
+        }
+        delegate.replaceAll(entries);
+    }
+    
+    @Override
+    public long getAppliedIndex() {
+        return delegate.getAppliedIndex();
+    }
+    
+    @Override
+    public void setAppliedIndex(long index) {
+        delegate.setAppliedIndex(index);
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+    
+    /**
+     * Guarda o valor atual de uma chave antes de uma escrita, se algum snapshot aberto
+     * precisar dele. Chamado com o lock das escritas, depois de avançar a revisão.
+     */
+    private void preserve(String key) {
+        if (openSnapshots.isEmpty()) {
+            return;
+        }
+        Version head = versions.get(key);
+        if (head != null && head.replacedAt > openSnapshots.lastKey()) {
+            // O snapshot mais recente já enxerga a versão guardada na primeira alteração depois dele
+            return;
+        }
+        versions.put(key, new Version(revision, delegate.get(key), head));
+        retainedVersions++;
+    }
+    
+    /**
+     * Descarta as versões que nenhum snapshot aberto enxerga. Um snapshot na revisão S usa,
+     * de cada chave, a versão mais antiga substituída depois de S; uma versão só é mantida se
+     * algum snapshot aberto estiver entre a revisão da versão anterior e a sua.
+     */
+    private void collectVersions() {
+        if (openSnapshots.isEmpty()) {
+            versions.clear();
+            retainedVersions = 0;
+            return;
+        }
+        for (Map.Entry<String, Version> entry : versions.entrySet()) {
+            Version newer = null;
+            Version version = entry.getValue();
+            while (version != null) {
+                Version older = version.older;
+                Long snapshot = openSnapshots.ceilingKey(older != null ? older.replacedAt : Long.MIN_VALUE);
+                if (snapshot == null || snapshot >= version.replacedAt) {
+                    // Desligar a versão não afeta leitores já posicionados nela, que seguem para older
+                    if (newer == null) {
+                        if (older == null) {
+                            versions.remove(entry.getKey(), version);
+                        } else {
+                            versions.replace(entry.getKey(), version, older);
+                        }
+                    } else {
+                        newer.older = older;
+                    }
+                    retainedVersions--;
+                } else {
+                    newer = version;
+                }
+                version = older;
+            }
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package gateway;
 
 import common.model.ComponentInfo;
+import common.model.ReadConsistency;
 import common.config.SystemConfig;
+import java.util.ArrayList;
 import java.util.List;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -37,9 +45,12 @@ public class APIGateway {
     private final int tcpPort;
     private final int udpPort;
     private final int registrationPort;
+    private final int batchSplitKeys;
     
     private boolean isRunning = false;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    // Partes de leituras em lote encaminhadas em paralelo
+    private final ExecutorService batchExecutor = Executors.newCachedThreadPool();
 
     /**
      * Construtor do Gateway de API.
@@ -51,6 +62,7 @@ public class APIGateway {
         this.tcpPort = config.getTcpPort();
         this.udpPort = config.getUdpPort();
         this.registrationPort = config.getRegistrationPort();
+        this.batchSplitKeys = config.getGatewayBatchSplitKeys();
         
         // Inicializa os componentes
         this.registry = new ComponentRegistry();
@@ -133,6 +145,7 @@ public class APIGateway {
         tcpHandler.stop();
         udpHandler.stop();
         heartbeatMonitor.stop();
+        batchExecutor.shutdown();
         
         // Encerra o agendador
         scheduler.shutdown();
@@ -150,6 +163,10 @@ public class APIGateway {
     
     /**
      * Encaminha uma requisição para os componentes registrados.
+     * Leituras com nível de consistência explícito podem ser atendidas por qualquer réplica
+     * (round-robin), o que distribui a carga de leitura entre todas elas. Leituras em lote
+     * (MGET) com mais chaves que gateway.batch.split.keys são divididas entre as réplicas
+     * e as respostas reunidas na ordem original.
      * 
      * @param componentType Tipo do componente de destino
      * @param request Requisição em formato de bytes
@@ -164,6 +181,23 @@ public class APIGateway {
             return "Nenhum componente disponível".getBytes();
         }
         
+        if (availableComponents.size() > 1) {
+            BatchSplitter batch = BatchSplitter.split(request, protocol, batchSplitKeys);
+            if (batch != null) {
+                return scatter(componentType, batch, protocol, availableComponents.size());
+            }
+        }
+        
+        return routeToReplica(componentType, request, protocol, availableComponents.size());
+    }
+    
+    /**
+     * Encaminha uma requisição à próxima réplica (round-robin). Leituras com defasagem
+     * limitada recusadas por uma réplica atrasada seguem para as próximas.
+     * 
+     * @param replicas Número de réplicas disponíveis
+     */
+    private byte[] routeToReplica(String componentType, byte[] request, String protocol, int replicas) {
         // Balanceamento de carga simples (round-robin)
         ComponentInfo selected = registry.selectComponent(componentType);
         
@@ -175,7 +209,113 @@ public class APIGateway {
         // LOGGER.info("Encaminhando requisição " + protocol + " para " + componentType + 
         //            " em " + selected.getHost() + ":" + selected.getPortForProtocol(protocol));
         
-        // Encaminha a requisição com base no protocolo
+        byte[] response = forwardToComponent(selected, request, protocol);
+        
+        // Leituras com defasagem limitada recusadas por uma réplica atrasada seguem para as próximas
+        ReadConsistency consistency = getReadConsistency(request, protocol);
+        if (consistency != null && consistency.getLevel() == ReadConsistency.Level.BOUNDED) {
+            for (int attempt = 1; attempt < replicas && isStaleResponse(response, protocol); attempt++) {
+                ComponentInfo next = registry.selectComponent(componentType);
+                if (next == null) {
+                    break;
+                }
+                response = forwardToComponent(next, request, protocol);
+            }
+        }
+        
+        return response;
+    }
+    
+    /**
+     * Encaminha em fluxo uma leitura ou escrita de valor (GET /get/ ou POST/PUT /set/ do
+     * Componente A): os corpos da requisição e da resposta atravessam o gateway em blocos,
+     * sem serem montados na memória. Leituras com defasagem limitada recusadas por uma
+     * réplica atrasada seguem para as próximas, como em routeRequest.
+     * 
+     * @param componentType Tipo do componente de destino
+     * @param requestHead Linha de requisição e cabeçalhos, já com o caminho reescrito
+     * @param body Fluxo do cliente, posicionado no início do corpo
+     * @param client Fluxo de saída para o cliente
+     * @return false se nenhum componente estava disponível (nada foi enviado ao cliente)
+     * @throws IOException Se ocorrer um erro na comunicação com o componente ou com o cliente
+     */
+    public boolean routeStream(String componentType, String requestHead, InputStream body,
+                               OutputStream client) throws IOException {
+        int replicas = registry.getAvailableComponents(componentType).size();
+        ReadConsistency consistency = getReadConsistency(requestHead.getBytes(), "http");
+        boolean retryStale = requestHead.startsWith("GET ") && consistency != null &&
+                             consistency.getLevel() == ReadConsistency.Level.BOUNDED;
+        
+        for (int attempt = 0; attempt < Math.max(1, replicas); attempt++) {
+            ComponentInfo selected = registry.selectComponent(componentType);
+            if (selected == null) {
+                return false;
+            }
+            boolean lastAttempt = !retryStale || attempt + 1 >= replicas;
+            try {
+                if (httpHandler.streamRequest(selected, requestHead, body, client, lastAttempt)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                registry.markComponentSuspect(selected);
+                throw e;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Encaminha por TCP uma inscrição (WATCH e WATCH_PREFIX do Componente A) a um componente,
+     * repassando as linhas ao cliente enquanto ela durar.
+     * 
+     * @param componentType Tipo do componente de destino
+     * @param request Requisição de inscrição
+     * @param client Saída para o cliente
+     * @return false se nenhum componente estava disponível (nada foi enviado ao cliente)
+     * @throws IOException Se ocorrer um erro na comunicação com o componente
+     */
+    public boolean routeSubscription(String componentType, String request, PrintWriter client) throws IOException {
+        ComponentInfo selected = registry.selectComponent(componentType);
+        if (selected == null) {
+            return false;
+        }
+        try {
+            tcpHandler.streamLines(selected, request, client);
+        } catch (IOException e) {
+            registry.markComponentSuspect(selected);
+            throw e;
+        }
+        return true;
+    }
+    
+    /**
+     * Encaminha as partes de uma leitura em lote em paralelo, cada uma à próxima réplica,
+     * e junta as respostas.
+     */
+    private byte[] scatter(String componentType, BatchSplitter batch, String protocol, int replicas) {
+        List<Future<byte[]>> parts = new ArrayList<>();
+        for (byte[] part : batch.getRequests()) {
+            parts.add(batchExecutor.submit(() -> routeToReplica(componentType, part, protocol, replicas)));
+        }
+        
+        List<byte[]> responses = new ArrayList<>();
+        try {
+            for (Future<byte[]> part : parts) {
+                responses.add(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Requisição interrompida".getBytes();
+        } catch (ExecutionException e) {
+            return ("Erro ao encaminhar requisição: " + e.getCause().getMessage()).getBytes();
+        }
+        return batch.merge(responses);
+    }
+    
+    /**
+     * Encaminha a requisição a um componente com base no protocolo.
+     */
+    private byte[] forwardToComponent(ComponentInfo selected, byte[] request, String protocol) {
         try {
             switch (protocol.toLowerCase()) {
                 case "http":
@@ -198,6 +338,51 @@ public class APIGateway {
         }
     }
     
+    /**
+     * Extrai o nível de consistência de uma requisição de leitura.
+     * TCP/UDP: último campo dos verbos de leitura (GET|KEY|NÍVEL, MGET|K1|...|NÍVEL,
+     * SCAN|PREFIXO|CURSOR|LIMITE|NÍVEL, RANGE|DE|ATÉ|LIMITE|CURSOR|NÍVEL, LIST|NÍVEL,
+     * GET_EVENTS|NÍVEL, COUNT|NÍVEL, READ|DESLOCAMENTO|MAX_EVENTOS|MAX_BYTES|NÍVEL,
+     * READ_CURSOR|NOME|MAX_EVENTOS|MAX_BYTES|NÍVEL). HTTP: parâmetro consistency da query string.
+     * 
+     * @return Nível de consistência, ou null se a requisição não informa um nível
+     */
+    private ReadConsistency getReadConsistency(byte[] request, String protocol) {
+        String text = new String(request);
+        String level = null;
+        
+        if (protocol.equalsIgnoreCase("http")) {
+            String firstLine = text.contains("\r\n") ? text.substring(0, text.indexOf("\r\n")) : text;
+            int paramStart = firstLine.indexOf("consistency=");
+            if (paramStart >= 0) {
+                level = firstLine.substring(paramStart + 12).split("[& ]")[0];
+            }
+        } else {
+            String[] parts = text.trim().split("\\|");
+            String verb = parts[0].toUpperCase();
+            boolean isRead = verb.equals("GET") || verb.equals("MGET") ? parts.length >= 3 :
+                verb.equals("SCAN") || verb.equals("READ") || verb.equals("READ_CURSOR") ? parts.length >= 5 :
+                verb.equals("RANGE") ? parts.length >= 6 :
+                (verb.equals("LIST") || verb.equals("GET_EVENTS") || verb.equals("COUNT")) && parts.length >= 2;
+            if (isRead) {
+                level = parts[parts.length - 1];
+            }
+        }
+        
+        return level != null && ReadConsistency.isLevel(level) ? ReadConsistency.parse(level) : null;
+    }
+    
+    /**
+     * Verifica se a resposta indica que a réplica está mais defasada que o limite pedido.
+     */
+    private boolean isStaleResponse(byte[] response, String protocol) {
+        String text = new String(response);
+        if (protocol.equalsIgnoreCase("http")) {
+            return text.startsWith("HTTP/1.1 503") && text.contains("\r\n\r\nSTALE|");
+        }
+        return text.startsWith("STALE|");
+    }
+    
     /**
      * Obtém o registro de componentes.
      * 
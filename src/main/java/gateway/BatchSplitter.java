@@ -0,0 +1,159 @@
+package gateway;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import common.model.ReadConsistency;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Divisão de leituras em lote (MGET) em partes menores, encaminhadas em paralelo a réplicas
+ * diferentes, e junção das respostas na ordem original das chaves.
+ * TCP/UDP: MGET|K1|K2|...[|CONSISTÊNCIA] com resposta VALUES|K1|V1|...; HTTP: POST /mget
+ * com um array JSON de chaves e resposta com um objeto JSON.
+ */
+class BatchSplitter {
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    
+    private final String protocol;
+    private final List<byte[]> requests;
+    
+    private BatchSplitter(String protocol, List<byte[]> requests) {
+        this.protocol = protocol;
+        this.requests = requests;
+    }
+    
+    /**
+     * Divide uma requisição MGET com mais chaves que o limite.
+     * 
+     * @param request Requisição original
+     * @param protocol Protocolo usado (http, tcp, udp)
+     * @param maxKeys Número máximo de chaves por parte
+     * @return Divisão da requisição, ou null se ela não é um MGET ou não excede o limite
+     */
+    static BatchSplitter split(byte[] request, String protocol, int maxKeys) {
+        if (maxKeys <= 0) {
+            return null;
+        }
+        String text = new String(request);
+        return protocol.equalsIgnoreCase("http") ? splitHttp(text, maxKeys) : splitText(text, protocol, maxKeys);
+    }
+    
+    private static BatchSplitter splitText(String text, String protocol, int maxKeys) {
+        String[] parts = text.trim().split("\\|");
+        if (!parts[0].equalsIgnoreCase("MGET")) {
+            return null;
+        }
+        
+        int end = parts.length;
+        String suffix = "";
+        if (parts.length >= 3 && ReadConsistency.isLevel(parts[parts.length - 1])) {
+            suffix = "|" + parts[parts.length - 1];
+            end--;
+        }
+        if (end - 1 <= maxKeys) {
+            return null;
+        }
+        
+        List<byte[]> requests = new ArrayList<>();
+        for (int start = 1; start < end; start += maxKeys) {
+            StringBuilder part = new StringBuilder("MGET");
+            for (int i = start; i < Math.min(end, start + maxKeys); i++) {
+                part.append('|').append(parts[i]);
+            }
+            requests.add(part.append(suffix).toString().getBytes());
+        }
+        return new BatchSplitter(protocol, requests);
+    }
+    
+    private static BatchSplitter splitHttp(String text, int maxKeys) {
+        int headerEnd = text.indexOf("\r\n\r\n");
+        if (headerEnd < 0 || !text.startsWith("POST /mget ") && !text.startsWith("POST /mget?")) {
+            return null;
+        }
+        
+        List<String> keys;
+        try {
+            keys = GSON.fromJson(text.substring(headerEnd + 4), new TypeToken<List<String>>(){}.getType());
+        } catch (JsonParseException e) {
+            return null;
+        }
+        if (keys == null || keys.size() <= maxKeys) {
+            return null;
+        }
+        
+        String header = text.substring(0, headerEnd);
+        List<byte[]> requests = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += maxKeys) {
+            String body = GSON.toJson(keys.subList(start, Math.min(keys.size(), start + maxKeys)));
+            String partHeader = header.replaceFirst("Content-Length:\\s*\\d+", "Content-Length: " + body.length());
+            requests.add((partHeader + "\r\n\r\n" + body).getBytes());
+        }
+        return new BatchSplitter("http", requests);
+    }
+    
+    /**
+     * Obtém as partes a encaminhar.
+     * 
+     * @return Requisições, na ordem das chaves
+     */
+    List<byte[]> getRequests() {
+        return requests;
+    }
+    
+    /**
+     * Junta as respostas das partes. Se alguma parte falhou (erro, réplica defasada, etc.),
+     * a resposta dessa parte é devolvida no lugar do resultado.
+     * 
+     * @param responses Respostas, na ordem de getRequests
+     * @return Resposta única para o cliente
+     */
+    byte[] merge(List<byte[]> responses) {
+        return protocol.equalsIgnoreCase("http") ? mergeHttp(responses) : mergeText(responses);
+    }
+    
+    private static byte[] mergeText(List<byte[]> responses) {
+        StringBuilder merged = new StringBuilder("VALUES");
+        for (byte[] response : responses) {
+            String text = new String(response).trim();
+            if (!text.startsWith("VALUES|")) {
+                return response;
+            }
+            merged.append(text.substring(6));
+        }
+        return merged.toString().getBytes();
+    }
+    
+    private static byte[] mergeHttp(List<byte[]> responses) {
+        Map<String, String> merged = new LinkedHashMap<>();
+        for (byte[] response : responses) {
+            String text = new String(response);
+            int headerEnd = text.indexOf("\r\n\r\n");
+            if (!text.startsWith("HTTP/1.1 200") || headerEnd < 0) {
+                return response;
+            }
+            
+            try {
+                Map<String, String> values = GSON.fromJson(text.substring(headerEnd + 4),
+                                                           new TypeToken<LinkedHashMap<String, String>>(){}.getType());
+                if (values != null) {
+                    merged.putAll(values);
+                }
+            } catch (JsonParseException e) {
+                return response;
+            }
+        }
+        
+        String body = GSON.toJson(merged);
+        return ("HTTP/1.1 200 OK\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: " + body.length() + "\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                body).getBytes();
+    }
+}
@@ -2,12 +2,18 @@ package gateway.protocol;
 
 import gateway.APIGateway;
 import common.model.ComponentInfo;
+import common.protocol.HttpStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -20,11 +26,18 @@ import java.util.logging.Logger;
  */
 public class HTTPHandler {
     private static final Logger LOGGER = Logger.getLogger(HTTPHandler.class.getName());
+    // Tamanho dos blocos copiados entre cliente e componente nos encaminhamentos em fluxo
+    private static final int STREAM_BUFFER_BYTES = 65536;
+    // Prazo de leitura das inscrições (/watch), maior que a espera máxima de um long-poll no
+    // componente; fluxos SSE recebem avisos periódicos bem antes disso
+    private static final int SUBSCRIPTION_TIMEOUT_MS = 130000;
     
     private final APIGateway gateway;
     private final int port;
     private ServerSocket serverSocket;
     private final ExecutorService threadPool;
+    // Inscrições mantêm a conexão aberta numa thread própria, fora do pool de atendimento
+    private final ExecutorService subscriptionPool = Executors.newCachedThreadPool();
     private boolean isRunning = false;
     
     /**
@@ -92,6 +105,7 @@ public class HTTPHandler {
         }
         
         threadPool.shutdown();
+        subscriptionPool.shutdownNow();
         // LOGGER.info("Manipulador HTTP parado");
     }
     
@@ -101,33 +115,15 @@ public class HTTPHandler {
      * @param clientSocket Socket do cliente
      */
     private void handleRequest(Socket clientSocket) {
-        try (
-            BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            OutputStream output = clientSocket.getOutputStream()
-        ) {
-            // Lê a requisição
-            StringBuilder requestBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                requestBuilder.append(line).append("\r\n");
-            }
-            
-            // Lê o corpo da requisição, se presente
-            int contentLength = 0;
-            String requestHeader = requestBuilder.toString();
-            if (requestHeader.contains("Content-Length:")) {
-                String contentLengthStr = requestHeader.substring(
-                    requestHeader.indexOf("Content-Length:") + 16,
-                    requestHeader.indexOf("\r\n", requestHeader.indexOf("Content-Length:"))
-                );
-                contentLength = Integer.parseInt(contentLengthStr.trim());
-            }
-            
-            StringBuilder requestBody = new StringBuilder();
-            if (contentLength > 0) {
-                char[] buffer = new char[contentLength];
-                reader.read(buffer, 0, contentLength);
-                requestBody.append(buffer);
+        // Uma inscrição assume a conexão, que então não é fechada aqui
+        boolean subscribed = false;
+        try {
+            InputStream input = new BufferedInputStream(clientSocket.getInputStream());
+            OutputStream output = clientSocket.getOutputStream();
+            // Lê a requisição (o corpo é lido depois, conforme o destino)
+            String requestHeader = HttpStreams.readHead(input);
+            if (requestHeader == null) {
+                return;
             }
             
             // Analisa a requisição para extrair o componente de destino
@@ -194,12 +190,42 @@ public class HTTPHandler {
             String modifiedFirstLine = parts[0] + " " + newPath + " " + parts[2];
             String modifiedRequestHeader = requestHeader.replace(firstLine, modifiedFirstLine);
             
-            // Cria a requisição completa para encaminhar
-            String fullRequest = modifiedRequestHeader + "\r\n" + requestBody.toString();
-            
             try {
+                // Inscrições do Componente A e leituras de eventos do Componente B com espera
+                // (long-poll ou SSE) passam em fluxo, sem prazo de atendimento
+                if (isSubscription(componentType, modifiedRequestHeader)) {
+                    String subscriptionHead = modifiedRequestHeader;
+                    String subscriptionType = componentType;
+                    subscriptionPool.execute(() -> streamSubscription(subscriptionType, subscriptionHead,
+                                                                      clientSocket, input, output));
+                    subscribed = true;
+                    return;
+                }
+                
+                // Valores do Componente A podem ser grandes: corpo e resposta passam em fluxo
+                if (componentType.equals("componentA") && (newPath.startsWith("/get/") || newPath.startsWith("/set/"))) {
+                    if (!gateway.routeStream(componentType, modifiedRequestHeader, input, output)) {
+                        output.write(("HTTP/1.1 404 Not Found\r\n" +
+                                      "Content-Type: text/plain\r\n" +
+                                      "Content-Length: 24\r\n\r\n" +
+                                      "Componente não encontrado").getBytes());
+                    }
+                    output.flush();
+                    return;
+                }
+                
+                // Cria a requisição completa para encaminhar; um corpo chunked segue com Content-Length
+                byte[] requestBody = HttpStreams.openBody(requestHeader, input).readAllBytes();
+                if (HttpStreams.isChunked(modifiedRequestHeader)) {
+                    modifiedRequestHeader = modifiedRequestHeader.replaceAll("(?i)Transfer-Encoding:[^\r]*\r\n", "") +
+                                            "Content-Length: " + requestBody.length + "\r\n";
+                }
+                ByteArrayOutputStream fullRequest = new ByteArrayOutputStream();
+                fullRequest.write((modifiedRequestHeader + "\r\n").getBytes(StandardCharsets.UTF_8));
+                fullRequest.write(requestBody);
+                
                 // Encaminha a requisição para o componente apropriado
-                byte[] response = gateway.routeRequest(componentType, fullRequest.getBytes(), "http");
+                byte[] response = gateway.routeRequest(componentType, fullRequest.toByteArray(), "http");
                 
                 // Se obteve uma resposta, envia-a de volta
                 if (response != null && response.length > 0) {
@@ -227,14 +253,116 @@ public class HTTPHandler {
         } catch (IOException e) {
             // LOGGER.log(Level.WARNING, "Erro ao lidar com a requisição HTTP", e);
         } finally {
-            try {
-                clientSocket.close();
-            } catch (IOException e) {
-                // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
+            if (!subscribed) {
+                closeQuietly(clientSocket);
             }
         }
     }
     
+    /**
+     * Verifica se a requisição abre uma inscrição, cuja resposta pode demorar ou chegar aos
+     * poucos: GET /watch do Componente A e GET /events do Componente B com wait ou com
+     * Accept: text/event-stream.
+     * 
+     * @param requestHead Linha de requisição e cabeçalhos, já com o caminho reescrito
+     */
+    private static boolean isSubscription(String componentType, String requestHead) {
+        if (componentType.equals("componentA")) {
+            return requestHead.startsWith("GET /watch");
+        }
+        if (!componentType.equals("componentB") || !requestHead.startsWith("GET /events")) {
+            return false;
+        }
+        String target = requestHead.substring(4, requestHead.indexOf(' ', 4));
+        String accept = HttpStreams.getHeader(requestHead, "Accept");
+        return target.contains("wait=") || (accept != null && accept.contains("text/event-stream"));
+    }
+    
+    /**
+     * Encaminha uma inscrição em fluxo e fecha a conexão do cliente ao fim dela.
+     */
+    private void streamSubscription(String componentType, String requestHead, Socket clientSocket,
+                                    InputStream input, OutputStream output) {
+        try {
+            if (!gateway.routeStream(componentType, requestHead, input, output)) {
+                output.write(("HTTP/1.1 404 Not Found\r\n" +
+                              "Content-Type: text/plain\r\n" +
+                              "Content-Length: 24\r\n\r\n" +
+                              "Componente não encontrado").getBytes());
+            }
+            output.flush();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao encaminhar inscrição para o componente " + componentType, e);
+        } finally {
+            closeQuietly(clientSocket);
+        }
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
+        }
+    }
+    
+    /**
+     * Encaminha uma requisição HTTP para um componente em fluxo.
+     * O corpo da requisição é copiado do cliente em blocos (mantendo o enquadramento chunked,
+     * se for o caso), e a resposta é copiada para o cliente à medida que chega, até o
+     * componente encerrar a conexão. Inscrições (/watch e leituras de /events com espera ou
+     * em fluxo) não têm o prazo curto de leitura das demais requisições.
+     * 
+     * @param component Informações do componente de destino
+     * @param requestHead Linha de requisição e cabeçalhos
+     * @param body Fluxo do cliente, posicionado no início do corpo
+     * @param client Fluxo de saída para o cliente
+     * @param deliverStale Se uma recusa por defasagem (503 STALE|...) deve ser entregue ao cliente
+     * @return false se a resposta foi uma recusa por defasagem não entregue
+     * @throws IOException Se ocorrer um erro na comunicação
+     */
+    public boolean streamRequest(ComponentInfo component, String requestHead, InputStream body,
+                                 OutputStream client, boolean deliverStale) throws IOException {
+        try (Socket socket = new Socket(component.getHost(), component.getHttpPort())) {
+            boolean subscription = isSubscription(component.getType(), requestHead);
+            socket.setSoTimeout(subscription ? SUBSCRIPTION_TIMEOUT_MS : 5000);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_BYTES);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_BYTES);
+            byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+            
+            out.write((requestHead + "\r\n").getBytes(StandardCharsets.UTF_8));
+            InputStream requestBody = HttpStreams.openBody(requestHead, body);
+            if (HttpStreams.isChunked(requestHead)) {
+                HttpStreams.ChunkedOutputStream chunked = new HttpStreams.ChunkedOutputStream(out);
+                HttpStreams.copy(requestBody, chunked, buffer);
+                chunked.finish();
+            } else {
+                HttpStreams.copy(requestBody, out, buffer);
+            }
+            out.flush();
+            
+            String responseHead = HttpStreams.readHead(in);
+            if (responseHead == null) {
+                client.write("HTTP/1.1 504 Gateway Timeout\r\nContent-Length: 29\r\n\r\nComponente não respondeu".getBytes());
+                return true;
+            }
+            
+            if (!deliverStale && responseHead.startsWith("HTTP/1.1 503")) {
+                byte[] responseBody = HttpStreams.openBody(responseHead, in).readAllBytes();
+                if (new String(responseBody, StandardCharsets.UTF_8).startsWith("STALE|")) {
+                    return false;
+                }
+                client.write((responseHead + "\r\n").getBytes(StandardCharsets.UTF_8));
+                client.write(responseBody);
+                return true;
+            }
+            
+            client.write((responseHead + "\r\n").getBytes(StandardCharsets.UTF_8));
+            HttpStreams.copy(in, client, buffer);
+            return true;
+        }
+    }
+    
     /**
      * Encaminha uma requisição HTTP para um componente.
      * 
@@ -21,11 +21,15 @@ import java.util.logging.Logger;
  */
 public class TCPHandler {
     private static final Logger LOGGER = Logger.getLogger(TCPHandler.class.getName());
+    // Prazo de leitura das inscrições; o componente envia avisos periódicos bem antes disso
+    private static final int SUBSCRIPTION_TIMEOUT_MS = 30000;
     
     private final APIGateway gateway;
     private final int port;
     private ServerSocket serverSocket;
     private final ExecutorService threadPool;
+    // Inscrições mantêm a conexão aberta numa thread própria, fora do pool de atendimento
+    private final ExecutorService subscriptionPool = Executors.newCachedThreadPool();
     private boolean isRunning = false;
     
     /**
@@ -93,6 +97,7 @@ public class TCPHandler {
         }
         
         threadPool.shutdown();
+        subscriptionPool.shutdownNow();
         // LOGGER.info("Manipulador TCP parado");
     }
     
@@ -102,10 +107,11 @@ public class TCPHandler {
      * @param clientSocket Socket do cliente
      */
     private void handleRequest(Socket clientSocket) {
-        try (
+        // Uma inscrição assume a conexão, que então não é fechada aqui
+        boolean subscribed = false;
+        try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            PrintWriter writer = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream()), true)
-        ) {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream()), true);
             // Lê a requisição
             String request = reader.readLine();
             
@@ -117,6 +123,13 @@ public class TCPHandler {
                     String componentType = parts[0];
                     String actualRequest = parts[1];
                     
+                    if (isSubscription(actualRequest)) {
+                        subscriptionPool.execute(() -> streamSubscription(componentType, actualRequest,
+                                                                          clientSocket, writer));
+                        subscribed = true;
+                        return;
+                    }
+                    
                     // Encaminha a requisição para o componente apropriado
                     byte[] response = gateway.routeRequest(componentType, actualRequest.getBytes(), "tcp");
                     
@@ -129,11 +142,52 @@ public class TCPHandler {
         } catch (IOException e) {
             // LOGGER.log(Level.WARNING, "Erro ao lidar com a requisição TCP", e);
         } finally {
+            if (!subscribed) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+    
+    /**
+     * Verifica se a requisição abre uma inscrição (WATCH e WATCH_PREFIX do Componente A), cujas
+     * respostas chegam em várias linhas enquanto a conexão estiver aberta, ou é uma leitura com
+     * espera (READ e READ_CURSOR do Componente B com ESPERA_MS), cuja resposta pode demorar.
+     * Ambas seguem por uma conexão própria, sem ocupar o pool de atendimento.
+     */
+    private static boolean isSubscription(String request) {
+        String[] parts = request.split("\\|");
+        String action = parts[0].toUpperCase();
+        if ((action.equals("READ") || action.equals("READ_CURSOR")) && parts.length >= 5) {
             try {
-                clientSocket.close();
-            } catch (IOException e) {
-                // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
+                return Long.parseLong(parts[4].trim()) > 0;
+            } catch (NumberFormatException e) {
+                // Quinto campo é o nível de consistência
+                return false;
+            }
+        }
+        return action.equals("WATCH") || action.equals("WATCH_PREFIX");
+    }
+    
+    /**
+     * Encaminha uma inscrição e fecha a conexão do cliente ao fim dela.
+     */
+    private void streamSubscription(String componentType, String request, Socket clientSocket, PrintWriter writer) {
+        try {
+            if (!gateway.routeSubscription(componentType, request, writer)) {
+                writer.println("ERRO: Componente não encontrado: " + componentType);
             }
+        } catch (IOException e) {
+            writer.println("ERRO: Falha ao encaminhar inscrição: " + e.getMessage());
+        } finally {
+            closeQuietly(clientSocket);
+        }
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // LOGGER.log(Level.WARNING, "Erro ao fechar o socket do cliente", e);
         }
     }
     
@@ -159,4 +213,33 @@ public class TCPHandler {
             return response != null ? response.getBytes() : "Sem resposta".getBytes();
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Encaminha uma inscrição para um componente, repassando ao cliente cada linha recebida
+     * até que o componente encerre a conexão ou o cliente se desconecte.
+     * 
+     * @param component Informações do componente de destino
+     * @param request Requisição de inscrição
+     * @param client Saída para o cliente
+     * @throws IOException Se ocorrer um erro na comunicação com o componente
+     */
+    public void streamLines(ComponentInfo component, String request, PrintWriter client) throws IOException {
+        try (
+            Socket socket = new Socket(component.getHost(), component.getTcpPort());
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))
+        ) {
+            socket.setSoTimeout(SUBSCRIPTION_TIMEOUT_MS);
+            out.println(request);
+            
+            String line;
+            while ((line = in.readLine()) != null) {
+                client.println(line);
+                if (client.checkError()) {
+                    // Cliente desconectado
+                    return;
+                }
+            }
+        }
+    }
+}